@@ -0,0 +1,493 @@
+import DBHelper.Movies;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * The MovieBenchmark class measures the hot paths of the movie collection against temporary SQLite databases.
+ * <p>
+ * For every catalog size, a database is generated with {@link MovieDataGenerator}, a {@link MovieCollection} is loaded from
+ * it, and each benchmark is run for a number of warmup iterations followed by measured iterations. The mean and best time
+ * per operation and the resulting operations per second are printed as a table, so regressions show up as numbers.
+ * </p>
+ *
+ * <p>
+ * Benchmarked operations: {@code addMovie}, {@code updateMovie}, {@code removeMovie}, {@code refreshMovies},
+ * {@code refreshChanges}, {@code calculateAverageRating}, {@code addMoviesFromFile} (row by row, bulk and an unchanged
+ * rerun), three single-column updates against one {@code updateMovieFields} call,
+ * parsing an import file line by line and memory-mapped without touching the database,
+ * {@code MovieValidator.validate} on already split rows, {@code movieExists} with and without a
+ * {@code TitleBloomFilter} in front, the first and last page of {@code queryMovies} against an {@code OFFSET} query,
+ * {@code searchMovies} by title words, by director and with a typo, adds, updates and removes that write behind and
+ * the {@code flush} that writes them,
+ * {@code DBHelper.Movies.select} and its
+ * streaming counterpart {@code DBHelper.Movies.forEachRow}.
+ * </p>
+ *
+ * <p>
+ * Run with the SQLite driver on the class path and no display, for example:
+ * <pre>
+ * java -Djava.awt.headless=true -cp out:sqlite-jdbc.jar MovieBenchmark --sizes=1000,100000,1000000 --warmup=2 --iterations=5
+ * </pre>
+ * Sizes from 1k up to 10M are supported; large sizes take a while to generate.
+ */
+public class MovieBenchmark {
+    /** The number of rows imported per iteration by the bulk file import benchmark (capped by the catalog size). */
+    private static final int IMPORT_ROWS = 50_000;
+    /** The number of rows imported per iteration by the row-by-row file import benchmark. */
+    private static final int ROW_BY_ROW_IMPORT_ROWS = 500;
+    /** The number of movies per page in the paged query benchmarks. */
+    private static final int PAGE_SIZE = 50;
+
+    /** The console the results are printed to, kept while the benchmarked code's own output is silenced. */
+    private static final PrintStream RESULTS = System.out;
+    /** A console that discards everything, used while measuring. */
+    private static final PrintStream SILENT = new PrintStream(OutputStream.nullOutputStream());
+    /** Receives benchmark results so the JIT cannot remove the measured work. */
+    private static volatile Object sink;
+
+    /** The number of unmeasured iterations per benchmark. */
+    private static int warmup = 2;
+    /** The number of measured iterations per benchmark. */
+    private static int iterations = 5;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Runs every benchmark for each configured catalog size.
+     *
+     * @param args optional {@code --sizes=1000,10000}, {@code --warmup=N} and {@code --iterations=N}
+     * @throws Exception if a database or file cannot be created
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1_000, 10_000, 100_000};
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring(8).split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring(13));
+            }
+        }
+
+        RESULTS.printf("%-10s %-36s %14s %14s %14s%n", "size", "benchmark", "mean us/op", "best us/op", "ops/sec");
+        for (int size : sizes) {
+            runSize(size);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Generates a catalog of one size and runs every benchmark against it.
+     *
+     * @param size the number of movies in the catalog
+     * @throws Exception if a database or file cannot be created
+     */
+    private static void runSize(int size) throws Exception {
+        File db = File.createTempFile("movie-bench-" + size + "-", ".db");
+        db.deleteOnExit();
+        MovieDataGenerator.createDatabase(db, size, 42);
+
+        System.setOut(SILENT);
+        DatabaseHandler handler = new DatabaseHandler();
+        handler.connect(db.getAbsolutePath());
+        MovieCollection collection = new MovieCollection(handler);
+        System.setOut(RESULTS);
+
+        int ops = 200;
+        measure(size, "addMovie", ops, null,
+                n -> collection.addMovie(MovieDataGenerator.movie(n, "Bench Add", new Random(n))));
+        measure(size, "updateMovie (rating)", ops, null,
+                n -> collection.updateMovie("Bench Add " + n, "rating", Float.toString(n % 100)));
+        measure(size, "updateMovieAttribute x3", ops, null,
+                n -> {
+                    handler.updateMovieAttribute("Bench Add " + n, "rating", Float.toString(n % 100));
+                    handler.updateMovieAttribute("Bench Add " + n, "release_year", Integer.toString(1950 + n % 70));
+                    handler.updateMovieAttribute("Bench Add " + n, "watched_status", Boolean.toString(n % 2 == 0));
+                });
+        measure(size, "updateMovieFields (3 columns)", ops, null,
+                n -> handler.updateMovieFields("Bench Add " + n, Map.of(MovieColumn.RATING, n % 100,
+                        MovieColumn.RELEASE_YEAR, 1950 + n % 70, MovieColumn.WATCHED_STATUS, n % 2 == 0)));
+        measure(size, "removeMovie", ops, null,
+                n -> collection.removeMovie("Bench Add " + n));
+        measureWriteBehind(size, db, ops);
+        measure(size, "calculateAverageRating", 100_000, null,
+                n -> sink = collection.calculateAverageRating());
+        measure(size, "refreshChanges (nothing changed)", 1_000, null,
+                n -> sink = collection.refreshChanges());
+        measure(size, "refreshMovies", 1, null,
+                n -> collection.refreshMovies());
+        File snapshot = File.createTempFile("movie-bench-", MovieSnapshot.FILE_SUFFIX);
+        snapshot.deleteOnExit();
+        measure(size, "MovieSnapshot.write (all rows)", 1, null,
+                n -> writeSnapshot(snapshot, collection.movies.values()));
+        measure(size, "MovieSnapshot.read (all rows)", 1, null,
+                n -> sink = readSnapshot(snapshot));
+
+        int importRows = Math.min(size, IMPORT_ROWS);
+        File csv = File.createTempFile("movie-bench-import-", ".csv");
+        csv.deleteOnExit();
+        measure(size, "addMoviesFromFile bulk (" + importRows + " rows)", 1,
+                iteration -> writeCsv(csv, importRows, "Bench Bulk " + iteration),
+                n -> sink = collection.addMoviesFromFile(csv.getAbsolutePath(), BulkMovieImporter.DEFAULT_BATCH_SIZE));
+        measure(size, "addMoviesFromFile 1 worker (" + importRows + ")", 1,
+                iteration -> writeCsv(csv, importRows, "Bench Serial " + iteration),
+                n -> sink = collection.addMoviesFromFile(csv.getAbsolutePath(), BulkMovieImporter.DEFAULT_BATCH_SIZE, 1));
+        measure(size, "movieExists (absent title)", 1_000, null,
+                n -> sink = handler.movieExists("Absent " + n));
+        TitleBloomFilter titles = TitleBloomFilter.load(handler.getConnection(), TitleBloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+        measure(size, "TitleBloomFilter.exists (absent)", 1_000, null,
+                n -> sink = titles.exists("Absent " + n, handler::movieExists));
+        MovieQuery byRating = new MovieQuery(null, null, "rating", true, PAGE_SIZE);
+        String lastCursor = lastPageCursor(handler, byRating);
+        measure(size, "queryMovies first page (" + PAGE_SIZE + ")", 100, null,
+                n -> sink = queryPage(handler, byRating, null));
+        measure(size, "queryMovies last page (" + PAGE_SIZE + ")", 100, null,
+                n -> sink = queryPage(handler, byRating, lastCursor));
+        measure(size, "OFFSET last page (" + PAGE_SIZE + ")", 10, null,
+                n -> sink = offsetPage(handler, size - PAGE_SIZE));
+        measure(size, "searchMovies title words", 100, null,
+                n -> sink = searchMovies(handler, "movie " + (n % size)));
+        measure(size, "searchMovies director", 20, null,
+                n -> sink = searchMovies(handler, "kubrick"));
+        measure(size, "searchMovies fuzzy", 20, null,
+                n -> sink = searchMovies(handler, "kubrik"));
+        String[][] rows = validationRows();
+        MovieValidator validator = new MovieValidator();
+        measure(size, "MovieValidator.validate (" + rows.length + " rows)", 2_000, null,
+                n -> sink = validateAll(rows, validator));
+
+        writeCsv(csv, importRows, "Bench Parse");
+        measure(size, "parse lines (" + importRows + " rows)", 1, null,
+                n -> sink = parseLines(csv));
+        measure(size, "parse mapped (" + importRows + " rows)", 1, null,
+                n -> sink = parseMapped(csv));
+        // The first set-up imports the file, so every measured run re-imports rows that are stored unchanged
+        measure(size, "addMoviesFromFile rerun (" + importRows + " rows)", 1,
+                iteration -> {
+                    if (iteration == 0) {
+                        System.setOut(SILENT);
+                        collection.addMoviesFromFile(csv.getAbsolutePath(), BulkMovieImporter.DEFAULT_BATCH_SIZE);
+                    }
+                },
+                n -> sink = collection.addMoviesFromFile(csv.getAbsolutePath(), BulkMovieImporter.DEFAULT_BATCH_SIZE));
+        measure(size, "addMoviesFromFile rows (" + ROW_BY_ROW_IMPORT_ROWS + " rows)", 1,
+                iteration -> writeCsv(csv, ROW_BY_ROW_IMPORT_ROWS, "Bench Rows " + iteration),
+                n -> collection.addMoviesFromFile(csv.getAbsolutePath()));
+
+        Movies moviesTable = new Movies(db.getAbsolutePath());
+        measure(size, "DBHelper.Movies.select (all rows)", 1, null,
+                n -> sink = moviesTable.select(null, null, null, null, null));
+        measure(size, "DBHelper.Movies.forEachRow (all rows)", 1, null,
+                n -> sink = sumRatings(moviesTable));
+
+        handler.close();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Reads one page of a query, turning a database error into an unchecked one so it can be measured.
+     *
+     * @param handler the connected handler
+     * @param query the query
+     * @param cursor the cursor of the previous page, or null
+     * @return the page
+     */
+    private static MoviePage queryPage(DatabaseHandler handler, MovieQuery query, String cursor) {
+        try {
+            return handler.queryMovies(query, cursor);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Measures adds, updates and removes through a second collection that writes behind, and the flush that writes them.
+     *
+     * @param size the number of movies in the catalog
+     * @param db the catalog database
+     * @param ops the number of operations per iteration
+     */
+    private static void measureWriteBehind(int size, File db, int ops) {
+        System.setOut(SILENT);
+        System.setProperty(DatabaseConfig.WRITE_BEHIND, "true");
+        DatabaseHandler handler = new DatabaseHandler();
+        handler.connect(db.getAbsolutePath());
+        MovieCollection collection = new MovieCollection(handler);
+        System.clearProperty(DatabaseConfig.WRITE_BEHIND);
+        System.setOut(RESULTS);
+
+        measure(size, "addMovie (write-behind)", ops, null,
+                n -> collection.addMovie(MovieDataGenerator.movie(n, "Bench Behind", new Random(n))));
+        measure(size, "updateMovie (write-behind)", ops, null,
+                n -> collection.updateMovie("Bench Behind " + n, "rating", Float.toString(n % 100)));
+        measure(size, "removeMovie (write-behind)", ops, null,
+                n -> collection.removeMovie("Bench Behind " + n));
+        measure(size, "flush (" + ops + " queued adds)", 1,
+                iteration -> {
+                    System.setOut(SILENT);
+                    for (int n = 0; n < ops; n++) {
+                        collection.addMovie(MovieDataGenerator.movie(n, "Bench Flush " + iteration, new Random(n)));
+                    }
+                    System.setOut(RESULTS);
+                },
+                n -> sink = collection.flush());
+
+        System.setOut(SILENT);
+        collection.close();
+        System.setOut(RESULTS);
+    }
+
+    /**
+     * Writes a snapshot, turning a file error into an unchecked one so it can be measured.
+     *
+     * @param file the snapshot file
+     * @param movies the movies to save
+     */
+    private static void writeSnapshot(File file, Collection<Movie> movies) {
+        try {
+            MovieSnapshot.write(file.toPath(), movies, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a snapshot, turning a file error into an unchecked one so it can be measured.
+     * @param file the snapshot file
+     * @return the snapshot
+     */
+    private static MovieSnapshot readSnapshot(File file) {
+        try {
+            return MovieSnapshot.read(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs one full-text search, turning a database error into an unchecked one so it can be measured.
+     *
+     * @param handler the connected handler
+     * @param text the search text
+     * @return the first 20 matches
+     */
+    private static List<Movie> searchMovies(DatabaseHandler handler, String text) {
+        try {
+            return handler.searchMovies(text, 20);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Follows the cursors of a query to find the one that leads to its last page.
+     *
+     * @param handler the connected handler
+     * @param query the query
+     * @return the cursor of the last page, or null if there is only one page
+     */
+    private static String lastPageCursor(DatabaseHandler handler, MovieQuery query) {
+        String cursor = null;
+        MoviePage page = queryPage(handler, query, null);
+        while (page.hasMore()) {
+            cursor = page.getNextCursor();
+            page = queryPage(handler, query, cursor);
+        }
+        return cursor;
+    }
+
+    /**
+     * Reads one page by rating with {@code OFFSET}, the way paging worked without a cursor, for comparison.
+     *
+     * @param handler the connected handler
+     * @param offset the number of rows to skip
+     * @return the number of rows read
+     */
+    private static int offsetPage(DatabaseHandler handler, int offset) {
+        String sql = "SELECT * FROM Movies ORDER BY Rating, ID LIMIT " + PAGE_SIZE + " OFFSET " + Math.max(0, offset) + ";";
+        try (Statement stmt = handler.getConnection().createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            int count = 0;
+            while (rs.next()) {
+                count++;
+            }
+            return count;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs one benchmark and prints its result line.
+     * <p>
+     * The operation receives a number that increases across all warmup and measured iterations, so benchmarks that need
+     * unique titles can derive them from it. Console output of the benchmarked code is discarded while measuring.
+     * </p>
+     *
+     * @param size the catalog size, printed with the result
+     * @param name the benchmark name
+     * @param opsPerIteration the number of operations per iteration
+     * @param setUp run before each iteration with the iteration number, outside the measured time (may be null)
+     * @param operation the operation to measure
+     */
+    private static void measure(int size, String name, int opsPerIteration, IntConsumer setUp, IntConsumer operation) {
+        double[] nanosPerOp = new double[iterations];
+        int counter = 0;
+
+        for (int iteration = 0; iteration < warmup + iterations; iteration++) {
+            if (setUp != null) {
+                setUp.accept(iteration);
+            }
+            System.setOut(SILENT);
+            long start = System.nanoTime();
+            for (int op = 0; op < opsPerIteration; op++) {
+                operation.accept(counter++);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.setOut(RESULTS);
+
+            if (iteration >= warmup) {
+                nanosPerOp[iteration - warmup] = (double) elapsed / opsPerIteration;
+            }
+        }
+
+        double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+        double best = Arrays.stream(nanosPerOp).min().orElse(0);
+        RESULTS.printf("%-10d %-36s %14.3f %14.3f %,14.0f%n", size, name, mean / 1_000, best / 1_000,
+                mean == 0 ? 0 : 1_000_000_000 / mean);
+    }
+
+    /**
+     * Streams every row through a cursor and sums the ratings, the constant-memory counterpart of {@code select}.
+     *
+     * @param moviesTable the table to read
+     * @return the sum of all ratings
+     */
+    private static double sumRatings(Movies moviesTable) {
+        double[] total = new double[1];
+        try {
+            moviesTable.forEachRow(null, null, null, null, null, Movies.DEFAULT_FETCH_SIZE, row -> {
+                total[0] += row.getDouble(6);
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return total[0];
+    }
+
+    /**
+     * Validates a batch of rows, so the per-row cost is not hidden by the cost of calling the benchmarked operation.
+     *
+     * @param rows the rows to validate
+     * @param validator the validator to use
+     * @return the number of invalid rows
+     */
+    private static int validateAll(String[][] rows, MovieValidator validator) {
+        int invalid = 0;
+        for (String[] row : rows) {
+            if (validator.validate(row[0], row[1], row[2], row[3], row[4], row[5]) != null) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Builds the rows validated by the validation benchmark: mostly valid rows, with every kind of error mixed in.
+     * @return 1024 rows of six trimmed fields
+     */
+    private static String[][] validationRows() {
+        Random random = new Random(7);
+        String[][] invalid = {
+                {"", "2001", "Drama", "Jane Campion", "50", "true"},
+                {"Bad Year", "19x1", "Drama", "Jane Campion", "50", "true"},
+                {"Bad Genre", "2001", "Musical", "Jane Campion", "50", "true"},
+                {"Bad Director", "2001", "Drama", "J4ne Campion", "50", "true"},
+                {"Bad Rating", "2001", "Drama", "Jane Campion", "150", "true"},
+                {"Bad Watched", "2001", "Drama", "Jane Campion", "50", "yes"}};
+        String[][] rows = new String[1024][];
+        for (int i = 0; i < rows.length; i++) {
+            if (i % 8 == 7) {
+                rows[i] = invalid[(i / 8) % invalid.length];
+            } else {
+                Movie movie = MovieDataGenerator.movie(i, "Bench Validate", random);
+                rows[i] = new String[]{movie.getTitle(), Integer.toString(movie.getRelease_Year()), movie.getGenre(),
+                        movie.getDirector(), Float.toString(movie.getRating()), Boolean.toString(movie.getWatched_Status())};
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Parses an import file the way the line-based importer does: decode every line, split it and validate it.
+     *
+     * @param csv the file to parse
+     * @return the number of valid movies
+     */
+    private static int parseLines(File csv) {
+        int valid = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(csv))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (MovieCollection.parseMovieLine(line) != null) {
+                    valid++;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return valid;
+    }
+
+    /**
+     * Parses an import file memory-mapped, validating each record on its bytes.
+     *
+     * @param csv the file to parse
+     * @return the number of valid movies
+     */
+    private static int parseMapped(File csv) {
+        int valid = 0;
+        try (MappedCsvReader.Chunker chunker = new MappedCsvReader.Chunker(csv.getAbsolutePath(), Integer.MAX_VALUE)) {
+            MappedCsvReader records;
+            while ((records = chunker.next()) != null) {
+                while (records.nextRecord()) {
+                    if (MovieCollection.parseMovieRecord(records) != null) {
+                        valid++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return valid;
+    }
+
+    /**
+     * Writes a benchmark import file, turning the checked exception into an unchecked one for use in a setup callback.
+     *
+     * @param csv the file to write
+     * @param rows the number of rows
+     * @param titlePrefix the text every title starts with
+     */
+    private static void writeCsv(File csv, int rows, String titlePrefix) {
+        try {
+            MovieDataGenerator.writeCsv(csv, rows, titlePrefix, titlePrefix.hashCode());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}//class
@@ -0,0 +1,132 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The MovieDataGenerator class creates synthetic movie catalogs for benchmarks.
+ * <p>
+ * All generated movies pass the application's validation rules: titles are unique and at most 45 characters, genres come
+ * from the valid genre list, directors are letters and spaces only, years are between 1900 and 2025 and ratings between
+ * 0 and 100. The same seed always produces the same catalog, so benchmark runs can be compared.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * File db = File.createTempFile("movies", ".db");
+ * MovieDataGenerator.createDatabase(db, 100_000, 42);
+ * </pre>
+ */
+public class MovieDataGenerator {
+    /** The genres accepted by the application. */
+    private static final String[] GENRES = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance",
+            "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
+    /** First names used to build director names. */
+    private static final String[] FIRST_NAMES = {"Christopher", "Michael", "Sofia", "Greta", "Martin", "Kathryn", "Ridley",
+            "Ava", "Spike", "Jane", "Denis", "Agnes", "Akira", "Chloe", "Bong", "Ang", "Lynne", "Wes", "Mira", "Jordan"};
+    /** Last names used to build director names. */
+    private static final String[] LAST_NAMES = {"Nolan", "Mann", "Coppola", "Gerwig", "Scorsese", "Bigelow", "Scott",
+            "DuVernay", "Lee", "Campion", "Villeneuve", "Varda", "Kurosawa", "Zhao", "Joon", "Ramsay", "Anderson", "Nair",
+            "Peele", "Hitchcock", "Kubrick", "Lynch", "Fincher", "Wilder", "Ford", "Leone", "Hawks", "Welles", "Lean", "Reed"};
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Generates one synthetic movie.
+     *
+     * @param index the position of the movie, which makes its title unique
+     * @param titlePrefix the text the title starts with
+     * @param random the random source for the other fields
+     * @return the generated movie
+     */
+    public static Movie movie(int index, String titlePrefix, Random random) {
+        String director = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        return new Movie(
+                titlePrefix + " " + index,
+                1900 + random.nextInt(126),
+                GENRES[random.nextInt(GENRES.length)],
+                director,
+                random.nextInt(1001) / 10f,
+                random.nextBoolean());
+    }
+
+    /**
+     * Generates a list of synthetic movies.
+     *
+     * @param count the number of movies
+     * @param titlePrefix the text every title starts with
+     * @param seed the random seed
+     * @return the generated movies
+     */
+    public static List<Movie> generate(int count, String titlePrefix, long seed) {
+        Random random = new Random(seed);
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            movies.add(movie(i, titlePrefix, random));
+        }
+        return movies;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Writes synthetic movies to a CSV file in the import format (Title,Year,Genre,Director,Rating,Watched).
+     *
+     * @param file the file to write
+     * @param count the number of movies
+     * @param titlePrefix the text every title starts with
+     * @param seed the random seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCsv(File file, int count, String titlePrefix, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < count; i++) {
+                Movie movie = movie(i, titlePrefix, random);
+                writer.write(movie.getTitle() + "," + movie.getRelease_Year() + "," + movie.getGenre() + ","
+                        + movie.getDirector() + "," + movie.getRating() + "," + movie.getWatched_Status());
+                writer.newLine();
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a SQLite database with an empty `Movies` table.
+     *
+     * @param file the database file to create or overwrite
+     * @throws SQLException if the table cannot be created
+     */
+    public static void createSchema(File file) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS Movies;");
+            stmt.execute("CREATE TABLE Movies (ID INTEGER PRIMARY KEY AUTOINCREMENT, Title TEXT NOT NULL, "
+                    + "Release_Year INTEGER, Genre TEXT, Director TEXT, Rating REAL, Watched_Status BOOLEAN);");
+        }
+    }
+
+    /**
+     * Creates a SQLite database with a `Movies` table filled with synthetic movies.
+     *
+     * @param file the database file to create or overwrite
+     * @param count the number of movies
+     * @param seed the random seed
+     * @throws SQLException if the database cannot be written
+     */
+    public static void createDatabase(File file, int count, long seed) throws SQLException {
+        createSchema(file);
+        Random random = new Random(seed);
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             BulkMovieImporter importer = new BulkMovieImporter(conn, 10_000)) {
+            for (int i = 0; i < count; i++) {
+                importer.add(movie(i, "Movie", random));
+            }
+        }
+    }
+}//class
@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The MovieFootprint class measures how much heap the in-memory movie layouts take.
+ * <p>
+ * For every catalog size the same synthetic movies are loaded twice: into a {@code ConcurrentHashMap} with a
+ * {@link MovieIndex}, the way {@link MovieCollection} keeps them by default, and into a {@link MovieColumnStore}. Every
+ * string is copied as it is loaded, as if read from the database, so the measurement includes what
+ * {@link MovieDictionary} saves by sharing genres and directors. The heap in use
+ * is measured after a full garbage collection before and after each load, and printed next to the estimate each layout
+ * computes for itself, together with the time of a genre query on both layouts.
+ * </p>
+ *
+ * <p>
+ * Run with enough heap for the largest size, for example:
+ * <pre>
+ * java -Xmx4g -cp out MovieFootprint --sizes=100000,1000000
+ * </pre>
+ * </p>
+ */
+public class MovieFootprint {
+    /** Keeps the measured layout reachable while the heap is measured. */
+    private static volatile Object sink;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Runs the measurement.
+     * @param args {@code --sizes=} a comma separated list of catalog sizes
+     */
+    public static void main(String[] args) {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring(8).split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+            }
+        }
+
+        System.out.printf("%-10s %-10s %16s %16s %12s %14s%n",
+                "size", "layout", "measured KB", "estimated KB", "bytes/movie", "genre query ms");
+        for (int size : sizes) {
+            long mapBytes = measureMap(size);
+
+            long before = usedHeap();
+            MovieColumnStore columns = new MovieColumnStore();
+            load(size, columns::put);
+            long columnBytes = usedHeap() - before;
+            sink = columns;
+            print(size, "columnar", columnBytes, columns.estimateBytes(), timeQuery(columns));
+            System.out.printf("%-10d %-10s %15.1fx%n", size, "saving", (double) mapBytes / Math.max(1, columnBytes));
+            sink = null;
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Loads a catalog into a map with indexes, prints its row and lets it go.
+     * @param size the number of movies
+     * @return the measured heap growth in bytes
+     */
+    private static long measureMap(int size) {
+        long before = usedHeap();
+        Map<String, Movie> map = new ConcurrentHashMap<>();
+        MovieIndex index = new MovieIndex();
+        load(size, (title, movie) -> {
+            map.put(title, movie);
+            index.add(movie);
+        });
+        long mapBytes = usedHeap() - before;
+        print(size, "map", mapBytes, MovieColumnStore.estimateMapBytes(map.values()), timeQuery(index));
+        sink = null;
+        return mapBytes;
+    }
+
+    /**
+     * Generates a catalog and hands each movie, with copies of its strings, to a layout.
+     *
+     * @param size the number of movies
+     * @param store receives the title and the movie
+     */
+    private static void load(int size, BiConsumer<String, Movie> store) {
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            Movie generated = MovieDataGenerator.movie(i, "Footprint", random);
+            Movie movie = new Movie(new String(generated.getTitle()), generated.getRelease_Year(),
+                    new String(generated.getGenre()), new String(generated.getDirector()), generated.getRating(),
+                    generated.getWatched_Status());
+            store.accept(movie.getTitle(), movie);
+        }
+    }
+
+    /**
+     * Times the best of several genre queries.
+     * @param lookup the layout to query
+     * @return the best time in milliseconds
+     */
+    private static long timeQuery(MovieLookup lookup) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            List<Movie> drama = lookup.findByGenre("Drama");
+            best = Math.min(best, System.nanoTime() - start);
+            sink = drama;
+        }
+        return best / 1_000_000;
+    }
+
+    /**
+     * Prints one row of the results table.
+     *
+     * @param size the number of movies
+     * @param layout the layout measured
+     * @param measured the measured heap growth in bytes
+     * @param estimated the layout's own estimate in bytes
+     * @param queryMillis the genre query time
+     */
+    private static void print(int size, String layout, long measured, long estimated, long queryMillis) {
+        System.out.printf("%-10d %-10s %,16d %,16d %12d %14d%n",
+                size, layout, measured / 1024, estimated / 1024, measured / size, queryMillis);
+    }
+
+    /**
+     * Returns the heap in use after the garbage collector has run a few times.
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}//class
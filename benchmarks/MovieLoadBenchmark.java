@@ -0,0 +1,270 @@
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * The MovieLoadBenchmark class measures the throughput and latency of {@link MovieServer} under many concurrent clients.
+ * <p>
+ * A catalog is generated into a temporary database and served on a free port, unless {@code --url=} names a server that
+ * is already running. Each scenario then runs the given number of clients at once, each on its own virtual thread,
+ * sending one request after another for a fixed time through a shared HTTP/1.1 client. Every response time is recorded,
+ * and the requests per second and the 50th and 99th percentile and maximum latency are printed per scenario. A response
+ * with a status other than the one expected is counted as an error.
+ * </p>
+ *
+ * <p>
+ * The scenarios are single-movie reads, full-text searches, statistics, keyset pages, revalidations of a page the
+ * client already holds (answered with 304 from the response cache), and a mix of nine reads to one rating update. For
+ * example:
+ * <pre>
+ * java -cp out MovieLoadBenchmark --movies=100000 --clients=1000 --seconds=10
+ * </pre>
+ * </p>
+ */
+public class MovieLoadBenchmark {
+    /** The server output, which is silenced while the collection prints a line per change. */
+    private static final PrintStream RESULTS = System.out;
+    /** Discards the messages printed while the catalog is loaded and changed. */
+    private static final PrintStream SILENT = new PrintStream(OutputStream.nullOutputStream());
+
+    /** The number of movies generated. */
+    private static int movies = 100_000;
+    /** The number of clients sending requests at once. */
+    private static int clients = 1_000;
+    /** The measured time of each scenario, in seconds. */
+    private static int seconds = 10;
+    /** The unmeasured time before each scenario, in seconds. */
+    private static int warmupSeconds = 2;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Runs every scenario.
+     *
+     * @param args optional {@code --movies=N}, {@code --clients=N}, {@code --seconds=N}, {@code --warmup=N} and
+     * {@code --url=http://host:port} to load a running server, whose catalog must hold the generated titles
+     * @throws Exception if the catalog cannot be created or the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        for (String arg : args) {
+            if (arg.startsWith("--movies=")) {
+                movies = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--clients=")) {
+                clients = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--warmup=")) {
+                warmupSeconds = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--url=")) {
+                url = arg.substring(6);
+            }
+        }
+
+        MovieServer server = null;
+        MovieCollection collection = null;
+        if (url == null) {
+            File db = File.createTempFile("movie-load-", ".db");
+            db.deleteOnExit();
+            MovieDataGenerator.createDatabase(db, movies, 42);
+            System.setOut(SILENT);
+            DatabaseHandler handler = new DatabaseHandler();
+            handler.connect(db.getAbsolutePath());
+            collection = new MovieCollection(handler);
+            server = new MovieServer(collection, 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        String base = url;
+        RESULTS.printf("%d clients, %d movies, %d s per scenario%n", clients, movies, seconds);
+        RESULTS.printf("%-26s %10s %8s %12s %10s %10s %10s%n", "scenario", "requests", "errors", "req/sec", "p50 ms",
+                "p99 ms", "max ms");
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            run(client, "GET /movies/{title}", 200,
+                    n -> get(base + "/movies/" + MovieServer.encodePath(title(n))));
+            run(client, "GET /search", 200,
+                    n -> get(base + "/search?q=movie%20" + (n % movies) + "&limit=10"));
+            run(client, "GET /stats", 200,
+                    n -> get(base + "/stats"));
+            run(client, "GET /movies page", 200,
+                    n -> get(base + "/movies?sort=rating&order=desc&limit=50"));
+            String pageUrl = base + "/movies?sort=rating&order=desc&limit=50";
+            String eTag = client.send(get(pageUrl), HttpResponse.BodyHandlers.discarding())
+                    .headers().firstValue("ETag").orElse("");
+            run(client, "GET page If-None-Match", 304,
+                    n -> HttpRequest.newBuilder(URI.create(pageUrl)).header("If-None-Match", eTag).GET().build());
+            run(client, "mixed 90% read 10% PATCH", 200,
+                    n -> n % 10 == 0
+                            ? HttpRequest.newBuilder(URI.create(base + "/movies/" + MovieServer.encodePath(title(n))))
+                                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"rating\":" + (n % 100) + "}"))
+                                    .build()
+                            : get(base + "/movies/" + MovieServer.encodePath(title(n))));
+        } finally {
+            if (server != null) {
+                server.stop();
+                collection.close();
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Runs one scenario: a warmup, then the measured time, and prints its row.
+     *
+     * @param client the shared HTTP client
+     * @param name the scenario name
+     * @param expectedStatus the status of a successful response
+     * @param requests builds the request with a given number, which differs per request
+     * @throws InterruptedException if the run is interrupted
+     */
+    private static void run(HttpClient client, String name, int expectedStatus, IntFunction<HttpRequest> requests)
+            throws InterruptedException {
+        load(client, expectedStatus, requests, warmupSeconds);
+        Result result = load(client, expectedStatus, requests, seconds);
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        RESULTS.printf("%-26s %10d %8d %12.0f %10.2f %10.2f %10.2f%n", name, latencies.length, result.errors,
+                latencies.length / (result.elapsedNanos / 1e9), percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+    }
+
+    /**
+     * Sends requests from every client at once for a period.
+     *
+     * @param client the shared HTTP client
+     * @param expectedStatus the status of a successful response
+     * @param requests builds the request with a given number
+     * @param periodSeconds how long to send requests
+     * @return the latency of every completed request and the number of errors
+     * @throws InterruptedException if the run is interrupted
+     */
+    private static Result load(HttpClient client, int expectedStatus, IntFunction<HttpRequest> requests,
+                               int periodSeconds) throws InterruptedException {
+        long[][] perClient = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long periodNanos = periodSeconds * 1_000_000_000L;
+        long[] began = new long[1];
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int id = c;
+                threads.submit(() -> {
+                    Random random = new Random(id);
+                    long[] latencies = new long[1_024];
+                    int count = 0;
+                    start.await();
+                    long deadline = began[0] + periodNanos;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests.apply(random.nextInt(movies));
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != expectedStatus) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    perClient[id] = latencies;
+                    counts[id] = count;
+                    return null;
+                });
+            }
+            began[0] = System.nanoTime();
+            start.countDown();
+        }
+        long elapsed = System.nanoTime() - began[0];
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(perClient[c], 0, all, position, counts[c]);
+            position += counts[c];
+        }
+        return new Result(all, errors.get(), elapsed);
+    }
+
+    /**
+     * Builds a GET request.
+     * @param url the URL
+     * @return the request
+     */
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+
+    /**
+     * Gets the title {@link MovieDataGenerator#createDatabase(File, int, long)} gave a generated movie.
+     * @param index the movie's number
+     * @return the title
+     */
+    private static String title(int index) {
+        return "Movie " + index;
+    }
+
+    /**
+     * Reads a percentile from sorted latencies.
+     *
+     * @param sorted the latencies in nanoseconds, in ascending order
+     * @param fraction the percentile as a fraction, for example 0.99
+     * @return the latency in milliseconds, or 0 if there are none
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * The latencies and errors of one run.
+     */
+    private static final class Result {
+        /** The latency of every completed request, in nanoseconds. */
+        private final long[] latencies;
+        /** The number of failed or unexpected responses. */
+        private final long errors;
+        /** The time the run took, in nanoseconds. */
+        private final long elapsedNanos;
+
+        /**
+         * Creates a result.
+         *
+         * @param latencies the latency of every completed request
+         * @param errors the number of errors
+         * @param elapsedNanos the time the run took
+         */
+        private Result(long[] latencies, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}//class
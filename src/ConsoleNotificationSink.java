@@ -0,0 +1,26 @@
+/**
+ * The ConsoleNotificationSink class prints data layer messages to the console.
+ * <p>
+ * Information goes to standard output and errors to standard error. It never blocks and needs no display, so it is the
+ * default for headless runs.
+ * </p>
+ */
+public class ConsoleNotificationSink implements NotificationSink {
+    /**
+     * Prints an informational message to standard output.
+     * @param message the message text
+     */
+    @Override
+    public void info(String message) {
+        System.out.println(message);
+    }
+
+    /**
+     * Prints an error message to standard error.
+     * @param message the message text
+     */
+    @Override
+    public void error(String message) {
+        System.err.println(message);
+    }
+}//class
@@ -0,0 +1,639 @@
+package DBHelper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//This class keeps open SQLite connections around so DBHelper and DatabaseHandler do not reconnect on every query
+/**
+ * The {@code ConnectionPool} class is a small, bounded pool of JDBC connections to one database URL.
+ * <p>
+ * Without a pool, every {@link DBHelper} call loads the driver, opens a new connection and closes it again. The pool keeps
+ * physical connections open and lends them out instead. Closing a borrowed connection returns it to the pool.
+ * </p>
+ *
+ * <p>
+ * The pool provides:
+ * <ul>
+ *     <li>A bound on the number of open connections; borrowers wait when all of them are in use.</li>
+ *     <li>Idle eviction: connections unused for longer than the idle timeout are closed.</li>
+ *     <li>Health validation: idle connections are checked with {@link Connection#isValid(int)} before being lent out.</li>
+ *     <li>Leak detection: connections held longer than the leak threshold are reported with the stack trace of the borrower.</li>
+ *     <li>Metrics through {@link #getStats()}: borrow wait times and active and idle counts.</li>
+ * </ul>
+ *
+ * <p>
+ * Pools are shared per URL through {@link #forUrl(String)}. Owners that come and go, such as {@code DatabaseHandler},
+ * take the pool with {@link #acquire(String)} and give it back with {@link #release()}; the pool is shut down only when
+ * its last owner releases it, so closing one handler never takes the pool from another on the same URL. Their limits are read from the system properties
+ * {@code dms.pool.maxSize}, {@code dms.pool.idleTimeoutMillis}, {@code dms.pool.leakThresholdMillis} and
+ * {@code dms.pool.borrowTimeoutMillis} when a pool is first created. Every physical connection is tuned with the
+ * {@link SqliteProfile} read from the {@code dms.sqlite.*} system properties when it is opened.
+ * </p>
+ *
+ * @see java.sql.Connection
+ */
+public class ConnectionPool {
+	/** The default maximum number of open connections per pool. */
+	public static final int DEFAULT_MAX_SIZE = 4;
+	/** The default time an unused connection is kept open, in milliseconds. */
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+	/** The default time a connection may be held before it is reported as leaked, in milliseconds. */
+	public static final long DEFAULT_LEAK_THRESHOLD_MILLIS = 30_000;
+	/** The default time a borrower waits for a free connection, in milliseconds. */
+	public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 10_000;
+	/** How often idle eviction and leak detection run, in milliseconds. */
+	private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5_000;
+	/** The number of seconds given to {@link Connection#isValid(int)} when validating a connection. */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	/** The pools created so far, one per JDBC URL. */
+	private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+	/** The background thread shared by all pools for eviction and leak detection. */
+	private static final ScheduledThreadPoolExecutor HOUSEKEEPER = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread thread = new Thread(r, "connection-pool-housekeeper");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		// Drop the housekeeping of a shut down pool at once, instead of keeping it queued until its next run
+		HOUSEKEEPER.setRemoveOnCancelPolicy(true);
+		try {
+			// Load the JDBC driver for SQLite once instead of on every connection
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/** The JDBC URL every connection of this pool is opened with. */
+	private final String url;
+	/** The maximum number of connections open at the same time. */
+	private final int maxSize;
+	/** The time an unused connection is kept open, in milliseconds. */
+	private final long idleTimeoutMillis;
+	/** The time a connection may be held before it is reported as leaked, in milliseconds (0 disables detection). */
+	private final long leakThresholdMillis;
+	/** The time a borrower waits for a free connection, in milliseconds. */
+	private final long borrowTimeoutMillis;
+	/** The SQLite settings applied to each physical connection when it is opened. */
+	private final SqliteProfile profile;
+	/** One permit per connection that may be lent out; this is what bounds the pool. */
+	private final Semaphore permits;
+	/** The open connections that are not lent out, most recently returned first. */
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	/** The connections currently lent out. */
+	private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+
+	/** The number of successful borrows. */
+	private final AtomicLong borrowCount = new AtomicLong();
+	/** The total time borrowers spent waiting for a connection, in nanoseconds. */
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	/** The longest time a borrower waited for a connection, in nanoseconds. */
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	/** The number of physical connections opened. */
+	private final AtomicLong createdCount = new AtomicLong();
+	/** The number of connections closed because they were idle for too long. */
+	private final AtomicLong evictedCount = new AtomicLong();
+	/** The number of connections discarded because they failed validation or could not be reset. */
+	private final AtomicLong invalidatedCount = new AtomicLong();
+	/** The number of borrows reported as leaked. */
+	private final AtomicLong leakCount = new AtomicLong();
+	/** The scheduled eviction and leak detection of this pool, cancelled by {@link #shutdown()}. */
+	private final ScheduledFuture<?> housekeeping;
+	/** Whether {@link #shutdown()} has been called; borrows fail and connections returned afterwards are closed. */
+	private volatile boolean shutDown;
+	/** The owners that acquired the pool and have not released it; only changed inside {@code POOLS.compute}. */
+	private int owners;
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Creates a pool for the given URL and schedules its housekeeping.
+	 *
+	 * @param url the JDBC URL to open connections with
+	 * @param maxSize the maximum number of open connections
+	 * @param idleTimeoutMillis the time an unused connection is kept open
+	 * @param leakThresholdMillis the time a connection may be held before it is reported (0 disables detection)
+	 * @param borrowTimeoutMillis the time a borrower waits for a free connection
+	 */
+	public ConnectionPool(String url, int maxSize, long idleTimeoutMillis, long leakThresholdMillis, long borrowTimeoutMillis) {
+		this(url, maxSize, idleTimeoutMillis, leakThresholdMillis, borrowTimeoutMillis, SqliteProfile.fromSystemProperties());
+	}
+
+	/**
+	 * Creates a pool for the given URL that tunes its connections with the given profile, and schedules its housekeeping.
+	 *
+	 * @param url the JDBC URL to open connections with
+	 * @param maxSize the maximum number of open connections
+	 * @param idleTimeoutMillis the time an unused connection is kept open
+	 * @param leakThresholdMillis the time a connection may be held before it is reported (0 disables detection)
+	 * @param borrowTimeoutMillis the time a borrower waits for a free connection
+	 * @param profile the SQLite settings applied to each new connection
+	 */
+	public ConnectionPool(String url, int maxSize, long idleTimeoutMillis, long leakThresholdMillis, long borrowTimeoutMillis,
+						  SqliteProfile profile) {
+		this.url = url;
+		this.profile = profile;
+		this.maxSize = Math.max(1, maxSize);
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.permits = new Semaphore(this.maxSize, true);
+		this.housekeeping = HOUSEKEEPER.scheduleAtFixedRate(this::housekeep, HOUSEKEEPING_INTERVAL_MILLIS,
+				HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the shared pool for a JDBC URL, creating it on first use.
+	 *
+	 * @param url the JDBC URL, for example {@code "jdbc:sqlite:C:\\sqlite\\MovieCollectionDatabase.db"}
+	 * @return the pool for that URL
+	 */
+	public static ConnectionPool forUrl(String url) {
+		return POOLS.computeIfAbsent(url, ConnectionPool::create);
+	}
+
+	/**
+	 * Returns the shared pool for a JDBC URL and registers the caller as one of its owners.
+	 * <p>
+	 * Every call must be matched by one {@link #release()} once the caller no longer borrows from the pool.
+	 * </p>
+	 *
+	 * @param url the JDBC URL
+	 * @return the pool for that URL
+	 */
+	public static ConnectionPool acquire(String url) {
+		return POOLS.compute(url, (u, pool) -> {
+			ConnectionPool owned = pool == null ? create(u) : pool;
+			owned.owners++;
+			return owned;
+		});
+	}
+
+	/**
+	 * Gives back a pool taken with {@link #acquire(String)}. When its last owner releases it, the pool is removed from
+	 * the shared registry and shut down; until then it stays open for the other owners.
+	 */
+	public void release() {
+		boolean[] last = new boolean[1];
+		POOLS.computeIfPresent(url, (u, pool) -> {
+			if (pool != this || --owners > 0) {
+				return pool;
+			}
+			last[0] = true;
+			return null;
+		});
+		if (last[0]) {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Creates a pool with the limits read from the {@code dms.pool.*} system properties.
+	 * @param url the JDBC URL
+	 * @return the new pool
+	 */
+	private static ConnectionPool create(String url) {
+		return new ConnectionPool(url,
+				Integer.getInteger("dms.pool.maxSize", DEFAULT_MAX_SIZE),
+				Long.getLong("dms.pool.idleTimeoutMillis", DEFAULT_IDLE_TIMEOUT_MILLIS),
+				Long.getLong("dms.pool.leakThresholdMillis", DEFAULT_LEAK_THRESHOLD_MILLIS),
+				Long.getLong("dms.pool.borrowTimeoutMillis", DEFAULT_BORROW_TIMEOUT_MILLIS));
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Borrows a connection from the pool.
+	 * <p>
+	 * The returned connection must be closed by the caller, which hands it back to the pool. If it is held longer than the
+	 * leak threshold, it is reported as a leak.
+	 * </p>
+	 *
+	 * @return a borrowed connection
+	 * @throws SQLException if no connection became free within the borrow timeout, or a new one could not be opened
+	 */
+	public Connection getConnection() throws SQLException {
+		return borrow(true);
+	}
+
+	/**
+	 * Borrows a connection that is meant to be held for a long time, such as the session connection of
+	 * {@code DatabaseHandler}.
+	 * <p>
+	 * It counts against the pool size like any other borrow but is never reported as a leak. It must still be closed to
+	 * return it.
+	 * </p>
+	 *
+	 * @return a borrowed connection
+	 * @throws SQLException if no connection became free within the borrow timeout, or a new one could not be opened
+	 */
+	public Connection getDedicatedConnection() throws SQLException {
+		return borrow(false);
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Waits for a permit, then lends out a validated idle connection or opens a new one.
+	 *
+	 * @param trackLeaks whether this borrow is subject to leak detection
+	 * @return the proxy handed to the borrower
+	 * @throws SQLException if the pool is shut down, the wait timed out or a connection could not be opened
+	 */
+	private Connection borrow(boolean trackLeaks) throws SQLException {
+		checkOpen();
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a connection to " + url);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+
+		try {
+			checkOpen();   // The pool may have been shut down while this borrower waited
+			PooledConnection pooled;
+			while ((pooled = pollIdle()) != null) {
+				if (isExpired(pooled)) {
+					discard(pooled, evictedCount);
+					continue;
+				}
+				if (!isHealthy(pooled)) {
+					discard(pooled, invalidatedCount);
+					continue;
+				}
+				break;
+			}
+			if (pooled == null) {
+				Connection physical = DriverManager.getConnection(url);
+				profile.apply(physical);
+				pooled = new PooledConnection(physical);
+				createdCount.incrementAndGet();
+			}
+			pooled.borrowedAt = System.currentTimeMillis();
+			pooled.borrowSite = trackLeaks && leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+			pooled.leakReported = false;
+			active.add(pooled);
+			borrowCount.incrementAndGet();
+			return pooled.newHandle();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Fails a borrow from a pool that has been shut down, which would otherwise open connections nobody evicts.
+	 * @throws SQLException if the pool is shut down
+	 */
+	private void checkOpen() throws SQLException {
+		if (shutDown) {
+			throw new SQLException("The connection pool for " + url + " has been shut down");
+		}
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Takes a borrowed connection back, resetting any open transaction so the next borrower starts clean.
+	 *
+	 * @param pooled the connection being returned
+	 */
+	private void release(PooledConnection pooled) {
+		if (!active.remove(pooled)) {
+			return;
+		}
+		try {
+			if (!pooled.physical.getAutoCommit()) {
+				pooled.physical.rollback();
+				pooled.physical.setAutoCommit(true);
+			}
+			pooled.idleSince = System.currentTimeMillis();
+			synchronized (idle) {
+				if (!shutDown) {
+					idle.push(pooled);
+					return;
+				}
+			}
+			discard(pooled, evictedCount);   // The pool was shut down while the connection was borrowed
+		} catch (SQLException e) {
+			discard(pooled, invalidatedCount);
+		} finally {
+			permits.release();
+		}
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Removes the most recently returned idle connection.
+	 * @return the connection, or null if none is idle
+	 */
+	private PooledConnection pollIdle() {
+		synchronized (idle) {
+			return idle.poll();
+		}
+	}
+
+	/**
+	 * Checks whether an idle connection has exceeded the idle timeout.
+	 * @param pooled the idle connection
+	 * @return true if it should be evicted
+	 */
+	private boolean isExpired(PooledConnection pooled) {
+		return idleTimeoutMillis > 0 && System.currentTimeMillis() - pooled.idleSince >= idleTimeoutMillis;
+	}
+
+	/**
+	 * Validates a connection before it is lent out.
+	 * @param pooled the connection to check
+	 * @return true if the connection is open and responds
+	 */
+	private boolean isHealthy(PooledConnection pooled) {
+		try {
+			return !pooled.physical.isClosed() && pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes a physical connection that is leaving the pool.
+	 * @param pooled the connection to close
+	 * @param counter the metric to count it under
+	 */
+	private void discard(PooledConnection pooled, AtomicLong counter) {
+		counter.incrementAndGet();
+		try {
+			pooled.physical.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Adds one borrow wait to the wait-time metrics.
+	 * @param waitNanos the time the borrower waited
+	 */
+	private void recordWait(long waitNanos) {
+		totalWaitNanos.addAndGet(waitNanos);
+		maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Runs periodically to close idle connections past the idle timeout and to report leaked connections.
+	 */
+	private void housekeep() {
+		synchronized (idle) {
+			idle.removeIf(pooled -> {
+				if (isExpired(pooled)) {
+					discard(pooled, evictedCount);
+					return true;
+				}
+				return false;
+			});
+		}
+
+		if (leakThresholdMillis <= 0) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (PooledConnection pooled : active) {
+			if (pooled.borrowSite != null && !pooled.leakReported && now - pooled.borrowedAt >= leakThresholdMillis) {
+				pooled.leakReported = true;
+				leakCount.incrementAndGet();
+				System.err.println("Possible connection leak: connection to " + url + " held for " + (now - pooled.borrowedAt) + " ms");
+				pooled.borrowSite.printStackTrace();
+			}
+		}
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Closes every idle connection, stops the pool's housekeeping and removes the pool from the shared registry. Borrowed
+	 * connections are closed when they are returned, later borrows fail, and the next {@link #forUrl(String)} for the URL
+	 * creates a new pool. Owners that took the pool with {@link #acquire(String)} call {@link #release()} instead.
+	 */
+	public void shutdown() {
+		POOLS.remove(url, this);
+		housekeeping.cancel(false);
+		synchronized (idle) {
+			shutDown = true;
+			for (PooledConnection pooled : idle) {
+				discard(pooled, evictedCount);
+			}
+			idle.clear();
+		}
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Checks whether the pool has been shut down.
+	 * @return true after {@link #shutdown()}
+	 */
+	public boolean isShutDown() {
+		return shutDown;
+	}
+
+	/**
+	 * Returns the SQLite settings this pool applies to new connections.
+	 * @return the profile
+	 */
+	public SqliteProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Takes a snapshot of the pool metrics.
+	 * @return the current pool statistics
+	 */
+	public Stats getStats() {
+		int idleCount;
+		synchronized (idle) {
+			idleCount = idle.size();
+		}
+		long borrows = borrowCount.get();
+		return new Stats(active.size(), idleCount, maxSize, permits.getQueueLength(), borrows,
+				borrows == 0 ? 0 : totalWaitNanos.get() / borrows, maxWaitNanos.get(),
+				createdCount.get(), evictedCount.get(), invalidatedCount.get(), leakCount.get());
+	}
+
+//======================================================================================================================
+	/**
+	 * A physical connection owned by the pool together with its bookkeeping.
+	 */
+	private final class PooledConnection {
+		/** The real JDBC connection. */
+		private final Connection physical;
+		/** When the connection was last lent out (epoch milliseconds). */
+		private volatile long borrowedAt;
+		/** When the connection was last returned (epoch milliseconds). */
+		private volatile long idleSince;
+		/** The stack trace of the current borrower, or null if this borrow is not checked for leaks. */
+		private volatile Throwable borrowSite;
+		/** Whether the current borrow has already been reported as a leak. */
+		private volatile boolean leakReported;
+
+		/**
+		 * Wraps a newly opened connection.
+		 * @param physical the real JDBC connection
+		 */
+		private PooledConnection(Connection physical) {
+			this.physical = physical;
+			this.idleSince = System.currentTimeMillis();
+		}
+
+		/**
+		 * Creates the proxy given to one borrower. Closing the proxy returns the connection to the pool; after that, the
+		 * proxy rejects every call, so a stale reference cannot use a connection that was lent to someone else.
+		 *
+		 * @return the borrower's connection handle
+		 */
+		private Connection newHandle() {
+			InvocationHandler handler = new InvocationHandler() {
+				private boolean closed;
+
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					switch (method.getName()) {
+						case "close":
+							if (!closed) {
+								closed = true;
+								release(PooledConnection.this);
+							}
+							return null;
+						case "isClosed":
+							return closed || physical.isClosed();
+						case "unwrap":
+						case "isWrapperFor":
+							break;
+						case "equals":
+							return proxy == args[0];
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "toString":
+							return "Pooled(" + physical + ")";
+						default:
+							if (closed) {
+								throw new SQLException("Connection has been returned to the pool");
+							}
+					}
+					try {
+						return method.invoke(physical, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			};
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+		}
+	}
+
+//======================================================================================================================
+	/**
+	 * A snapshot of the pool metrics, used to size the pool under load.
+	 */
+	public static class Stats {
+		/** The number of connections lent out. */
+		private final int active;
+		/** The number of open connections waiting to be lent out. */
+		private final int idle;
+		/** The maximum number of open connections. */
+		private final int maxSize;
+		/** The number of threads waiting for a connection. */
+		private final int waiting;
+		/** The number of successful borrows. */
+		private final long borrows;
+		/** The average borrow wait, in nanoseconds. */
+		private final long averageWaitNanos;
+		/** The longest borrow wait, in nanoseconds. */
+		private final long maxWaitNanos;
+		/** The number of physical connections opened. */
+		private final long created;
+		/** The number of connections closed for being idle too long. */
+		private final long evicted;
+		/** The number of connections discarded as unhealthy. */
+		private final long invalidated;
+		/** The number of borrows reported as leaked. */
+		private final long leaks;
+
+		/**
+		 * Constructs a statistics snapshot.
+		 *
+		 * @param active the number of connections lent out
+		 * @param idle the number of idle connections
+		 * @param maxSize the maximum pool size
+		 * @param waiting the number of waiting threads
+		 * @param borrows the number of successful borrows
+		 * @param averageWaitNanos the average borrow wait in nanoseconds
+		 * @param maxWaitNanos the longest borrow wait in nanoseconds
+		 * @param created the number of connections opened
+		 * @param evicted the number of connections evicted as idle
+		 * @param invalidated the number of connections discarded as unhealthy
+		 * @param leaks the number of borrows reported as leaked
+		 */
+		public Stats(int active, int idle, int maxSize, int waiting, long borrows, long averageWaitNanos, long maxWaitNanos,
+					 long created, long evicted, long invalidated, long leaks) {
+			this.active = active;
+			this.idle = idle;
+			this.maxSize = maxSize;
+			this.waiting = waiting;
+			this.borrows = borrows;
+			this.averageWaitNanos = averageWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.created = created;
+			this.evicted = evicted;
+			this.invalidated = invalidated;
+			this.leaks = leaks;
+		}
+
+		/** @return the number of connections lent out */
+		public int getActive() { return active; }
+		/** @return the number of idle connections */
+		public int getIdle() { return idle; }
+		/** @return the maximum pool size */
+		public int getMaxSize() { return maxSize; }
+		/** @return the number of threads waiting for a connection */
+		public int getWaiting() { return waiting; }
+		/** @return the number of successful borrows */
+		public long getBorrows() { return borrows; }
+		/** @return the average borrow wait in nanoseconds */
+		public long getAverageWaitNanos() { return averageWaitNanos; }
+		/** @return the longest borrow wait in nanoseconds */
+		public long getMaxWaitNanos() { return maxWaitNanos; }
+		/** @return the number of connections opened */
+		public long getCreated() { return created; }
+		/** @return the number of connections evicted as idle */
+		public long getEvicted() { return evicted; }
+		/** @return the number of connections discarded as unhealthy */
+		public long getInvalidated() { return invalidated; }
+		/** @return the number of borrows reported as leaked */
+		public long getLeaks() { return leaks; }
+
+		/**
+		 * Returns the statistics as one line of text.
+		 * @return the formatted statistics
+		 */
+		public String toString() {
+			return String.format("active=%d idle=%d max=%d waiting=%d borrows=%d avgWait=%.3f ms maxWait=%.3f ms created=%d evicted=%d invalidated=%d leaks=%d",
+					active, idle, maxSize, waiting, borrows, averageWaitNanos / 1e6, maxWaitNanos / 1e6, created, evicted, invalidated, leaks);
+		}
+	}
+}//class
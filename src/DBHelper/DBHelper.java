@@ -9,7 +9,7 @@ import java.util.ArrayList;
  * The {@code DBHelper} class provides utility methods for interacting with the SQLite database.
  * <p>
  * This class is responsible for establishing a connection to the SQLite database, executing queries,
- * and retrieving results. It includes database connection variables for managing the connection, statement,
+ * and retrieving results. Connections are borrowed from a shared {@link ConnectionPool} rather than opened per call. It includes database connection variables for managing the connection, statement,
  * and result set. The class ensures that the application can interact with the database to perform operations
  * such as adding, removing, and retrieving movie data.
  * </p>
@@ -24,14 +24,22 @@ import java.util.ArrayList;
  * </ul>
  *
  *
+ * <p>
+ * Large results should be read with {@link #openCursor(String, int)} or {@link #forEachRow(String, int, RowCursor.RowHandler)},
+ * which stream rows from the open result set instead of copying them all into lists first.
+ * </p>
+ *
  * @see java.sql.Connection
  * @see java.sql.Statement
  * @see java.sql.ResultSet
  */
 public class DBHelper {
+	/** The number of rows a cursor asks the driver to fetch at a time unless told otherwise. */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
 	/**SQLite database file path, was mainly used for quick testing before changing operations. */
 	// SQLite database file path
-	private final String DATABASE_NAME = "C:\\sqlite\\MovieCollectionDatabase.db";
+	private final String DATABASE_NAME;
 
 	// Database connection variables
 	/**represents the connection to the SQLite database, It is used to establish and manage communication between the Java application and the database. */
@@ -45,28 +53,33 @@ public class DBHelper {
 	// Constructor: Initializes connection variables to null
 	/**Constructor that initializes the connection variables to null, This is used to set up the DBHelper object for subsequent database interactions.*/
 	public DBHelper() {
+		this("C:\\sqlite\\MovieCollectionDatabase.db");
+	}
+
+	// Constructor: Uses the given database file instead of the practice database
+	/**
+	 * Constructor that uses the given SQLite database file instead of the practice database.
+	 * This is used where the database is not at the default location, such as benchmarks running against temporary files.
+	 *
+	 * @param databaseName the path to the SQLite database file
+	 */
+	public DBHelper(String databaseName) {
+		DATABASE_NAME = databaseName;
 		connection = null;
 		statement = null;
 		resultSet = null;
 	}
 //----------------------------------------------------------------------------------------------------------------------
-	// Establishes connection to the SQLite database
+	// Borrows a connection to the SQLite database from the shared connection pool
 	/**
-	 * Establishes a connection to the SQLite database.
-	 * This method loads the JDBC driver for SQLite, establishes a connection to the database file,
-	 * and initializes a statement object for executing queries.
+	 * Borrows a connection to the SQLite database from the shared {@link ConnectionPool}.
+	 * The pool loads the JDBC driver once and keeps connections open between calls, so this method only opens a new
+	 * connection when no idle one is available. It also initializes a statement object for executing queries.
 	 */
 	private void connect() {
 		try {
-			// Load the JDBC driver for SQLite
-			Class.forName("org.sqlite.JDBC");
-		} catch (ClassNotFoundException e) {
-			// Print the stack trace if the driver is not found
-			e.printStackTrace();
-		}
-		try {
-			// Establish a connection to the SQLite database
-			connection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_NAME);
+			// Borrow a connection to the SQLite database
+			connection = ConnectionPool.forUrl("jdbc:sqlite:" + DATABASE_NAME).getConnection();
 			statement = connection.createStatement();
 		} catch (SQLException e) {
 			// Print the stack trace if connection fails
@@ -75,41 +88,26 @@ public class DBHelper {
 	}
 
 //----------------------------------------------------------------------------------------------------------------------
-	// Closes the database connection and releases resources
+	// Releases the statement and result set and returns the connection to the pool
 	/**
-	 * Closes the database connection and releases any associated resources.
-	 * This method ensures that the database connection, statement, and result set are properly closed to avoid resource leaks.
+	 * Releases the statement and result set and returns the connection to the pool.
+	 * This method ensures that the statement and result set are properly closed to avoid resource leaks. Closing the
+	 * borrowed connection hands it back to the {@link ConnectionPool} instead of closing the physical connection.
 	 */
 	private void close() {
 		try {
-			connection.close();
-			statement.close();
 			if (resultSet != null)
 			resultSet.close();
+			if (statement != null)
+			statement.close();
+			if (connection != null)
+			connection.close();
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
-	}
-
-//----------------------------------------------------------------------------------------------------------------------
-	// Converts an ArrayList of ArrayLists into a 2D Object array
-	/**
-	 * Converts an ArrayList of ArrayLists into a 2D Object array.
-	 * This utility method is used to transform data retrieved from the database into a format suitable for table display.
-	 *
-	 * @param list the ArrayList of ArrayLists to be converted
-	 * @return a 2D Object array representing the data
-	 */
-	private Object[][] arrayListTo2DArray(ArrayList<ArrayList<Object>> list) {
-		// Initialize a 2D array with the size of the list
-		Object[][] array = new Object[list.size()][];
-		for (int i = 0; i < list.size(); i++) {
-			// Get each row (ArrayList) from the list
-			ArrayList<Object> row = list.get(i);
-			array[i] = row.toArray(new Object[row.size()]);
-		}
-		// Return the 2D Object array
-		return array;
+		resultSet = null;
+		statement = null;
+		connection = null;
 	}
 
 //----------------------------------------------------------------------------------------------------------------------
@@ -146,32 +144,20 @@ public class DBHelper {
 	 * @return a DefaultTableModel containing the query results for GUI display
 	 */
 	protected DefaultTableModel executeQueryToTable(String sql) {
-		ArrayList<ArrayList<Object>> result = new ArrayList<ArrayList<Object>>();
-		ArrayList<Object> columns = new ArrayList<Object>();
-		connect();
-		try {
-			resultSet = statement.executeQuery(sql);
+		DefaultTableModel model = new DefaultTableModel();
+		try (RowCursor row = openCursor(sql, DEFAULT_FETCH_SIZE)) {
 			// Retrieve column names
-			int columnCount = resultSet.getMetaData().getColumnCount();
-			// Retrieve column names and store them in the columns list
-			for (int i = 1; i <= columnCount; i++)
-			columns.add(resultSet.getMetaData().getColumnName(i));
-			// Retrieve the row data and store each row in the result list
-			while (resultSet.next()) {
-				ArrayList<Object> subresult = new ArrayList<Object>();
-				for (int i = 1; i <= columnCount; i++)
-				subresult.add(resultSet.getObject(i));
-				// Add the row data to the result list
-				result.add(subresult);
+			for (int i = 1; i <= row.getColumnCount(); i++)
+			model.addColumn(row.getColumnName(i));
+			// Add each row straight to the table model instead of collecting the rows in lists first
+			while (row.next()) {
+				model.addRow(row.toArray());
 			}
 		} catch (SQLException e) {
 			// Print the stack trace if query execution fails
 			e.printStackTrace();
 		}
-		close();
-		// Convert the ArrayList result into a table model
-		// Convert the ArrayList result into a table model and return it
-		return new DefaultTableModel(arrayListTo2DArray(result), columns.toArray());
+		return model;
 	}
 
 //----------------------------------------------------------------------------------------------------------------------
@@ -210,4 +196,40 @@ public class DBHelper {
 		// Return the list of rows (ArrayList of ArrayLists)
 		return result;
 	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	// Opens a cursor that streams the rows of a query
+	/**
+	 * Runs a SQL query and opens a cursor that streams its rows from the open result set.
+	 * <p>
+	 * The cursor borrows its own connection from the {@link ConnectionPool}, so several cursors can be open at once and
+	 * none of them interferes with the other methods of this object. The caller must close the cursor to return the
+	 * connection.
+	 * </p>
+	 *
+	 * @param sql the SQL query to be executed
+	 * @param fetchSize the number of rows the driver should fetch at a time (0 lets the driver decide)
+	 * @return an open cursor positioned before the first row
+	 * @throws SQLException if no connection could be borrowed or the query fails
+	 */
+	protected RowCursor openCursor(String sql, int fetchSize) throws SQLException {
+		Connection borrowed = ConnectionPool.forUrl("jdbc:sqlite:" + DATABASE_NAME).getConnection();
+		return new RowCursor(borrowed, sql, fetchSize);
+	}
+
+	// Calls a handler for every row of a query
+	/**
+	 * Runs a SQL query and calls a handler for each row, then closes the cursor.
+	 *
+	 * @param sql the SQL query to be executed
+	 * @param fetchSize the number of rows the driver should fetch at a time (0 lets the driver decide)
+	 * @param handler called with the cursor positioned on each row
+	 * @return the number of rows handled
+	 * @throws SQLException if the query fails, a row cannot be read, or the handler fails
+	 */
+	protected long forEachRow(String sql, int fetchSize, RowCursor.RowHandler handler) throws SQLException {
+		try (RowCursor row = openCursor(sql, fetchSize)) {
+			return row.forEachRemaining(handler);
+		}
+	}
 }//class
\ No newline at end of file
@@ -1,7 +1,9 @@
 package DBHelper;
 
 import javax.swing.table.DefaultTableModel;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 //This class was created by the code generator class to make methods to aid with SQL queries in the connection to the SQLite database
 /**
  * The {@code Movies} class is responsible for interacting with the "Movies" table in the SQLite database.
@@ -30,7 +32,7 @@ import java.util.ArrayList;
  * </p>
  *
  * <p>
- * Note: This class does not require a constructor.
+ * By default it uses the practice database of {@link DBHelper}; {@link #Movies(String)} points it at another database file.
  * @see DBHelper
  *
  * <p>
@@ -58,6 +60,21 @@ public class Movies extends DBHelper {
 	 */
 	public static final String Watched_Status = "Watched_Status";
 
+//----------------------------------------------------------------------------------------------------------------------
+	/** Constructor that uses the practice database of {@link DBHelper}. */
+	public Movies() {
+		super();
+	}
+
+	/**
+	 * Constructor that uses the given SQLite database file.
+	 *
+	 * @param databaseName the path to the SQLite database file
+	 */
+	public Movies(String databaseName) {
+		super(databaseName);
+	}
+
 //----------------------------------------------------------------------------------------------------------------------
 	// Add ORDER BY clause if sorting is applied, Add WHERE clause if filtering is applied, and Select specific fields or all fields
 	/**
@@ -177,6 +194,70 @@ public class Movies extends DBHelper {
 		return super.executeQuery(prepareSQL(fields, whatField, whatValue, sortField, sort));
 	}
 
+//----------------------------------------------------------------------------------------------------------------------
+	// Streams movie records with optional filtering and sorting.
+	/**
+	 * Selects movie records like {@link #select(String, String, String, String, String)}, but returns an open cursor over
+	 * the rows instead of copying them into lists.
+	 * <p>
+	 * Rows are read with the cursor's typed accessors while it moves forward, so memory use does not grow with the
+	 * number of rows. The cursor must be closed.
+	 * </p>
+	 *
+	 * @param fields the fields to select (or null for all fields)
+	 * @param whatField the field to filter by (or null for no filtering)
+	 * @param whatValue the value to filter by (or null for no filtering)
+	 * @param sortField the field to sort by (or null for no sorting)
+	 * @param sort the sort order (either "ASC" or "DESC")
+	 * @param fetchSize the number of rows the driver should fetch at a time, for example {@link #DEFAULT_FETCH_SIZE}
+	 * @return an open cursor positioned before the first row
+	 * @throws SQLException if the query fails
+	 */
+	public RowCursor selectCursor(String fields, String whatField, String whatValue, String sortField, String sort, int fetchSize)
+			throws SQLException {
+		return super.openCursor(prepareSQL(fields, whatField, whatValue, sortField, sort), fetchSize);
+	}
+
+	/**
+	 * Selects movie records as a stream of row views. Closing the stream closes the underlying cursor, so it should be
+	 * used with try-with-resources.
+	 * <p>
+	 * Every element is the same cursor positioned on the current row; read the values inside the pipeline, for example
+	 * {@code stream.mapToDouble(row -> row.getDouble(1))} wrapped to handle {@link SQLException}.
+	 * </p>
+	 *
+	 * @param fields the fields to select (or null for all fields)
+	 * @param whatField the field to filter by (or null for no filtering)
+	 * @param whatValue the value to filter by (or null for no filtering)
+	 * @param sortField the field to sort by (or null for no sorting)
+	 * @param sort the sort order (either "ASC" or "DESC")
+	 * @param fetchSize the number of rows the driver should fetch at a time
+	 * @return a sequential stream of row views
+	 * @throws SQLException if the query fails
+	 */
+	public Stream<RowCursor> selectStream(String fields, String whatField, String whatValue, String sortField, String sort, int fetchSize)
+			throws SQLException {
+		return selectCursor(fields, whatField, whatValue, sortField, sort, fetchSize).stream();
+	}
+
+	/**
+	 * Selects movie records and calls a handler for each row, closing the cursor afterwards.
+	 *
+	 * @param fields the fields to select (or null for all fields)
+	 * @param whatField the field to filter by (or null for no filtering)
+	 * @param whatValue the value to filter by (or null for no filtering)
+	 * @param sortField the field to sort by (or null for no sorting)
+	 * @param sort the sort order (either "ASC" or "DESC")
+	 * @param fetchSize the number of rows the driver should fetch at a time
+	 * @param handler called with the cursor positioned on each row
+	 * @return the number of rows handled
+	 * @throws SQLException if the query fails or a row cannot be read
+	 */
+	public long forEachRow(String fields, String whatField, String whatValue, String sortField, String sort, int fetchSize,
+						   RowCursor.RowHandler handler) throws SQLException {
+		return super.forEachRow(prepareSQL(fields, whatField, whatValue, sortField, sort), fetchSize, handler);
+	}
+
 //----------------------------------------------------------------------------------------------------------------------
 //Executes a custom SQL query and returns the result as an ArrayList.
 	/**
@@ -0,0 +1,337 @@
+package DBHelper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//This class streams query results row by row instead of copying them into lists
+/**
+ * The {@code RowCursor} class is a forward-only view over the rows of an open query.
+ * <p>
+ * {@link DBHelper#executeQuery(String)} copies every row into an {@code ArrayList<Object>} of boxed values before the
+ * caller sees the first one. A cursor instead reads straight from the open {@link ResultSet}: the caller moves it with
+ * {@link #next()} and reads the current row through typed accessors such as {@link #getInt(int)} and
+ * {@link #getDouble(int)}, which return primitives without boxing. Only the rows in the driver's fetch buffer are held in
+ * memory, so millions of rows can be processed in constant memory.
+ * </p>
+ *
+ * <p>
+ * A cursor holds a pooled connection until it is closed, so it must always be closed, preferably with
+ * try-with-resources. Reading it to the end does not close it.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * try (RowCursor row = new Movies(path).selectCursor("Title, Rating", null, null, null, null, 1000)) {
+ *     while (row.next()) {
+ *         total += row.getDouble(2);
+ *     }
+ * }
+ * </pre>
+ *
+ * @see Movies#selectCursor(String, String, String, String, String, int)
+ */
+public class RowCursor implements AutoCloseable {
+	/** The borrowed connection the query runs on, returned to the pool on close. */
+	private final Connection connection;
+	/** The statement that produced the result set. */
+	private final Statement statement;
+	/** The open result set this cursor reads from. */
+	private final ResultSet resultSet;
+	/** The column count, read once from the metadata. */
+	private final int columnCount;
+	/** The number of rows moved to so far. */
+	private long rowCount;
+	/** Whether the cursor has been closed. */
+	private boolean closed;
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Runs a query on a borrowed connection and opens a cursor over its rows.
+	 * <p>
+	 * If the query fails, the connection is returned before the exception is thrown.
+	 * </p>
+	 *
+	 * @param connection a borrowed connection, owned by the cursor from now on
+	 * @param sql the query to run
+	 * @param fetchSize the number of rows the driver should fetch at a time (0 lets the driver decide)
+	 * @throws SQLException if the query fails
+	 */
+	RowCursor(Connection connection, String sql, int fetchSize) throws SQLException {
+		this.connection = connection;
+		Statement stmt = null;
+		try {
+			stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			stmt.setFetchSize(Math.max(0, fetchSize));
+			this.statement = stmt;
+			this.resultSet = stmt.executeQuery(sql);
+			this.columnCount = resultSet.getMetaData().getColumnCount();
+		} catch (SQLException | RuntimeException e) {
+			if (stmt != null) {
+				stmt.close();
+			}
+			connection.close();
+			throw e;
+		}
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Moves to the next row.
+	 * @return true if there is a row to read, false at the end
+	 * @throws SQLException if the row cannot be read
+	 */
+	public boolean next() throws SQLException {
+		if (closed || !resultSet.next()) {
+			return false;
+		}
+		rowCount++;
+		return true;
+	}
+
+	/**
+	 * Returns the number of rows moved to so far.
+	 * @return the row count
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns the number of columns in each row.
+	 * @return the column count
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * Returns the name of a column.
+	 * @param column the column number, starting at 1
+	 * @return the column name or its alias
+	 * @throws SQLException if the column does not exist
+	 */
+	public String getColumnName(int column) throws SQLException {
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		return metaData.getColumnLabel(column);
+	}
+
+	/**
+	 * Finds the number of a column by name, so the faster numbered accessors can be used inside a loop.
+	 * @param name the column name
+	 * @return the column number, starting at 1
+	 * @throws SQLException if there is no such column
+	 */
+	public int findColumn(String name) throws SQLException {
+		return resultSet.findColumn(name);
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Reads a column of the current row as text.
+	 * @param column the column number, starting at 1
+	 * @return the value, or null if it is NULL
+	 * @throws SQLException if the value cannot be read
+	 */
+	public String getString(int column) throws SQLException {
+		return resultSet.getString(column);
+	}
+
+	/**
+	 * Reads a column of the current row as an int without boxing.
+	 * @param column the column number, starting at 1
+	 * @return the value, or 0 if it is NULL (see {@link #wasNull()})
+	 * @throws SQLException if the value cannot be read
+	 */
+	public int getInt(int column) throws SQLException {
+		return resultSet.getInt(column);
+	}
+
+	/**
+	 * Reads a column of the current row as a long without boxing.
+	 * @param column the column number, starting at 1
+	 * @return the value, or 0 if it is NULL (see {@link #wasNull()})
+	 * @throws SQLException if the value cannot be read
+	 */
+	public long getLong(int column) throws SQLException {
+		return resultSet.getLong(column);
+	}
+
+	/**
+	 * Reads a column of the current row as a float without boxing.
+	 * @param column the column number, starting at 1
+	 * @return the value, or 0 if it is NULL (see {@link #wasNull()})
+	 * @throws SQLException if the value cannot be read
+	 */
+	public float getFloat(int column) throws SQLException {
+		return resultSet.getFloat(column);
+	}
+
+	/**
+	 * Reads a column of the current row as a double without boxing.
+	 * @param column the column number, starting at 1
+	 * @return the value, or 0 if it is NULL (see {@link #wasNull()})
+	 * @throws SQLException if the value cannot be read
+	 */
+	public double getDouble(int column) throws SQLException {
+		return resultSet.getDouble(column);
+	}
+
+	/**
+	 * Reads a column of the current row as a boolean without boxing.
+	 * @param column the column number, starting at 1
+	 * @return the value, or false if it is NULL (see {@link #wasNull()})
+	 * @throws SQLException if the value cannot be read
+	 */
+	public boolean getBoolean(int column) throws SQLException {
+		return resultSet.getBoolean(column);
+	}
+
+	/**
+	 * Reads a column of the current row as whatever object the driver maps it to.
+	 * @param column the column number, starting at 1
+	 * @return the boxed value, or null if it is NULL
+	 * @throws SQLException if the value cannot be read
+	 */
+	public Object getObject(int column) throws SQLException {
+		return resultSet.getObject(column);
+	}
+
+	/**
+	 * Checks whether the last column read was NULL.
+	 * @return true if the last value read was NULL
+	 * @throws SQLException if the result set is closed
+	 */
+	public boolean wasNull() throws SQLException {
+		return resultSet.wasNull();
+	}
+
+	/**
+	 * Copies the current row into a new array of boxed values, for callers that need to keep it.
+	 * @return the values of the current row
+	 * @throws SQLException if a value cannot be read
+	 */
+	public Object[] toArray() throws SQLException {
+		Object[] row = new Object[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			row[i] = resultSet.getObject(i + 1);
+		}
+		return row;
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Calls a handler for every remaining row.
+	 *
+	 * @param handler called with this cursor positioned on each row
+	 * @return the number of rows handled
+	 * @throws SQLException if a row cannot be read or the handler fails
+	 */
+	public long forEachRemaining(RowHandler handler) throws SQLException {
+		long handled = 0;
+		while (next()) {
+			handler.handle(this);
+			handled++;
+		}
+		return handled;
+	}
+
+	/**
+	 * Returns the remaining rows as a sequential stream. Closing the stream closes the cursor.
+	 * <p>
+	 * Every element is this same cursor, positioned on the current row, so values must be read inside the pipeline
+	 * (for example with {@code map(row -> ...)}) rather than collected as cursors. A failure to read a row is thrown as an
+	 * {@link UncheckedSQLException}.
+	 * </p>
+	 *
+	 * @return the stream of row views
+	 */
+	public Stream<RowCursor> stream() {
+		Spliterator<RowCursor> rows = new Spliterators.AbstractSpliterator<RowCursor>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super RowCursor> action) {
+				try {
+					if (!next()) {
+						return false;
+					}
+				} catch (SQLException e) {
+					throw new UncheckedSQLException(e);
+				}
+				action.accept(RowCursor.this);
+				return true;
+			}
+		};
+		return StreamSupport.stream(rows, false).onClose(this::close);
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Closes the result set and statement and returns the connection to the pool. Closing twice has no effect.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			resultSet.close();
+			statement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+//======================================================================================================================
+	/**
+	 * Receives the rows of a cursor one at a time.
+	 */
+	@FunctionalInterface
+	public interface RowHandler {
+		/**
+		 * Handles the current row. The cursor is only valid for the duration of the call.
+		 * @param row the cursor positioned on the row
+		 * @throws SQLException if a value cannot be read
+		 */
+		void handle(RowCursor row) throws SQLException;
+	}
+
+//======================================================================================================================
+	/**
+	 * A {@link SQLException} thrown from a stream, where checked exceptions are not allowed.
+	 */
+	public static class UncheckedSQLException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Wraps a database error.
+		 * @param cause the original exception
+		 */
+		public UncheckedSQLException(SQLException cause) {
+			super(cause);
+		}
+
+		/**
+		 * Returns the original database error.
+		 * @return the wrapped exception
+		 */
+		@Override
+		public synchronized SQLException getCause() {
+			return (SQLException) super.getCause();
+		}
+	}
+}//class
@@ -0,0 +1,256 @@
+package DBHelper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+//This class tunes every SQLite connection the application opens
+/**
+ * The {@code SqliteProfile} class holds the SQLite settings applied to a connection when it is opened.
+ * <p>
+ * SQLite's defaults favour safety on slow disks over speed: a rollback journal, {@code synchronous=FULL}, a small page
+ * cache and no memory mapping. The performance profile switches to write-ahead logging, which lets readers and a writer
+ * work at the same time, syncs only at checkpoints, keeps a larger cache and temporary tables in memory, reads through
+ * memory mapping and waits for locks instead of failing at once with {@code SQLITE_BUSY}.
+ * </p>
+ *
+ * <p>
+ * The settings are read from these keys, each falling back to the default shown:
+ * <ul>
+ *     <li>{@code dms.sqlite.profile} - {@code performance}, or {@code off} to keep SQLite's defaults</li>
+ *     <li>{@code dms.sqlite.journalMode} - {@code WAL}</li>
+ *     <li>{@code dms.sqlite.synchronous} - {@code NORMAL}</li>
+ *     <li>{@code dms.sqlite.cacheSize} - {@code -65536} (negative values are KiB, so 64 MiB)</li>
+ *     <li>{@code dms.sqlite.mmapSize} - {@code 268435456} (256 MiB)</li>
+ *     <li>{@code dms.sqlite.tempStore} - {@code MEMORY}</li>
+ *     <li>{@code dms.sqlite.busyTimeoutMillis} - {@code 5000}</li>
+ * </ul>
+ * Values are checked before they are used, because PRAGMA statements cannot take bind parameters.
+ * </p>
+ *
+ * @see ConnectionPool
+ */
+public class SqliteProfile {
+	/** The allowed journal modes. */
+	private static final List<String> JOURNAL_MODES = Arrays.asList("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+	/** The synchronous levels, indexed by the number SQLite reports for them. */
+	private static final List<String> SYNCHRONOUS_LEVELS = Arrays.asList("OFF", "NORMAL", "FULL", "EXTRA");
+	/** The temp store locations, indexed by the number SQLite reports for them. */
+	private static final List<String> TEMP_STORES = Arrays.asList("DEFAULT", "FILE", "MEMORY");
+
+	/** A profile that changes nothing and leaves SQLite's defaults in place. */
+	public static final SqliteProfile OFF = new SqliteProfile(null, null, null, null, null, null);
+	/** The performance profile with its default values. */
+	public static final SqliteProfile PERFORMANCE = new SqliteProfile("WAL", "NORMAL", -65536L, 268_435_456L, "MEMORY", 5_000L);
+
+	/** The journal mode, or null to leave it unchanged. */
+	private final String journalMode;
+	/** The synchronous level, or null to leave it unchanged. */
+	private final String synchronous;
+	/** The page cache size in pages (positive) or KiB (negative), or null to leave it unchanged. */
+	private final Long cacheSize;
+	/** The maximum number of bytes read through memory mapping, or null to leave it unchanged. */
+	private final Long mmapSize;
+	/** Where temporary tables and indexes are kept, or null to leave it unchanged. */
+	private final String tempStore;
+	/** How long to wait for a locked database, in milliseconds, or null to leave it unchanged. */
+	private final Long busyTimeoutMillis;
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Creates a profile. A null value leaves that setting as SQLite has it.
+	 *
+	 * @param journalMode the journal mode, for example {@code WAL}
+	 * @param synchronous the synchronous level, for example {@code NORMAL}
+	 * @param cacheSize the page cache size in pages (positive) or KiB (negative)
+	 * @param mmapSize the maximum number of bytes to memory map
+	 * @param tempStore {@code DEFAULT}, {@code FILE} or {@code MEMORY}
+	 * @param busyTimeoutMillis how long to wait for a locked database
+	 * @throws IllegalArgumentException if a text value is not one SQLite accepts
+	 */
+	public SqliteProfile(String journalMode, String synchronous, Long cacheSize, Long mmapSize, String tempStore, Long busyTimeoutMillis) {
+		this.journalMode = checkChoice("journal mode", journalMode, JOURNAL_MODES);
+		this.synchronous = checkChoice("synchronous level", synchronous, SYNCHRONOUS_LEVELS);
+		this.cacheSize = cacheSize;
+		this.mmapSize = mmapSize;
+		this.tempStore = checkChoice("temp store", tempStore, TEMP_STORES);
+		this.busyTimeoutMillis = busyTimeoutMillis;
+	}
+
+	/**
+	 * Builds a profile from {@code dms.sqlite.*} settings.
+	 * <p>
+	 * Settings that are missing use the performance defaults. Settings that are invalid are reported on the console and
+	 * also use the defaults, so a typo never prevents connecting.
+	 * </p>
+	 *
+	 * @param settings looks a setting up by key and returns null when it is not set, for example {@code System::getProperty}
+	 * @return the profile
+	 */
+	public static SqliteProfile fromSettings(UnaryOperator<String> settings) {
+		if ("off".equalsIgnoreCase(trim(settings.apply("dms.sqlite.profile")))) {
+			return OFF;
+		}
+		String journalMode = choice(settings, "dms.sqlite.journalMode", PERFORMANCE.journalMode, JOURNAL_MODES);
+		String synchronous = choice(settings, "dms.sqlite.synchronous", PERFORMANCE.synchronous, SYNCHRONOUS_LEVELS);
+		Long cacheSize = number(settings, "dms.sqlite.cacheSize", PERFORMANCE.cacheSize);
+		Long mmapSize = number(settings, "dms.sqlite.mmapSize", PERFORMANCE.mmapSize);
+		String tempStore = choice(settings, "dms.sqlite.tempStore", PERFORMANCE.tempStore, TEMP_STORES);
+		Long busyTimeout = number(settings, "dms.sqlite.busyTimeoutMillis", PERFORMANCE.busyTimeoutMillis);
+		return new SqliteProfile(journalMode, synchronous, cacheSize, mmapSize, tempStore, busyTimeout);
+	}
+
+	/**
+	 * Builds a profile from {@code dms.sqlite.*} system properties.
+	 * @return the profile
+	 */
+	public static SqliteProfile fromSystemProperties() {
+		return fromSettings(System::getProperty);
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Applies the profile to a connection and reads back the values SQLite actually uses.
+	 * <p>
+	 * The journal mode is stored in the database file, so it only has to be switched once; the other settings belong to
+	 * the connection. A setting that SQLite rejects (for example WAL on a read-only database) is reported in the result
+	 * instead of failing the connection.
+	 * </p>
+	 *
+	 * @param conn the connection to tune; it must not be inside a transaction
+	 * @return each setting's name mapped to the value in effect, or to the failure message
+	 */
+	public Map<String, String> apply(Connection conn) {
+		Map<String, String> effective = new LinkedHashMap<>();
+		try (Statement stmt = conn.createStatement()) {
+			// busy_timeout first, so the other statements already wait for locks
+			set(stmt, effective, "busy_timeout", busyTimeoutMillis, null);
+			set(stmt, effective, "journal_mode", journalMode, null);
+			set(stmt, effective, "synchronous", synchronous, SYNCHRONOUS_LEVELS);
+			set(stmt, effective, "cache_size", cacheSize, null);
+			set(stmt, effective, "mmap_size", mmapSize, null);
+			set(stmt, effective, "temp_store", tempStore, TEMP_STORES);
+		} catch (SQLException e) {
+			effective.put("profile", "failed (" + e.getMessage() + ")");
+		}
+		return effective;
+	}
+
+	/**
+	 * Sets one PRAGMA and records the value SQLite reports afterwards.
+	 *
+	 * @param stmt the statement to run the PRAGMA with
+	 * @param effective the map the resulting value is recorded in
+	 * @param pragma the PRAGMA name
+	 * @param value the value to set, or null to leave the setting unchanged
+	 * @param names the names of numeric values SQLite reports, or null to report the raw value
+	 */
+	private static void set(Statement stmt, Map<String, String> effective, String pragma, Object value, List<String> names) {
+		if (value == null) {
+			return;
+		}
+		try {
+			stmt.execute("PRAGMA " + pragma + " = " + value + ";");
+			try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma + ";")) {
+				String reported = rs.next() ? rs.getString(1) : "?";
+				if (names != null && reported.matches("\\d+") && Integer.parseInt(reported) < names.size()) {
+					reported = names.get(Integer.parseInt(reported));
+				}
+				effective.put(pragma, reported.toUpperCase(Locale.ROOT));
+			}
+		} catch (SQLException e) {
+			effective.put(pragma, "failed (" + e.getMessage() + ")");
+		}
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Checks a text value against the values SQLite accepts.
+	 *
+	 * @param what the setting, for the error message
+	 * @param value the value, or null
+	 * @param allowed the accepted values in upper case
+	 * @return the value in upper case, or null
+	 * @throws IllegalArgumentException if the value is not accepted
+	 */
+	private static String checkChoice(String what, String value, List<String> allowed) {
+		if (value == null) {
+			return null;
+		}
+		String upper = value.trim().toUpperCase(Locale.ROOT);
+		if (!allowed.contains(upper)) {
+			throw new IllegalArgumentException("Invalid " + what + " '" + value + "', expected one of " + allowed);
+		}
+		return upper;
+	}
+
+	/**
+	 * Reads a text setting, falling back to the default when it is missing or invalid.
+	 *
+	 * @param settings the setting lookup
+	 * @param key the setting name
+	 * @param defaultValue the value used when the setting is missing or invalid
+	 * @param allowed the accepted values in upper case
+	 * @return the value to use
+	 */
+	private static String choice(UnaryOperator<String> settings, String key, String defaultValue, List<String> allowed) {
+		String value = trim(settings.apply(key));
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return checkChoice(key, value, allowed);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage() + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Reads a numeric setting, falling back to the default when it is missing or not a number.
+	 *
+	 * @param settings the setting lookup
+	 * @param key the setting name
+	 * @param defaultValue the value used when the setting is missing or invalid
+	 * @return the value to use
+	 */
+	private static Long number(UnaryOperator<String> settings, String key, Long defaultValue) {
+		String value = trim(settings.apply(key));
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number for " + key + " '" + value + "', using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Trims a setting, treating blank values as missing.
+	 * @param value the raw value, or null
+	 * @return the trimmed value, or null if it was null or blank
+	 */
+	private static String trim(String value) {
+		return value == null || value.trim().isEmpty() ? null : value.trim();
+	}
+
+//----------------------------------------------------------------------------------------------------------------------
+	/**
+	 * Describes the profile's target settings.
+	 * @return the settings as text
+	 */
+	@Override
+	public String toString() {
+		return "SqliteProfile[journal_mode=" + journalMode + ", synchronous=" + synchronous + ", cache_size=" + cacheSize
+				+ ", mmap_size=" + mmapSize + ", temp_store=" + tempStore + ", busy_timeout=" + busyTimeoutMillis + "]";
+	}
+}//class
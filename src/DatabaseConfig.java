@@ -0,0 +1,262 @@
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+/**
+ * The DatabaseConfig class holds the settings the data layer reads at startup.
+ * <p>
+ * Each key is looked up in three places, first match wins:
+ * <ol>
+ *     <li>a system property with the key name, for example {@code -Ddms.db.path=movies.db}</li>
+ *     <li>an environment variable with the key upper-cased and dots replaced by underscores, for example {@code DMS_DB_PATH}</li>
+ *     <li>a properties file named by {@code dms.config} (or {@code DMS_CONFIG}), by default {@code dms.properties} in the
+ *     working directory if it exists</li>
+ * </ol>
+ * This lets batch jobs and servers connect to a database and choose how messages are reported without any dialog.
+ * </p>
+ *
+ * <p>
+ * Keys:
+ * <ul>
+ *     <li>{@code dms.db.path} - the SQLite database file; when set, {@link DatabaseHandler#connect()} does not prompt</li>
+ *     <li>{@code dms.headless} - true to never show dialogs; defaults to true when no display is available</li>
+ *     <li>{@code dms.notifications} - {@code dialog}, {@code console} or {@code none}; defaults to {@code console} when
+ *     headless and {@code dialog} otherwise</li>
+ *     <li>{@code dms.store} - {@code map} to keep movies as objects in a map with indexes (the default), or
+ *     {@code columnar} to keep them in a {@link MovieColumnStore}, which uses far less memory for large collections</li>
+ *     <li>{@code dms.writeBehind} - true to return from adds, removes and updates once they are in memory and journaled,
+ *     and write them to the database in the background through a {@link WriteBehindQueue}</li>
+ *     <li>{@code dms.writeBehind.flushMillis} - the longest time a change waits before it is written, by default
+ *     {@value WriteBehindQueue#DEFAULT_FLUSH_MILLIS}</li>
+ *     <li>{@code dms.snapshot} - true to write a {@link MovieSnapshot} next to the database when a collection is closed
+ *     and load the next collection from it instead of from the database; defaults to false, so nothing is written
+ *     beside the user's database unless asked for</li>
+ *     <li>{@code dms.schema.uniqueTitles} - true to let {@link DatabaseHandler#connect()} create a unique index on
+ *     Movies(Title) when there is none, so imports can upsert; off by default, since it changes the user's schema and
+ *     fails on a database that already holds duplicate titles</li>
+ *     <li>{@code dms.http.port} - the port {@link MovieServer} listens on, by default {@value MovieServer#DEFAULT_PORT}</li>
+ *     <li>{@code dms.http.cacheBytes} - the most bytes of responses {@link MovieServer} keeps in its
+ *     {@link ResponseCache}, by default 32 MB; 0 turns caching off but keeps ETags</li>
+ * </ul>
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * java -Ddms.db.path=/data/movies.db -Ddms.headless=true -Ddms.notifications=none ...
+ * </pre>
+ */
+public class DatabaseConfig {
+    /** The key of the database file path. */
+    public static final String DB_PATH = "dms.db.path";
+    /** The key of the headless switch. */
+    public static final String HEADLESS = "dms.headless";
+    /** The key of the notification mode. */
+    public static final String NOTIFICATIONS = "dms.notifications";
+    /** The key of the in-memory store layout. */
+    public static final String STORE = "dms.store";
+    /** The key of the write-behind switch. */
+    public static final String WRITE_BEHIND = "dms.writeBehind";
+    /** The key of the longest time a write-behind change waits before it is written. */
+    public static final String WRITE_BEHIND_FLUSH_MILLIS = "dms.writeBehind.flushMillis";
+    /** The key of the switch that allows a unique index on Movies(Title) to be created. */
+    public static final String UNIQUE_TITLES = "dms.schema.uniqueTitles";
+    /** The key of the startup snapshot switch. */
+    public static final String SNAPSHOT = "dms.snapshot";
+    /** The key of the port {@link MovieServer} listens on. */
+    public static final String HTTP_PORT = "dms.http.port";
+    /** The key of the byte cap of {@link MovieServer}'s response cache. */
+    public static final String HTTP_CACHE_BYTES = "dms.http.cacheBytes";
+    /** The key naming the properties file to read. */
+    public static final String CONFIG_FILE = "dms.config";
+    /** The properties file read when no file is named. */
+    public static final String DEFAULT_CONFIG_FILE = "dms.properties";
+
+    /** The values read from the properties file, consulted after system properties and environment variables. */
+    private final Properties fileProperties;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a configuration backed by the given file values, system properties and environment variables.
+     * @param fileProperties the values read from a properties file (may be empty)
+     */
+    public DatabaseConfig(Properties fileProperties) {
+        this.fileProperties = new Properties();
+        this.fileProperties.putAll(fileProperties);
+    }
+
+    /**
+     * Loads the configuration, reading the properties file if there is one.
+     * <p>
+     * A missing default file is not an error. A file that was named explicitly but cannot be read is reported on the
+     * console and ignored.
+     * </p>
+     *
+     * @return the loaded configuration
+     */
+    public static DatabaseConfig load() {
+        Properties fileProperties = new Properties();
+        String named = lookup(CONFIG_FILE, null);
+        File file = new File(named == null ? DEFAULT_CONFIG_FILE : named);
+
+        if (file.isFile()) {
+            try (Reader reader = new FileReader(file)) {
+                fileProperties.load(reader);
+            } catch (IOException e) {
+                System.err.println("Failed to read configuration file " + file + ": " + e.getMessage());
+            }
+        } else if (named != null) {
+            System.err.println("Configuration file not found: " + file);
+        }
+        return new DatabaseConfig(fileProperties);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets a setting.
+     * @param key the setting name, for example {@code dms.db.path}
+     * @return the value, or null if it is not set anywhere
+     */
+    public String get(String key) {
+        return lookup(key, fileProperties);
+    }
+
+    /**
+     * Gets a setting, or a default when it is not set.
+     * @param key the setting name
+     * @param defaultValue the value used when the setting is missing
+     * @return the value or the default
+     */
+    public String get(String key, String defaultValue) {
+        String value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Gets a whole number setting.
+     * @param key the setting name
+     * @param defaultValue the value used when the setting is missing or not a number
+     * @return the value or the default
+     */
+    public int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, Integer.toString(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a long whole number setting.
+     * @param key the setting name
+     * @param defaultValue the value used when the setting is missing or not a number
+     * @return the value or the default
+     */
+    public long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(get(key, Long.toString(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a true/false setting.
+     * @param key the setting name
+     * @param defaultValue the value used when the setting is missing
+     * @return the value or the default
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the configured database file path.
+     * @return the path, or null if the user should be asked for it
+     */
+    public String getDbPath() {
+        String path = get(DB_PATH);
+        return path == null || path.trim().isEmpty() ? null : path.trim();
+    }
+
+    /**
+     * Checks whether dialogs must never be shown.
+     * @return true if {@code dms.headless} is set, or no display is available
+     */
+    public boolean isHeadless() {
+        return getBoolean(HEADLESS, false) || GraphicsEnvironment.isHeadless();
+    }
+
+    /**
+     * Checks whether movies should be kept in columns rather than as objects in a map.
+     * @return true if {@code dms.store} is {@code columnar}
+     */
+    public boolean isColumnarStore() {
+        return get(STORE, "map").trim().equalsIgnoreCase("columnar");
+    }
+
+    /**
+     * Checks whether changes should be written to the database in the background.
+     * @return true if {@code dms.writeBehind} is true
+     */
+    public boolean isWriteBehind() {
+        return getBoolean(WRITE_BEHIND, false);
+    }
+
+    /**
+     * Checks whether connecting may create a unique index on Movies(Title).
+     * @return true only if {@code dms.schema.uniqueTitles} is true
+     */
+    public boolean isUniqueTitlesEnabled() {
+        return getBoolean(UNIQUE_TITLES, false);
+    }
+
+    /**
+     * Checks whether the collection is saved to a snapshot on close and loaded from it on start.
+     * @return true only if {@code dms.snapshot} is true
+     */
+    public boolean isSnapshotEnabled() {
+        return getBoolean(SNAPSHOT, false);
+    }
+
+    /**
+     * Creates the notification sink chosen by {@code dms.notifications}.
+     * <p>
+     * A headless configuration never gets the dialog sink, even if it was asked for.
+     * </p>
+     *
+     * @return the sink to report messages through
+     */
+    public NotificationSink createNotificationSink() {
+        String mode = get(NOTIFICATIONS, isHeadless() ? "console" : "dialog");
+        if (isHeadless() && mode.trim().equalsIgnoreCase("dialog")) {
+            mode = "console";
+        }
+        return NotificationSink.forMode(mode);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Looks a key up in the system properties, then the environment, then the given file values.
+     *
+     * @param key the setting name
+     * @param fileProperties the file values, or null to skip them
+     * @return the value, or null if it is not set
+     */
+    private static String lookup(String key, Properties fileProperties) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null && fileProperties != null) {
+            value = fileProperties.getProperty(key);
+        }
+        return value;
+    }
+}//class
@@ -1,8 +1,18 @@
+import DBHelper.ConnectionPool;
+import DBHelper.SqliteProfile;
+
 import java.io.File;
 import java.sql.*;
-import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import javax.swing.*;
 
 //This class will import from the codes geerated from the db helper
@@ -12,14 +22,27 @@ import javax.swing.*;
  * <p>
  * This class is a singleton that provides methods to connect to a SQLite database, perform CRUD (Create, Read, Update, Delete) operations
  * on the `Movies` table, and calculate the average movie rating. It also handles checking if the required table exists in the database and
- * displays information to the user using JOptionPane dialogs.
+ * reports results to the user through a {@link NotificationSink}. Its connection is borrowed from the shared
+ * {@link ConnectionPool}, the same pool the DBHelper package uses.
+ * </p>
+ *
+ * <p>
+ * Settings come from a {@link DatabaseConfig}. When {@code dms.db.path} is set, {@link #connect()} uses it without
+ * prompting, and in headless mode no dialog is ever shown: messages go to the console (or nowhere), and every
+ * operation also returns its result as a value, so batch jobs and servers can run without a display.
+ * </p>
+ *
+ * <p>
+ * On connect, the connection is tuned with the {@link SqliteProfile} from the {@code dms.sqlite.*} settings (WAL journal,
+ * {@code synchronous=NORMAL}, a larger cache, memory mapping and a busy timeout by default), and indexes on the lookup
+ * columns Title, Genre, Director, Release_Year and Rating are created if missing; they also let
+ * {@link #queryMovies(MovieQuery, String)} seek to each page instead of sorting the table. A {@link MovieSearchIndex}
+ * over titles and directors is created as well, for {@link #searchMovies(String, int)}.
  *
  * </p>
  *
  * - {@link #conn} - This attribute is Database connection instance.
  *
- * <p>
- * Note: This class does not require a constructor, as the main method serves as the entry point.
  */
 public class DatabaseHandler {
     // Database connection instance
@@ -28,6 +51,94 @@ public class DatabaseHandler {
      */
     private Connection conn;
 
+    /**
+     * The JDBC URL of the connected database, used to find the shared connection pool.
+     */
+    private String dbUrl;
+
+    /**
+     * The pool the session and writer connections are borrowed from, shut down by {@link #close()}; null when not connected.
+     */
+    private ConnectionPool pool;
+
+    /**
+     * Whether the `Movies_Changes` change log and its triggers are available in the connected database.
+     */
+    private boolean changeLogAvailable;
+
+    /**
+     * The full-text index over titles and directors, or null if FTS5 is not available.
+     */
+    private MovieSearchIndex searchIndex;
+
+    /**
+     * The prepared `UPDATE` statements of the current connection, keyed by the bit set of the ordinals of the columns
+     * they set; closed with the connection.
+     */
+    private final Map<Integer, PreparedStatement> updateStatements = new HashMap<>();
+
+    /**
+     * The columns lookups filter on, each with the name of the index created for it when no index starts with it.
+     */
+    private static final String[][] LOOKUP_INDEXES = {
+            {"Title", "idx_movies_title"},
+            {"Genre", "idx_movies_genre"},
+            {"Director", "idx_movies_director"},
+            {"Release_Year", "idx_movies_release_year"},
+            {"Rating", "idx_movies_rating"}
+    };
+
+    /**
+     * The SQLite settings in effect on the connection, as reported after applying the profile.
+     */
+    private Map<String, String> sqliteSettings = Collections.emptyMap();
+
+    /**
+     * What the schema check changed on the last connect, for example the indexes it created.
+     */
+    private List<String> schemaChanges = Collections.emptyList();
+
+    /**
+     * Whether a unique index on Title exists, so imports can upsert with {@code ON CONFLICT(Title)}.
+     */
+    private boolean uniqueTitles;
+
+    /**
+     * The name of the unique index created on Title when there is none.
+     */
+    private static final String UNIQUE_TITLE_INDEX = "idx_movies_title_unique";
+
+    /**
+     * How long a change log reader may go without recording a sync before the log is no longer kept for it: one day.
+     */
+    static final long CHANGE_READER_TIMEOUT_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * The settings this handler was created with.
+     */
+    private final DatabaseConfig config;
+
+    /**
+     * Receives the messages this handler reports, such as "Movie added successfully."
+     */
+    private NotificationSink notifications;
+
+    /**
+     * Creates a handler configured from system properties, environment variables and the configuration file.
+     */
+    public DatabaseHandler() {
+        this(DatabaseConfig.load());
+    }
+
+    /**
+     * Creates a handler with the given settings.
+     * @param config the settings, including the database path and notification mode
+     */
+    public DatabaseHandler(DatabaseConfig config) {
+        this.config = config;
+        this.notifications = config.createNotificationSink();
+    }
+
     // Singleton instance of the handler
     /**
      * Returns the singleton instance of DatabaseHandler.
@@ -61,56 +172,137 @@ public class DatabaseHandler {
      * The method continuously asks the user for a valid database file path until a successful connection is established. If the `Movies`
      * table does not exist in the database, the connection will be closed, and the user will be notified.
      * </p>
+     * <p>
+     * If a database path is configured, it is used first without prompting. In headless mode the user is never asked,
+     * so the method fails when the configured path is missing or does not connect.
+     * </p>
      *
      * @return true if the connection was successful, false otherwise
      */
     public boolean connect() {
-        boolean connected = false;
-        while (!connected) {
+        String configuredPath = config.getDbPath();
+        if (configuredPath != null && connect(configuredPath)) {
+            return true;
+        }
+        if (config.isHeadless()) {
+            if (configuredPath == null) {
+                notifications.error("No database path configured. Set " + DatabaseConfig.DB_PATH + " to connect without a display.");
+            }
+            return false;
+        }
+
+        while (true) {
             String dbPath = JOptionPane.showInputDialog("Enter the SQLite database file path:");
 
             //cancel button
             if (dbPath == null) {  // Cancel clicked
-                JOptionPane.showMessageDialog(null, "Connection canceled.");
+                notifications.info("Connection canceled.");
                 return false;       // Exit the method gracefully
             }
 
-            //Handle empty or null path
-            if (dbPath == null || dbPath.trim().isEmpty()) {
-                JOptionPane.showMessageDialog(null, "Invalid file path. Please try again.");
-                continue;
+            // Keep asking until a path connects
+            if (connect(dbPath)) {
+                return true;
             }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Connects to a database at a known path without prompting
+    /**
+     * Establishes a connection to the SQLite database at the given file path without prompting.
+     * <p>
+     * The path is validated the same way as in {@link #connect()}. If the `Movies` table does not exist in the database,
+     * the connection will be closed, and the user will be notified. This is used by {@link #connect()} for each path the
+     * user enters, and directly by code that already knows the path, such as benchmarks and batch jobs.
+     * </p>
+     *
+     * @param dbPath the path to the SQLite database file
+     * @return true if the connection was successful, false otherwise
+     */
+    public boolean connect(String dbPath) {
+        //Handle empty or null path
+        if (dbPath == null || dbPath.trim().isEmpty()) {
+            notifications.error("Invalid file path. Please try again.");
+            return false;
+        }
 
-            File dbFile = new File(dbPath);
+        File dbFile = new File(dbPath);
 
-            // Validate if file exists
-            if (!dbFile.exists() || !dbFile.isFile()) {
-                JOptionPane.showMessageDialog(null, "File not found. Please enter a valid database path.");
-                continue;
+        // Validate if file exists
+        if (!dbFile.exists() || !dbFile.isFile()) {
+            notifications.error("File not found. Please enter a valid database path.");
+            return false;
+        }
+
+        // Return any connection from an earlier connect before borrowing a new one
+        close();
+
+        try {
+            // Borrow a long-lived connection from the shared pool instead of opening one directly
+            dbUrl = "jdbc:sqlite:" + dbPath;
+            pool = ConnectionPool.acquire(dbUrl);
+            conn = pool.getDedicatedConnection();
+
+            //Check if the `Movies` table exists
+            if (!doesTableExist("Movies")) {
+                notifications.error("Error: The database is missing the required 'Movies' table!");
+                close();  // Return the connection and release the pool
+                return false;
             }
 
-            try {
-                conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-
-                //Check if the `Movies` table exists
-                if (!doesTableExist("Movies")) {
-                    JOptionPane.showMessageDialog(null, "Error: The database is missing the required 'Movies' table!");
-                    conn.close();  // Close the connection gracefully
-                    conn = null;   // Reset connection
-                    continue;
-                }
+            // Tune the connection and make sure the lookup columns are indexed
+            sqliteSettings = SqliteProfile.fromSettings(config::get).apply(conn);
+            schemaChanges = ensureIndexes();
 
-                JOptionPane.showMessageDialog(null, "Connected to database: " + dbPath);
-                connected = true;
-                return true;
+            // Make sure row changes are recorded so collections can refresh only what changed
+            changeLogAvailable = ensureChangeLog();
 
+            // Keep a full-text index of titles and directors for searching
+            try {
+                searchIndex = MovieSearchIndex.open(conn);
             } catch (SQLException e) {
-                JOptionPane.showMessageDialog(null, "Failed to connect: " + e.getMessage() + "\nPlease try again.");
-                conn = null;  // Ensure connection is reset on failure
+                System.out.println("Full-text search unavailable: " + e.getMessage());
+                searchIndex = null;
             }
+
+            notifications.info("Connected to database: " + dbPath);
+            if (!schemaChanges.isEmpty()) {
+                notifications.info("Schema updated:\n" + String.join("\n", schemaChanges));
+            }
+            return true;
+
+        } catch (SQLException e) {
+            notifications.error("Failed to connect: " + e.getMessage() + "\nPlease try again.");
+            conn = null;  // Ensure connection is reset on failure
+            return false;
         }
+    }
 
-        return false;
+//----------------------------------------------------------------------------------------------------------------------
+//Notification sink
+    /**
+     * Returns the sink this handler reports its messages to.
+     * @return the current notification sink
+     */
+    public NotificationSink getNotificationSink() {
+        return notifications;
+    }
+
+    /**
+     * Replaces the sink this handler reports its messages to, for example with {@link NotificationSink#NONE} in a batch job.
+     * @param notifications the new sink
+     */
+    public void setNotificationSink(NotificationSink notifications) {
+        this.notifications = notifications;
+    }
+
+    /**
+     * Returns the settings this handler was created with.
+     * @return the configuration
+     */
+    public DatabaseConfig getConfig() {
+        return config;
     }
 //----------------------------------------------------------------------------------------------------------------------
 //Checks if a table exists in the database.
@@ -147,8 +339,9 @@ public class DatabaseHandler {
      * @param director the director of the movie
      * @param rating the rating of the movie
      * @param watchedStatus the watched status of the movie (true/false)
+     * @return true if the movie was inserted, false otherwise
      */
-    public void addMovie(String title, int Release_Year, String genre,  String director, float rating, boolean watchedStatus) {
+    public boolean addMovie(String title, int Release_Year, String genre,  String director, float rating, boolean watchedStatus) {
         String sql = "INSERT INTO Movies (title, Release_Year, genre,  director, rating, watched_status) VALUES (?, ?, ?, ?, ?, ?);";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             // Set parameters for the query
@@ -159,9 +352,11 @@ public class DatabaseHandler {
             stmt.setFloat(5, rating);
             stmt.setBoolean(6, watchedStatus);
             stmt.executeUpdate();
-            JOptionPane.showMessageDialog(null, "Movie added successfully.");
+            notifications.info("Movie added successfully.");
+            return true;
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Failed to add movie: " + e.getMessage());
+            notifications.error("Failed to add movie: " + e.getMessage());
+            return false;
         }
     }
 //----------------------------------------------------------------------------------------------------------------------
@@ -173,15 +368,18 @@ public class DatabaseHandler {
      * </p>
      *
      * @param title the title of the movie to remove will be used as the key to find the movie
+     * @return true if at least one movie was removed, false otherwise
      */
-    public void removeMovie(String title) {
+    public boolean removeMovie(String title) {
         String sql = "DELETE FROM Movies WHERE title = ?;";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, title);
             int rowsAffected = stmt.executeUpdate();
-            JOptionPane.showMessageDialog(null, rowsAffected + " movie(s) removed.");
+            notifications.info(rowsAffected + " movie(s) removed.");
+            return rowsAffected > 0;
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Failed to remove movie: " + e.getMessage());
+            notifications.error("Failed to remove movie: " + e.getMessage());
+            return false;
         }
     }
 
@@ -190,7 +388,10 @@ public class DatabaseHandler {
     /**
      * Updates a movie attribute in the `Movies` table based on the movie title.
      * <p>
-     * This method constructs an SQL `UPDATE` statement and executes it to modify a specified field of a movie record.
+     * The field must name a {@link MovieColumn}, in any of the spellings {@link MovieColumn#lookup(String)} accepts;
+     * anything else is rejected before any SQL is built. The value is bound with the column's type, so a rating is stored
+     * as a number rather than as text. The statement is prepared once per column and reused; see
+     * {@link #updateMovieFields(String, Map)}.
      * </p>
      *
      * @param title the title of the movie to update
@@ -199,20 +400,105 @@ public class DatabaseHandler {
      * @return true if the update was successful, false otherwise
      */
     public boolean updateMovieAttribute(String title, String field, String newValue) {
-        String sql = "UPDATE Movies SET " + field + " = ? WHERE title = ?";
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, newValue);
-            pstmt.setString(2, title);
+        MovieColumn column = MovieColumn.lookup(field);
+        if (column == null) {
+            notifications.error("Failed to update movie attribute: unknown field " + field);
+            return false;
+        }
+        Map<MovieColumn, Object> values = new EnumMap<>(MovieColumn.class);
+        values.put(column, newValue);
+        return updateMovieFields(title, values);
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;   // Returns true if update was successful
-        } catch (SQLException e) {
-            System.out.println("Failed to update movie attribute: " + e.getMessage());
+    /**
+     * Updates several columns of one movie in a single `UPDATE` statement.
+     * <p>
+     * Each value is bound with its column's type and may be given as that type or as text, for example
+     * {@code Map.of(MovieColumn.RATING, 88.5f, MovieColumn.WATCHED_STATUS, true)}. The statement for each set of columns
+     * is prepared on first use and kept for the life of the connection, so repeated updates skip parsing and planning the
+     * SQL. A cached statement is used by one thread at a time.
+     * </p>
+     *
+     * @param title the title of the movie to update
+     * @param values the new value of each column to change
+     * @return true if the movie was found and updated, false if it was not found, no value was given or a value was invalid
+     */
+    public boolean updateMovieFields(String title, Map<MovieColumn, ?> values) {
+        if (values.isEmpty()) {
+            notifications.error("Failed to update movie attribute: no field given");
+            return false;
+        }
+        Map<MovieColumn, Object> ordered = new EnumMap<>(MovieColumn.class);
+        ordered.putAll(values);
+        try {
+            PreparedStatement pstmt = updateStatement(ordered.keySet());
+            synchronized (pstmt) {
+                int index = 1;
+                for (Map.Entry<MovieColumn, Object> value : ordered.entrySet()) {
+                    value.getKey().bind(pstmt, index++, value.getValue());
+                }
+                pstmt.setString(index, title);
+                return pstmt.executeUpdate() > 0;   // Returns true if update was successful
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            notifications.error("Failed to update movie attribute: " + e.getMessage());
             return false;  // Return false on error
         }
     }
 
+    /**
+     * Returns the cached `UPDATE` statement for a set of columns, preparing it on first use.
+     *
+     * @param columns the columns to set, in declaration order
+     * @return the statement, with one parameter per column followed by the title
+     * @throws SQLException if the statement cannot be prepared
+     */
+    private PreparedStatement updateStatement(Set<MovieColumn> columns) throws SQLException {
+        int key = 0;
+        for (MovieColumn column : columns) {
+            key |= 1 << column.ordinal();
+        }
+        synchronized (updateStatements) {
+            PreparedStatement pstmt = updateStatements.get(key);
+            if (pstmt == null) {
+                StringBuilder sql = new StringBuilder("UPDATE Movies SET ");
+                for (MovieColumn column : columns) {
+                    sql.append(column.getColumnName()).append(" = ?, ");
+                }
+                sql.setLength(sql.length() - 2);
+                pstmt = conn.prepareStatement(sql.append(" WHERE Title = ?;").toString());
+                updateStatements.put(key, pstmt);
+            }
+            return pstmt;
+        }
+    }
+
+    /**
+     * Gets the number of `UPDATE` statements cached for the current connection.
+     * @return one per distinct set of columns updated since connecting
+     */
+    int getCachedUpdateCount() {
+        synchronized (updateStatements) {
+            return updateStatements.size();
+        }
+    }
+
+    /**
+     * Closes the cached statements, which belong to the connection being closed.
+     */
+    private void closeUpdateStatements() {
+        synchronized (updateStatements) {
+            for (PreparedStatement pstmt : updateStatements.values()) {
+                try {
+                    pstmt.close();
+                } catch (SQLException e) {
+                    System.out.println("Failed to close a cached statement: " + e.getMessage());
+                }
+            }
+            updateStatements.clear();
+        }
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
     //Checks if a movie exists in the database by title.
     /**
@@ -229,9 +515,9 @@ public class DatabaseHandler {
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, title);
-            ResultSet rs = pstmt.executeQuery();
-
-            return rs.next();  // Return true if at least one row is found
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();  // Return true if at least one row is found
+            }
         } catch (SQLException e) {
             System.out.println("Error checking if movie exists: " + e.getMessage());
             return false;
@@ -242,10 +528,13 @@ public class DatabaseHandler {
     /**
      * Displays all movies in the `Movies` table in a user-friendly format.
      * <p>
-     * This method retrieves all movie records from the database and displays them in a formatted message using `JOptionPane`.
+     * This method retrieves all movie records from the database and reports them in a formatted message through the
+     * notification sink.
      * </p>
+     *
+     * @return the formatted list of movies, or null if the movies could not be read
      */
-    public void displayAllMovies() {
+    public String displayAllMovies() {
         String sql = "SELECT * FROM Movies;";
         try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             StringBuilder result = new StringBuilder("Movies in Collection:\n");
@@ -257,9 +546,208 @@ public class DatabaseHandler {
                         .append(rs.getFloat("rating")).append(" - ")
                         .append(rs.getBoolean("watched_status") ? "Watched" : "Not Watched").append("\n");
             }
-            JOptionPane.showMessageDialog(null, result.toString());
+            notifications.info(result.toString());
+            return result.toString();
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Failed to retrieve movies: " + e.getMessage());
+            notifications.error("Failed to retrieve movies: " + e.getMessage());
+            return null;
+        }
+    }
+//----------------------------------------------------------------------------------------------------------------------
+    // Full-text search
+    /**
+     * Searches movie titles and directors for words, matching the last word as a prefix and tolerating small typos.
+     * <p>
+     * The search runs on the FTS5 index kept by {@link MovieSearchIndex}; see there for how results are ranked.
+     * </p>
+     *
+     * @param text the words to search for
+     * @param limit the most movies to return
+     * @return the matching movies, best first (empty if none)
+     * @throws SQLException if the index cannot be read or is not available
+     */
+    public List<Movie> searchMovies(String text, int limit) throws SQLException {
+        if (searchIndex == null) {
+            throw new SQLException("Full-text search is not available for this database.");
+        }
+        return searchIndex.search(text, limit);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    // Page through the movies
+    /**
+     * Reads one page of movies in the order and with the filters of a query, continuing after a cursor.
+     * <p>
+     * Pages use keyset pagination: rows are ordered by the sort column and then by ID, and each page starts after the
+     * sort value and ID of the previous page's last row, which SQLite finds by seeking in the column's index rather than
+     * counting past every earlier row as {@code OFFSET} does. A page deep in a large catalog therefore costs the same as
+     * the first. Rows whose sort column is NULL come after all others, ordered by ID. Filters ignore case and are
+     * checked while the sort index is walked, so a filtered page costs in proportion to the rows passed over to fill it.
+     * </p>
+     *
+     * @param query the filters, sort order and page size
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @return the page, with the cursor of the next one
+     * @throws SQLException if the movies cannot be read
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another sort order
+     */
+    public MoviePage queryMovies(MovieQuery query, String cursor) throws SQLException {
+        MoviePage.Cursor after = cursor == null ? null : MoviePage.Cursor.decode(cursor, query);
+        String column = query.getSortColumn();
+        String direction = query.isAscending() ? " ASC" : " DESC";
+        String comparison = query.isAscending() ? " > " : " < ";
+        boolean nullable = !column.equals("Title"); // Title is NOT NULL
+        int limit = query.getPageSize() + 1;        // One row more than the page tells whether another page follows
+
+        List<Movie> movies = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        // First the rows with a sort value, from the cursor on
+        if (after == null || after.value != null) {
+            List<String> conditions = new ArrayList<>();
+            List<Object> params = new ArrayList<>();
+            addFilters(query, conditions, params);
+            if (nullable) {
+                conditions.add(column + " IS NOT NULL");
+            }
+            if (after != null) {
+                conditions.add("(" + column + ", ID)" + comparison + "(?, ?)");
+                params.add(sortValue(column, after.value));
+                params.add(after.id);
+            }
+            readRows(pageSql(conditions, column + direction + ", ID" + direction), params, limit, column,
+                    movies, ids, values);
+        }
+        // Then, once those run out, the rows without one
+        if (nullable && movies.size() < limit) {
+            List<String> conditions = new ArrayList<>();
+            List<Object> params = new ArrayList<>();
+            addFilters(query, conditions, params);
+            conditions.add(column + " IS NULL");
+            if (after != null && after.value == null) {
+                conditions.add("ID" + comparison + "?");
+                params.add(after.id);
+            }
+            readRows(pageSql(conditions, "ID" + direction), params, limit - movies.size(), column, movies, ids, values);
+        }
+
+        if (movies.size() < limit) {
+            return new MoviePage(movies, null);
+        }
+        int last = query.getPageSize() - 1;
+        movies.remove(limit - 1);
+        return new MoviePage(movies, new MoviePage.Cursor(query, values.get(last), ids.get(last)).encode());
+    }
+
+    /**
+     * Adds the genre and director filters of a query, compared ignoring case.
+     *
+     * @param query the query
+     * @param conditions receives the SQL conditions
+     * @param params receives their parameters
+     */
+    private static void addFilters(MovieQuery query, List<String> conditions, List<Object> params) {
+        if (query.getGenre() != null) {
+            conditions.add("Genre = ? COLLATE NOCASE");
+            params.add(query.getGenre());
+        }
+        if (query.getDirector() != null) {
+            conditions.add("Director = ? COLLATE NOCASE");
+            params.add(query.getDirector());
+        }
+    }
+
+    /**
+     * Builds the SQL of one page read.
+     *
+     * @param conditions the conditions, all of which must hold
+     * @param orderBy the ORDER BY terms
+     * @return the SQL, with the row limit left as the last parameter
+     */
+    private static String pageSql(List<String> conditions, String orderBy) {
+        return "SELECT ID, Title, Release_Year, Genre, Director, Rating, Watched_Status FROM Movies"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY " + orderBy + " LIMIT ?;";
+    }
+
+    /**
+     * Runs one page read and collects its movies, IDs and sort values.
+     *
+     * @param sql the SQL from {@link #pageSql(List, String)}
+     * @param params the parameters of the conditions
+     * @param limit the most rows to read
+     * @param column the sort column
+     * @param movies receives the movies
+     * @param ids receives the IDs
+     * @param values receives the sort values as text, null where the column is NULL
+     * @throws SQLException if the rows cannot be read
+     */
+    private void readRows(String sql, List<Object> params, int limit, String column, List<Movie> movies, List<Long> ids,
+                          List<String> values) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Object param : params) {
+                pstmt.setObject(index++, param);
+            }
+            pstmt.setInt(index, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    movies.add(new Movie(
+                            rs.getString("Title"),
+                            rs.getInt("Release_Year"),
+                            rs.getString("Genre"),
+                            rs.getString("Director"),
+                            rs.getFloat("Rating"),
+                            rs.getBoolean("Watched_Status")));
+                    ids.add(rs.getLong("ID"));
+                    values.add(rs.getObject(column) == null ? null : sortText(column, rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the sort value of the current row as text that converts back to exactly the same value.
+     *
+     * @param column the sort column
+     * @param rs the result set on the row
+     * @return the value as text
+     * @throws SQLException if the value cannot be read
+     */
+    private static String sortText(String column, ResultSet rs) throws SQLException {
+        switch (column) {
+            case "Release_Year":
+            case "Watched_Status":
+                return Long.toString(rs.getLong(column));
+            case "Rating":
+                return Double.toString(rs.getDouble(column));
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    /**
+     * Converts a sort value from a cursor back to the type of its column, so SQLite compares it as stored.
+     *
+     * @param column the sort column
+     * @param text the value as text
+     * @return the value to bind
+     * @throws IllegalArgumentException if the text is not a value of the column
+     */
+    private static Object sortValue(String column, String text) {
+        try {
+            switch (column) {
+                case "Release_Year":
+                case "Watched_Status":
+                    return Long.parseLong(text);
+                case "Rating":
+                    return Double.parseDouble(text);
+                default:
+                    return text;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed page cursor", e);
         }
     }
 //----------------------------------------------------------------------------------------------------------------------
@@ -267,40 +755,449 @@ public class DatabaseHandler {
     /**
      * Calculates and displays the average rating of all movies in the `Movies` table.
      * <p>
-     * This method calculates the average movie rating using the `AVG` function and displays the result in a formatted message.
+     * This method calculates the average movie rating using the `AVG` function and reports the result in a formatted message.
      * </p>
+     *
+     * @return the average rating, 0 if there are no movies, or NaN if the query failed
      */
-    public void calculateAverageRating() {
+    public double calculateAverageRating() {
         String sql = "SELECT AVG(rating) AS avg_rating FROM Movies;";
         try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-            if (rs.next()) {
+            if (rs.next() && rs.getObject("avg_rating") != null) {
                 double avgRating = rs.getDouble("avg_rating");
-                DecimalFormat df = new DecimalFormat("#0.00");
-                JOptionPane.showMessageDialog(null, "Average Rating: " + df.format(avgRating));
-            } else {
-                JOptionPane.showMessageDialog(null, "No movies found.");
+                notifications.info(String.format("Average Rating: %.2f", avgRating));
+                return avgRating;
+            }
+            notifications.info("No movies found.");
+            return 0;
+        } catch (SQLException e) {
+            notifications.error("Failed to calculate average rating: " + e.getMessage());
+            return Double.NaN;
+        }
+    }
+//----------------------------------------------------------------------------------------------------------------------
+    // Rating aggregates calculated by SQLite
+    /**
+     * Calculates the rating count, average, minimum and maximum of the `Movies` table in one query.
+     * <p>
+     * This is used to check the running statistics kept in memory by {@link MovieStats}.
+     * </p>
+     *
+     * @return an array of {count, average, minimum, maximum}, or null if the query failed
+     */
+    public double[] getRatingAggregate() {
+        String sql = "SELECT COUNT(*), COALESCE(AVG(rating), 0), COALESCE(MIN(rating), 0), COALESCE(MAX(rating), 0) FROM Movies;";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return new double[]{rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4)};
+            }
+            return null;
+        } catch (SQLException e) {
+            System.out.println("Failed to calculate rating aggregate: " + e.getMessage());
+            return null;
+        }
+    }
+//----------------------------------------------------------------------------------------------------------------------
+//Indexes on the lookup columns
+    /**
+     * Creates an index on each lookup column that no existing index starts with.
+     * <p>
+     * {@link #movieExists(String)}, {@link #removeMovie(String)} and {@link #updateMovieAttribute(String, String, String)}
+     * filter on Title, and the collection's queries on Genre, Director and Release_Year. Without an index each of these
+     * scans the whole table. An index that already covers a column as its first column, under any name, is kept, and
+     * no existing index is ever dropped.
+     * </p>
+     * <p>
+     * Imports need a unique index on Title to upsert with {@code ON CONFLICT(Title)}. One is only created when
+     * {@link DatabaseConfig#isUniqueTitlesEnabled()} allows it, and falls back to a plain index if the table already
+     * holds duplicate titles; without it imports insert without upserting.
+     * </p>
+     *
+     * @return a description of each index created, or of each one that could not be created
+     */
+    private List<String> ensureIndexes() {
+        List<String> changes = new ArrayList<>();
+        Set<String> indexed = new HashSet<>();
+        uniqueTitles = false;
+        // A unique index only enforces unique titles if it is on Title alone and covers every row
+        String sql = "SELECT ii.name, il.name, il.\"unique\" AND NOT il.partial "
+                + "AND (SELECT COUNT(*) FROM pragma_index_info(il.name)) = 1 "
+                + "FROM pragma_index_list('Movies') il, pragma_index_info(il.name) ii WHERE ii.seqno = 0;";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String column = rs.getString(1).toLowerCase(Locale.ROOT);
+                indexed.add(column);
+                uniqueTitles |= column.equals("title") && rs.getBoolean(3);
             }
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Failed to calculate average rating: " + e.getMessage());
+            changes.add("Could not read the indexes of Movies: " + e.getMessage());
+            return changes;
+        }
+
+        // A unique index changes what the user's database accepts, so it is only created when asked for; existing
+        // indexes are never dropped
+        if (!uniqueTitles && config.isUniqueTitlesEnabled()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + UNIQUE_TITLE_INDEX + " ON Movies(Title);");
+                changes.add("Created unique index " + UNIQUE_TITLE_INDEX + " on Movies(Title)");
+                uniqueTitles = true;
+                indexed.add("title");
+            } catch (SQLException e) {
+                changes.add("Could not make Movies(Title) unique, imports will not upsert: " + e.getMessage());
+            }
+        }
+
+        for (String[] index : LOOKUP_INDEXES) {
+            if (indexed.contains(index[0].toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + index[1] + " ON Movies(" + index[0] + ");");
+                changes.add("Created index " + index[1] + " on Movies(" + index[0] + ")");
+            } catch (SQLException e) {
+                changes.add("Could not create index on Movies(" + index[0] + "): " + e.getMessage());
+            }
         }
+        return changes;
+    }
+
+    /**
+     * Checks whether Title is unique in the connected database, which imports need to upsert.
+     * @return true if a unique index on Title exists
+     */
+    public boolean hasUniqueTitles() {
+        return uniqueTitles;
+    }
+
+    /**
+     * Returns what the schema check changed when the database was connected.
+     * @return descriptions of the created indexes; empty if the schema was already complete
+     */
+    public List<String> getSchemaChanges() {
+        return schemaChanges;
+    }
+
+    /**
+     * Returns the SQLite settings in effect on the connection after the profile was applied.
+     * @return each PRAGMA name mapped to its value, for example journal_mode to WAL
+     */
+    public Map<String, String> getSqliteSettings() {
+        return sqliteSettings;
+    }
+//----------------------------------------------------------------------------------------------------------------------
+//Change log used for delta refreshes
+    /**
+     * Creates the `Movies_Changes` change log and the triggers that fill it, if they do not exist yet.
+     * <p>
+     * Every insert, update and delete on `Movies` appends the affected title to the log with an increasing sequence number.
+     * A renamed movie records both its old and its new title. Collections remember the last sequence number they have
+     * seen and use {@link #fetchChangesBetween(long, long)} to load only the rows changed since. They record that number in
+     * `Movies_Change_Readers`, and {@link #truncateChangeLog()} drops the entries all of them have applied. A log created
+     * by an older version with an `Op` column is migrated: the column was never read, so it and the triggers that filled
+     * it are dropped and the triggers are created again without it.
+     * </p>
+     *
+     * @return true if the change log is available, false if it could not be created (for example on a read-only database)
+     */
+    private boolean ensureChangeLog() {
+        try (Statement stmt = conn.createStatement()) {
+            if (changeLogHasOpColumn(stmt)) {
+                stmt.execute("DROP TRIGGER IF EXISTS Movies_Changes_Insert;");
+                stmt.execute("DROP TRIGGER IF EXISTS Movies_Changes_Update;");
+                stmt.execute("DROP TRIGGER IF EXISTS Movies_Changes_Delete;");
+                stmt.execute("ALTER TABLE Movies_Changes DROP COLUMN Op;");
+            }
+            stmt.execute("CREATE TABLE IF NOT EXISTS Movies_Changes (Seq INTEGER PRIMARY KEY AUTOINCREMENT, Title TEXT NOT NULL);");
+            stmt.execute("CREATE TABLE IF NOT EXISTS Movies_Change_Readers ("
+                    + "Reader TEXT PRIMARY KEY, Seq INTEGER NOT NULL, Updated INTEGER NOT NULL);");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Movies_Changes_Insert AFTER INSERT ON Movies BEGIN "
+                    + "INSERT INTO Movies_Changes (Title) VALUES (NEW.Title); END;");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Movies_Changes_Update AFTER UPDATE ON Movies BEGIN "
+                    + "INSERT INTO Movies_Changes (Title) SELECT OLD.Title WHERE OLD.Title IS NOT NEW.Title; "
+                    + "INSERT INTO Movies_Changes (Title) VALUES (NEW.Title); END;");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Movies_Changes_Delete AFTER DELETE ON Movies BEGIN "
+                    + "INSERT INTO Movies_Changes (Title) VALUES (OLD.Title); END;");
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Change log unavailable, full refreshes will be used: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether an existing change log still has the `Op` column of older versions.
+     *
+     * @param stmt the statement to query with
+     * @return true if the column has to be dropped
+     * @throws SQLException if the table's columns could not be read
+     */
+    private boolean changeLogHasOpColumn(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(Movies_Changes);")) {
+            while (rs.next()) {
+                if ("Op".equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the last change log entry a reader has applied, so {@link #truncateChangeLog()} keeps every entry after it.
+     * <p>
+     * Each {@link MovieCollection} is one reader under its own name while it is open, and a saved snapshot is another.
+     * A reader that has not recorded anything for {@link #CHANGE_READER_TIMEOUT_MILLIS} is forgotten; if it comes back,
+     * {@link #hasChangesSince(long)} tells it to reload everything.
+     * </p>
+     *
+     * @param reader the reader's name
+     * @param seq the last sequence number it applied
+     */
+    public void recordChangesRead(String reader, long seq) {
+        if (!changeLogAvailable) {
+            return;
+        }
+        String sql = "INSERT INTO Movies_Change_Readers (Reader, Seq, Updated) VALUES (?, ?, ?) "
+                + "ON CONFLICT(Reader) DO UPDATE SET Seq = excluded.Seq, Updated = excluded.Updated;";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, reader);
+            pstmt.setLong(2, seq);
+            pstmt.setLong(3, System.currentTimeMillis());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.out.println("Failed to record change log reader: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets a reader, so the change log is no longer kept for it.
+     * @param reader the reader's name
+     */
+    public void forgetChangeReader(String reader) {
+        if (!changeLogAvailable) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM Movies_Change_Readers WHERE Reader = ?;")) {
+            pstmt.setString(1, reader);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.out.println("Failed to forget change log reader: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the change log entries every reader has already applied.
+     * <p>
+     * Readers that have not recorded anything for {@link #CHANGE_READER_TIMEOUT_MILLIS} are forgotten first, so a
+     * collection that crashed does not hold the log forever. Then every entry up to the lowest sequence number still
+     * recorded is deleted, or every entry when there is no reader. The newest entry is always kept, so
+     * {@link #getLatestChangeSeq()} never goes back and sequence numbers are never reused.
+     * </p>
+     *
+     * @return the number of entries removed, or 0 if the log is unavailable or could not be truncated
+     */
+    public int truncateChangeLog() {
+        if (!changeLogAvailable) {
+            return 0;
+        }
+        try (PreparedStatement forget = conn.prepareStatement("DELETE FROM Movies_Change_Readers WHERE Updated < ?;");
+             Statement stmt = conn.createStatement()) {
+            forget.setLong(1, System.currentTimeMillis() - CHANGE_READER_TIMEOUT_MILLIS);
+            forget.executeUpdate();
+            return stmt.executeUpdate("DELETE FROM Movies_Changes "
+                    + "WHERE Seq < (SELECT MAX(Seq) FROM Movies_Changes) "
+                    + "AND Seq <= COALESCE((SELECT MIN(Seq) FROM Movies_Change_Readers), (SELECT MAX(Seq) FROM Movies_Changes));");
+        } catch (SQLException e) {
+            System.out.println("Failed to truncate change log: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Checks whether the change log could be set up for the connected database.
+     * @return true if delta refreshes are possible
+     */
+    public boolean hasChangeLog() {
+        return changeLogAvailable;
+    }
+
+    /**
+     * Reads SQLite's `data_version` for this connection.
+     * <p>
+     * The value changes whenever another connection commits a change to the database, so an unchanged value means
+     * there is nothing new to load.
+     * </p>
+     *
+     * @return the current data version, or -1 if it could not be read
+     */
+    public long getDataVersion() {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA data_version;")) {
+            return rs.next() ? rs.getLong(1) : -1;
+        } catch (SQLException e) {
+            System.out.println("Failed to read data version: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the sequence number of the newest entry in the change log.
+     * @return the latest sequence number, or 0 if the log is empty or unavailable
+     */
+    public long getLatestChangeSeq() {
+        if (!changeLogAvailable) {
+            return 0;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(Seq), 0) FROM Movies_Changes;")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.out.println("Failed to read change log: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the sequence number of the oldest entry still in the change log.
+     * <p>
+     * Entries older than this one may have been removed, so a reader that last synced before the entry just below it
+     * can no longer rely on the log and must reload everything; see {@link #hasChangesSince(long)}.
+     * </p>
+     *
+     * @return the oldest sequence number, or 0 if the log is empty or unavailable
+     */
+    public long getOldestChangeSeq() {
+        if (!changeLogAvailable) {
+            return 0;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MIN(Seq), 0) FROM Movies_Changes;")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.out.println("Failed to read change log: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Checks whether the change log still holds every change after a sequence number.
+     * @param afterSeq the last sequence number a reader has applied
+     * @return true if {@link #fetchChangesBetween(long, long)} can bring the reader up to date, false if it must reload
+     */
+    public boolean hasChangesSince(long afterSeq) {
+        if (!changeLogAvailable) {
+            return false;
+        }
+        long oldest = getOldestChangeSeq();
+        return oldest == 0 || afterSeq >= oldest - 1;
+    }
+
+    /**
+     * Counts the rows of the `Movies` table.
+     * @return the number of movies, or -1 if they could not be counted
+     */
+    public long countMovies() {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Movies;")) {
+            return rs.next() ? rs.getLong(1) : -1;
+        } catch (SQLException e) {
+            System.out.println("Failed to count movies: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Loads the current state of every movie changed in a range of the change log.
+     * <p>
+     * Each changed title appears once. If the movie still exists, its current row is returned; if it was deleted or
+     * renamed away, the title maps to null.
+     * </p>
+     *
+     * @param afterSeq the last sequence number already applied (exclusive)
+     * @param upToSeq the last sequence number to include (inclusive)
+     * @return the changed titles mapped to their current movie, or to null when removed
+     * @throws SQLException if the change log could not be read
+     */
+    public Map<String, Movie> fetchChangesBetween(long afterSeq, long upToSeq) throws SQLException {
+        String sql = "SELECT c.Title AS changed_title, m.Title, m.Release_Year, m.Genre, m.Director, m.Rating, m.Watched_Status "
+                + "FROM (SELECT DISTINCT Title FROM Movies_Changes WHERE Seq > ? AND Seq <= ?) c "
+                + "LEFT JOIN Movies m ON m.Title = c.Title;";
+        Map<String, Movie> changes = new LinkedHashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterSeq);
+            pstmt.setLong(2, upToSeq);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String title = rs.getString("changed_title");
+                    if (rs.getString("Title") == null) {
+                        changes.put(title, null);
+                    } else {
+                        changes.put(title, new Movie(
+                                rs.getString("Title"),
+                                rs.getInt("Release_Year"),
+                                rs.getString("Genre"),
+                                rs.getString("Director"),
+                                rs.getFloat("Rating"),
+                                rs.getBoolean("Watched_Status")));
+                    }
+                }
+            }
+        }
+        return changes;
     }
 //----------------------------------------------------------------------------------------------------------------------
     // Close connection
     /**
      * Closes the database connection gracefully.
      * <p>
-     * This method ensures the database connection is closed if it is open and not already closed.
+     * This method ensures the database connection is closed if it is open and not already closed. The connection was
+     * borrowed from the {@link ConnectionPool}, so closing it returns it to the pool. The handler then releases the pool,
+     * which is shut down once no other handler on the same database holds it: its idle connections are closed, its
+     * housekeeping is stopped, and a writer connection still borrowed is closed when it is returned.
      * </p>
      */
     public void close() {
+        closeUpdateStatements();
         try {
             if (conn != null && !conn.isClosed()) {
                 conn.close();
             }
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Failed to close connection: " + e.getMessage());
+            notifications.error("Failed to close connection: " + e.getMessage());
+        }
+        conn = null;
+        searchIndex = null;
+        // Other handlers on the same database may still use the pool; the last one to release it shuts it down
+        if (pool != null) {
+            pool.release();
+            pool = null;
         }
     }
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Borrows a second long-lived connection to the connected database, tuned with the same {@link SqliteProfile}.
+     * <p>
+     * A {@link WriteBehindQueue} commits through it, so its transactions never mix with those of the session connection.
+     * The caller must close it to return it to the pool.
+     * </p>
+     *
+     * @return a connection to the same database
+     * @throws SQLException if no database is connected or no connection could be borrowed
+     */
+    public Connection openWriterConnection() throws SQLException {
+        if (pool == null || conn == null) {
+            throw new SQLException("No database is connected.");
+        }
+        Connection writer = pool.getDedicatedConnection();
+        SqliteProfile.fromSettings(config::get).apply(writer);
+        return writer;
+    }
+
+    /**
+     * Gets the file path of the connected database.
+     * @return the path, or null if no database has been connected yet
+     */
+    public String getDbPath() {
+        return dbUrl == null ? null : dbUrl.substring("jdbc:sqlite:".length());
+    }
 //----------------------------------------------------------------------------------------------------------------------
 // Add this method to DatabaseHandler
     /**
@@ -310,4 +1207,16 @@ public class DatabaseHandler {
 public Connection getConnection() {
     return conn;   // Return the current database connection
     }
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the metrics of the connection pool this handler borrows from.
+     * <p>
+     * The statistics include borrow wait times and active and idle connection counts, and are used to size the pool under load.
+     * </p>
+     *
+     * @return the pool statistics, or null if no database is connected
+     */
+    public ConnectionPool.Stats getPoolStats() {
+        return pool == null ? null : pool.getStats();
+    }
 }//class
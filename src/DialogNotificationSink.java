@@ -0,0 +1,28 @@
+import javax.swing.*;
+
+/**
+ * The DialogNotificationSink class shows data layer messages in JOptionPane dialogs.
+ * <p>
+ * This is the interactive behavior of the application: information appears in a plain message dialog and errors in an
+ * error dialog styled by {@link UITheme}. It needs a display and blocks until the user closes the dialog.
+ * </p>
+ */
+public class DialogNotificationSink implements NotificationSink {
+    /**
+     * Shows an informational message in a dialog.
+     * @param message the message text
+     */
+    @Override
+    public void info(String message) {
+        JOptionPane.showMessageDialog(null, message);
+    }
+
+    /**
+     * Shows an error message in an error dialog.
+     * @param message the message text
+     */
+    @Override
+    public void error(String message) {
+        UITheme.applyErrorTheme(null, message, "Error");
+    }
+}//class
@@ -0,0 +1,146 @@
+/**
+ * The Genre enum lists the movie genres the system accepts.
+ * <p>
+ * Genres are entered as text and compared ignoring case, so "war", "WAR" and "War" are all {@link #WAR}. Instead of
+ * scanning a list with {@code equalsIgnoreCase} for every row, {@link #lookup(CharSequence)} finds the only possible
+ * candidate with a perfect hash of the first letter and the length, and then compares just that one name. The table is
+ * checked when the class is loaded, so adding a genre whose hash collides fails at once rather than rejecting input.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * Genre genre = Genre.lookup("science fiction"); // SCIENCE_FICTION
+ * boolean valid = Genre.lookup("Musical") != null; // false
+ * </pre>
+ */
+public enum Genre {
+    ACTION("Action"),
+    CRIME("Crime"),
+    DRAMA("Drama"),
+    FANTASY("Fantasy"),
+    HORROR("Horror"),
+    COMEDY("Comedy"),
+    ROMANCE("Romance"),
+    SCIENCE_FICTION("Science Fiction"),
+    SPORTS("Sports"),
+    THRILLER("Thriller"),
+    MYSTERY("Mystery"),
+    WAR("War"),
+    WESTERN("Western");
+
+    /** The size of the hash table; a power of two so the hash can be masked. */
+    private static final int TABLE_SIZE = 32;
+    /** The genre for each hash, or null where no genre hashes to. */
+    private static final Genre[] TABLE = new Genre[TABLE_SIZE];
+    /** The display names joined for messages, for example "Action, Crime, ...". */
+    private static final String NAMES;
+
+    static {
+        StringBuilder names = new StringBuilder();
+        for (Genre genre : values()) {
+            int slot = hash(genre.displayName.charAt(0), genre.displayName.length());
+            if (TABLE[slot] != null) {
+                throw new IllegalStateException("Genre hash collision: " + genre + " and " + TABLE[slot]);
+            }
+            TABLE[slot] = genre;
+            names.append(names.length() == 0 ? "" : ", ").append(genre.displayName);
+        }
+        NAMES = names.toString();
+    }
+
+    /** The name shown to users and stored for new movies. */
+    private final String displayName;
+
+    /**
+     * Creates a genre.
+     * @param displayName the name shown to users
+     */
+    Genre(String displayName) {
+        this.displayName = displayName;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Finds the genre a text names, ignoring case.
+     * @param text the genre as entered, already trimmed
+     * @return the genre, or null if the text is not a valid genre
+     */
+    public static Genre lookup(CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return null;
+        }
+        Genre candidate = TABLE[hash(text.charAt(0), length)];
+        return candidate != null && candidate.matches(text) ? candidate : null;
+    }
+
+    /**
+     * Returns the only genre that could match a text with the given first character and length.
+     * <p>
+     * This lets callers that hold the text in another form, such as bytes, find the candidate without creating a
+     * {@code String}; they must still compare the whole name.
+     * </p>
+     *
+     * @param first the first character of the text
+     * @param length the length of the text
+     * @return the candidate genre, or null if no genre starts with that character and has that length
+     */
+    public static Genre candidate(int first, int length) {
+        Genre candidate = length > 0 ? TABLE[hash(first, length)] : null;
+        return candidate != null && candidate.displayName.length() == length ? candidate : null;
+    }
+
+    /**
+     * Computes the perfect hash of a genre name from its first letter and length.
+     * @param first the first character
+     * @param length the length of the name
+     * @return the table slot
+     */
+    private static int hash(int first, int length) {
+        return ((first | 0x20) + 4 * length) & (TABLE_SIZE - 1);
+    }
+
+    /**
+     * Compares a text with this genre's name, ignoring case of ASCII letters.
+     * @param text the text to compare
+     * @return true if the text names this genre
+     */
+    public boolean matches(CharSequence text) {
+        if (text.length() != displayName.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.charAt(i);
+            int expected = displayName.charAt(i);
+            if (c != expected && (expected == ' ' || (c | 0x20) != (expected | 0x20))) {
+                return false; // Only letters may differ in case, and every name is letters and spaces
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name shown to users.
+     * @return the display name, for example "Science Fiction"
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns all genre names for messages.
+     * @return the names separated by commas
+     */
+    public static String names() {
+        return NAMES;
+    }
+
+    /**
+     * Returns the name shown to users.
+     * @return the display name
+     */
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}//class
@@ -0,0 +1,219 @@
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The ImportCheckpoint class records how far an import of a file has been committed, so a stopped import can resume.
+ * <p>
+ * Progress is kept in the `Import_Checkpoints` table, one row per file: the byte offset and line number after the last
+ * committed row, the number of batches and rows committed, and whether the import finished. {@link BulkMovieImporter}
+ * calls {@link #record(long, long, int)} inside the transaction of each batch, so the checkpoint and the rows it
+ * describes are committed together: after a crash the checkpoint never claims rows that are missing, nor misses rows
+ * that were written.
+ * </p>
+ *
+ * <p>
+ * A checkpoint is only resumed if the import stopped early and the file still has the same size and modification time.
+ * A finished import or a changed file starts again from the beginning; with upserts, re-importing rows that are already
+ * stored changes nothing.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * ImportCheckpoint checkpoint = ImportCheckpoint.open(conn, "C:\\movies.csv");
+ * if (checkpoint.isResuming()) {
+ *     chunker.seek(checkpoint.getOffset());
+ * }
+ * </pre>
+ */
+public class ImportCheckpoint {
+    /** The status of an import that has not finished. */
+    public static final String RUNNING = "running";
+    /** The status of an import that read the whole file. */
+    public static final String DONE = "done";
+
+    /** The connection the checkpoint is stored through. */
+    private final Connection conn;
+    /** The absolute path of the imported file, the key of the checkpoint row. */
+    private final String filePath;
+    /** Whether this import continues where an earlier one stopped. */
+    private final boolean resuming;
+    /** The byte offset after the last committed row. */
+    private long offset;
+    /** The number of lines read up to {@link #offset}. */
+    private long line;
+    /** The number of batches committed for this file. */
+    private int batches;
+    /** The number of rows committed for this file. */
+    private int rows;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a checkpoint from the values of its row.
+     *
+     * @param conn the connection the checkpoint is stored through
+     * @param filePath the absolute path of the file
+     * @param resuming whether an earlier import is continued
+     * @param offset the byte offset to continue from
+     * @param line the number of lines before the offset
+     * @param batches the number of batches committed so far
+     * @param rows the number of rows committed so far
+     */
+    private ImportCheckpoint(Connection conn, String filePath, boolean resuming, long offset, long line, int batches, int rows) {
+        this.conn = conn;
+        this.filePath = filePath;
+        this.resuming = resuming;
+        this.offset = offset;
+        this.line = line;
+        this.batches = batches;
+        this.rows = rows;
+    }
+
+    /**
+     * Loads the checkpoint of a file, or starts a new one.
+     * <p>
+     * Creates the `Import_Checkpoints` table if it does not exist. If the last import of the file stopped early and the
+     * file is unchanged, the returned checkpoint resumes it; otherwise the row is reset to the start of the file. The
+     * row is written with the connection's current commit mode.
+     * </p>
+     *
+     * @param conn the connection to store the checkpoint through
+     * @param filePath the file being imported
+     * @return the checkpoint to import with
+     * @throws SQLException if the checkpoint cannot be read or written
+     * @throws IOException if the file cannot be found
+     */
+    public static ImportCheckpoint open(Connection conn, String filePath) throws SQLException, IOException {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            throw new IOException("File not found: " + filePath);
+        }
+        String path = file.getCanonicalPath();
+        long size = file.length();
+        long modified = file.lastModified();
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS Import_Checkpoints (File_Path TEXT PRIMARY KEY, File_Size INTEGER NOT NULL, "
+                    + "File_Modified INTEGER NOT NULL, Status TEXT NOT NULL, Byte_Offset INTEGER NOT NULL, "
+                    + "Line_Number INTEGER NOT NULL, Batches INTEGER NOT NULL, Rows_Written INTEGER NOT NULL, "
+                    + "Updated_At TEXT NOT NULL);");
+        }
+
+        String select = "SELECT Status, File_Size, File_Modified, Byte_Offset, Line_Number, Batches, Rows_Written "
+                + "FROM Import_Checkpoints WHERE File_Path = ?;";
+        try (PreparedStatement stmt = conn.prepareStatement(select)) {
+            stmt.setString(1, path);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && RUNNING.equals(rs.getString(1)) && rs.getLong(2) == size && rs.getLong(3) == modified
+                        && rs.getLong(4) > 0) {
+                    return new ImportCheckpoint(conn, path, true, rs.getLong(4), rs.getLong(5), rs.getInt(6), rs.getInt(7));
+                }
+            }
+        }
+
+        String start = "INSERT INTO Import_Checkpoints (File_Path, File_Size, File_Modified, Status, Byte_Offset, Line_Number, "
+                + "Batches, Rows_Written, Updated_At) VALUES (?, ?, ?, '" + RUNNING + "', 0, 0, 0, 0, datetime('now')) "
+                + "ON CONFLICT(File_Path) DO UPDATE SET File_Size = excluded.File_Size, File_Modified = excluded.File_Modified, "
+                + "Status = excluded.Status, Byte_Offset = 0, Line_Number = 0, Batches = 0, Rows_Written = 0, "
+                + "Updated_At = excluded.Updated_At;";
+        try (PreparedStatement stmt = conn.prepareStatement(start)) {
+            stmt.setString(1, path);
+            stmt.setLong(2, size);
+            stmt.setLong(3, modified);
+            stmt.executeUpdate();
+        }
+        return new ImportCheckpoint(conn, path, false, 0, 0, 0, 0);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Records the progress after a batch, inside the batch's transaction.
+     *
+     * @param offset the byte offset after the last row of the batch
+     * @param line the number of lines read up to that offset
+     * @param batchRows the number of rows the batch wrote
+     * @throws SQLException if the checkpoint cannot be written; the batch must then be rolled back
+     */
+    public void record(long offset, long line, int batchRows) throws SQLException {
+        String sql = "UPDATE Import_Checkpoints SET Byte_Offset = ?, Line_Number = ?, Batches = ?, Rows_Written = ?, "
+                + "Updated_At = datetime('now') WHERE File_Path = ?;";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, offset);
+            stmt.setLong(2, line);
+            stmt.setInt(3, batches + 1);
+            stmt.setInt(4, rows + batchRows);
+            stmt.setString(5, filePath);
+            stmt.executeUpdate();
+        }
+        // Only remember the new values once the update succeeded
+        this.offset = offset;
+        this.line = line;
+        this.batches++;
+        this.rows += batchRows;
+    }
+
+    /**
+     * Marks the import as finished, so the next import of the file starts from the beginning.
+     * @throws SQLException if the checkpoint cannot be written
+     */
+    public void complete() throws SQLException {
+        String sql = "UPDATE Import_Checkpoints SET Status = '" + DONE + "', Updated_At = datetime('now') WHERE File_Path = ?;";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, filePath);
+            stmt.executeUpdate();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Checks whether this import continues where an earlier one stopped.
+     * @return true if the import resumes
+     */
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    /**
+     * Returns the byte offset after the last committed row, where reading continues.
+     * @return the offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of lines read up to {@link #getOffset()}.
+     * @return the line count
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the number of batches committed for the file.
+     * @return the batch count
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns the number of rows committed for the file.
+     * @return the row count
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the absolute path of the file, the key of the checkpoint.
+     * @return the path
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+}//class
@@ -0,0 +1,117 @@
+/**
+ * The ImportSummary class holds the outcome of one bulk movie import.
+ * <p>
+ * Instead of reporting every row as it is written, a bulk import collects its counts here and reports them once at the
+ * end, including the throughput in rows per second.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * ImportSummary summary = collection.addMoviesFromFile("C:\\movies.txt", 5000);
+ * System.out.println(summary);
+ * </pre>
+ */
+public class ImportSummary {
+    /** The number of lines read from the file. */
+    private final int linesRead;
+    /** The number of movies written to the database. */
+    private final int imported;
+    /** The number of lines skipped because they were invalid or duplicates. */
+    private final int skipped;
+    /** The number of valid rows lost to failed batches. */
+    private final int failed;
+    /** The number of committed batches. */
+    private final int batches;
+    /** The wall-clock duration of the import in nanoseconds. */
+    private final long elapsedNanos;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Constructs an ImportSummary with the final counts of an import.
+     *
+     * @param linesRead the number of lines read from the file
+     * @param imported the number of movies written to the database
+     * @param skipped the number of lines skipped as invalid or duplicate
+     * @param failed the number of valid rows lost to failed batches
+     * @param batches the number of committed batches
+     * @param elapsedNanos the duration of the import in nanoseconds
+     */
+    public ImportSummary(int linesRead, int imported, int skipped, int failed, int batches, long elapsedNanos) {
+        this.linesRead = linesRead;
+        this.imported = imported;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the number of lines read from the file.
+     * @return the line count
+     */
+    public int getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Gets the number of movies written to the database.
+     * @return the imported movie count
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * Gets the number of lines skipped as invalid or duplicate.
+     * @return the skipped line count
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the number of valid rows lost to failed batches.
+     * @return the failed row count
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of committed batches.
+     * @return the batch count
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Gets the duration of the import.
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * Calculates the import throughput.
+     * @return the number of lines processed per second, or 0 if no time was measured
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return linesRead / (elapsedNanos / 1_000_000_000.0);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns a one-line, human readable summary of the import.
+     * @return the summary text
+     */
+    public String toString() {
+        return String.format("Imported %d of %d lines (%d skipped, %d failed) in %d batches, %.2f s, %,.0f rows/sec",
+                imported, linesRead, skipped, failed, batches, elapsedNanos / 1_000_000_000.0, getRowsPerSecond());
+    }
+}//class
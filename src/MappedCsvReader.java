@@ -0,0 +1,538 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The MappedCsvReader class reads CSV records straight from a memory-mapped file without decoding them into lines first.
+ * <p>
+ * {@code BufferedReader.readLine()} turns every byte into a {@code char} and every line into a {@code String}, and
+ * {@code split(",")} then creates a {@code String} per field, before validation throws most of that work away for bad
+ * lines. This reader scans for newlines and commas directly in a {@link ByteBuffer} that is mapped from the file with
+ * {@link FileChannel#map}, so the operating system pages the file in on demand and nothing is copied onto the heap. For the
+ * current record it only stores where each field starts and ends. Fields are handed to {@link MovieValidator} as
+ * {@link CharSequence} views over the bytes with {@link #getField(int)}; a {@code String} is only created when a field
+ * is asked for with {@link #getFieldString(int)}, which the importer does after the record passed validation.
+ * </p>
+ *
+ * <p>
+ * Format rules:
+ * <ul>
+ *     <li>Records end at {@code \n}; a {@code \r} before it is ignored. The text is UTF-8.</li>
+ *     <li>Fields are separated by commas and trimmed like {@link String#trim()}.</li>
+ *     <li>A field whose first non-blank character is {@code "} is quoted: it may contain commas, and {@code ""} stands for
+ *     one quote. A newline always ends the record, even inside quotes, so one malformed quote cannot swallow the rest
+ *     of the file.</li>
+ *     <li>Empty fields at the end of a record are dropped, like {@code String.split(",")} does.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * A reader covers one slice of a file. Files larger than one mapping are read window by window with a {@link Chunker},
+ * which also cuts the file into slices that parse workers can read in parallel.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * try (MappedCsvReader.Chunker chunks = new MappedCsvReader.Chunker("catalog.csv", 1000)) {
+ *     MappedCsvReader records;
+ *     while ((records = chunks.next()) != null) {
+ *         while (records.nextRecord()) {
+ *             Movie movie = MovieCollection.parseMovieRecord(records);
+ *         }
+ *     }
+ * }
+ * </pre>
+ */
+public class MappedCsvReader {
+    /** The default size of one mapped window of a file, in bytes. */
+    public static final int DEFAULT_WINDOW_BYTES = 256 * 1024 * 1024;
+
+    /** The bytes of the records this reader covers, positioned at 0. */
+    private final ByteBuffer buffer;
+    /** The file offset of the first byte of {@link #buffer}. */
+    private final long baseOffset;
+    /** The number of bytes in {@link #buffer}. */
+    private final int limit;
+    /** Where the next record starts in {@link #buffer}. */
+    private int position;
+    /** The number of records in {@link #buffer}, or -1 if it was not counted. */
+    private int recordCount = -1;
+
+    /** Where the current record starts in {@link #buffer}. */
+    private int recordStart;
+    /** Where the current record ends in {@link #buffer}, excluding the line break. */
+    private int recordEnd;
+    /** The number of fields in the current record. */
+    private int fieldCount;
+    /** Where each field's content starts, after trimming and the opening quote. */
+    private int[] fieldStarts = new int[8];
+    /** Where each field's content ends, before trimming and the closing quote. */
+    private int[] fieldEnds = new int[8];
+    /** Whether each field was quoted. */
+    private boolean[] fieldQuoted = new boolean[8];
+    /** Whether each quoted field contains escaped quotes ({@code ""}). */
+    private boolean[] fieldEscaped = new boolean[8];
+    /** Whether each quoted field is missing its closing quote. */
+    private boolean[] fieldUnterminated = new boolean[8];
+    /** Whether each field had no bytes at all between its separators, which is what {@code split} drops at the end. */
+    private boolean[] fieldRawEmpty = new boolean[8];
+    /** The reusable character views handed out by {@link #getField(int)}, created on first use. */
+    private FieldView[] fieldViews = new FieldView[8];
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a reader over a buffer of whole records.
+     *
+     * @param buffer the records, from position 0 to the limit; it is not copied
+     * @param baseOffset the file offset of the buffer's first byte, used by {@link #getRecordOffset()}
+     */
+    public MappedCsvReader(ByteBuffer buffer, long baseOffset) {
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+        this.limit = buffer.limit();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Moves to the next record and finds its fields.
+     * @return true if there was another record, false at the end of the buffer
+     */
+    public boolean nextRecord() {
+        if (position >= limit) {
+            return false;
+        }
+        recordStart = position;
+        int lineEnd = position;
+        while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        position = lineEnd < limit ? lineEnd + 1 : limit;
+        recordEnd = lineEnd > recordStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+        fieldCount = 0;
+        int fieldStart = recordStart;
+        while (true) {
+            int fieldEnd = scanField(fieldStart);
+            if (fieldEnd >= recordEnd) {
+                break;
+            }
+            fieldStart = fieldEnd + 1; // Skip the comma
+        }
+
+        // Like String.split, drop empty fields at the end, but keep one field for an empty record
+        while (fieldCount > 1 && fieldRawEmpty[fieldCount - 1]) {
+            fieldCount--;
+        }
+        return true;
+    }
+
+    /**
+     * Records the field starting at an index and returns the index of the comma after it (or the record end).
+     * @param from where the field starts
+     * @return the index of the separating comma, or {@link #recordEnd}
+     */
+    private int scanField(int from) {
+        int start = from;
+        while (start < recordEnd && buffer.get(start) <= ' ') {
+            start++;
+        }
+
+        if (start < recordEnd && buffer.get(start) == '"') {
+            boolean escaped = false;
+            int i = start + 1;
+            while (i < recordEnd) {
+                if (buffer.get(i) == '"') {
+                    if (i + 1 < recordEnd && buffer.get(i + 1) == '"') {
+                        escaped = true;
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                }
+                i++;
+            }
+            boolean unterminated = i >= recordEnd;
+            int comma = unterminated ? recordEnd : i + 1;
+            while (comma < recordEnd && buffer.get(comma) != ',') {
+                comma++;
+            }
+            addField(start + 1, Math.min(i, recordEnd), true, escaped, unterminated, false);
+            return comma;
+        }
+
+        int comma = from;
+        while (comma < recordEnd && buffer.get(comma) != ',') {
+            comma++;
+        }
+        int end = comma;
+        while (end > start && buffer.get(end - 1) <= ' ') {
+            end--;
+        }
+        addField(start, Math.max(start, end), false, false, false, comma == from);
+        return comma;
+    }
+
+    /**
+     * Appends a field to the current record, growing the arrays when needed.
+     *
+     * @param start the first content byte
+     * @param end the byte after the content
+     * @param quoted whether the field was quoted
+     * @param escaped whether the content contains {@code ""}
+     * @param unterminated whether the closing quote is missing
+     * @param rawEmpty whether the field had no bytes between its separators
+     */
+    private void addField(int start, int end, boolean quoted, boolean escaped, boolean unterminated, boolean rawEmpty) {
+        if (fieldCount == fieldStarts.length) {
+            int size = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, size);
+            fieldEnds = Arrays.copyOf(fieldEnds, size);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, size);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, size);
+            fieldUnterminated = Arrays.copyOf(fieldUnterminated, size);
+            fieldRawEmpty = Arrays.copyOf(fieldRawEmpty, size);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldEscaped[fieldCount] = escaped;
+        fieldUnterminated[fieldCount] = unterminated;
+        fieldRawEmpty[fieldCount] = rawEmpty;
+        fieldCount++;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the number of fields in the current record.
+     * @return the field count
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the number of records this reader covers, as counted by the {@link Chunker} that created it.
+     * @return the record count, or -1 if the reader was not created by a chunker
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the file offset where the current record starts.
+     * @return the byte offset of the record in the file
+     */
+    public long getRecordOffset() {
+        return baseOffset + recordStart;
+    }
+
+    /**
+     * Returns the file offset where the next record starts, which is where a resumed import would continue.
+     * @return the byte offset after the current record
+     */
+    public long getNextRecordOffset() {
+        return baseOffset + position;
+    }
+
+    /**
+     * Checks whether a field was quoted.
+     * @param field the field number, starting at 0
+     * @return true if the field's first non-blank character was a quote
+     */
+    public boolean isFieldQuoted(int field) {
+        return fieldQuoted[field];
+    }
+
+    /**
+     * Checks whether a quoted field is missing its closing quote.
+     * @param field the field number, starting at 0
+     * @return true if the field is malformed
+     */
+    public boolean isFieldUnterminated(int field) {
+        return fieldUnterminated[field];
+    }
+
+    /**
+     * Returns the length of a field's content in bytes.
+     * @param field the field number, starting at 0
+     * @return the byte length after trimming and unquoting (escaped quotes count twice)
+     */
+    public int getFieldByteLength(int field) {
+        return fieldEnds[field] - fieldStarts[field];
+    }
+
+    /**
+     * Returns the length a field would have as a {@code String}, counted on the UTF-8 bytes.
+     * @param field the field number, starting at 0
+     * @return the number of UTF-16 characters of the field's content
+     */
+    public int getFieldCharLength(int field) {
+        int length = 0;
+        boolean escaped = fieldEscaped[field];
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            int b = buffer.get(i) & 0xFF;
+            if ((b & 0xC0) == 0x80) {
+                continue; // Continuation byte
+            }
+            length += (b & 0xF8) == 0xF0 ? 2 : 1; // Four-byte sequences become surrogate pairs
+            if (escaped && b == '"') {
+                i++; // The second quote of "" is not a character of its own
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns a field as characters that read straight from the mapped bytes, for validation without a {@code String}.
+     * <p>
+     * Each byte is one character, so the view is exact for ASCII; bytes of other UTF-8 characters show as characters
+     * from U+0080 to U+00FF, which fail every ASCII-only rule as they should. The view belongs to the reader and is only
+     * valid until the next call to {@link #nextRecord()}; use {@link #getFieldString(int)} to keep a value.
+     * </p>
+     *
+     * @param field the field number, starting at 0
+     * @return the reusable view of the field's content
+     */
+    public CharSequence getField(int field) {
+        if (fieldViews.length <= field) {
+            fieldViews = Arrays.copyOf(fieldViews, Math.max(fieldStarts.length, field + 1));
+        }
+        FieldView view = fieldViews[field];
+        if (view == null) {
+            view = new FieldView();
+            fieldViews[field] = view;
+        }
+        view.field = field;
+        return view;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates the {@code String} of a field, decoding UTF-8 and turning {@code ""} into {@code "}.
+     * @param field the field number, starting at 0
+     * @return the field's content
+     */
+    public String getFieldString(int field) {
+        int start = fieldStarts[field];
+        byte[] bytes = new byte[fieldEnds[field] - start];
+        buffer.get(start, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return fieldEscaped[field] ? text.replace("\"\"", "\"") : text;
+    }
+
+    /**
+     * Creates the {@code String} of the whole current record, for messages about invalid records.
+     * @return the record text without its line break
+     */
+    public String getRecordText() {
+        byte[] bytes = new byte[recordEnd - recordStart];
+        buffer.get(recordStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+//======================================================================================================================
+    /**
+     * A view of one field of the current record as characters, one per byte.
+     */
+    private final class FieldView implements CharSequence {
+        /** The field this view shows. */
+        private int field;
+
+        /**
+         * Returns the field's length in bytes.
+         * @return the length
+         */
+        @Override
+        public int length() {
+            return fieldEnds[field] - fieldStarts[field];
+        }
+
+        /**
+         * Returns one byte of the field as a character.
+         * @param index the byte index within the field
+         * @return the byte as a character from U+0000 to U+00FF
+         */
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(fieldStarts[field] + index) & 0xFF);
+        }
+
+        /**
+         * Returns part of the decoded field.
+         * @param start the first index
+         * @param end the index after the last
+         * @return the part as a {@code String}
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        /**
+         * Decodes the field into a {@code String}.
+         * @return the field's content
+         */
+        @Override
+        public String toString() {
+            return getFieldString(field);
+        }
+    }
+
+//======================================================================================================================
+    /**
+     * The Chunker class maps a file window by window and cuts it into readers of whole records.
+     * <p>
+     * A {@link MappedByteBuffer} can cover at most 2 GB, so larger files are mapped in windows. A record that crosses the
+     * end of a window is read from the next window, which is mapped starting at that record. Each returned reader covers
+     * up to a fixed number of records and shares the mapped memory, so chunks can be handed to other threads without
+     * copying. Windows that are no longer used are unmapped by the garbage collector.
+     * </p>
+     */
+    public static class Chunker implements AutoCloseable {
+        /** The open file. */
+        private final FileChannel channel;
+        /** The size of the file in bytes. */
+        private final long size;
+        /** The size of one mapped window. */
+        private final int windowBytes;
+        /** The maximum number of records per returned reader. */
+        private final int recordsPerChunk;
+        /** The current window, or null before the first one is mapped. */
+        private MappedByteBuffer window;
+        /** The file offset of the current window. */
+        private long windowStart;
+        /** The file offset of the next record to hand out. */
+        private long position;
+
+        /**
+         * Opens a file for chunked reading with the default window size.
+         *
+         * @param filePath the file to read
+         * @param recordsPerChunk the maximum number of records per returned reader
+         * @throws IOException if the file cannot be opened
+         */
+        public Chunker(String filePath, int recordsPerChunk) throws IOException {
+            this(filePath, recordsPerChunk, DEFAULT_WINDOW_BYTES);
+        }
+
+        /**
+         * Opens a file for chunked reading.
+         *
+         * @param filePath the file to read
+         * @param recordsPerChunk the maximum number of records per returned reader
+         * @param windowBytes the size of one mapped window; every record must fit in one
+         * @throws IOException if the file cannot be opened
+         */
+        public Chunker(String filePath, int recordsPerChunk, int windowBytes) throws IOException {
+            this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+            this.size = channel.size();
+            this.recordsPerChunk = Math.max(1, recordsPerChunk);
+            this.windowBytes = Math.max(1, windowBytes);
+        }
+
+        /**
+         * Returns a reader over the next records of the file.
+         * @return the reader, or null at the end of the file
+         * @throws IOException if the file cannot be mapped, or a record does not fit in one window
+         */
+        public MappedCsvReader next() throws IOException {
+            if (position >= size) {
+                return null;
+            }
+            if (window == null || position >= windowStart + window.limit()) {
+                map(position);
+            }
+
+            int from = (int) (position - windowStart);
+            int end = from;
+            int records = 0;
+            while (records < recordsPerChunk && end < window.limit()) {
+                int newline = indexOfNewline(window, end);
+                if (newline >= 0) {
+                    end = newline + 1;
+                } else if (windowStart + window.limit() >= size) {
+                    end = window.limit(); // The last record has no line break
+                } else if (records > 0) {
+                    break; // Hand out what is complete; the next call maps a new window at this record
+                } else if (from > 0) {
+                    map(position); // The record crosses the window end; map again starting at the record
+                    from = 0;
+                    end = 0;
+                    continue;
+                } else {
+                    throw new IOException("Record at offset " + position + " is longer than the " + windowBytes + " byte window");
+                }
+                records++;
+            }
+
+            ByteBuffer slice = window.duplicate().position(from).limit(end).slice();
+            MappedCsvReader reader = new MappedCsvReader(slice, windowStart + from);
+            reader.recordCount = records;
+            position = windowStart + end;
+            return reader;
+        }
+
+        /**
+         * Maps the window starting at a file offset.
+         * @param start the file offset of the window
+         * @throws IOException if the file cannot be mapped
+         */
+        private void map(long start) throws IOException {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, size - start));
+            windowStart = start;
+        }
+
+        /**
+         * Finds the next line break.
+         * @param buffer the bytes to search
+         * @param from the index to start at
+         * @return the index of the next {@code \n}, or -1 if there is none
+         */
+        private static int indexOfNewline(ByteBuffer buffer, int from) {
+            for (int i = from, limit = buffer.limit(); i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the file offset of the next record that will be handed out.
+         * @return the byte offset
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Skips to a file offset, which must be the start of a record, for example to resume an import.
+         * @param offset the byte offset to continue from
+         */
+        public void seek(long offset) {
+            position = Math.max(0, Math.min(offset, size));
+        }
+
+        /**
+         * Returns the size of the file.
+         * @return the size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Closes the file. Mapped windows stay readable until they are garbage collected.
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}//class
@@ -24,11 +24,15 @@ public class Movie {
      */
     private int Release_Year;
     /**
-     * The genre of the movie (e.g., Action, Drama, Comedy).
+     * The genre of the movie (e.g., Action, Drama, Comedy), shared through {@link MovieDictionary}.
      */
     private String Genre;
     /**
-     * The director of the movie.
+     * The genre as an enum constant, or null if the text is not a valid genre.
+     */
+    private Genre genreValue;
+    /**
+     * The director of the movie, shared through {@link MovieDictionary}.
      */
     private String Director;
     /**
@@ -51,12 +55,16 @@ public class Movie {
      * @param Rating the rating of the movie (on a scale of 1 to 100)
      * @param Watched_Status indicates if the movie has been watched (true/false)
      *
+     * <p>
+     * The genre and director are replaced by the instances {@link MovieDictionary} shares for the same text, so movies
+     * loaded in bulk do not each keep their own copies.
+     * </p>
      */
     public Movie(String title, int Release_Year, String Genre, String Director, float Rating, boolean Watched_Status){
         this.title = title;
         this.Release_Year = Release_Year;
-        this.Genre = Genre;
-        this.Director = Director;
+        storeGenre(Genre);
+        storeDirector(Director);
         this.Rating = Rating;
         this.Watched_Status = Watched_Status;
     }
@@ -96,6 +104,14 @@ public class Movie {
         return Director;
     }
 
+    /**
+     * Gets the genre of the movie as an enum constant, for comparisons by identity or ordinal.
+     * @return the genre, or null if the genre text is not a valid genre
+     */
+    public Genre getGenreValue() {
+        return genreValue;
+    }
+
     /**
      * Gets the rating of the movie.
      * @return the rating of the movie
@@ -136,7 +152,7 @@ public class Movie {
      * @param genre the genre of the movie
      */
     public void setGenre(String genre) {
-        Genre = genre;
+        storeGenre(genre);
     }
 
     /**
@@ -144,7 +160,25 @@ public class Movie {
      * @param director the director of the movie
      */
     public void setDirector(String director) {
-        Director = director;
+        storeDirector(director);
+    }
+
+    /**
+     * Stores the shared instance of a genre and its enum value; used by the constructor and {@link #setGenre(String)},
+     * so the constructor calls no method a subclass could override.
+     * @param genre the genre of the movie
+     */
+    private void storeGenre(String genre) {
+        Genre = MovieDictionary.genre(genre);
+        genreValue = Genre == null ? null : MovieDictionary.genreOf(Genre);
+    }
+
+    /**
+     * Stores the shared instance of a director; used by the constructor and {@link #setDirector(String)}.
+     * @param director the director of the movie
+     */
+    private void storeDirector(String director) {
+        Director = MovieDictionary.director(director);
     }
 
     /**
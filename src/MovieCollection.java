@@ -3,9 +3,8 @@
 /**
  * Importing necessary Java and Swing libraries for the program.
  */
-import javax.swing.*;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.nio.file.Paths;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -13,8 +12,8 @@ import java.util.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.*;
-import java.text.DecimalFormat;
 
 
 /**
@@ -25,6 +24,34 @@ import java.text.DecimalFormat;
  * Role in the system: This class acts as the central manager for movie data. It provides methods
  * for manipulating the movie collection and syncing it with a database.
  *
+ * <p>
+ * The collection can be used from several threads at once, for example to answer lookups while an import writes.
+ * Reads take no lock: {@link #movies} is a {@link ConcurrentHashMap}, the indexes are concurrent, and a stored movie
+ * is never changed in place; an update stores a changed copy instead, so a reader holding a movie always sees one
+ * consistent version of it. Writes lock the {@link TitleLocks stripe} of the titles they touch, so checking for a
+ * duplicate and writing to the database happen as one step, and a rename locks both titles: no other writer can take
+ * either title half way, and readers see the movie under the new title before it disappears from the old one. Writes
+ * made during a bulk import share the import's connection and so commit with its current batch.
+ * </p>
+ *
+ * <p>
+ * With {@code dms.store=columnar} the movies are kept in a {@link MovieColumnStore} instead of a map and indexes, which
+ * takes a fraction of the memory for large collections; {@link #getFootprintReport()} compares the two layouts.
+ * </p>
+ *
+ * <p>
+ * With {@code dms.writeBehind=true}, adds, removes and updates return once they are in memory and appended to a local
+ * journal, and a {@link WriteBehindQueue} writes them to the database in the background; the in-memory collection is
+ * then the reference for whether a title exists. {@link #flush()} and {@link #awaitDurable()} wait for the database or
+ * the journal, and a journal left by a crash is replayed when the collection is created.
+ * </p>
+ *
+ * <p>
+ * With {@code dms.snapshot=true}, {@link #close()} saves the collection to a {@link MovieSnapshot} next to the database,
+ * and the next collection loads from it instead of reading every row, catching up with the changes logged since; see
+ * {@link #loadMovies()}.
+ * </p>
+ *
  * Usage example:
  * <pre>
  * MovieCollection collection = new MovieCollection();
@@ -36,10 +63,36 @@ public class MovieCollection {
     //private Map<String,Movie> movies;
     //made public for the unit testing
     //public Map<String,Movie> movies;
-    /** A map that stores movie titles as keys and Movie objects as values. */
+    /** A map that stores movie titles as keys and Movie objects as values; safe to read from any thread. */
     public Map<String,Movie> movies;
     /** A list used to store movies temporarily from the database. */
     private List<Movie> moviesdb;         //Change to List to use add()
+    /** Secondary indexes on genre, director, release year and rating, kept in step with {@link #movies}; null when the store is columnar. */
+    private MovieIndex index;
+    /** Answers the genre, director, year and rating queries: {@link #index}, or the column store itself. */
+    private MovieLookup lookup;
+    /** Running rating statistics, kept in step with {@link #movies}. */
+    private final MovieStats stats = new MovieStats();
+    /** The last change log sequence number applied to the in-memory collection. */
+    private volatile long lastSyncedChange;
+    /** The SQLite data version seen at the last sync; unchanged means no other connection wrote since. */
+    private volatile long lastDataVersion = -1;
+    /** Serializes writers per title; held while a title is checked, written to the database and stored in memory. */
+    private final TitleLocks locks = new TitleLocks(TitleLocks.DEFAULT_STRIPES);
+    /** Serializes changes to {@link #index} and {@link #stats}, which must come from one thread at a time. */
+    private final Object memoryLock = new Object();
+    /** Counts the changes to the in-memory collection; see {@link #getVersion()}. */
+    private volatile long version;
+    /** Whether the collection was filled from a {@link MovieSnapshot} when it was created. */
+    private boolean loadedFromSnapshot;
+    /** The name this collection records its syncs under in the change log's reader table, unique per collection. */
+    private final String changeReader = "collection-" + UUID.randomUUID();
+    /** The change log reader name of the saved snapshot, so the log is kept for the next collection to catch up from. */
+    private static final String SNAPSHOT_READER = "snapshot";
+    /** Writes changes to the database in the background when {@code dms.writeBehind} is set; null writes through. */
+    private WriteBehindQueue writeBehind;
+    /** One validator per thread, because import workers parse lines at the same time. */
+    private static final ThreadLocal<MovieValidator> VALIDATOR = ThreadLocal.withInitial(MovieValidator::new);
 
     /**
      * Constructor for the MovieCollection class.
@@ -53,17 +106,93 @@ public class MovieCollection {
      * -{@link #db_Handler} - connect to database MovieCollection inside constructor
      */
     public MovieCollection(){
-        movies = new HashMap<>();
         /** The database handler used to interact with the SQLite database. */
         db_Handler = new DatabaseHandler();
+        createStore(db_Handler.getConfig());
         // connect to database MovieCollection constructor
         if (db_Handler.connect()) {
             //db_Handler.displayAllMovies();   // Display movies after connecting
 
             //used to help keep movies within map
-            refreshMovies();
+            startWriteBehind();
+            loadMovies();
+        } else {
+            db_Handler.getNotificationSink().error("Failed to connect to the database.");
+        }
+    }
+
+    /**
+     * Constructor for a MovieCollection backed by a database handler that is already connected.
+     * <p>
+     * No dialog is shown; the collection is loaded straight from the handler's database. This is used where the database
+     * path is known in advance, such as benchmarks and batch jobs.
+     * </p>
+     *
+     * @param handler a connected database handler
+     */
+    public MovieCollection(DatabaseHandler handler) {
+        db_Handler = handler;
+        createStore(handler.getConfig());
+        startWriteBehind();
+        loadMovies();
+    }
+
+    /**
+     * Creates the in-memory store chosen by {@code dms.store}: a map with secondary indexes, or one column store that
+     * answers the same queries by scanning.
+     * @param config the configuration to read the layout from
+     */
+    private void createStore(DatabaseConfig config) {
+        if (config.isColumnarStore()) {
+            MovieColumnStore columns = new MovieColumnStore();
+            movies = columns;
+            lookup = columns;
+            index = null;
         } else {
-            JOptionPane.showMessageDialog(null, "Failed to connect to the database.");
+            movies = new ConcurrentHashMap<>();
+            index = new MovieIndex();
+            lookup = index;
+        }
+    }
+
+    /**
+     * Starts writing changes in the background if {@code dms.writeBehind} is set, first replaying any journal a
+     * previous run left behind. If the queue cannot be started, changes are written through as usual.
+     */
+    private void startWriteBehind() {
+        DatabaseConfig config = db_Handler.getConfig();
+        if (!config.isWriteBehind()) {
+            return;
+        }
+        Connection writer = null;
+        try {
+            writer = db_Handler.openWriterConnection();
+            writeBehind = new WriteBehindQueue(writer,
+                    Paths.get(db_Handler.getDbPath() + WriteBehindQueue.JOURNAL_SUFFIX),
+                    config.getLong(DatabaseConfig.WRITE_BEHIND_FLUSH_MILLIS, WriteBehindQueue.DEFAULT_FLUSH_MILLIS),
+                    WriteBehindQueue.DEFAULT_BATCH_SIZE);
+            if (writeBehind.getReplayed() > 0) {
+                System.out.println("Recovered " + writeBehind.getReplayed() + " unwritten change(s) from the journal.");
+            }
+        } catch (IOException | SQLException e) {
+            System.out.println("Write-behind unavailable, writing changes through: " + e.getMessage());
+            writeBehind = null;
+            closeWriter(writer);
+        }
+    }
+
+    /**
+     * Returns the writer connection of a write-behind queue that could not be started to the pool.
+     * @param writer the connection, or null if none was borrowed
+     */
+    private static void closeWriter(Connection writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (SQLException e) {
+            System.out.println("Failed to close the write-behind connection: " + e.getMessage());
         }
     }
 
@@ -90,43 +219,47 @@ public class MovieCollection {
      * Adds a new movie to the collection and the database.
      *
      * @param movie the Movie object to add
-     * @return true if the movie was successfully added, false if the movie already exists
+     * @return true if the movie was successfully added, false if the movie already exists or could not be saved
      */
+    @SuppressWarnings("try")
     public  boolean addMovie(Movie movie){
-
-        // Check if the movie already exists in the collection
-        if (movies.containsKey(movie.getTitle())) {
-            System.out.println("Error: Movie already exists in the collection.");
-            return false; // Movie already exists
-        }
-        movies.put(movie.getTitle(), movie);
-
-        // Add the movie to the SQLite database using the DatabaseHandler
-        /**
-         * Adds a movie to the database using the db_Handler.
-         *
-         * @param movie The movie object containing details to be added to the database.
-         *
-         * Fields passed:
-         * @param movie.getTitle()         The title of the movie.
-         * @param movie.getRelease_Year()  The release year of the movie.
-         * @param movie.getGenre()         The genre of the movie.
-         * @param movie.getDirector()      The director of the movie.
-         * @param movie.getRating()        The rating of the movie.
-         * @param movie.getWatched_Status() The watched status of the movie.
-         */
-        db_Handler.addMovie(
-                movie.getTitle(),
-                movie.getRelease_Year(),
-                movie.getGenre(),
-                movie.getDirector(),
-                movie.getRating(),
-                movie.getWatched_Status()
-        );
-        //Add the movie to the in-memory list
-        //movies.add(movie);
-        System.out.println("Movie successfully added to the collection and database.");
-        return true;
+        // Hold the title, so no other thread can add it between the check and the insert
+        try (TitleLocks.Held ignored = locks.lock(movie.getTitle())) {
+            // Check if the movie already exists in the collection
+            if (movies.containsKey(movie.getTitle())) {
+                System.out.println("Error: Movie already exists in the collection.");
+                return false; // Movie already exists
+            }
+            // Add the movie to the SQLite database using the DatabaseHandler
+            /**
+             * Adds a movie to the database using the db_Handler.
+             *
+             * @param movie The movie object containing details to be added to the database.
+             *
+             * Fields passed:
+             * @param movie.getTitle()         The title of the movie.
+             * @param movie.getRelease_Year()  The release year of the movie.
+             * @param movie.getGenre()         The genre of the movie.
+             * @param movie.getDirector()      The director of the movie.
+             * @param movie.getRating()        The rating of the movie.
+             * @param movie.getWatched_Status() The watched status of the movie.
+             */
+            boolean saved = writeBehind != null ? writeBehind.put(movie) : db_Handler.addMovie(
+                    movie.getTitle(),
+                    movie.getRelease_Year(),
+                    movie.getGenre(),
+                    movie.getDirector(),
+                    movie.getRating(),
+                    movie.getWatched_Status()
+            );
+            if (!saved) {
+                return false; // The database rejected the movie, so keep memory unchanged
+            }
+            //Add the movie to the in-memory list
+            putInMemory(movie);
+            System.out.println("Movie successfully added to the collection and database.");
+            return true;
+        }
     }
 //======================================================================================================================
 //removeMovie(title: String) boolean
@@ -137,22 +270,29 @@ public class MovieCollection {
      * @param title the title of the movie to remove
      * @return true if the movie was successfully removed, false otherwise
      */
+    @SuppressWarnings("try")
     public boolean removeMovie(String title) {
-        /*
-        if (movies.remove(title) == null) {
-            System.out.println("Error: Movie not found.");
-            return false;
+        // Remove from the database first, then keep the in-memory collection in step
+        try (TitleLocks.Held ignored = locks.lock(title)) {
+            boolean removed = writeBehind != null ? movies.containsKey(title) && writeBehind.remove(title)
+                    : db_Handler.removeMovie(title);
+            if (!removed) {
+                System.out.println("Error: Movie not found.");
+                return false;
+            }
+            removeFromMemory(title);
         }
         System.out.println("Movie has been found and removed.");
         return true;
-        */
-        db_Handler.removeMovie(title);
-        return true;
     }
 //======================================================================================================================
 //updateMovie(movie :Movie) boolean
     /**
      * Updates a movie's attribute in the collection and database.
+     * <p>
+     * The new value is checked with {@link MovieValidator} first; an invalid value or unknown field is rejected with its
+     * message and nothing is changed.
+     * </p>
      *
      * @param title the title of the movie to update
      * @param field the field of the movie to update (e.g., title, release_year, genre)
@@ -160,97 +300,123 @@ public class MovieCollection {
      * @return true if the movie was successfully updated, false otherwise
      */
     public boolean updateMovie(String title, String field, String newValue) {
-        // Get the movie object from the in-memory collection using the title
-        Movie movie = movies.get(title);  // Get from in-memory collection
-
-        // If the movie is not found in the collection, return false
-        if (movie == null) {
-            System.out.println("Error: Movie not found.");
+        MovieColumn column = MovieColumn.lookup(field);
+        if (column == null) {
+            System.out.println("Error: " + ValidationError.UNKNOWN_FIELD.getMessage());
             return false;
         }
+        return updateMovie(title, Collections.singletonMap(column, newValue));
+    }
 
-        // Update the movie object based on the field specified
-        switch (field.toLowerCase()) {
-            case "title":
-                // Check if the new title already exists in the collection
-                if (movies.containsKey(newValue)) {
-                    System.out.println("Error: A movie with this title already exists.");
-                    return false;  // Return false if the movie with the new title already exists
-                }
-                // Set the new title
-                movie.setTitle(newValue);
-                // Remove the old movie entry
-                movies.remove(title);
-                // Add the movie with the new title
-                movies.put(newValue, movie);
-                break;
-
-            case "release_year":
-                try {
-                    // Try to parse the new release year
-                    int newYear = Integer.parseInt(newValue);
-                    if (newYear < 1900 || newYear > 2025) {
-                        System.out.println("Error: Release year must be between 1900 and 2025.");
-                        // Return false if the year is out of valid range
-                        return false;
-                    }
-                    // Set the new release year
-                    movie.setRelease_Year(newYear);
-                } catch (NumberFormatException e) {
-                    System.out.println("Error: Invalid year format.");
-                    return false; // Return false if the year format is invalid
-                }
-                break;
-
-            // Set the new genre
-            case "genre":
-                movie.setGenre(newValue);
-                break;
-
-            // Set the new director's name
-            case "director":
-                movie.setDirector(newValue);
-                break;
+    /**
+     * Updates several fields of a movie at once, in the collection and with a single statement in the database.
+     * <p>
+     * Every value is checked with {@link MovieValidator} first; if any is invalid, nothing is changed. The movie's title
+     * lock, and the new title's when it is renamed, is held until the changed movie is stored, and the row is changed
+     * with one {@link DatabaseHandler#updateMovieFields(String, Map)} statement (or queued as one change with
+     * write-behind), so no reader sees some of the new values without the others.
+     * </p>
+     *
+     * @param title the title of the movie to update
+     * @param values the new value of each field to change, as text
+     * @return true if the movie was updated, false if a value is invalid, the movie is not found, the new title already
+     * exists or the change could not be saved
+     */
+    @SuppressWarnings("try")
+    public boolean updateMovie(String title, Map<MovieColumn, String> values) {
+        if (values.isEmpty()) {
+            System.out.println("Error: No field to update.");
+            return false;
+        }
+        // Validate every new value with the shared rules before anything is changed, keeping the parsed values
+        MovieValidator validator = VALIDATOR.get();
+        Map<MovieColumn, Object> parsed = new EnumMap<>(MovieColumn.class);
+        for (Map.Entry<MovieColumn, String> value : values.entrySet()) {
+            MovieColumn column = value.getKey();
+            if (value.getValue() == null) {
+                System.out.println("Error: " + column.getFieldName() + " cannot be empty");
+                return false;
+            }
+            ValidationError error = validator.validateField(column.getFieldName(), value.getValue());
+            if (error != null) {
+                System.out.println("Error: " + error.getMessage());
+                return false;
+            }
+            switch (column) {
+                case RELEASE_YEAR:
+                    parsed.put(column, validator.getYear());
+                    break;
+                case RATING:
+                    parsed.put(column, validator.getRating());
+                    break;
+                case WATCHED_STATUS:
+                    parsed.put(column, validator.isWatched());
+                    break;
+                default:
+                    parsed.put(column, value.getValue());
+            }
+        }
+        String newTitle = (String) parsed.getOrDefault(MovieColumn.TITLE, title);
+        boolean rename = !newTitle.equals(title);
+
+        // A rename holds both titles, so no other writer can take the new title or change the old one half way
+        try (TitleLocks.Held ignored = rename ? locks.lock(title, newTitle) : locks.lock(title)) {
+            // Get the movie object from the in-memory collection using the title
+            Movie movie = movies.get(title);  // Get from in-memory collection
+
+            // If the movie is not found in the collection, return false
+            if (movie == null) {
+                System.out.println("Error: Movie not found.");
+                return false;
+            }
+            // Check if the new title already exists in the collection
+            if (rename && movies.containsKey(newTitle)) {
+                System.out.println("Error: A movie with this title already exists.");
+                return false;
+            }
 
-            case "rating":
-                try {
-                    // Try to parse the new rating
-                    float newRating = Float.parseFloat(newValue);
-                    if (newRating < 0 || newRating > 100) {
-                        System.out.println("Error: Rating must be between 0 and 100.");
-                        // Return false if the rating is out of valid range
-                        return false;
-                    }
-                    // Set the new rating
-                    movie.setRating(newRating);
-                } catch (NumberFormatException e) {
-                    System.out.println("Error: Invalid rating format.");
-                    return false; // Return false if the rating format is invalid
+            // Store a changed copy instead of changing the movie other threads may be reading
+            Movie changed = new Movie(newTitle, movie.getRelease_Year(), movie.getGenre(), movie.getDirector(),
+                    movie.getRating(), movie.getWatched_Status());
+            for (Map.Entry<MovieColumn, Object> value : parsed.entrySet()) {
+                switch (value.getKey()) {
+                    case RELEASE_YEAR:
+                        changed.setRelease_Year((Integer) value.getValue());
+                        break;
+                    case GENRE:
+                        changed.setGenre((String) value.getValue());
+                        break;
+                    case DIRECTOR:
+                        changed.setDirector((String) value.getValue());
+                        break;
+                    case RATING:
+                        changed.setRating((Float) value.getValue());
+                        break;
+                    case WATCHED_STATUS:
+                        changed.setWatched_Status((Boolean) value.getValue());
+                        break;
+                    default:
+                        break;  // The title is set above
                 }
-                break;
-
-            case "watched_status":
-                //Convert "true"/"false" to "1"/"0" for SQLite
-                String booleanValue = newValue.equalsIgnoreCase("true") ? "1" : "0";
-                movie.setWatched_Status(Boolean.parseBoolean(newValue));
-                newValue = booleanValue;  // Use "1"/"0" when passing to the database
-                break;
-
-        }
+            }
 
-        //Update the movie attribute in the database using the DatabaseHandler
-        boolean updated = db_Handler.updateMovieAttribute(title, field, newValue);
+            //Update the movie's columns in the database with their parsed values, or queue the new state of the title
+            boolean saved = writeBehind != null
+                    ? rename ? writeBehind.rename(title, changed) : writeBehind.put(changed)
+                    : db_Handler.updateMovieFields(title, parsed);
+            if (!saved) {
+                System.out.println("Failed to update movie.");
+                return false;
+            }
 
-        // If the update was successful, refresh the in-memory collection and return true
-        if (updated) {
-            refreshMovies();  //Refresh in-memory collection
-            System.out.println("Movie updated successfully.");
-        } else {
-            System.out.println("Failed to update movie.");
+            if (rename) {
+                renameInMemory(title, changed);
+            } else {
+                putInMemory(changed);
+            }
         }
-
-        // Return whether the update was successful
-        return updated;
+        System.out.println("Movie updated successfully.");
+        return true;
     }
 //----------------------------------------------------------------------------------------------------------------------
 //Refresh the in-memory movie list from the database
@@ -263,11 +429,42 @@ public class MovieCollection {
      * </p>
      */
     public void refreshMovies() {
-        // Clear the current in-memory movie collection (HashMap) before refreshing
-        movies.clear();
+        reloadAllMovies();
+    }
+
+    /**
+     * Writes queued changes and reloads every movie while holding every title lock. The constructors load through this
+     * private method rather than {@link #refreshMovies()}, so they call nothing a subclass could override. If the queued
+     * changes cannot be written, nothing is reloaded.
+     */
+    @SuppressWarnings("try")
+    private void reloadAllMovies() {
+        // Hold every title, so no single-movie write is lost between reading the table and storing it
+        try (TitleLocks.Held ignored = locks.lockAll()) {
+            // The database is behind memory until the queued changes are written, so reading it now would undo them
+            if (!flushWrites()) {
+                System.out.println("In-memory collection not refreshed.");
+                return;
+            }
+            reloadMovies();
+        }
+    }
+
+    /**
+     * Replaces the in-memory collection with the rows of the database; the caller holds every title lock.
+     * <p>
+     * The movies are read first and then stored, and only titles that are gone are removed, so readers on other
+     * threads never see the collection empty while it is reloaded.
+     * </p>
+     */
+    private void reloadMovies() {
+        // Remember where the change log stands, so later delta refreshes start from this point
+        long syncedChange = db_Handler.getLatestChangeSeq();
+        long dataVersion = db_Handler.getDataVersion();
 
         // SQL query to select all movies from the database
         String sql = "SELECT * FROM Movies;";
+        Map<String, Movie> loaded = new HashMap<>();
 
         // Use a try-with-resources statement to ensure resources are closed properly
         try (Statement stmt = db_Handler.getConnection().createStatement();
@@ -286,9 +483,20 @@ public class MovieCollection {
                         rs.getBoolean("watched_status")
                 );
 
-                // Add the movie object to the in-memory collection (Map) using the title as the key
-                movies.put(movie.getTitle(), movie);  //Add to the Map
+                // Collect the movie object using the title as the key
+                loaded.put(movie.getTitle(), movie);
+            }
+            // Drop the titles that are gone, then add or replace the rest in the in-memory collection (Map)
+            for (String title : new ArrayList<>(movies.keySet())) {
+                if (!loaded.containsKey(title)) {
+                    removeFromMemory(title);
+                }
+            }
+            for (Movie movie : loaded.values()) {
+                putInMemory(movie);  //Add to the Map
             }
+            lastSyncedChange = syncedChange;
+            lastDataVersion = dataVersion;
             System.out.println("In-memory collection refreshed.");  // Log a message indicating the in-memory collection was successfully refreshed
         } catch (SQLException e) {
             // If an error occurs while fetching data from the database, display an error message
@@ -296,6 +504,446 @@ public class MovieCollection {
         }
     }
 
+//----------------------------------------------------------------------------------------------------------------------
+//Refresh only what changed in the database since the last sync
+    /**
+     * Brings the in-memory collection up to date by loading only the movies changed since the last sync.
+     * <p>
+     * Edits made through this collection are already applied in memory, so this is only needed to pick up writes made by
+     * other connections. SQLite's `data_version` is checked first; if no other connection has committed since the last
+     * sync, nothing is read at all. Otherwise only the titles recorded in the `Movies_Changes` log since the last sync are
+     * loaded, added, replaced or removed. If the database has no change log, a full {@link #refreshMovies()} is done instead.
+     * The sync is recorded afterwards, and the log entries every reader has applied are dropped. If changes queued by
+     * write-behind cannot be written first, nothing is applied, since the log would still hold the states they replace.
+     * </p>
+     *
+     * @return the number of titles that were changed in memory
+     */
+    @SuppressWarnings("try")
+    public int refreshChanges() {
+        if (!db_Handler.hasChangeLog()) {
+            refreshMovies();
+            return movies.size();
+        }
+
+        long dataVersion = db_Handler.getDataVersion();
+        if (dataVersion != -1 && dataVersion == lastDataVersion) {
+            return 0;   // Nobody else has written since the last sync
+        }
+
+        int changed;
+        try (TitleLocks.Held ignored = locks.lockAll()) {
+            // Applying the log before the queued changes are in it would bring back the older states they replace
+            if (!flushWrites()) {
+                System.out.println("Changes not refreshed.");
+                return 0;
+            }
+            // Read after the flush, whose commits on the writer connection change the data version themselves
+            changed = applyChanges(db_Handler.getDataVersion());
+        }
+        recordSync();
+        return changed;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Startup snapshot
+    /**
+     * Fills a new collection: from the snapshot saved by the last {@link #close()} if it still fits the database, otherwise
+     * from the database with {@link #refreshMovies()}.
+     * <p>
+     * A snapshot fits if the database's change log has not gone back since it was saved, and still holds every change made
+     * after it. Changes logged after it are then
+     * loaded as in {@link #refreshChanges()}, and if the collection still holds a different number of movies than the
+     * database, it is reloaded from the database after all.
+     * </p>
+     */
+    private void loadMovies() {
+        if (!loadSnapshot()) {
+            reloadAllMovies();
+        }
+        recordSync();
+    }
+
+    /**
+     * Records how far this collection has read the change log, then drops the entries every reader has applied.
+     */
+    private void recordSync() {
+        db_Handler.recordChangesRead(changeReader, lastSyncedChange);
+        db_Handler.truncateChangeLog();
+    }
+
+    /**
+     * Loads the collection from its snapshot and catches up with the changes logged since.
+     * @return true if the collection was loaded, false if there is no usable snapshot
+     */
+    @SuppressWarnings("try")
+    private boolean loadSnapshot() {
+        if (!db_Handler.getConfig().isSnapshotEnabled() || !db_Handler.hasChangeLog()) {
+            return false;
+        }
+        MovieSnapshot snapshot;
+        try {
+            snapshot = MovieSnapshot.read(Paths.get(db_Handler.getDbPath() + MovieSnapshot.FILE_SUFFIX));
+        } catch (IOException e) {
+            System.out.println("Snapshot ignored: " + e.getMessage());
+            return false;
+        }
+        if (snapshot == null) {
+            return false;
+        }
+        if (db_Handler.getLatestChangeSeq() < snapshot.getChangeSeq()) {
+            System.out.println("Snapshot ignored: it is newer than the database.");
+            return false;
+        }
+        if (!db_Handler.hasChangesSince(snapshot.getChangeSeq())) {
+            System.out.println("Snapshot ignored: the change log no longer reaches back to it.");
+            return false;
+        }
+
+        try (TitleLocks.Held ignored = locks.lockAll()) {
+            for (Movie movie : snapshot.getMovies()) {
+                putInMemory(movie);
+            }
+            lastSyncedChange = snapshot.getChangeSeq();
+            int changed = applyChanges(db_Handler.getDataVersion());
+            if (movies.size() != db_Handler.countMovies()) {
+                System.out.println("Snapshot does not match the database, reloading.");
+                reloadMovies();
+            } else {
+                loadedFromSnapshot = true;
+                System.out.println("In-memory collection loaded from snapshot (" + snapshot.getMovies().size()
+                        + " movies, " + changed + " changed since).");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the collection was filled from its snapshot when it was created.
+     * @return true if the snapshot was used, false if the collection was loaded from the database
+     */
+    boolean isLoadedFromSnapshot() {
+        return loadedFromSnapshot;
+    }
+
+    /**
+     * Saves the collection to its snapshot after catching up with other connections' changes, so the next collection can
+     * load from it. Nothing is saved without a change log, since the snapshot could not be checked against the database.
+     * The snapshot is recorded as a change log reader, so the entries needed to catch up from it are kept; without a
+     * snapshot, the log is no longer kept for one.
+     */
+    @SuppressWarnings("try")
+    private void saveSnapshot() {
+        if (db_Handler.getConnection() == null || !db_Handler.hasChangeLog()) {
+            return;
+        }
+        if (!db_Handler.getConfig().isSnapshotEnabled()) {
+            db_Handler.forgetChangeReader(SNAPSHOT_READER);
+            return;
+        }
+        try (TitleLocks.Held ignored = locks.lockAll()) {
+            applyChanges(db_Handler.getDataVersion());
+            MovieSnapshot.write(Paths.get(db_Handler.getDbPath() + MovieSnapshot.FILE_SUFFIX), movies.values(),
+                    lastSyncedChange);
+            db_Handler.recordChangesRead(SNAPSHOT_READER, lastSyncedChange);
+        } catch (IOException e) {
+            System.out.println("Failed to save snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the titles changed since the last sync and applies them to memory; the caller holds every title lock.
+     * <p>
+     * If the change log no longer reaches back to the last sync, everything is reloaded instead.
+     * </p>
+     *
+     * @param dataVersion the data version read before the changes, recorded once they are applied
+     * @return the number of titles that were changed in memory
+     */
+    private int applyChanges(long dataVersion) {
+        if (!db_Handler.hasChangesSince(lastSyncedChange)) {
+            System.out.println("Change log no longer reaches back to the last sync, refreshing everything.");
+            reloadMovies();
+            return movies.size();
+        }
+        long upToChange = db_Handler.getLatestChangeSeq();
+        try {
+            Map<String, Movie> changes = db_Handler.fetchChangesBetween(lastSyncedChange, upToChange);
+            for (Map.Entry<String, Movie> change : changes.entrySet()) {
+                removeFromMemory(change.getKey());
+                if (change.getValue() != null) {
+                    putInMemory(change.getValue());
+                }
+            }
+            lastSyncedChange = upToChange;
+            lastDataVersion = dataVersion;
+            return changes.size();
+        } catch (SQLException e) {
+            System.out.println("Failed to load changes, refreshing everything: " + e.getMessage());
+            reloadMovies();
+            return movies.size();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Single places where the in-memory collection is changed
+    /**
+     * Adds or replaces a movie in the in-memory collection.
+     *
+     * @param movie the movie to store under its title
+     */
+    private void putInMemory(Movie movie) {
+        synchronized (memoryLock) {
+            Movie replaced = movies.put(movie.getTitle(), movie);
+            if (replaced != null) {
+                unindex(replaced);
+            }
+            if (index != null) {
+                index.add(movie);
+            }
+            stats.add(movie);
+            version++;
+        }
+    }
+
+    /**
+     * Moves a movie to a new title in the in-memory collection.
+     * <p>
+     * The movie is stored under its new title before the old one is removed, so a reader on another thread finds it
+     * under one title or the other at every moment, never under neither.
+     * </p>
+     *
+     * @param oldTitle the title the movie is stored under
+     * @param renamed the movie with its new title
+     */
+    private void renameInMemory(String oldTitle, Movie renamed) {
+        synchronized (memoryLock) {
+            movies.put(renamed.getTitle(), renamed);
+            Movie old = movies.remove(oldTitle);
+            if (old != null) {
+                unindex(old);
+            }
+            if (index != null) {
+                index.add(renamed);
+            }
+            stats.add(renamed);
+            version++;
+        }
+    }
+
+    /**
+     * Removes a movie from the in-memory collection.
+     *
+     * @param title the title of the movie to remove
+     * @return the removed movie, or null if it was not in memory
+     */
+    private Movie removeFromMemory(String title) {
+        synchronized (memoryLock) {
+            Movie removed = movies.remove(title);
+            if (removed != null) {
+                unindex(removed);
+                version++;
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Gets the version of the in-memory collection, which goes up whenever a movie is added, changed or removed in
+     * memory, whether by this collection's own writes or by a refresh that picked up other connections' writes.
+     * <p>
+     * It is raised after the change is made, so anything built from the collection after reading a version is at least
+     * as new as that version. {@link ResponseCache} uses it to tell whether a cached response is still current.
+     * </p>
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Takes a movie that left the collection out of the indexes, if any, and the statistics.
+     * @param movie the movie that was removed or replaced
+     */
+    private void unindex(Movie movie) {
+        if (index != null) {
+            index.remove(movie);
+        }
+        stats.remove(movie);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Indexed lookups
+    /**
+     * Finds all movies of a genre using the genre index, ignoring case.
+     *
+     * @param genre the genre to look for
+     * @return the matching movies (empty if none)
+     */
+    public List<Movie> findByGenre(String genre) {
+        return lookup.findByGenre(genre);
+    }
+
+    /**
+     * Finds all movies by a director using the director index, ignoring case.
+     *
+     * @param director the director to look for
+     * @return the matching movies (empty if none)
+     */
+    public List<Movie> findByDirector(String director) {
+        return lookup.findByDirector(director);
+    }
+
+    /**
+     * Finds all movies released between two years (inclusive) using the release year index.
+     *
+     * @param fromYear the first year to include
+     * @param toYear the last year to include
+     * @return the matching movies ordered by year (empty if none)
+     */
+    public List<Movie> findByYearRange(int fromYear, int toYear) {
+        return lookup.findByYearRange(fromYear, toYear);
+    }
+
+    /**
+     * Finds all movies rated between two values (inclusive) using the rating index.
+     *
+     * @param minRating the lowest rating to include
+     * @param maxRating the highest rating to include
+     * @return the matching movies ordered by rating (empty if none)
+     */
+    public List<Movie> findByRatingRange(float minRating, float maxRating) {
+        return lookup.findByRatingRange(minRating, maxRating);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Filtered and sorted views for tables
+    /**
+     * Finds the movies matching an optional genre and director, sorted by one column.
+     * <p>
+     * Filters are answered from the genre and director indexes rather than by scanning every movie (a columnar store
+     * scans its id columns instead, which is nearly as fast). Without a filter,
+     * sorting by release year, rating or title walks the sorted index, so no comparison sort is needed; sorting by genre,
+     * director or watched status walks the title index and groups it by that column. Filtered movies are sorted by the
+     * requested column, with title as the tie breaker.
+     * </p>
+     * <p>
+     * Without a filter the list holds every movie and must not be changed; with a columnar store it is a view that only
+     * creates the movies whose positions are read, so a table showing a few rows of it creates only those. A movie
+     * removed after the list was made reads as null there.
+     * </p>
+     *
+     * @param genre the genre to keep, ignoring case (null or blank for all)
+     * @param director the director to keep, ignoring case (null or blank for all)
+     * @param sortField "title", "release_year", "genre", "director", "rating" or "watched_status" (null for title)
+     * @param ascending true to sort ascending, false for descending
+     * @return the matching movies in order
+     */
+    public List<Movie> findMovies(String genre, String director, String sortField, boolean ascending) {
+        boolean byGenre = genre != null && !genre.trim().isEmpty();
+        boolean byDirector = director != null && !director.trim().isEmpty();
+        MovieColumn sortColumn = MovieColumn.lookup(sortField);
+        String field = sortColumn == null ? "title" : sortColumn.getFieldName();
+
+        List<Movie> result;
+        if (byGenre) {
+            result = lookup.findByGenre(genre.trim());
+            if (byDirector) {
+                result.removeIf(movie -> !movie.getDirector().equalsIgnoreCase(director.trim()));
+            }
+        } else if (byDirector) {
+            result = lookup.findByDirector(director.trim());
+        } else if (field.equals("release_year")) {
+            return lookup.orderedByYear(ascending);
+        } else if (field.equals("rating")) {
+            return lookup.orderedByRating(ascending);
+        } else if (field.equals("genre") || field.equals("director") || field.equals("watched_status")) {
+            // Ties stay in title order without a sort
+            return lookup.orderedByGroup(sortColumn, ascending);
+        } else {
+            return lookup.orderedByTitle(ascending);
+        }
+
+        Comparator<Movie> order;
+        switch (field) {
+            case "release_year":
+                order = Comparator.comparingInt(Movie::getRelease_Year);
+                break;
+            case "genre":
+                order = Comparator.comparing(Movie::getGenre, String.CASE_INSENSITIVE_ORDER);
+                break;
+            case "director":
+                order = Comparator.comparing(Movie::getDirector, String.CASE_INSENSITIVE_ORDER);
+                break;
+            case "rating":
+                order = Comparator.comparingDouble(Movie::getRating);
+                break;
+            case "watched_status":
+                order = Comparator.comparing(Movie::getWatched_Status);
+                break;
+            default:
+                order = Comparator.comparing(Movie::getTitle, String.CASE_INSENSITIVE_ORDER);
+        }
+        order = order.thenComparing(Movie::getTitle);
+        result.sort(ascending ? order : order.reversed());
+        return result;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Full-text search
+    /**
+     * Searches titles and directors for words, so a movie can be found without typing its exact title.
+     * <p>
+     * The last word matches as a prefix, and small typos are tolerated; see {@link MovieSearchIndex}. A search that fails is
+     * reported on the console and finds nothing.
+     * </p>
+     *
+     * @param text the words to search for
+     * @param limit the most movies to return
+     * @return the matching movies, best first (empty if none)
+     */
+    public List<Movie> searchMovies(String text, int limit) {
+        try {
+            return db_Handler.searchMovies(text, limit);
+        } catch (SQLException e) {
+            System.out.println("Search failed: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads one page of movies from the database, ordered and filtered by a query; see
+     * {@link DatabaseHandler#queryMovies(MovieQuery, String)}.
+     * <p>
+     * Queued changes are written first, so the page includes every change made through this collection.
+     * </p>
+     *
+     * @param query the filters, sort order and page size
+     * @param cursor the cursor of the previous page's last movie, or null for the first page
+     * @return the page
+     * @throws SQLException if the page cannot be read
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another sort order
+     */
+    public MoviePage queryMovies(MovieQuery query, String cursor) throws SQLException {
+        flushWrites();
+        return db_Handler.queryMovies(query, cursor);
+    }
+
+    /**
+     * Prints the titles that best match a title that was not found, so the user can retype the right one.
+     * @param title the title as typed
+     */
+    private void suggestTitles(String title) {
+        List<Movie> matches = searchMovies(title, 5);
+        if (!matches.isEmpty()) {
+            System.out.println("Did you mean:");
+            for (Movie movie : matches) {
+                System.out.println("  " + movie.getTitle() + " (" + movie.getRelease_Year() + ", " + movie.getDirector() + ")");
+            }
+        }
+    }
+
 //======================================================================================================================
     /**
      * Closes the database connection.
@@ -305,8 +953,62 @@ public class MovieCollection {
      * </p>
      */
     public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+            writeBehind = null;
+        }
+        saveSnapshot();
+        if (db_Handler.getConnection() != null) {
+            db_Handler.forgetChangeReader(changeReader);
+            db_Handler.truncateChangeLog();
+        }
         db_Handler.close();
     }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Write-behind persistence
+    /**
+     * Waits until every change made so far is committed to the database.
+     * <p>
+     * Changes are written through at once unless {@code dms.writeBehind} is set, in which case this writes the queued
+     * changes now instead of at the next interval.
+     * </p>
+     *
+     * @return true if every change is in the database, false if the queued changes could not be written yet
+     */
+    public boolean flush() {
+        return writeBehind == null || writeBehind.flush();
+    }
+
+    /**
+     * Waits until every change made so far would survive a crash: synced to the write-behind journal, or already in the
+     * database when writing through.
+     *
+     * @return true if every change is durable, false if the journal could not be synced
+     */
+    public boolean awaitDurable() {
+        return writeBehind == null || writeBehind.awaitDurable();
+    }
+
+    /**
+     * Gets the write-behind queue.
+     * @return the queue, or null if changes are written through
+     */
+    WriteBehindQueue getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Writes the queued changes before the database is read or written directly, so it does not get ahead of them.
+     * @return true if every queued change is in the database, false if some could not be written yet
+     */
+    private boolean flushWrites() {
+        if (writeBehind != null && !writeBehind.flush()) {
+            System.out.println("Queued changes could not be written yet; the database may be behind the collection.");
+            return false;
+        }
+        return true;
+    }
 //======================================================================================================================
 //getMovie():List<Movie>
     /**
@@ -335,35 +1037,90 @@ public class MovieCollection {
     /**
      * Calculates the average rating of all movies in the collection.
      * <p>
-     * This method iterates through the entire movie collection, sums up the ratings of all movies, and calculates the average.
-     * If the collection is empty, a message is displayed indicating that no ratings are available to calculate.
-     * The average rating is then formatted to one decimal place for readability.
+     * The average is read from the running statistics kept by {@link MovieStats}, so it costs the same no matter how many
+     * movies are in the collection. If the collection is empty, a message is displayed indicating that no ratings are
+     * available to calculate. The average rating is then rounded to one decimal place for readability.
      * </p>
      *
-     * @return the average rating of the movies in the collection, formatted to 1 decimal place.
+     * @return the average rating of the movies in the collection, rounded to 1 decimal place.
      *         Returns 0 if the collection is empty.
      */
     public float calculateAverageRating() {
         // Check if there are no movies in the collection
-        if (movies.isEmpty()) {
+        if (stats.getCount() == 0) {
             System.out.println("No movies to calculate an average rating.");
             return 0;
         }
-        float sum = 0;
-        // Loop through all movies in the collection to sum their ratings
+        // Round the running average to 1 decimal place
+        float average = Math.round(stats.getAverage() * 10) / 10f;
+
+        // Output the rounded average
+        System.out.println("Average Movie Rating: " + average);
+        return average;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the running rating statistics of the collection.
+     * <p>
+     * The statistics include the count, sum, average, minimum and maximum rating, plus breakdowns per genre and per
+     * release year, all kept up to date as movies are added, removed and updated.
+     * </p>
+     *
+     * @return the collection's statistics
+     */
+    public MovieStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Compares the estimated memory used by the movies in the current layout with the other layout.
+     * <p>
+     * The same movies are estimated as a map with indexes and as a {@link MovieColumnStore}, on a 64-bit JVM with
+     * compressed references; {@code benchmarks/MovieFootprint} measures the real heap use of both.
+     * </p>
+     *
+     * @return one line with both sizes and the saving
+     */
+    public String getFootprintReport() {
+        if (movies instanceof MovieColumnStore) {
+            return ((MovieColumnStore) movies).getFootprintReport();
+        }
+        MovieColumnStore columns = new MovieColumnStore();
         for (Movie movie : movies.values()) {
-            sum += movie.getRating();
+            columns.put(movie.getTitle(), movie);
         }
-        float average = sum / movies.size();
-
-        // Format the average to 2 decimal places
-        DecimalFormat df = new DecimalFormat("#.0");
-        String formattedAverage = df.format(average);
+        return columns.getFootprintReport();
+    }
 
-        // Output the formatted average
-        System.out.println("Average Movie Rating: " + formattedAverage);
-        // Return the formatted average as a float
-        return Float.parseFloat(formattedAverage);
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Checks the running statistics against the same aggregates calculated by SQLite.
+     * <p>
+     * The count, average, minimum and maximum rating are compared with `COUNT`, `AVG`, `MIN` and `MAX` over the `Movies` table.
+     * A mismatch means the in-memory collection is out of step with the database (for example after writes by another
+     * connection) and is printed with both values.
+     * </p>
+     *
+     * @return true if the statistics match the database, false otherwise
+     */
+    public boolean verifyStats() {
+        double[] aggregate = db_Handler.getRatingAggregate();
+        if (aggregate == null) {
+            return false;
+        }
+        double tolerance = 0.001;
+        boolean consistent = aggregate[0] == stats.getCount()
+                && Math.abs(aggregate[1] - stats.getAverage()) < tolerance
+                && Math.abs(aggregate[2] - stats.getMin()) < tolerance
+                && Math.abs(aggregate[3] - stats.getMax()) < tolerance;
+        if (!consistent) {
+            System.out.println("Statistics out of step with the database: memory count=" + stats.getCount()
+                    + " avg=" + stats.getAverage() + " min=" + stats.getMin() + " max=" + stats.getMax()
+                    + ", database count=" + (long) aggregate[0] + " avg=" + aggregate[1]
+                    + " min=" + aggregate[2] + " max=" + aggregate[3]);
+        }
+        return consistent;
     }
 //======================================================================================================================
 //upload data through textfile
@@ -389,100 +1146,199 @@ public class MovieCollection {
      *</p>
      * If any validation fails, the movie is skipped and an error message is printed.
      * If the movie is valid, it is added to the movie collection.
+     * <p>
+     * The file is memory-mapped and read with a {@link MappedCsvReader}, so a quoted title may contain commas.
+     * </p>
      *
      * @param filePath the path to the CSV file containing movie data
      */
     public void addMoviesFromFile(String filePath) {
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            // Read each line from the file
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(","); // Assuming CSV format: Title,Year,Genre,Director,Rating,Watched
-
-                // Check if the line contains the correct number of fields
-                if (parts.length != 6) {
-                    System.out.println("Skipping invalid line (wrong number of fields): " + line);
-                    continue;
-                }
-                //Focus on the inputs from the textfile
-                String title = parts[0].trim();
-                String yearStr = parts[1].trim();
-                String genre = parts[2].trim();
-                String director = parts[3].trim();
-                String ratingStr = parts[4].trim();
-                String watchedStr = parts[5].trim();
-
-                // Validate title length
-                if (title.length() < 1 || title.length() > 45) {
-                    System.out.println("Skipping invalid movie (title length out of bounds): " + line);
-                    continue;
-                }
-
-                // Validate year
-                int year;
-                try {
-                    year = Integer.parseInt(yearStr);
-                    if (year < 1900 || year > 2025) {
-                        System.out.println("Skipping invalid movie (year out of range): " + line);
+        try (MappedCsvReader.Chunker chunker = new MappedCsvReader.Chunker(filePath, MovieImportPipeline.DEFAULT_CHUNK_LINES)) {
+            MappedCsvReader records;
+            // Read each record from the file; quoted fields may contain commas
+            while ((records = chunker.next()) != null) {
+                while (records.nextRecord()) {
+                    Movie movie = parseMovieRecord(records);
+                    if (movie == null) {
                         continue;
                     }
-                } catch (NumberFormatException e) {
-                    System.out.println("Skipping invalid movie (invalid year format): " + line);
-                    continue;
-                }
-
-                // Validate genre (only letters and spaces, 3-20 characters)
-                String[] validGenres = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance",
-                        "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
 
-                boolean isValidGenre = false;
-                for (String validGenre : validGenres) {
-                    if (genre.equalsIgnoreCase(validGenre)) {
-                        isValidGenre = true;
-                        break;
-                    }
-                }
-
-                if (!isValidGenre) {
-                    System.out.println("Skipping invalid movie (invalid genre): " + line);
-                    continue;
-                }
-
-                // Validate director (only letters and spaces, 2-25 characters)
-                if (!director.matches("^[a-zA-Z ]+$") || director.length() < 2 || director.length() > 25) {
-                    System.out.println("Skipping invalid movie (invalid director name): " + line);
-                    continue;
-                }
-
-                // Validate rating
-                float rating;
-                try {
-                    rating = Float.parseFloat(ratingStr);
-                    if (rating < 0 || rating > 100) {
-                        System.out.println("Skipping invalid movie (rating out of range): " + line);
-                        continue;
-                    }
-                } catch (NumberFormatException e) {
-                    System.out.println("Skipping invalid movie (invalid rating format): " + line);
-                    continue;
+                    // Add movie to collection
+                    addMovie(movie);
+                    System.out.println("Added movie: " + movie.getTitle());
                 }
+            }
+        } catch (IOException e) {
+            // Handle file reading errors
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+    }
+//----------------------------------------------------------------------------------------------------------------------
+//Bulk upload through textfile
+    /**
+     * Bulk imports movies from a CSV file in batched transactions.
+     * <p>
+     * Every line is validated with the same rules as {@link #addMoviesFromFile(String)}, but instead of one auto-committed
+     * `INSERT` and one dialog per movie, valid rows are written through a {@link BulkMovieImporter} that reuses one prepared
+     * statement and commits every {@code batchSize} rows as a single transaction. Movies are added to the in-memory collection
+     * only after their batch is committed. Nothing is shown per row; a single summary is printed and returned at the end.
+     * </p>
+     * <p>
+     * The file is read, validated and written by a {@link MovieImportPipeline}, with one parse worker per core but one.
+     * The file is memory-mapped and validated on its bytes, so quoted fields may contain commas, for example
+     * {@code "Crouching Tiger, Hidden Dragon",2000,Action,Ang Lee,87.0,false}.
+     * </p>
+     * If a batch fails, it is rolled back and the import stops; batches committed before it are kept.
+     *
+     * @param filePath the path to the CSV file containing movie data
+     * @param batchSize the number of rows per batch and transaction
+     * @return the summary of the import, including throughput in rows per second
+     */
+    public ImportSummary addMoviesFromFile(String filePath, int batchSize) {
+        return addMoviesFromFile(filePath, batchSize, MovieImportPipeline.defaultWorkers());
+    }
 
-                // Validate watched status (must be 'true' or 'false')
-                if (!watchedStr.equalsIgnoreCase("true") && !watchedStr.equalsIgnoreCase("false")) {
-                    System.out.println("Skipping invalid movie (invalid watched status): " + line);
-                    continue;
+    /**
+     * Bulk imports movies from a CSV file, validating lines on the given number of parse workers.
+     * <p>
+     * The reader, the parse workers and the database writer run at the same time, connected by bounded queues, so
+     * validation uses several cores while the single SQLite writer keeps committing. The writer restores file order, so
+     * the result is the same as a sequential import. The per-stage statistics are printed after the summary.
+     * </p>
+     * <p>
+     * When the database has a unique index on Title, the import upserts: a stored title is updated with the file's values
+     * instead of skipped, and a row that is already stored unchanged is not written again, so importing the same file
+     * twice changes nothing. The progress is then also checkpointed with every batch, and an import of the same unchanged
+     * file that stopped early continues after its last committed batch.
+     * </p>
+     *
+     * @param filePath the path to the CSV file containing movie data
+     * @param batchSize the number of rows per batch and transaction
+     * @param workers the number of parse workers
+     * @return the summary of the import, including throughput in rows per second
+     */
+    @SuppressWarnings("try")
+    public ImportSummary addMoviesFromFile(String filePath, int batchSize, int workers) {
+        // Write queued changes first, so the import's rows are not overwritten by older queued states
+        flushWrites();
+        // The import commits on a connection of its own, so a rolled-back batch never takes writes made meanwhile
+        // through the session connection with it
+        Connection importConnection;
+        try {
+            importConnection = db_Handler.openWriterConnection();
+        } catch (SQLException e) {
+            System.out.println("Bulk import not started: " + e.getMessage());
+            return new ImportSummary(0, 0, 0, 0, 0, 0);
+        }
+        MovieImportPipeline pipeline = new MovieImportPipeline(importConnection, batchSize, workers,
+                MovieImportPipeline.DEFAULT_CHUNK_LINES, MovieImportPipeline.DEFAULT_QUEUE_CAPACITY);
+        // Only keep movies in memory once they are committed to the database
+        pipeline.setCommitListener(batch -> {
+            for (Movie committed : batch) {
+                try (TitleLocks.Held ignored = locks.lock(committed.getTitle())) {
+                    putInMemory(committed);
                 }
-                boolean watched = Boolean.parseBoolean(watchedStr);
+            }
+        });
+        if (db_Handler.hasUniqueTitles()) {
+            pipeline.setUpsert(true);
+            pipeline.setCheckpointing(true);
+        } else {
+            pipeline.setExistingTitleFilter(movies::containsKey);
+        }
 
-                // Add movie to collection
-                addMovie(new Movie(title, year, genre, director, rating, watched));
-                System.out.println("Added movie: " + title);
+        ImportSummary summary;
+        try (Connection ignored = importConnection) {
+            summary = pipeline.run(filePath);
+            ImportCheckpoint checkpoint = pipeline.getCheckpoint();
+            if (checkpoint != null && checkpoint.isResuming()) {
+                System.out.println("Resumed an unfinished import of " + checkpoint.getFilePath());
             }
         } catch (IOException e) {
             // Handle file reading errors
             System.out.println("Error reading file: " + e.getMessage());
+            summary = pipeline.getSummary();
+        } catch (SQLException e) {
+            System.out.println("Bulk import stopped, last batch rolled back: " + e.getMessage());
+            summary = pipeline.getSummary();
+        }
+        System.out.println(summary);
+        System.out.println(pipeline.getStats());
+        return summary;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Parses and validates one CSV line of movie data.
+     * <p>
+     * The line must contain Title, Year, Genre, Director, Rating and Watched status separated by commas, and each field
+     * must pass the rules of {@link MovieValidator}. If a field is invalid, the reason is printed and null is returned.
+     * </p>
+     *
+     * @param line the CSV line to parse
+     * @return the parsed Movie, or null if the line is invalid
+     */
+    static Movie parseMovieLine(String line) {
+        String[] parts = line.split(","); // Assuming CSV format: Title,Year,Genre,Director,Rating,Watched
+
+        // Check if the line contains the correct number of fields
+        if (parts.length != 6) {
+            System.out.println("Skipping invalid line (wrong number of fields): " + line);
+            return null;
+        }
+        //Focus on the inputs from the textfile
+        String title = parts[0].trim();
+        String genre = parts[2].trim();
+        String director = parts[3].trim();
+
+        MovieValidator validator = VALIDATOR.get();
+        ValidationError error = validator.validate(title, parts[1].trim(), genre, director, parts[4].trim(), parts[5].trim());
+        if (error != null) {
+            System.out.println("Skipping invalid movie (" + error.getReason() + "): " + line);
+            return null;
+        }
+        return new Movie(title, validator.getYear(), genre, director, validator.getRating(), validator.isWatched());
+    }
+
+    /**
+     * Validates the current record of a {@link MappedCsvReader} and creates a Movie from it.
+     * <p>
+     * The rules and messages are the same as {@link #parseMovieLine(String)}, but {@link MovieValidator} reads the
+     * fields straight from the record's bytes, and the title, genre and director {@code String}s are only created once the whole record is valid. Quoted fields
+     * may contain commas, for titles such as {@code "Crouching Tiger, Hidden Dragon"}.
+     * </p>
+     *
+     * @param record the reader positioned on the record to parse
+     * @return the parsed Movie, or null if the record is invalid
+     */
+    static Movie parseMovieRecord(MappedCsvReader record) {
+        if (record.getFieldCount() != 6) {
+            System.out.println("Skipping invalid line (wrong number of fields): " + record.getRecordText());
+            return null;
+        }
+        for (int field = 0; field < 6; field++) {
+            if (record.isFieldUnterminated(field)) {
+                System.out.println("Skipping invalid line (unterminated quote): " + record.getRecordText());
+                return null;
+            }
+        }
+
+        MovieValidator validator = VALIDATOR.get();
+        ValidationError error = validator.validate(record.getFieldCharLength(0), record.getField(1), record.getField(2),
+                record.getField(3), record.getField(4), record.getField(5));
+        if (error != null) {
+            System.out.println("Skipping invalid movie (" + error.getReason() + "): " + record.getRecordText());
+            return null;
+        }
+
+        // Only now create the Strings; a genre spelled like its display name reuses the shared name instead
+        String genre = validator.getGenre().getDisplayName();
+        if (!genre.contentEquals(record.getField(2))) {
+            genre = record.getFieldString(2);
         }
+        return new Movie(record.getFieldString(0), validator.getYear(), genre, record.getFieldString(3),
+                validator.getRating(), validator.isWatched());
     }
 //======================================================================================================================
 //Menu
@@ -613,14 +1469,9 @@ public class MovieCollection {
                             String title = sc.nextLine();
 
                             // Ensure title is not empty or too long
-                            while (title.length() < 1) {
-                                System.out.println("Error: Title entered had no characters entered, please re-enter proper amount.");
-                                System.out.print("Enter Movie Title: ");
-                                title = sc.nextLine();
-                            }
-
-                            while (title.length() > 45) {
-                                System.out.println("Error: Title exceeds 45 characters. Please enter a shorter title.");
+                            ValidationError titleError;
+                            while ((titleError = MovieValidator.checkTitle(title)) != null) {
+                                System.out.println("Error: " + titleError.getMessage());
                                 System.out.print("Enter Movie Title: ");
                                 title = sc.nextLine();
                             }
@@ -632,11 +1483,12 @@ public class MovieCollection {
                                 System.out.print("Enter release year: ");
                                 if (sc.hasNextInt()) {
                                     year = sc.nextInt();
-                                    if (year >= 1890 && year <= 2025) {
+                                    ValidationError yearError = MovieValidator.checkYear(year);
+                                    if (yearError == null) {
                                         sc.nextLine(); // Consume leftover newline
                                         break;
                                     } else {
-                                        System.out.println("Error: Year must be between 1890 and 2025.");
+                                        System.out.println("Error: " + yearError.getMessage());
                                     }
                                 } else {
                                     System.out.println("Error: Please enter a valid number.");
@@ -645,7 +1497,6 @@ public class MovieCollection {
                             }
 
 //only specific genre words in make sure to allow re-entry
-                            String[] validGenres = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance", "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
                             // Get the genre input and validate
                             String genre;
                             boolean validGenre = false;
@@ -653,15 +1504,10 @@ public class MovieCollection {
                                 System.out.print("Enter genre: ");
                                 genre = sc.nextLine();
                                 // Check if the genre is valid
-                                for (String valid : validGenres) {
-                                    if (genre.equalsIgnoreCase(valid)) {
-                                        validGenre = true;
-                                        break;
-                                    }
-                                }
+                                validGenre = MovieValidator.checkGenre(genre) == null;
                                 // If the genre is invalid, prompt the user to enter again
                                 if (!validGenre) {
-                                    System.out.println("Error: Invalid genre. Please enter a valid genre from the list: Action, Crime, Drama, Fantasy, Horror, Comedy, Romance, Science Fiction, Sports, Thriller, Mystery, War, Western.");
+                                    System.out.println("Error: " + ValidationError.GENRE.getMessage());
                                 }
                             } while (!validGenre);
 
@@ -669,15 +1515,10 @@ public class MovieCollection {
                             System.out.print("Enter director: ");
                             String director = sc.nextLine();
 
-// Regular expression: Only allows letters (a-z, A-Z) and spaces
-                            while (!director.matches("^[a-zA-Z ]+$") || director.length() < 2 || director.length() > 25) {
-                                if (!director.matches("^[a-zA-Z ]+$")) {
-                                    System.out.println("Error: Name contains invalid characters. Please enter only letters and spaces.");
-                                } else if (director.length() < 2) {
-                                    System.out.println("Error: Name entered was below 2 characters, please re-enter name.");
-                                } else if (director.length() > 25) {
-                                    System.out.println("Error: Name entered was above 25 characters, please re-enter name.");
-                                }
+// Only allows letters (a-z, A-Z) and spaces, 2 to 25 characters
+                            ValidationError directorError;
+                            while ((directorError = MovieValidator.checkDirector(director)) != null) {
+                                System.out.println("Error: " + directorError.getMessage());
 
                                 System.out.print("Enter director: ");
                                 director = sc.nextLine();
@@ -685,24 +1526,19 @@ public class MovieCollection {
 
 //keep rating from 0 to 100 make sure to allow re-entry
                             float rating = -1; // Initialize with an invalid value
+                            MovieValidator ratingValidator = VALIDATOR.get();
 
                             while (true) {
                                 System.out.print("Enter rating: ");
-                                String input = sc.nextLine();
-
-                                // Check if the input is a valid floating-point number
-                                try {
-                                    rating = Float.parseFloat(input);
+                                String input = sc.nextLine().trim();
 
-                                    // Check if it's within the valid range
-                                    if (rating >= 0 && rating <= 100) {
-                                        break; // Valid input, exit loop
-                                    } else {
-                                        System.out.println("Error: The rating must be between 0 and 100. Please enter a valid rating.");
-                                    }
-                                } catch (NumberFormatException e) {
-                                    System.out.println("Error: Invalid input. Please enter a number between 0 and 100.");
+                                // Check if the input is a valid number within the valid range
+                                ValidationError ratingError = ratingValidator.parseRating(input);
+                                if (ratingError == null) {
+                                    rating = ratingValidator.getRating();
+                                    break; // Valid input, exit loop
                                 }
+                                System.out.println("Error: " + ratingError.getMessage());
                             }
 
 //Watch status should be true or false
@@ -737,10 +1573,10 @@ public class MovieCollection {
                     System.out.print("Enter title to remove: ");
                     sc.nextLine();
                     String remove_title = sc.nextLine();
-                    //removeMovie(remove_title);
-                    //To integrate the database its best to add these instances at the end
-                    //error handling
-                    db_Handler.removeMovie(remove_title);
+                    //Removes from the database and keeps the in-memory collection in step
+                    if (!removeMovie(remove_title)) {
+                        suggestTitles(remove_title);
+                    }
 
 
 // After removal, the movie will be deleted from the database (further handling could be added here)
@@ -762,140 +1598,59 @@ public class MovieCollection {
                     // Check if the movie exists in the database using db_Handler
                     if (!db_Handler.movieExists(updateTitle)) {  // <-- Check in the database
                         System.out.println("Error: Movie not found in the database.");
+                        suggestTitles(updateTitle);
                         break;
                     }
 
                     // Ask for the field to update
-                    System.out.print("Enter field to update (title, releaseYear, genre, director, rating, watchedStatus): ");
+                    System.out.print("Enter field to update (title, release_year, genre, director, rating, watched_status): ");
                     String field = sc.nextLine().trim();
+                    MovieColumn updateColumn = MovieColumn.lookup(field);
 
                     // Ask for the new value to update
                     String newValue = "";
                     boolean validUpdate = false;
 
-                    switch (field.toLowerCase()) {
-//**********************************************************************************************************************
+                    // Each field has its own prompt; the rules themselves are shared with every other input path
+                    String prompt;
+                    switch (updateColumn == null ? "" : updateColumn.getFieldName()) {
                         case "title":
-                            // Keep movie titles under 45 characters
-                            while (true) {
-                                System.out.print("Enter new title (max 45 characters): ");
-                                newValue = sc.nextLine().trim();
-                                if (newValue.length() < 1) {
-                                    System.out.println("Error: Title entered had no characters entered, please re-enter.");
-                                } else if (newValue.length() > 45) {
-                                    System.out.println("Error: Title exceeds 45 characters. Please enter a shorter title.");
-                                } else {
-                                    validUpdate = true; // Mark the update as valid
-                                    break; // Exit the loop once a valid title is entered
-                                }
-                            }
+                            prompt = "Enter new title (max 45 characters): ";
                             break;
-//**********************************************************************************************************************
                         case "release_year":
-                            // Allow movies from 1900 to 2025
-                            while (true) {
-                                System.out.print("Enter new release year (1900-2025): ");
-                                try {
-                                    int year = Integer.parseInt(sc.nextLine().trim());
-                                    if (year < 1900 || year > 2025) {
-                                        System.out.println("Error: The year you entered was invalid. Please re-enter a year between 1900 and 2025.");
-                                    } else {
-                                        newValue = Integer.toString(year);
-                                        validUpdate = true; // Mark the update as valid
-                                        break;
-                                    }
-                                } catch (NumberFormatException e) {
-                                    System.out.println("Error: Invalid year format. Please enter a valid number.");
-                                }
-                            }
+                            prompt = "Enter new release year (1900-2025): ";
                             break;
-//**********************************************************************************************************************
-                        //use different variables for this case
                         case "genre":
-                            // Ensure the genre is one of the valid genres
-                            String[] validGenress = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance", "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
-                            while (true) {
-                                System.out.print("Enter new genre: ");
-                                newValue = sc.nextLine().trim();
-                                boolean validGenree = false;
-                                for (String valid : validGenress) {
-                                    if (newValue.equalsIgnoreCase(valid)) {
-                                        validGenree = true;
-                                        break;
-                                    }
-                                }
-                                if (!validGenree) {
-                                    System.out.println("Error: Invalid genre. Please enter a valid genre from the list: Action, Crime, Drama, Fantasy, Horror, Comedy, Romance, Science Fiction, Sports, Thriller, Mystery, War, Western.");
-                                } else {
-                                    validUpdate = true; // Mark the update as valid
-                                    break;
-                                }
-                            }
+                            prompt = "Enter new genre: ";
                             break;
-//**********************************************************************************************************************
                         case "director":
-                            // Loop until a valid director name is entered
-                            while (true) {
-                                System.out.print("Enter new director's name (2-25 characters): ");
-                                newValue = sc.nextLine().trim();  // Read input and remove leading/trailing spaces
-
-                                // Check if the input is valid
-                                if (newValue.length() < 2) {
-                                    System.out.println("Error: Name entered was below 2 characters, please re-enter.");
-                                } else if (newValue.length() > 25) {
-                                    System.out.println("Error: Name entered was above 25 characters, please re-enter.");
-                                } else if (!newValue.matches("^[a-zA-Z ]+$")) {  // Ensure the name contains only letters and spaces
-                                    System.out.println("Error: Director name must contain only letters and spaces.");
-                                } else {
-                                    validUpdate = true;  // Mark the input as valid
-                                    break;  // Exit the loop when valid input is entered
-                                }
-                            }
+                            prompt = "Enter new director's name (2-25 characters): ";
                             break;
-//**********************************************************************************************************************
                         case "rating":
-                            // Rating should be between 0 and 100
-                            while (true) {
-                                System.out.print("Enter new rating (0-100): ");
-                                try {
-                                    float rating = Float.parseFloat(sc.nextLine().trim());
-                                    if (rating < 0 || rating > 100) {
-                                        System.out.println("Error: The rating must be between 0 and 100. Please enter a valid rating.");
-                                    } else {
-                                        newValue = Float.toString(rating);
-                                        validUpdate = true;
-                                        break;
-                                    }
-                                } catch (NumberFormatException e) {
-                                    System.out.println("Error: Invalid rating format. Please enter a valid number.");
-                                }
-                            }
+                            prompt = "Enter new rating (0-100): ";
                             break;
-//**********************************************************************************************************************
                         case "watched_status":
-                            // Watched status should be 'true' or 'false'
-                            while (true) {
-                                System.out.print("Watched? (true/false): ");
-                                String input = sc.nextLine().trim().toLowerCase();
-                                if (input.equals("true")) {
-                                    newValue = "true";
-                                    validUpdate = true;
-                                    break;
-                                } else if (input.equals("false")) {
-                                    newValue = "false";
-                                    validUpdate = true;
-                                    break;
-                                } else {
-                                    System.out.println("Error: Please enter 'true' or 'false'.");
-                                }
-                            }
+                            prompt = "Watched? (true/false): ";
                             break;
-
                         default:
+                            prompt = null;
                             System.out.println("Error: Invalid field selected.");
                             break;
                     }
 
+                    // Loop until a valid value is entered for the field
+                    MovieValidator updateValidator = VALIDATOR.get();
+                    while (prompt != null) {
+                        System.out.print(prompt);
+                        newValue = sc.nextLine().trim();
+                        ValidationError updateError = updateValidator.validateField(field, newValue);
+                        if (updateError == null) {
+                            validUpdate = true; // Mark the update as valid
+                            break;
+                        }
+                        System.out.println("Error: " + updateError.getMessage());
+                    }
+
                     // Once a valid update value is entered, proceed with the update
                     if (validUpdate) {
                         if (updateMovie(updateTitle, field, newValue)) {
@@ -915,13 +1670,14 @@ public class MovieCollection {
 //----------------------------------------------------------------------------------------------------------------------
                 //Calculate Average Movie Rating
                 case 5:
-                    db_Handler.calculateAverageRating();
-                    //calculateAverageRating();
+                    //Uses the running statistics instead of querying the database each time
+                    calculateAverageRating();
                     break;
 //----------------------------------------------------------------------------------------------------------------------
                 //Exiting the menu
                 case 6:
                     System.out.println("Exiting Menu...");
+                    flush();    // Write any changes still queued in the background
                     break;
 
                 //incase there is a miss input of any other numbers then what is given.
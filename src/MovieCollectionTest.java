@@ -1,7 +1,31 @@
+import DBHelper.ConnectionPool;
+import DBHelper.Movies;
+import DBHelper.RowCursor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 /**
@@ -29,19 +53,52 @@ public class MovieCollectionTest {
     /**It simulates operations on the movie collection, ensuring that the collection behaves correctly under different scenarios through various test cases, class used in the test cases.*/
     private MovieCollection movieCollection;
 
+    /**The empty SQLite database each test runs against.*/
+    private File databaseFile;
+
     /**
      * Initializes a new instance of {@link MovieCollection} before each test.
      * <p>
      * This method is annotated with {@link BeforeEach}, which means it is run before each test method.
      * It ensures that each test has a fresh instance of {@link MovieCollection} to work with, preventing state
-     * contamination across tests.
+     * contamination across tests. The collection connects to a new empty database through the headless
+     * configuration, so no dialog is shown.
      * </p>
+     *
+     * @throws IOException if the database file cannot be created
+     * @throws SQLException if the `Movies` table cannot be created
      */
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException, SQLException {
+        databaseFile = File.createTempFile("movies", ".db");
+        databaseFile.deleteOnExit(); // Clean up after the test
+        new File(databaseFile.getPath() + "-wal").deleteOnExit(); // Write-ahead log files of the WAL journal
+        new File(databaseFile.getPath() + "-shm").deleteOnExit();
+        new File(databaseFile.getPath() + MovieSnapshot.FILE_SUFFIX).deleteOnExit();
+        new File(databaseFile.getPath() + WriteBehindQueue.JOURNAL_SUFFIX).deleteOnExit();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Movies (ID INTEGER PRIMARY KEY AUTOINCREMENT, Title TEXT NOT NULL, "
+                    + "Release_Year INTEGER, Genre TEXT, Director TEXT, Rating REAL, Watched_Status BOOLEAN);");
+        }
+
+        System.setProperty(DatabaseConfig.DB_PATH, databaseFile.getAbsolutePath());
+        System.setProperty(DatabaseConfig.HEADLESS, "true");
         movieCollection = new MovieCollection();
     }
 
+    /**
+     * Closes the collection's database connection after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        movieCollection.close();
+        System.clearProperty(DatabaseConfig.DB_PATH);
+        System.clearProperty(DatabaseConfig.HEADLESS);
+        System.clearProperty(DatabaseConfig.UNIQUE_TITLES);
+        System.clearProperty(DatabaseConfig.SNAPSHOT);
+    }
+
 //======================================================================================================================
     //add movie test
     //The user is able to manually enter a new record, which is printed to the screen. Every user input has appropriate
@@ -116,6 +173,24 @@ public class MovieCollectionTest {
     void testRemoveMovie_NotFound() {
         assertFalse(movieCollection.removeMovie("NonExistentMovie"), "Removing non-existent movie should fail.");
     }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //test to see if the in-memory collection follows edits without a full refresh
+    /**
+     * Tests that removing a movie updates the in-memory collection and that a delta refresh afterwards finds nothing new.
+     * <p>
+     * This test ensures edits are applied incrementally instead of reloading the whole table.
+     * </p>
+     */
+    @Test
+    void testRemoveMovie_UpdatesMemory() {
+        movieCollection.addMovie(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+        assertTrue(movieCollection.removeMovie("Inception"), "Movie should be removed successfully.");
+        assertNull(movieCollection.getMovie("Inception"), "Removed movie should no longer be in memory.");
+
+        movieCollection.refreshChanges();
+        assertNull(movieCollection.getMovie("Inception"), "A delta refresh should not bring the removed movie back.");
+    }
 //======================================================================================================================
     //Update Objects Test
     //The user can update any field of any object, which is printed to the screen. Every user input has appropriate
@@ -229,6 +304,1191 @@ public class MovieCollectionTest {
         assertEquals(92.5f, averageRating, 0.1, "Average rating should be correctly calculated.");
     }
 
+//----------------------------------------------------------------------------------------------------------------------
+    //Running statistics test
+    /**
+     * Tests that the running statistics follow adds, updates and removes and agree with the database.
+     * <p>
+     * This test verifies the average, minimum, maximum and per-genre counts after each kind of change.
+     * </p>
+     */
+    @Test
+    void testRunningStats() {
+        movieCollection.addMovie(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 85.0f, false));
+        MovieStats stats = movieCollection.getStats();
+
+        assertEquals(85.0f, stats.getMin(), "Minimum should be Heat's rating.");
+        assertEquals(95.0f, stats.getMax(), "Maximum should be Inception's rating.");
+
+        assertTrue(movieCollection.updateMovie("Heat", "rating", "75"), "Rating should be updated.");
+        assertEquals(85.0, stats.getAverage(), 0.001, "Average should follow the update.");
+        assertEquals(75.0f, stats.getMin(), "Minimum should follow the update.");
+
+        assertTrue(movieCollection.removeMovie("Inception"), "Movie should be removed.");
+        assertEquals(0, stats.getGenre("Science Fiction").getCount(), "Genre breakdown should follow the removal.");
+        assertTrue(movieCollection.verifyStats(), "Statistics should match the SQL aggregate.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Concurrent use
+    /**
+     * Hammers the collection with adds, removes, updates, renames and reads from many threads at once.
+     * <p>
+     * Writers work on a small shared pool of titles, so they collide on the same titles all the time, while readers
+     * look movies up, filter them and read the statistics. No operation may fail with an exception, and afterwards the
+     * in-memory collection, its indexes and its statistics must all match the database.
+     * </p>
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    void testConcurrentAccess_StressTest() throws InterruptedException {
+        int writers = 6;
+        int readers = 4;
+        int operations = 150;
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            Random random = new Random(w);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        String title = "Shared " + random.nextInt(20);
+                        switch (random.nextInt(5)) {
+                            case 0 -> movieCollection.addMovie(new Movie(title, 1990 + random.nextInt(30), "Drama",
+                                    "Jane Campion", random.nextInt(100), random.nextBoolean()));
+                            case 1 -> movieCollection.removeMovie(title);
+                            case 2 -> movieCollection.updateMovie(title, "rating", Integer.toString(random.nextInt(100)));
+                            case 3 -> movieCollection.updateMovie(title, "title", "Shared " + random.nextInt(20));
+                            default -> movieCollection.updateMovie(title, "genre", random.nextBoolean() ? "Crime" : "Drama");
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    while (writing.get()) {
+                        for (Movie movie : movieCollection.findMovies("Drama", null, "rating", true)) {
+                            assertEquals("Drama", movie.getGenre(), "A filtered movie must match the filter.");
+                        }
+                        movieCollection.findByYearRange(1990, 2020);
+                        movieCollection.getMovie("Shared 1");
+                        movieCollection.getStats().getAverage();
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Thousands of status lines otherwise
+        try {
+            threads.forEach(Thread::start);
+            start.countDown();
+            for (int i = 0; i < writers; i++) {
+                threads.get(i).join();
+            }
+            writing.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            System.setOut(out);
+        }
+
+        assertTrue(failures.isEmpty(), "No operation should fail: " + failures);
+        Map<String, Movie> inMemory = new HashMap<>(movieCollection.movies);
+        assertEquals(inMemory.size(), movieCollection.getStats().getCount(), "The statistics should count every movie.");
+        assertEquals(inMemory.size(), movieCollection.findByYearRange(1900, 2100).size(),
+                "The year index should hold every movie once.");
+        assertTrue(movieCollection.verifyStats(), "The statistics should match the database.");
+        movieCollection.refreshMovies();
+        assertEquals(inMemory.keySet(), movieCollection.movies.keySet(), "Memory should hold exactly the stored titles.");
+        for (Movie movie : inMemory.values()) {
+            Movie stored = movieCollection.getMovie(movie.getTitle());
+            assertEquals(stored.getRating(), movie.getRating(), "Memory should hold the stored rating of " + movie.getTitle());
+            assertEquals(stored.getGenre(), movie.getGenre(), "Memory should hold the stored genre of " + movie.getTitle());
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Full-text search
+    /**
+     * Tests {@link MovieCollection#searchMovies(String, int)} over the FTS5 index.
+     * <p>
+     * Words must match as prefixes of titles and directors in any case, titles must rank above directors, a misspelt
+     * word must still find its movie, and renames and removals must be reflected through the triggers. A short exact
+     * title added after more than {@value MovieSearchIndex#CANDIDATES} other matches must still come first.
+     * </p>
+     *
+     * @throws SQLException if the extra matches cannot be inserted
+     */
+    @Test
+    void testSearchMovies_PrefixFuzzyAndRanking() throws SQLException {
+        movieCollection.addMovie(new Movie("The Dark Knight", 2008, "Action", "Christopher Nolan", 90.0f, true));
+        movieCollection.addMovie(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+        movieCollection.addMovie(new Movie("Nolan Sisters Live", 1985, "Drama", "Jane Campion", 40.0f, false));
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+
+        assertEquals(List.of("The Dark Knight"), titles(movieCollection.searchMovies("dark KNI", 10)),
+                "The last word should match as a prefix, ignoring case.");
+        List<String> nolan = titles(movieCollection.searchMovies("nolan", 10));
+        assertEquals(3, nolan.size());
+        assertEquals("Nolan Sisters Live", nolan.get(0), "A title match should rank above a director match.");
+        assertEquals(List.of("Inception"), titles(movieCollection.searchMovies("incpetion", 10)),
+                "A small typo should still find the movie.");
+        assertEquals(List.of("Heat"), titles(movieCollection.searchMovies("michale mann", 10)));
+        assertTrue(movieCollection.searchMovies("zzz", 10).isEmpty());
+        assertTrue(movieCollection.searchMovies("  ", 10).isEmpty());
+
+        assertTrue(movieCollection.updateMovie("Heat", "title", "Collateral"));
+        movieCollection.removeMovie("Inception");
+        assertEquals(List.of("Collateral"), titles(movieCollection.searchMovies("mann", 10)),
+                "A rename should be found under the new title.");
+        assertTrue(movieCollection.searchMovies("inception", 10).isEmpty(), "A removed movie should not be found.");
+
+        // More matches than one step reads come first in index order; SQLite must rank before it limits
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < MovieSearchIndex.CANDIDATES + 50; i++) {
+                stmt.execute("INSERT INTO Movies (Title, Release_Year, Genre, Director, Rating, Watched_Status) VALUES "
+                        + "('The Long Road Through the Dark Valley " + i + "', 2000, 'Drama', 'Some One', 50, 0);");
+            }
+            stmt.execute("INSERT INTO Movies (Title, Release_Year, Genre, Director, Rating, Watched_Status) "
+                    + "VALUES ('Dark', 2001, 'Drama', 'Other One', 60, 0);");
+        }
+        assertEquals(List.of("Dark"), titles(movieCollection.searchMovies("dark", 1)),
+                "The exact title should be found among many longer matches.");
+    }
+
+    /**
+     * Lists the titles of movies.
+     * @param movies the movies
+     * @return their titles in order
+     */
+    private static List<String> titles(List<Movie> movies) {
+        List<String> titles = new ArrayList<>();
+        for (Movie movie : movies) {
+            titles.add(movie.getTitle());
+        }
+        return titles;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Typed and cached updates
+    /**
+     * Tests {@link DatabaseHandler#updateMovieFields(String, Map)} and the typed, cached single-field update path.
+     * <p>
+     * Values must be stored with their column's type, not as text, several columns must change in one statement, each
+     * set of columns must prepare its statement once, and a field that is not a movie column must be rejected before any
+     * SQL is built. {@link MovieCollection#updateMovie(String, Map)} must rename and change other fields in one statement,
+     * or change nothing if a value is invalid.
+     * </p>
+     *
+     * @throws SQLException if the database cannot be read
+     */
+    @Test
+    void testUpdateMovieFields_TypedAndCached() throws SQLException {
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 80.0f, false));
+        DatabaseHandler handler = movieCollection.db_Handler;
+
+        assertTrue(handler.updateMovieAttribute("Heat", "rating", "88.5"));
+        assertTrue(handler.updateMovieAttribute("Heat", "releaseYear", "1996"), "Field aliases should be accepted.");
+        assertTrue(handler.updateMovieAttribute("Heat", "Watched Status", "true"));
+        assertTrue(handler.updateMovieAttribute("Heat", "rating", "90"));
+        assertEquals(3, handler.getCachedUpdateCount(), "Each column should prepare its statement once.");
+
+        Map<MovieColumn, Object> fields = new HashMap<>();
+        fields.put(MovieColumn.DIRECTOR, "Mann");
+        fields.put(MovieColumn.RATING, 91.5f);
+        fields.put(MovieColumn.WATCHED_STATUS, false);
+        assertTrue(handler.updateMovieFields("Heat", fields));
+        assertEquals(4, handler.getCachedUpdateCount());
+        assertFalse(handler.updateMovieFields("Absent", fields), "An unknown title should update nothing.");
+
+        try (Statement stmt = handler.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT typeof(Release_Year), typeof(Rating), typeof(Watched_Status), "
+                     + "Release_Year, Rating, Watched_Status, Director FROM Movies WHERE Title = 'Heat';")) {
+            assertTrue(rs.next());
+            assertEquals("integer", rs.getString(1));
+            assertEquals("real", rs.getString(2), "A rating should be stored as a number, not as text.");
+            assertEquals("integer", rs.getString(3));
+            assertEquals(1996, rs.getInt(4));
+            assertEquals(91.5f, rs.getFloat(5));
+            assertFalse(rs.getBoolean(6));
+            assertEquals("Mann", rs.getString(7));
+        }
+
+        assertFalse(handler.updateMovieAttribute("Heat", "Rating = 0; DROP TABLE Movies; --", "1"),
+                "A field that is not a column should be rejected.");
+        assertFalse(handler.updateMovieAttribute("Heat", "rating", "high"), "A value of the wrong type should be rejected.");
+        assertEquals(4, handler.getCachedUpdateCount());
+        assertTrue(handler.movieExists("Heat"));
+
+        // The collection changes several fields, the title among them, in one statement
+        Map<MovieColumn, String> values = new HashMap<>();
+        values.put(MovieColumn.TITLE, "Heat Again");
+        values.put(MovieColumn.GENRE, "Drama");
+        values.put(MovieColumn.RATING, "77");
+        assertTrue(movieCollection.updateMovie("Heat", values));
+        assertEquals(5, handler.getCachedUpdateCount(), "The fields should change in one statement.");
+        assertNull(movieCollection.getMovie("Heat"));
+        assertEquals("Drama", movieCollection.getMovie("Heat Again").getGenre());
+        assertEquals(77.0f, movieCollection.getMovie("Heat Again").getRating());
+        assertEquals(1, countRows("jdbc:sqlite:" + databaseFile.getAbsolutePath(),
+                "SELECT COUNT(*) FROM Movies WHERE Title = 'Heat Again' AND Genre = 'Drama' AND Rating = 77;"));
+        values.put(MovieColumn.RATING, "high");
+        assertFalse(movieCollection.updateMovie("Heat Again", values), "An invalid value should change nothing.");
+        assertEquals(77.0f, movieCollection.getMovie("Heat Again").getRating());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Write-behind persistence
+    /**
+     * Tests the write-behind mode: changes apply to memory at once, reach the database only on a flush, are coalesced per
+     * title, and are recovered from the journal after a crash.
+     * <p>
+     * The flush interval is set to a minute, so nothing is written in the background while the test checks the database.
+     * A rename must be journaled as one change, and a refresh while the queue cannot write must apply nothing.
+     * </p>
+     *
+     * @throws SQLException if the database cannot be read
+     */
+    @Test
+    void testWriteBehind_CoalescesFlushesAndRecovers() throws SQLException {
+        movieCollection.close();
+        System.setProperty(DatabaseConfig.WRITE_BEHIND, "true");
+        System.setProperty(DatabaseConfig.WRITE_BEHIND_FLUSH_MILLIS, "60000");
+        try {
+            movieCollection = new MovieCollection();
+            WriteBehindQueue queue = movieCollection.getWriteBehind();
+            assertNotNull(queue, "Write-behind should be enabled.");
+
+            assertTrue(movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 80.0f, false)));
+            assertTrue(movieCollection.updateMovie("Heat", "rating", "85"));
+            assertTrue(movieCollection.updateMovie("Heat", "watched_status", "true"));
+            assertTrue(movieCollection.addMovie(new Movie("Alien", 1979, "Horror", "Ridley Scott", 90.0f, true)));
+            assertTrue(movieCollection.updateMovie("Alien", "title", "Aliens"));
+            assertTrue(movieCollection.addMovie(new Movie("Gone", 2000, "Drama", "Nobody", 10.0f, false)));
+            assertTrue(movieCollection.removeMovie("Gone"));
+            assertFalse(movieCollection.removeMovie("Gone"), "A removed title should no longer be found.");
+
+            assertEquals(85.0f, movieCollection.getMovie("Heat").getRating(), "Memory should change at once.");
+            assertFalse(movieCollection.db_Handler.movieExists("Heat"), "Nothing should be written before a flush.");
+            assertEquals(4, queue.getPendingCount(), "Changes to the same title should be coalesced.");
+
+            assertTrue(movieCollection.flush());
+            assertEquals(0, queue.getPendingCount());
+            assertEquals(1, queue.getBatchesCommitted(), "The changes should be written in one transaction.");
+            assertEquals(2, queue.getRowsWritten(), "Only the final state of each title should be written.");
+            Map<String, Movie> stored = new HashMap<>();
+            try (Statement stmt = movieCollection.db_Handler.getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM Movies;")) {
+                while (rs.next()) {
+                    stored.put(rs.getString("Title"), new Movie(rs.getString("Title"), rs.getInt("Release_Year"),
+                            rs.getString("Genre"), rs.getString("Director"), rs.getFloat("Rating"),
+                            rs.getBoolean("Watched_Status")));
+                }
+            }
+            assertEquals(Set.of("Heat", "Aliens"), stored.keySet());
+            assertEquals(85.0f, stored.get("Heat").getRating());
+            assertTrue(stored.get("Heat").getWatched_Status());
+
+            // Crash before the next flush: the journaled changes must be replayed by the next collection
+            assertTrue(movieCollection.updateMovie("Heat", "rating", "99"));
+            assertTrue(movieCollection.updateMovie("Heat", "title", "Heat Two"));
+            assertTrue(movieCollection.removeMovie("Aliens"));
+            assertTrue(movieCollection.addMovie(new Movie("Tab\tTitle", 2001, "Drama", "Some One", 50.0f, false)));
+            assertTrue(movieCollection.awaitDurable());
+            queue.halt();
+            // Another connection writes while the queue cannot: the log must not bring back the states queued over
+            try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+                 Statement stmt = other.createStatement()) {
+                stmt.executeUpdate("INSERT INTO Movies (Title, Release_Year, Genre, Director, Rating, Watched_Status) "
+                        + "VALUES ('Other', 2000, 'Drama', 'Some One', 50.0, 0);");
+            }
+            assertEquals(0, movieCollection.refreshChanges(), "Nothing should be applied while the flush fails.");
+            assertNull(movieCollection.getMovie("Heat"), "The renamed title should not come back from the log.");
+            movieCollection.db_Handler.close();
+
+            movieCollection = new MovieCollection();
+            assertEquals(4, movieCollection.getWriteBehind().getReplayed(), "Every journaled title should be replayed.");
+            assertNull(movieCollection.getMovie("Heat"), "A replayed rename should remove the old title.");
+            assertEquals(99.0f, movieCollection.getMovie("Heat Two").getRating());
+            assertNull(movieCollection.getMovie("Aliens"));
+            assertNotNull(movieCollection.getMovie("Tab\tTitle"), "Escaped fields should survive the journal.");
+            assertTrue(movieCollection.db_Handler.movieExists("Tab\tTitle"), "The replay should reach the database.");
+        } finally {
+            System.clearProperty(DatabaseConfig.WRITE_BEHIND);
+            System.clearProperty(DatabaseConfig.WRITE_BEHIND_FLUSH_MILLIS);
+        }
+        movieCollection.close();
+        File journal = new File(databaseFile.getPath() + WriteBehindQueue.JOURNAL_SUFFIX);
+        assertFalse(journal.exists(), "A clean close should delete the journal.");
+
+        // A journal that cannot be opened leaves write-behind off and returns the writer connection to the pool
+        assertTrue(journal.mkdir());
+        System.setProperty(DatabaseConfig.WRITE_BEHIND, "true");
+        try {
+            movieCollection = new MovieCollection();
+            assertNull(movieCollection.getWriteBehind(), "Write-behind should be off without a journal.");
+            assertEquals(1, movieCollection.db_Handler.getPoolStats().getActive(),
+                    "Only the session connection should stay borrowed.");
+        } finally {
+            System.clearProperty(DatabaseConfig.WRITE_BEHIND);
+            journal.delete();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Startup snapshot
+    /**
+     * Tests that a closed collection is loaded back from its {@link MovieSnapshot} once {@code dms.snapshot} is set,
+     * catching up with logged changes, and that a damaged or mismatched snapshot falls back to the database.
+     *
+     * @throws IOException if the snapshot cannot be damaged
+     * @throws SQLException if the database cannot be changed behind the collection's back
+     */
+    @Test
+    void testSnapshot_LoadsCatchesUpAndFallsBack() throws IOException, SQLException {
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+        movieCollection.addMovie(new Movie("Alien", 1979, "Horror", "Ridley Scott", 90.0f, true));
+        movieCollection.addMovie(new Movie("Amélie", 2001, "Comedy", "Jean Jeunet", 85.5f, true));
+        movieCollection.close();
+        File snapshotFile = new File(databaseFile.getPath() + MovieSnapshot.FILE_SUFFIX);
+        assertFalse(snapshotFile.exists(), "No snapshot should be saved unless enabled.");
+
+        System.setProperty(DatabaseConfig.SNAPSHOT, "true");
+        movieCollection = new MovieCollection();
+        assertFalse(movieCollection.isLoadedFromSnapshot(), "Without a snapshot the database should be read.");
+        movieCollection.close();
+        assertTrue(snapshotFile.exists(), "Closing should save a snapshot once enabled.");
+
+        movieCollection = new MovieCollection();
+        assertTrue(movieCollection.isLoadedFromSnapshot(), "An unchanged database should load from the snapshot.");
+        assertEquals(3, movieCollection.movies.size());
+        Movie amelie = movieCollection.getMovie("Amélie");
+        assertEquals(2001, amelie.getRelease_Year());
+        assertEquals("Jean Jeunet", amelie.getDirector());
+        assertEquals(85.5f, amelie.getRating());
+        assertTrue(amelie.getWatched_Status());
+        assertEquals(3, movieCollection.getStats().getCount(), "Statistics should be rebuilt from the snapshot.");
+        movieCollection.close();
+
+        // Logged changes made by another program are applied on top of the snapshot
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE Movies SET Rating = 50 WHERE Title = 'Heat';");
+            stmt.execute("DELETE FROM Movies WHERE Title = 'Alien';");
+        }
+        movieCollection = new MovieCollection();
+        assertTrue(movieCollection.isLoadedFromSnapshot());
+        assertEquals(50.0f, movieCollection.getMovie("Heat").getRating());
+        assertNull(movieCollection.getMovie("Alien"));
+        movieCollection.close();
+
+        // A damaged snapshot is rejected by its checksum
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(file.length() / 2);
+            int b = file.read();
+            file.seek(file.length() / 2);
+            file.write(b ^ 0xFF);
+        }
+        movieCollection = new MovieCollection();
+        assertFalse(movieCollection.isLoadedFromSnapshot(), "A damaged snapshot should not be used.");
+        assertEquals(2, movieCollection.movies.size());
+        movieCollection.close();
+
+        // A row added without a change log entry makes the counts differ, so the database is read instead
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TRIGGER Movies_Changes_Insert;");
+            stmt.execute("INSERT INTO Movies (Title, Release_Year, Genre, Director, Rating, Watched_Status) "
+                    + "VALUES ('Unlogged', 2000, 'Drama', 'Some One', 10, 0);");
+        }
+        movieCollection = new MovieCollection();
+        assertFalse(movieCollection.isLoadedFromSnapshot(), "A snapshot that misses rows should not be used.");
+        assertNotNull(movieCollection.getMovie("Unlogged"));
+        assertEquals(3, movieCollection.movies.size());
+    }
+
+    /**
+     * Tests that the change log is truncated up to what every reader has applied, that a log created with the old `Op`
+     * column is migrated, and that a snapshot older than the oldest retained entry is not used.
+     *
+     * @throws SQLException if the database cannot be changed behind the collection's back
+     */
+    @Test
+    void testChangeLog_TruncatesMigratesAndFallsBack() throws SQLException {
+        System.setProperty(DatabaseConfig.SNAPSHOT, "true");
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        DatabaseHandler handler = movieCollection.db_Handler;
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+        movieCollection.addMovie(new Movie("Alien", 1979, "Horror", "Ridley Scott", 90.0f, true));
+        handler.recordChangesRead("lagging", handler.getLatestChangeSeq());
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            for (int rating = 1; rating <= 5; rating++) {
+                stmt.execute("UPDATE Movies SET Rating = " + rating + " WHERE Title = 'Heat';");
+            }
+        }
+        long latest = handler.getLatestChangeSeq();
+        assertTrue(movieCollection.refreshChanges() > 0, "The changes should be loaded.");
+        assertEquals(5.0f, movieCollection.getMovie("Heat").getRating());
+        assertEquals(0, movieCollection.refreshChanges(), "An unchanged database should not be read again.");
+        assertEquals(5, countRows(url, "SELECT COUNT(*) FROM Movies_Changes;"),
+                "The entries a lagging reader has not applied should be kept.");
+        assertTrue(handler.hasChangesSince(latest - 5));
+
+        handler.forgetChangeReader("lagging");
+        handler.truncateChangeLog();
+        assertEquals(1, countRows(url, "SELECT COUNT(*) FROM Movies_Changes;"),
+                "Only the newest entry should be kept once every reader has applied the log.");
+        assertEquals(latest, handler.getLatestChangeSeq(), "Truncating should keep the newest entry.");
+
+        // A change log of an older version is migrated without its Op column
+        movieCollection.close();
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TRIGGER Movies_Changes_Insert;");
+            stmt.execute("DROP TRIGGER Movies_Changes_Update;");
+            stmt.execute("DROP TRIGGER Movies_Changes_Delete;");
+            stmt.execute("ALTER TABLE Movies_Changes ADD COLUMN Op TEXT NOT NULL DEFAULT 'U';");
+            stmt.execute("CREATE TRIGGER Movies_Changes_Insert AFTER INSERT ON Movies BEGIN "
+                    + "INSERT INTO Movies_Changes (Title, Op) VALUES (NEW.Title, 'U'); END;");
+        }
+        movieCollection = new MovieCollection();
+        assertEquals(0, countRows(url, "SELECT COUNT(*) FROM pragma_table_info('Movies_Changes') WHERE name = 'Op';"),
+                "The Op column should be dropped.");
+        assertTrue(movieCollection.addMovie(new Movie("Amélie", 2001, "Comedy", "Jean Jeunet", 85.5f, true)));
+        movieCollection.close();
+
+        // Entries the snapshot still needed are gone, so the database is read instead
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE Movies SET Rating = 60 WHERE Title = 'Alien';");
+            stmt.execute("UPDATE Movies SET Rating = 70 WHERE Title = 'Heat';");
+            stmt.execute("DELETE FROM Movies_Changes WHERE Seq < (SELECT MAX(Seq) FROM Movies_Changes);");
+        }
+        movieCollection = new MovieCollection();
+        assertFalse(movieCollection.isLoadedFromSnapshot(), "A snapshot the log no longer reaches should not be used.");
+        assertEquals(60.0f, movieCollection.getMovie("Alien").getRating());
+        assertEquals(70.0f, movieCollection.getMovie("Heat").getRating());
+        assertEquals(3, movieCollection.movies.size());
+    }
+
+    /**
+     * Reads a single count from the test database.
+     *
+     * @param url the database URL
+     * @param sql a query returning one number
+     * @return the number
+     * @throws SQLException if the query fails
+     */
+    private static long countRows(String url, String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //HTTP API
+    /**
+     * Tests the {@link MovieServer} endpoints end to end: adding, reading, paging, changing, searching, statistics and
+     * removing movies, and the status codes of invalid requests.
+     *
+     * @throws IOException if a request cannot be sent
+     * @throws InterruptedException if a request is interrupted
+     */
+    @Test
+    void testMovieServer_CrudSearchAndStats() throws IOException, InterruptedException {
+        MovieServer server = new MovieServer(movieCollection, 0);
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            String base = "http://localhost:" + server.getPort();
+            String heat = "{\"title\":\"Heat\",\"releaseYear\":1995,\"genre\":\"Crime\","
+                    + "\"director\":\"Michael Mann\",\"rating\":88.5,\"watched\":true}";
+
+            HttpResponse<String> created = send(client, "POST", base + "/movies", heat);
+            assertEquals(201, created.statusCode());
+            assertEquals("/movies/Heat", created.headers().firstValue("Location").orElse(null));
+            assertEquals(88.5f, movieCollection.getMovie("Heat").getRating());
+            assertEquals(409, send(client, "POST", base + "/movies", heat).statusCode(), "A duplicate should conflict.");
+            assertEquals(400, send(client, "POST", base + "/movies", heat.replace("1995", "1800")).statusCode());
+            assertEquals(400, send(client, "POST", base + "/movies", "{\"title\":").statusCode());
+            assertEquals(201, send(client, "POST", base + "/movies", "{\"title\":\"The Insider\",\"release_year\":\"1999\","
+                    + "\"genre\":\"Drama\",\"director\":\"Michael Mann\",\"rating\":80}").statusCode());
+
+            HttpResponse<String> read = send(client, "GET", base + "/movies/The%20Insider", null);
+            assertEquals(200, read.statusCode());
+            assertTrue(read.body().contains("\"releaseYear\":1999") && read.body().contains("\"watched\":false"), read.body());
+            assertEquals(404, send(client, "GET", base + "/movies/Missing", null).statusCode());
+
+            HttpResponse<String> page = send(client, "GET", base + "/movies?director=michael%20mann&sort=rating&order=desc&limit=1", null);
+            assertEquals(200, page.statusCode());
+            assertTrue(page.body().startsWith("{\"movies\":[{\"title\":\"Heat\"") && !page.body().contains("\"next\":null"),
+                    page.body());
+            assertEquals(400, send(client, "GET", base + "/movies?sort=budget", null).statusCode());
+
+            HttpResponse<String> changed = send(client, "PATCH", base + "/movies/Heat", "{\"rating\":91,\"title\":\"Heat 2\"}");
+            assertEquals(200, changed.statusCode(), changed.body());
+            assertNull(movieCollection.getMovie("Heat"));
+            assertEquals(91.0f, movieCollection.getMovie("Heat 2").getRating());
+            assertEquals(400, send(client, "PATCH", base + "/movies/Heat%202", "{\"rating\":500}").statusCode());
+            assertEquals(400, send(client, "PATCH", base + "/movies/Heat%202", "{\"budget\":5}").statusCode());
+            assertEquals(409, send(client, "PATCH", base + "/movies/Heat%202", "{\"title\":\"The Insider\"}").statusCode());
+            assertEquals(91.0f, movieCollection.getMovie("Heat 2").getRating(), "A rejected change should change nothing.");
+
+            HttpResponse<String> found = send(client, "GET", base + "/search?q=insid", null);
+            assertEquals(200, found.statusCode());
+            assertTrue(found.body().startsWith("[{\"title\":\"The Insider\""), found.body());
+
+            HttpResponse<String> stats = send(client, "GET", base + "/stats", null);
+            assertEquals(200, stats.statusCode());
+            assertTrue(stats.body().startsWith("{\"count\":2,\"average\":85.5,"), stats.body());
+
+            assertEquals(204, send(client, "DELETE", base + "/movies/Heat%202", null).statusCode());
+            assertEquals(404, send(client, "DELETE", base + "/movies/Heat%202", null).statusCode());
+            assertNull(movieCollection.getMovie("Heat 2"));
+            assertEquals(405, send(client, "PUT", base + "/movies", "{}").statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests the {@link ResponseCache}: entries are only returned for the version they were built at, the least recently
+     * used entries are evicted at the byte cap, and the server answers a matching {@code If-None-Match} with 304, also
+     * after an unrelated write has made the cached entry stale.
+     *
+     * @throws IOException if a request cannot be sent
+     * @throws InterruptedException if a request is interrupted
+     */
+    @Test
+    void testResponseCache_ETagsVersionsAndEviction() throws IOException, InterruptedException {
+        byte[] body = new byte[100];
+        long entryBytes = ResponseCache.ENTRY_OVERHEAD + body.length + 2 * "/a".length();
+        ResponseCache cache = new ResponseCache(2 * entryBytes);
+        ResponseCache.Entry a = cache.put("/a", 1, body);
+        cache.put("/b", 1, body);
+        assertSame(a, cache.get("/a", 1));
+        cache.put("/c", 1, body);
+        assertNull(cache.get("/b", 1), "The least recently used entry should be evicted at the byte cap.");
+        assertNotNull(cache.get("/a", 1));
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getBytes() <= 2 * entryBytes);
+        assertNull(cache.get("/a", 2), "An entry built at an older version should not be returned.");
+        assertEquals(1, cache.size());
+        cache.put("/big", 1, new byte[(int) (3 * entryBytes)]);
+        assertEquals(1, cache.size(), "A body larger than the cap should not be cached.");
+        assertTrue(a.matches(a.getETag()) && a.matches("W/\"x\", " + a.getETag()) && a.matches("*"));
+        assertFalse(a.matches("\"x\"") || a.matches(null));
+
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+        MovieServer server = new MovieServer(movieCollection, 0);
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            String url = "http://localhost:" + server.getPort() + "/movies/Heat";
+            HttpResponse<String> first = send(client, "GET", url, null);
+            String eTag = first.headers().firstValue("ETag").orElse(null);
+            assertEquals(200, first.statusCode());
+            assertNotNull(eTag);
+            assertEquals("MISS", first.headers().firstValue("X-Cache").orElse(null));
+            HttpResponse<String> second = send(client, "GET", url, null);
+            assertEquals("HIT", second.headers().firstValue("X-Cache").orElse(null));
+            assertEquals(first.body(), second.body());
+
+            HttpResponse<String> revalidated = conditionalGet(client, url, eTag);
+            assertEquals(304, revalidated.statusCode());
+            assertEquals("", revalidated.body());
+
+            // Another movie changes the version, but not this body, so the client's copy is still current
+            long version = movieCollection.getVersion();
+            movieCollection.addMovie(new Movie("Alien", 1979, "Horror", "Ridley Scott", 90.0f, true));
+            assertTrue(movieCollection.getVersion() > version);
+            HttpResponse<String> rebuilt = conditionalGet(client, url, eTag);
+            assertEquals(304, rebuilt.statusCode());
+            assertEquals("MISS", rebuilt.headers().firstValue("X-Cache").orElse(null));
+
+            movieCollection.updateMovie("Heat", "rating", "91");
+            HttpResponse<String> changed = conditionalGet(client, url, eTag);
+            assertEquals(200, changed.statusCode());
+            assertNotEquals(eTag, changed.headers().firstValue("ETag").orElse(null));
+            assertTrue(changed.body().contains("\"rating\":91.0"), changed.body());
+            assertTrue(server.getCache().getHits() >= 1);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Sends a GET to the test server with an {@code If-None-Match} header.
+     *
+     * @param client the client
+     * @param url the URL
+     * @param eTag the ETag the client holds
+     * @return the response
+     * @throws IOException if the request cannot be sent
+     * @throws InterruptedException if the request is interrupted
+     */
+    private static HttpResponse<String> conditionalGet(HttpClient client, String url, String eTag)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("If-None-Match", eTag).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sends a request to the test server.
+     *
+     * @param client the client
+     * @param method the HTTP method
+     * @param url the URL
+     * @param body the JSON body, or null for none
+     * @return the response
+     * @throws IOException if the request cannot be sent
+     * @throws InterruptedException if the request is interrupted
+     */
+    private static HttpResponse<String> send(HttpClient client, String method, String url, String body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Paged database queries
+    /**
+     * Tests {@link DatabaseHandler#queryMovies(MovieQuery, String)} by paging through the whole table in every order.
+     * <p>
+     * Following the cursors from the first page must visit every matching movie exactly once, in order of the sort
+     * column, for each sort field in both directions and with a genre filter. A row without a rating, as an older
+     * database may hold, must come after all rated rows. A cursor made for another order must be rejected.
+     * </p>
+     *
+     * @throws SQLException if the database cannot be read
+     */
+    @Test
+    void testQueryMovies_KeysetPaging() throws SQLException {
+        for (int i = 0; i < 40; i++) {
+            movieCollection.addMovie(new Movie("Film " + i, 1990 + i % 7, i % 3 == 0 ? "Drama" : "Crime",
+                    "Director " + i % 4, i % 5 * 10, i % 2 == 0));
+        }
+        try (Statement stmt = movieCollection.db_Handler.getConnection().createStatement()) {
+            stmt.execute("INSERT INTO Movies (Title, Release_Year, Genre, Director, Rating, Watched_Status) "
+                    + "VALUES ('Unrated', 2000, 'drama', 'Director 1', NULL, 0);");
+        }
+        DatabaseHandler handler = movieCollection.db_Handler;
+
+        for (String field : new String[] {"title", "release_year", "genre", "director", "rating", "watched_status"}) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                for (String genre : new String[] {null, "DRAMA"}) {
+                    MovieQuery query = new MovieQuery(genre, null, field, ascending, 3);
+                    List<Movie> all = new ArrayList<>();
+                    MoviePage page = handler.queryMovies(query, null);
+                    all.addAll(page.getMovies());
+                    while (page.hasMore()) {
+                        page = handler.queryMovies(query, page.getNextCursor());
+                        assertFalse(page.getMovies().isEmpty(), "A page with a cursor before it should not be empty.");
+                        all.addAll(page.getMovies());
+                    }
+                    String order = field + (ascending ? " ascending" : " descending") + " genre " + genre;
+                    assertEquals(genre == null ? 41 : 15, all.size(), "Every movie should be paged once: " + order);
+                    assertEquals(all.size(), all.stream().map(Movie::getTitle).distinct().count(), order);
+                    if (field.equals("rating")) {
+                        assertEquals("Unrated", all.get(all.size() - 1).getTitle(), "NULL should come last: " + order);
+                        all.remove(all.size() - 1);
+                    }
+                    for (int i = 1; i < all.size(); i++) {
+                        int compared = compareBy(field, all.get(i - 1), all.get(i));
+                        assertTrue(ascending ? compared <= 0 : compared >= 0, "Out of order: " + order);
+                    }
+                }
+            }
+        }
+
+        String cursor = handler.queryMovies(new MovieQuery(null, null, "rating", true, 5), null).getNextCursor();
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.queryMovies(new MovieQuery(null, null, "title", true, 5), cursor));
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.queryMovies(new MovieQuery(null, null, "title", true, 5), "not a cursor"));
+    }
+
+    /**
+     * Compares two movies by one sort field.
+     *
+     * @param field the sort field
+     * @param a the first movie
+     * @param b the second movie
+     * @return the comparison of the field values
+     */
+    private static int compareBy(String field, Movie a, Movie b) {
+        switch (field) {
+            case "release_year":
+                return Integer.compare(a.getRelease_Year(), b.getRelease_Year());
+            case "genre":
+                return a.getGenre().compareTo(b.getGenre());
+            case "director":
+                return a.getDirector().compareTo(b.getDirector());
+            case "rating":
+                return Float.compare(a.getRating(), b.getRating());
+            case "watched_status":
+                return Boolean.compare(a.getWatched_Status(), b.getWatched_Status());
+            default:
+                return a.getTitle().compareTo(b.getTitle());
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Shared genre and director strings
+    /**
+     * Tests that movies share their genre and director strings through {@link MovieDictionary}.
+     * <p>
+     * Movies built from separate copies of the same text, as rows read from the database are, must end up holding the
+     * same instances, a genre spelled differently must keep its spelling, and the genre must be available as its enum
+     * constant. Movies loaded back from the database must share the instances as well.
+     * </p>
+     */
+    @Test
+    void testMovieDictionary_SharesStrings() {
+        Movie first = new Movie("Heat", 1995, new String("Crime"), new String("Michael Mann"), 88.0f, false);
+        Movie second = new Movie("Collateral", 2004, new String("Crime"), new String("Michael Mann"), 86.0f, true);
+        assertSame(first.getGenre(), second.getGenre(), "Equal genres should be one instance.");
+        assertSame(first.getDirector(), second.getDirector(), "Equal directors should be one instance.");
+        assertSame(Genre.CRIME, first.getGenreValue());
+
+        Movie lowerCase = new Movie("Dunkirk", 2017, new String("war"), "Christopher Nolan", 80.0f, true);
+        assertEquals("war", lowerCase.getGenre(), "The genre should keep its spelling.");
+        assertSame(Genre.WAR, lowerCase.getGenreValue());
+        assertNull(new Movie("Cats", 2019, "Musical", "Tom Hooper", 10.0f, false).getGenreValue());
+
+        movieCollection.addMovie(first);
+        movieCollection.addMovie(lowerCase);
+        movieCollection.refreshMovies();
+        assertSame(second.getDirector(), movieCollection.getMovie("Heat").getDirector(),
+                "Movies loaded from the database should share the same instances.");
+        assertEquals(1, movieCollection.findByGenre("WAR").size(), "Genre lookups should still ignore case.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Columnar store
+    /**
+     * Tests a collection that keeps its movies in a {@link MovieColumnStore}.
+     * <p>
+     * The collection is created with {@code dms.store=columnar} and must behave like the default one: adding, updating,
+     * renaming and removing movies, answering genre, director, year and rating queries, and keeping the statistics in
+     * step with the database. Enough movies are stored that the columns and the title index grow and removals move rows.
+     * Unfiltered listings must be in the same order as the default indexes give, and read a movie removed since as null.
+     * </p>
+     */
+    @Test
+    void testColumnarStore() {
+        movieCollection.close();
+        System.setProperty(DatabaseConfig.STORE, "columnar");
+        try {
+            movieCollection = new MovieCollection();
+        } finally {
+            System.clearProperty(DatabaseConfig.STORE);
+        }
+        assertInstanceOf(MovieColumnStore.class, movieCollection.movies, "The columnar store should be used.");
+
+        for (int i = 0; i < 100; i++) {
+            String genre = i % 2 == 0 ? "Drama" : "Comedy";
+            assertTrue(movieCollection.addMovie(new Movie("Film " + i, 1950 + i, genre, "Director " + (i % 10),
+                    i % 100, i % 3 == 0)), "Movie should be added successfully.");
+        }
+        assertFalse(movieCollection.addMovie(new Movie("Film 5", 2000, "Drama", "Someone", 50.0f, false)),
+                "A duplicate title should be rejected.");
+
+        Movie film = movieCollection.getMovie("Film 7");
+        assertEquals(1957, film.getRelease_Year());
+        assertEquals("Comedy", film.getGenre());
+        assertEquals("Director 7", film.getDirector());
+        assertEquals(7.0f, film.getRating());
+        assertFalse(film.getWatched_Status());
+
+        assertTrue(movieCollection.updateMovie("Film 7", "rating", "99"), "Rating should be updated.");
+        assertEquals(99.0f, movieCollection.getMovie("Film 7").getRating());
+        assertTrue(movieCollection.updateMovie("Film 7", "title", "Renamed"), "Title should be updated.");
+        assertNull(movieCollection.getMovie("Film 7"));
+        assertEquals("Comedy", movieCollection.getMovie("Renamed").getGenre());
+
+        for (int i = 0; i < 100; i += 4) {
+            assertTrue(movieCollection.removeMovie("Film " + i), "Movie should be removed.");
+        }
+        assertEquals(75, movieCollection.movies.size());
+        for (int i = 1; i < 100; i++) {
+            String title = i == 7 ? "Renamed" : "Film " + i;
+            assertEquals(i % 4 != 0, movieCollection.getMovie(title) != null, "Lookup of " + title);
+        }
+
+        assertEquals(25, movieCollection.findByGenre("drama").size(), "Genre queries should ignore case.");
+        assertEquals(5, movieCollection.findByDirector("Director 4").size(), "Removed movies should leave the director query.");
+        List<Movie> fifties = movieCollection.findByYearRange(1950, 1959);
+        assertEquals(List.of(1951, 1952, 1953, 1955, 1956, 1957, 1959),
+                fifties.stream().map(Movie::getRelease_Year).toList(), "Years should be in range and in order.");
+        List<Movie> byRating = movieCollection.findMovies(null, null, "rating", false);
+        assertEquals("Renamed", byRating.get(0).getTitle(), "The highest rating should come first.");
+        assertEquals(75, byRating.size());
+        List<String> byTitle = titles(movieCollection.findMovies(null, null, "title", true));
+        List<String> expected = new ArrayList<>(byTitle);
+        expected.sort(MovieLookup.TITLE_ORDER);
+        assertEquals(expected, byTitle, "Titles should be in order.");
+        assertEquals(75, byTitle.size());
+
+        assertTrue(movieCollection.verifyStats(), "Statistics should match the SQL aggregate.");
+        assertTrue(movieCollection.getFootprintReport().contains("75 movies"));
+
+        // Unfiltered listings are views over sorted titles and must match the order of the default indexes
+        MovieIndex index = new MovieIndex();
+        movieCollection.movies.values().forEach(index::add);
+        for (boolean ascending : new boolean[] {true, false}) {
+            assertEquals(titles(index.orderedByTitle(ascending)),
+                    titles(movieCollection.findMovies(null, null, "title", ascending)), "Sorting by title");
+            for (MovieColumn column : List.of(MovieColumn.GENRE, MovieColumn.DIRECTOR, MovieColumn.WATCHED_STATUS)) {
+                assertEquals(titles(index.orderedByGroup(column, ascending)),
+                        titles(movieCollection.findMovies(null, null, column.getFieldName(), ascending)),
+                        "Sorting by " + column.getFieldName() + (ascending ? " ascending" : " descending"));
+            }
+        }
+        List<Movie> view = movieCollection.findMovies(null, null, "genre", true);
+        assertTrue(movieCollection.removeMovie(view.get(0).getTitle()), "Movie should be removed.");
+        assertNull(view.get(0), "A movie removed after the view was made should read as null.");
+        assertEquals(75, view.size(), "The view should keep its size.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Parallel import pipeline
+    /**
+     * Tests that the {@link MovieImportPipeline} keeps file order with several workers and small chunks.
+     * <p>
+     * Chunks are parsed out of order by four workers, but the committed movies must come out in file order, the first
+     * copy of a duplicate title must win and invalid lines must be skipped.
+     * </p>
+     *
+     * @throws IOException if the temporary file cannot be written
+     * @throws SQLException if the import fails
+     */
+    @Test
+    void testImportPipeline_KeepsFileOrder() throws IOException, SQLException {
+        File tempFile = File.createTempFile("movies", ".txt");
+        tempFile.deleteOnExit(); // Clean up after the test
+        try (FileWriter writer = new FileWriter(tempFile)) {
+            for (int i = 0; i < 40; i++) {
+                writer.write("Movie " + i + ",2000,Drama,Jane Campion,50.0,true\n");
+            }
+            writer.write("Movie 3,2001,Crime,Michael Mann,99.0,false\n"); // Duplicate, must be skipped
+            writer.write("Broken line\n");
+        }
+
+        List<String> committed = new ArrayList<>();
+        MovieImportPipeline pipeline = new MovieImportPipeline(movieCollection.db_Handler.getConnection(), 7, 4, 3, 1);
+        pipeline.setCommitListener(batch -> batch.forEach(movie -> committed.add(movie.getTitle())));
+        ImportSummary summary = pipeline.run(tempFile.getAbsolutePath());
+
+        assertEquals(40, summary.getImported(), "Every unique valid movie should be imported.");
+        assertEquals(2, summary.getSkipped(), "The duplicate and the broken line should be skipped.");
+        for (int i = 0; i < 40; i++) {
+            assertEquals("Movie " + i, committed.get(i), "Movies should be committed in file order.");
+        }
+        assertEquals(42, pipeline.getStats().getLinesParsed(), "Every line should pass through a parse worker.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Memory-mapped CSV import
+    /**
+     * Tests {@link MappedCsvReader} on quoted fields, escaped quotes and Windows line breaks.
+     * <p>
+     * A tiny window forces records to be read across window boundaries, and every valid record should come out the same
+     * as it was written, while a record with a comma-split title or an unterminated quote is rejected.
+     * </p>
+     */
+    @Test
+    void testMappedCsvReader_QuotedFieldsAcrossWindows() throws IOException {
+        File tempFile = File.createTempFile("movies", ".csv");
+        tempFile.deleteOnExit(); // Clean up after the test
+        try (FileWriter writer = new FileWriter(tempFile)) {
+            writer.write("\"Crouching Tiger, Hidden Dragon\",2000,Action,Ang Lee,87.5,false\r\n");
+            writer.write("  \"The \"\"Best\"\" Movie\" , 1999 , drama , Jane Campion , 12 , TRUE \n");
+            writer.write("The 12\" Record,2010,Comedy,Edgar Wright,70.25,true,\n");
+            writer.write("Unquoted, Comma,2000,Drama,Jane Campion,50.0,true\n");
+            writer.write("\"Never closed,2000,Drama,Jane Campion,50.0,true\n");
+            writer.write("Last,2024,War,Sam Mendes,1e1,false");
+        }
+
+        List<Movie> parsed = new ArrayList<>();
+        int records = 0;
+        try (MappedCsvReader.Chunker chunker = new MappedCsvReader.Chunker(tempFile.getAbsolutePath(), 2, 80)) {
+            MappedCsvReader reader;
+            while ((reader = chunker.next()) != null) {
+                while (reader.nextRecord()) {
+                    records++;
+                    Movie movie = MovieCollection.parseMovieRecord(reader);
+                    if (movie != null) {
+                        parsed.add(movie);
+                    }
+                }
+            }
+            assertEquals(tempFile.length(), chunker.getPosition(), "The whole file should be read.");
+        }
+
+        assertEquals(6, records, "Every line should be one record.");
+        assertEquals(4, parsed.size(), "The split title and the unterminated quote should be rejected.");
+        assertEquals("Crouching Tiger, Hidden Dragon", parsed.get(0).getTitle(), "Quoted commas belong to the field.");
+        assertEquals(87.5f, parsed.get(0).getRating(), 0.0001f);
+        assertEquals("The \"Best\" Movie", parsed.get(1).getTitle(), "Doubled quotes should become one quote.");
+        assertEquals("drama", parsed.get(1).getGenre(), "The genre should keep its spelling.");
+        assertEquals("Jane Campion", parsed.get(1).getDirector(), "Unquoted fields should be trimmed.");
+        assertTrue(parsed.get(1).getWatched_Status());
+        assertEquals("The 12\" Record", parsed.get(2).getTitle(), "A quote inside a field is a plain character.");
+        assertEquals(70.25f, parsed.get(2).getRating(), 0.0001f);
+        assertEquals(10.0f, parsed.get(3).getRating(), 0.0001f, "Exponents should still be accepted.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Shared validation rules
+    /**
+     * Tests {@link MovieValidator} and {@link Genre#lookup(CharSequence)}.
+     * <p>
+     * Every genre should be found in any case, and each invalid field should be reported with its own
+     * {@link ValidationError}, while the parsed values of a valid row are kept in the validator.
+     * </p>
+     */
+    @Test
+    void testMovieValidator_StructuredErrors() {
+        for (Genre genre : Genre.values()) {
+            assertEquals(genre, Genre.lookup(genre.getDisplayName().toUpperCase()), "Genres should ignore case.");
+        }
+        assertNull(Genre.lookup("Musical"), "Unknown genres should not be found.");
+        assertNull(Genre.lookup("Wars"), "Only whole names should match.");
+        assertNull(Genre.lookup("Science_Fiction"), "Only letters may differ in case.");
+
+        MovieValidator validator = new MovieValidator();
+        assertNull(validator.validate("Heat", "1995", "crime", "Michael Mann", "88.5", "TRUE"));
+        assertEquals(1995, validator.getYear());
+        assertEquals(88.5f, validator.getRating(), 0.0001f);
+        assertEquals(Genre.CRIME, validator.getGenre());
+        assertTrue(validator.isWatched());
+
+        assertEquals(ValidationError.TITLE_LENGTH, validator.validate("", "1995", "Crime", "Michael Mann", "88", "true"));
+        assertEquals(ValidationError.YEAR_FORMAT, validator.validate("Heat", "19x5", "Crime", "Michael Mann", "88", "true"));
+        assertEquals(ValidationError.YEAR_RANGE, validator.validate("Heat", "1800", "Crime", "Michael Mann", "88", "true"));
+        assertEquals(ValidationError.GENRE, validator.validate("Heat", "1995", "Musical", "Michael Mann", "88", "true"));
+        assertEquals(ValidationError.DIRECTOR_CHARACTERS, validator.validate("Heat", "1995", "Crime", "M1chael", "88", "true"));
+        assertEquals(ValidationError.DIRECTOR_LENGTH, validator.validate("Heat", "1995", "Crime", "M", "88", "true"));
+        assertEquals(ValidationError.RATING_FORMAT, validator.validate("Heat", "1995", "Crime", "Michael Mann", "8,8", "true"));
+        assertEquals(ValidationError.RATING_RANGE, validator.validate("Heat", "1995", "Crime", "Michael Mann", "NaN", "true"));
+        assertEquals(ValidationError.WATCHED_STATUS, validator.validate("Heat", "1995", "Crime", "Michael Mann", "88", "yes"));
+        assertEquals(ValidationError.UNKNOWN_FIELD, validator.validateField("budget", "100"));
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Filtered and sorted table views
+    /**
+     * Tests {@link MovieCollection#findMovies(String, String, String, boolean)} used by the movie table.
+     * <p>
+     * Sorting by year or rating without a filter should follow the index order, and genre and director filters should
+     * combine.
+     * </p>
+     */
+    @Test
+    void testFindMovies_SortAndFilter() {
+        movieCollection.addMovie(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+        movieCollection.addMovie(new Movie("Memento", 2000, "Crime", "Christopher Nolan", 91.0f, true));
+
+        assertEquals("Heat", movieCollection.findMovies(null, null, "release_year", true).get(0).getTitle(),
+                "Heat is the oldest movie.");
+        assertEquals("Inception", movieCollection.findMovies(null, null, "rating", false).get(0).getTitle(),
+                "Inception has the highest rating.");
+        assertEquals("Heat", movieCollection.findMovies(null, null, "title", true).get(0).getTitle(),
+                "Heat comes first by title.");
+        assertEquals(2, movieCollection.findMovies("crime", null, "title", true).size(), "Two movies are crime movies.");
+        assertEquals("Memento", movieCollection.findMovies("Crime", "christopher nolan", null, true).get(0).getTitle(),
+                "Only Memento is a crime movie by Christopher Nolan.");
+        assertEquals(1, movieCollection.findMovies("Crime", "Christopher Nolan", null, true).size(),
+                "Genre and director filters should combine.");
+
+        // Unfiltered sorts walk the title index: ties keep title order, and descending reverses both
+        assertEquals(List.of("Heat", "Memento", "Inception"), titles(movieCollection.findMovies(null, null, "genre", true)));
+        assertEquals(List.of("Inception", "Memento", "Heat"), titles(movieCollection.findMovies(null, null, "genre", false)));
+        assertEquals(List.of("Inception", "Memento", "Heat"), titles(movieCollection.findMovies(null, null, "director", true)));
+        assertEquals(List.of("Heat", "Inception", "Memento"),
+                titles(movieCollection.findMovies(null, null, "watched_status", true)));
+        assertEquals(List.of("Memento", "Inception", "Heat"), titles(movieCollection.findMovies(null, null, "title", false)));
+        movieCollection.removeMovie("Heat");
+        assertEquals(List.of("Inception", "Memento"), titles(movieCollection.findMovies(null, null, "title", true)),
+                "A removed movie should leave the title index.");
+    }
+
+    /**
+     * Tests that {@link MovieTableModel} takes a row's movie from its list only when that row is read.
+     * <p>
+     * The model is given a list that counts its reads. Setting it and asking for the row count must read nothing, and
+     * reading every cell of one row must take that row's movie once.
+     * </p>
+     */
+    @Test
+    void testMovieTableModel_ReadsVisibleRowsOnly() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            movies.add(new Movie("Movie " + i, 2000, "Drama", "Jane Campion", 50.0f, false));
+        }
+        int[] reads = new int[1];
+        List<Movie> counting = new AbstractList<>() {
+            @Override
+            public Movie get(int index) {
+                reads[0]++;
+                return movies.get(index);
+            }
+
+            @Override
+            public int size() {
+                return movies.size();
+            }
+        };
+
+        MovieTableModel model = new MovieTableModel();
+        model.setMovies(counting);
+        assertEquals(1000, model.getRowCount(), "Every movie should be a row.");
+        assertEquals(0, reads[0], "No movie should be taken before a row is read.");
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            model.getValueAt(500, column);
+        }
+        assertEquals("Movie 500", model.getValueAt(500, 0), "The row should show its movie.");
+        assertEquals(1, reads[0], "Reading the cells of one row should take its movie once.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //SQLite performance profile and schema check
+    /**
+     * Tests that connecting tunes SQLite and creates the missing lookup indexes once.
+     * <p>
+     * The test database has no indexes, so the first connect must create all five. Connecting again must find them and
+     * change nothing. Allowing unique titles must then add the unique Title index and keep the existing plain one.
+     * </p>
+     *
+     * @throws SQLException if the indexes cannot be read
+     */
+    @Test
+    void testConnect_AppliesProfileAndIndexes() throws SQLException {
+        DatabaseHandler handler = movieCollection.db_Handler;
+        assertEquals("WAL", handler.getSqliteSettings().get("journal_mode"), "The database should use write-ahead logging.");
+        assertEquals("NORMAL", handler.getSqliteSettings().get("synchronous"), "Synchronous should be NORMAL.");
+        assertEquals(5, handler.getSchemaChanges().size(), "Indexes on Title, Genre, Director, Release_Year and Rating should be created.");
+
+        assertTrue(handler.connect(databaseFile.getAbsolutePath()), "Reconnecting should succeed.");
+        assertTrue(handler.getSchemaChanges().isEmpty(), "Existing indexes should not be created again.");
+        assertFalse(handler.hasUniqueTitles(), "Title should not be made unique unless allowed.");
+
+        System.setProperty(DatabaseConfig.UNIQUE_TITLES, "true");
+        movieCollection.close();
+        movieCollection = new MovieCollection();
+        handler = movieCollection.db_Handler;
+        assertTrue(handler.hasUniqueTitles(), "Title should be made unique once allowed.");
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        assertEquals(2L, countRows(url, "SELECT COUNT(*) FROM pragma_index_list('Movies') WHERE name IN ('idx_movies_title', "
+                + "'idx_movies_title_unique');"), "The plain Title index should be kept next to the unique one.");
+    }
+
+    /**
+     * Tests that closing the last handler on a database shuts down its connection pool.
+     * <p>
+     * Closing another handler on the same database must leave the shared pool open. Once the last one is closed, a writer
+     * connection still borrowed should be closed when it is returned instead of being kept idle, the old pool should
+     * refuse new borrows, and the next connection to the same database should come from a new pool.
+     * </p>
+     *
+     * @throws SQLException if the writer connection cannot be borrowed
+     */
+    @Test
+    void testClose_ShutsDownPool() throws SQLException {
+        DatabaseHandler handler = movieCollection.db_Handler;
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        ConnectionPool pool = ConnectionPool.forUrl(url);
+        Connection writer = handler.openWriterConnection();
+
+        DatabaseHandler other = new DatabaseHandler();
+        assertTrue(other.connect(databaseFile.getAbsolutePath()));
+        other.close();
+        assertFalse(pool.isShutDown(), "Closing another handler should leave the shared pool open.");
+        assertNotNull(handler.getPoolStats());
+
+        handler.close();
+        assertTrue(pool.isShutDown(), "Closing the handler should shut down its pool.");
+        assertNull(handler.getPoolStats(), "A closed handler should have no pool.");
+        assertEquals(0, pool.getStats().getIdle(), "The session connection should not be kept idle.");
+
+        writer.close();
+        assertEquals(0, pool.getStats().getIdle(), "A connection returned after shutdown should be closed.");
+        assertThrows(SQLException.class, pool::getConnection, "A shut down pool should not lend connections.");
+        assertNotSame(pool, ConnectionPool.forUrl(url), "The next connection should come from a new pool.");
+        assertTrue(handler.connect(databaseFile.getAbsolutePath()), "Reconnecting after close should succeed.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Streaming cursor over the Movies table
+    /**
+     * Tests that {@link Movies#selectCursor} and {@link Movies#selectStream} read every row.
+     * <p>
+     * The cursor's typed accessors should return the stored values, and closing the stream should close the cursor.
+     * </p>
+     *
+     * @throws SQLException if the cursor cannot be read
+     */
+    @Test
+    void testMoviesCursor_StreamsRows() throws SQLException {
+        movieCollection.addMovie(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+        Movies moviesTable = new Movies(databaseFile.getAbsolutePath());
+
+        int years = 0;
+        try (RowCursor row = moviesTable.selectCursor("Title, Release_Year", null, null, "Title", "ASC", 1)) {
+            assertTrue(row.next(), "The first row should be readable.");
+            assertEquals("Heat", row.getString(1), "Rows should be sorted by title.");
+            years += row.getInt(2);
+            assertTrue(row.next(), "The second row should be readable.");
+            years += row.getInt(2);
+            assertFalse(row.next(), "There should be only two rows.");
+        }
+        assertEquals(1995 + 2010, years, "The typed accessors should return the stored years.");
+
+        try (Stream<RowCursor> rows = moviesTable.selectStream(null, null, null, null, null, 100)) {
+            assertEquals(2, rows.count(), "The stream should contain every row.");
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Secondary index lookups
+    /**
+     * Tests the genre, director, year and rating lookups and that they follow updates.
+     * <p>
+     * This test verifies that the indexes return the right movies and that changing a movie moves it to its new index entries.
+     * </p>
+     */
+    @Test
+    void testFindByIndexes() {
+        movieCollection.addMovie(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+        movieCollection.addMovie(new Movie("Heat", 1995, "Crime", "Michael Mann", 88.0f, false));
+
+        assertEquals(1, movieCollection.findByGenre("science fiction").size(), "Genre lookup should ignore case.");
+        assertEquals(1, movieCollection.findByDirector("Michael Mann").size(), "Director lookup should find Heat.");
+        assertEquals(1, movieCollection.findByYearRange(1990, 1999).size(), "Only Heat was released in the 90s.");
+        assertEquals(2, movieCollection.findByRatingRange(80f, 100f).size(), "Both movies are rated 80 or higher.");
+
+        assertTrue(movieCollection.updateMovie("Heat", "release_year", "2005"), "Release year should be updated.");
+        assertTrue(movieCollection.findByYearRange(1990, 1999).isEmpty(), "Heat should have left the 90s index entry.");
+        assertEquals(2, movieCollection.findByYearRange(2000, 2010).size(), "Heat should be found under its new year.");
+    }
+
 //======================================================================================================================
     //Opening a File Test (Reading from File)
     //In your video demonstration, a unit test correctly verifies that a file can be opened.
@@ -249,12 +1509,14 @@ public class MovieCollectionTest {
         try (FileWriter writer = new FileWriter(tempFile)) {
             writer.write("Inception,2010,Science Fiction,Christopher Nolan,95.0,true\n");
             writer.write("The Dark Knight,2008,Action,Christopher Nolan,90.0,true\n");
+            writer.write("\"Crouching Tiger, Hidden Dragon\",2000,Action,Ang Lee,87.0,false\n");
         }
 
         movieCollection.addMoviesFromFile(tempFile.getAbsolutePath());
 
         assertNotNull(movieCollection.getMovie("Inception"), "Inception should be loaded from file.");
         assertNotNull(movieCollection.getMovie("The Dark Knight"), "The Dark Knight should be loaded from file.");
+        assertNotNull(movieCollection.getMovie("Crouching Tiger, Hidden Dragon"), "A quoted title may contain a comma.");
     }
 
 //----------------------------------------------------------------------------------------------------------------------
@@ -332,5 +1594,128 @@ public class MovieCollectionTest {
         }
         movieCollection.addMoviesFromFile(tempFile.getAbsolutePath());
     }
+//----------------------------------------------------------------------------------------------------------------------
+    //Duplicate title pre-check
+    /**
+     * Tests that a {@link TitleBloomFilter} loaded from the database finds every stored title and rarely asks the
+     * database about an absent one.
+     * <p>
+     * The filter must never report a stored title as absent, and over many absent titles the share it sends to the
+     * database should stay close to the 1% it was sized for.
+     * </p>
+     *
+     * @throws SQLException if the titles cannot be read
+     */
+    @Test
+    void testTitleBloomFilter_NoFalseNegatives() throws SQLException {
+        for (int i = 0; i < 200; i++) {
+            movieCollection.addMovie(new Movie("Stored " + i, 2000, "Drama", "Jane Campion", 50.0f, true));
+        }
+        TitleBloomFilter filter = TitleBloomFilter.load(movieCollection.db_Handler.getConnection(),
+                TitleBloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+        assertEquals(200, filter.size(), "Every stored title should be loaded.");
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(filter.exists("Stored " + i, movieCollection.db_Handler::movieExists),
+                    "A stored title must always be found.");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(filter.exists("Absent " + i, movieCollection.db_Handler::movieExists),
+                    "An absent title must never be reported as stored.");
+        }
+        assertTrue(filter.getFalsePositiveRate() < 0.03,
+                "The false-positive rate should stay near 1%, but was " + filter.getFalsePositiveRate());
+        assertTrue(filter.getLookups() < 200 + 300, "Most absent titles should not reach the database.");
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    //Testing the batched bulk import
+    /**
+     * Tests the bulk import mode of {@link MovieCollection#addMoviesFromFile(String, int)}.
+     * <p>
+     * This test uses a batch size smaller than the file so several transactions are committed, and checks that valid rows
+     * are imported, invalid and duplicate rows are skipped, and the summary counts match.
+     * </p>
+     *
+     * @throws IOException if an I/O error occurs during file operations.
+     */
+    @Test
+    void testAddMoviesFromFile_Bulk() throws IOException {
+        File tempFile = File.createTempFile("movies", ".txt");
+        tempFile.deleteOnExit(); // Clean up after the test
+
+        try (FileWriter writer = new FileWriter(tempFile)) {
+            writer.write("Inception,2010,Science Fiction,Christopher Nolan,95.0,true\n");
+            writer.write("The Dark Knight,2008,Action,Christopher Nolan,90.0,true\n");
+            writer.write("Heat,1995,Crime,Michael Mann,88.0,false\n");
+            //duplicate and invalid rows
+            writer.write("Heat,1995,Crime,Michael Mann,88.0,false\n");
+            writer.write("Bad Year Movie,1800,Action,Christopher Nolan,90.0,true\n");
+        }
+
+        ImportSummary summary = movieCollection.addMoviesFromFile(tempFile.getAbsolutePath(), 2);
+
+        assertEquals(5, summary.getLinesRead(), "Every line should be counted.");
+        assertEquals(3, summary.getImported(), "Three valid movies should be imported.");
+        assertEquals(2, summary.getSkipped(), "The duplicate and the invalid row should be skipped.");
+        assertEquals(2, summary.getBatches(), "A batch size of 2 should commit two batches.");
+        assertNotNull(movieCollection.getMovie("Heat"), "Heat should be in the collection after its batch is committed.");
+    }
+
+    /**
+     * Tests that re-running a bulk import is idempotent and that a stopped import resumes from its checkpoint.
+     * <p>
+     * Upserting needs the unique Title index, so the collection is reopened with it allowed. A second import of the same file should write nothing. The checkpoint is then set back to line 6 as if the import
+     * had stopped there: the next run should only read the last four lines, so a changed row before the checkpoint stays
+     * as it is while a changed row after it is upserted back to the file's values.
+     * </p>
+     *
+     * @throws IOException if an I/O error occurs during file operations
+     * @throws SQLException if the database cannot be changed or read
+     */
+    @Test
+    void testAddMoviesFromFile_RerunAndResume() throws IOException, SQLException {
+        File tempFile = File.createTempFile("movies", ".txt");
+        tempFile.deleteOnExit(); // Clean up after the test
+        long checkpointOffset = 0;
+        try (FileWriter writer = new FileWriter(tempFile)) {
+            for (int i = 1; i <= 10; i++) {
+                String line = "Movie " + i + ",2000,Drama,Jane Campion,50.0,true\n";
+                writer.write(line);
+                if (i <= 6) {
+                    checkpointOffset += line.length();
+                }
+            }
+        }
+        String path = tempFile.getAbsolutePath();
+        System.setProperty(DatabaseConfig.UNIQUE_TITLES, "true");
+        movieCollection.close();
+        movieCollection = new MovieCollection();
+
+        ImportSummary first = movieCollection.addMoviesFromFile(path, 3);
+        assertEquals(10, first.getImported(), "Every movie should be imported the first time.");
+        ImportSummary rerun = movieCollection.addMoviesFromFile(path, 3);
+        assertEquals(0, rerun.getImported(), "A rerun of the same file should write nothing.");
+        assertEquals(10, rerun.getSkipped(), "Every row of the rerun should be unchanged.");
+
+        Connection conn = movieCollection.db_Handler.getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE Movies SET Rating = 1 WHERE Title IN ('Movie 2', 'Movie 8');");
+            stmt.executeUpdate("UPDATE Import_Checkpoints SET Status = 'running', Byte_Offset = " + checkpointOffset
+                    + ", Line_Number = 6;");
+        }
+
+        ImportSummary resumed = movieCollection.addMoviesFromFile(path, 3);
+        assertEquals(4, resumed.getLinesRead(), "The resumed import should start after the checkpoint.");
+        assertEquals(1, resumed.getImported(), "Only the changed row after the checkpoint should be written.");
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT Rating FROM Movies WHERE Title IN ('Movie 2', 'Movie 8') ORDER BY Title;")) {
+            assertTrue(rs.next());
+            assertEquals(1.0, rs.getDouble(1), "A row before the checkpoint should not be read again.");
+            assertTrue(rs.next());
+            assertEquals(50.0, rs.getDouble(1), "A row after the checkpoint should be upserted.");
+        }
+        assertEquals(10, movieCollection.findByGenre("Drama").size(), "Upserts should not add movies.");
+    }
 //----------------------------------------------------------------------------------------------------------------------
 }//class
\ No newline at end of file
@@ -0,0 +1,175 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * The MovieColumn enum lists the columns of the `Movies` table a movie field can be written to, each with its SQL type.
+ * <p>
+ * It is the whitelist for every statement that names a column from user input: {@link #lookup(String)} accepts a field
+ * the way users and older callers spell it ("release_year", "releaseYear", "Release Year") and returns null for anything
+ * else, so only these column names are ever put into SQL. {@link #bind(PreparedStatement, int, Object)} binds a value
+ * with the column's own type, so a rating is stored as a REAL and a year as an INTEGER instead of as text left to
+ * SQLite's type conversion.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieColumn column = MovieColumn.lookup("releaseYear"); // RELEASE_YEAR
+ * column.bind(pstmt, 1, "2005");                          // pstmt.setInt(1, 2005)
+ * </pre>
+ */
+public enum MovieColumn {
+    /** The title, stored as TEXT. */
+    TITLE("Title", Type.TEXT),
+    /** The release year, stored as INTEGER. */
+    RELEASE_YEAR("Release_Year", Type.INTEGER),
+    /** The genre, stored as TEXT. */
+    GENRE("Genre", Type.TEXT),
+    /** The director, stored as TEXT. */
+    DIRECTOR("Director", Type.TEXT),
+    /** The rating, stored as REAL. */
+    RATING("Rating", Type.REAL),
+    /** The watched status, stored as 0 or 1. */
+    WATCHED_STATUS("Watched_Status", Type.BOOLEAN);
+
+    /**
+     * The SQL types a column is bound as.
+     */
+    private enum Type {
+        /** Bound with {@code setString}. */
+        TEXT,
+        /** Bound with {@code setInt}. */
+        INTEGER,
+        /** Bound with {@code setFloat}. */
+        REAL,
+        /** Bound with {@code setBoolean}. */
+        BOOLEAN
+    }
+
+    /** The name of the column in the `Movies` table. */
+    private final String columnName;
+    /** The type the column is bound as. */
+    private final Type type;
+
+    /**
+     * Creates a column.
+     *
+     * @param columnName the name of the column in the `Movies` table
+     * @param type the type the column is bound as
+     */
+    MovieColumn(String columnName, Type type) {
+        this.columnName = columnName;
+        this.type = type;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Finds the column of a field name, ignoring case, underscores and spaces.
+     * @param field the field name, for example "release_year", "releaseYear" or "Watched Status"
+     * @return the column, or null if the field is not a movie column
+     */
+    public static MovieColumn lookup(String field) {
+        if (field == null) {
+            return null;
+        }
+        String key = field.replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+        for (MovieColumn column : values()) {
+            if (column.columnName.replace("_", "").toLowerCase(Locale.ROOT).equals(key)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the name of the column in the `Movies` table.
+     * @return the column name, safe to put into SQL
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Gets the lower-case field name used by {@link MovieValidator} and {@link MovieQuery}.
+     * @return the field name, for example "release_year"
+     */
+    public String getFieldName() {
+        return columnName.toLowerCase(Locale.ROOT);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Binds a value to a statement parameter with this column's type.
+     * <p>
+     * A number or boolean is bound as it is; text is parsed first, "true"/"false" and "1"/"0" for the watched status.
+     * </p>
+     *
+     * @param pstmt the statement
+     * @param index the parameter index, from 1
+     * @param value the value, as its own type or as text
+     * @throws SQLException if the parameter cannot be set
+     * @throws IllegalArgumentException if the value is null or cannot be read as this column's type
+     */
+    public void bind(PreparedStatement pstmt, int index, Object value) throws SQLException {
+        if (value == null) {
+            throw new IllegalArgumentException(columnName + " cannot be empty");
+        }
+        String text = value.toString().trim();
+        try {
+            switch (type) {
+                case INTEGER:
+                    pstmt.setInt(index, value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(text));
+                    break;
+                case REAL:
+                    pstmt.setFloat(index, value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(text));
+                    break;
+                case BOOLEAN:
+                    pstmt.setBoolean(index, value instanceof Boolean ? (Boolean) value : parseBoolean(text));
+                    break;
+                default:
+                    pstmt.setString(index, value.toString());
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a valid " + getFieldName() + ": " + value, e);
+        }
+    }
+
+    /**
+     * Gets this column's value of a movie.
+     * @param movie the movie
+     * @return the value as its own type: a {@code String}, {@code Integer}, {@code Float} or {@code Boolean}
+     */
+    public Object get(Movie movie) {
+        switch (this) {
+            case TITLE:
+                return movie.getTitle();
+            case RELEASE_YEAR:
+                return movie.getRelease_Year();
+            case GENRE:
+                return movie.getGenre();
+            case DIRECTOR:
+                return movie.getDirector();
+            case RATING:
+                return movie.getRating();
+            default:
+                return movie.getWatched_Status();
+        }
+    }
+
+    /**
+     * Reads a watched status written as "true"/"false" or "1"/"0".
+     * @param text the trimmed text
+     * @return the status
+     * @throws NumberFormatException if the text is none of these
+     */
+    private static boolean parseBoolean(String text) {
+        if (text.equalsIgnoreCase("true") || text.equals("1")) {
+            return true;
+        }
+        if (text.equalsIgnoreCase("false") || text.equals("0")) {
+            return false;
+        }
+        throw new NumberFormatException(text);
+    }
+}//class
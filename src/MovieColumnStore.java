@@ -0,0 +1,916 @@
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The MovieColumnStore class keeps movies in columns of primitive arrays instead of one object per movie.
+ * <p>
+ * A {@link Movie} in a map costs the movie object, a map entry, and its own genre and director strings, and the
+ * {@link MovieIndex} adds four more set entries per movie; at millions of movies that is several hundred bytes each.
+ * Here each field is one array indexed by row: an {@code int} for the release year, a {@code float} for the rating, one
+ * bit for the watched status, and for genre and director an {@code int} id into a dictionary that holds each distinct
+ * spelling once. Titles are kept as strings, and a title finds its row through an open-addressing table of row numbers
+ * rather than map entries.
+ * </p>
+ *
+ * <p>
+ * The store is a {@code Map<String, Movie>}, so {@link MovieCollection} can use it in place of its map. A {@link Movie}
+ * is created from the row each time one is asked for; changing it does not change the store, so callers store a changed
+ * movie with {@link #put(String, Movie)}. The {@link MovieLookup} queries scan the columns instead of keeping indexes,
+ * which costs no memory per movie and stays fast because the scanned columns are contiguous primitive arrays. The
+ * ordered listings of every movie only sort titles: they return a view over the sorted titles that creates a movie when
+ * its position is read, so a table showing a few rows creates a few movies. Removing a
+ * movie moves the last row into its place, so rows stay dense. Dictionary entries are kept until {@link #clear()}, since
+ * genres and directors repeat.
+ * </p>
+ *
+ * <p>
+ * Reads share a read lock and writes take the write lock, so the store can be read from many threads while one writes.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieColumnStore store = new MovieColumnStore();
+ * store.put(movie.getTitle(), movie);
+ * List&lt;Movie&gt; nineties = store.findByYearRange(1990, 1999);
+ * System.out.println(store.estimateBytes() + " bytes");
+ * </pre>
+ */
+public class MovieColumnStore extends AbstractMap<String, Movie> implements MovieLookup {
+    /** The number of rows the columns start with. */
+    private static final int INITIAL_ROWS = 16;
+
+    /** The title of each row. */
+    private String[] titles = new String[INITIAL_ROWS];
+    /** The release year of each row. */
+    private int[] years = new int[INITIAL_ROWS];
+    /** The rating of each row. */
+    private float[] ratings = new float[INITIAL_ROWS];
+    /** The genre id of each row, into {@link #genres}. */
+    private int[] genreIds = new int[INITIAL_ROWS];
+    /** The director id of each row, into {@link #directors}. */
+    private int[] directorIds = new int[INITIAL_ROWS];
+    /** The watched status of each row, one bit per row. */
+    private final BitSet watched = new BitSet();
+    /** The distinct genre spellings. */
+    private final Dictionary genres = new Dictionary();
+    /** The distinct director spellings. */
+    private final Dictionary directors = new Dictionary();
+    /** The title index: row + 1 per slot, 0 for an empty slot, probed linearly from the title's hash. */
+    private int[] slots = new int[INITIAL_ROWS * 2];
+    /** The number of rows in use. */
+    private int size;
+    /** Shared by readers, held alone by a writer. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a view of a stored movie.
+     * @param title the title to look up
+     * @return a new movie with the row's values, or null if the title is not stored
+     */
+    @Override
+    public Movie get(Object title) {
+        if (!(title instanceof String)) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int slot = findSlot((String) title);
+            return slot < 0 ? null : view(slots[slot] - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a title is stored, without creating a movie.
+     * @param title the title to look up
+     * @return true if the title is stored
+     */
+    @Override
+    public boolean containsKey(Object title) {
+        if (!(title instanceof String)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return findSlot((String) title) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a movie's values under a title, replacing the row of a title that is already stored.
+     *
+     * @param title the title to store the movie under
+     * @param movie the movie whose values are copied into the columns
+     * @return a view of the replaced movie, or null if the title was new
+     */
+    @Override
+    public Movie put(String title, Movie movie) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(title);
+            if (slot >= 0) {
+                int row = slots[slot] - 1;
+                Movie replaced = view(row);
+                setRow(row, title, movie);
+                return replaced;
+            }
+            if (size == titles.length) {
+                growRows();
+            }
+            int row = size++;
+            setRow(row, title, movie);
+            if (size * 2 > slots.length) {
+                rehash(slots.length * 2);
+            } else {
+                insertSlot(row);
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a title, moving the last row into its place.
+     * @param title the title to remove
+     * @return a view of the removed movie, or null if the title was not stored
+     */
+    @Override
+    public Movie remove(Object title) {
+        if (!(title instanceof String)) {
+            return null;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot((String) title);
+            if (slot < 0) {
+                return null;
+            }
+            int row = slots[slot] - 1;
+            Movie removed = view(row);
+            deleteSlot(slot);
+
+            int last = size - 1;
+            if (row != last) {
+                // Point the last row's slot at the row it moves into before its title is cleared
+                slots[findSlot(titles[last])] = row + 1;
+                titles[row] = titles[last];
+                years[row] = years[last];
+                ratings[row] = ratings[last];
+                genreIds[row] = genreIds[last];
+                directorIds[row] = directorIds[last];
+                watched.set(row, watched.get(last));
+            }
+            titles[last] = null;
+            watched.clear(last);
+            size--;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every movie and forgets every genre and director.
+     */
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(titles, 0, size, null);
+            Arrays.fill(slots, 0);
+            watched.clear();
+            genres.clear();
+            directors.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of movies stored.
+     * @return the row count
+     */
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the stored titles as they are now; later changes to the store do not change the returned set.
+     * @return a snapshot of the titles
+     */
+    @Override
+    public Set<String> keySet() {
+        lock.readLock().lock();
+        try {
+            List<String> snapshot = Arrays.asList(Arrays.copyOf(titles, size));
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return Collections.unmodifiableList(snapshot).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return snapshot.size();
+                }
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns views of the stored movies as they are now.
+     * @return a snapshot of the movies, in row order
+     */
+    @Override
+    public Collection<Movie> values() {
+        List<Movie> snapshot = viewsOf(allRows());
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Movie> iterator() {
+                return Collections.unmodifiableList(snapshot).iterator();
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the stored titles and views of their movies as they are now.
+     * @return a snapshot of the entries, in row order
+     */
+    @Override
+    public Set<Map.Entry<String, Movie>> entrySet() {
+        List<Map.Entry<String, Movie>> snapshot = new ArrayList<>();
+        for (Movie movie : values()) {
+            snapshot.add(new AbstractMap.SimpleImmutableEntry<>(movie.getTitle(), movie));
+        }
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Movie>> iterator() {
+                return Collections.unmodifiableList(snapshot).iterator();
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+        };
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Column scans
+    /** {@inheritDoc} */
+    @Override
+    public List<Movie> findByGenre(String genre) {
+        lock.readLock().lock();
+        try {
+            return rowsWithId(genreIds, genres.idsIgnoringCase(genre));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Movie> findByDirector(String director) {
+        lock.readLock().lock();
+        try {
+            return rowsWithId(directorIds, directors.idsIgnoringCase(director));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Movie> findByYearRange(int fromYear, int toYear) {
+        lock.readLock().lock();
+        try {
+            long[] keys = new long[size];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                int year = years[row];
+                if (year >= fromYear && year <= toYear) {
+                    keys[count++] = sortKey(year, row);
+                }
+            }
+            return sortedViews(keys, count, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Movie> findByRatingRange(float minRating, float maxRating) {
+        lock.readLock().lock();
+        try {
+            long[] keys = new long[size];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                float rating = ratings[row];
+                if (rating >= minRating && rating <= maxRating) {
+                    keys[count++] = sortKey(ratingOrder(rating), row);
+                }
+            }
+            return sortedViews(keys, count, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists every movie in release year order.
+     *
+     * @param ascending true for oldest first, false for newest first
+     * @return a view of all movies ordered by year, creating each movie when it is read
+     */
+    @Override
+    public List<Movie> orderedByYear(boolean ascending) {
+        lock.readLock().lock();
+        try {
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = sortKey(years[row], row);
+            }
+            return new TitleView(sortedTitles(keys, size, ascending));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists every movie in rating order.
+     *
+     * @param ascending true for lowest first, false for highest first
+     * @return a view of all movies ordered by rating, creating each movie when it is read
+     */
+    @Override
+    public List<Movie> orderedByRating(boolean ascending) {
+        lock.readLock().lock();
+        try {
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = sortKey(ratingOrder(ratings[row]), row);
+            }
+            return new TitleView(sortedTitles(keys, size, ascending));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists every movie in title order. The titles are sorted on each call, since this store keeps no ordered index.
+     *
+     * @param ascending true for A to Z, false for Z to A
+     * @return a view of all movies ordered by title, creating each movie when it is read
+     */
+    @Override
+    public List<Movie> orderedByTitle(boolean ascending) {
+        lock.readLock().lock();
+        try {
+            return new TitleView(titlesInOrder(ascending));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists every movie grouped by a column, in title order within each group. The titles are sorted, then each is
+     * packed with the rank of its group so one primitive sort orders the groups and keeps title order inside them.
+     *
+     * @param column {@link MovieColumn#GENRE}, {@link MovieColumn#DIRECTOR} or {@link MovieColumn#WATCHED_STATUS}
+     * @param ascending true for the groups and the titles in each group ascending, false for both descending
+     * @return a view of all movies ordered by the column, then by title, creating each movie when it is read
+     * @throws IllegalArgumentException if the column is not one of the three
+     */
+    @Override
+    public List<Movie> orderedByGroup(MovieColumn column, boolean ascending) {
+        if (column != MovieColumn.GENRE && column != MovieColumn.DIRECTOR && column != MovieColumn.WATCHED_STATUS) {
+            throw new IllegalArgumentException("Movies cannot be grouped by " + column.getColumnName());
+        }
+        lock.readLock().lock();
+        try {
+            String[] byTitle = titlesInOrder(ascending);
+            int[] ids = column == MovieColumn.GENRE ? genreIds : directorIds;
+            int[] ranks = column == MovieColumn.GENRE ? genres.ranks()
+                    : column == MovieColumn.DIRECTOR ? directors.ranks() : null;
+            long[] keys = new long[size];
+            for (int position = 0; position < size; position++) {
+                int row = slots[findSlot(byTitle[position])] - 1;
+                int group = ranks == null ? (watched.get(row) ? 1 : 0) : ranks[ids[row]];
+                keys[position] = sortKey(ascending ? group : -group, position);
+            }
+            Arrays.sort(keys);
+            String[] ordered = new String[size];
+            for (int i = 0; i < size; i++) {
+                ordered[i] = byTitle[(int) keys[i]];
+            }
+            return new TitleView(ordered);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Memory footprint
+    /**
+     * Estimates the heap used by the store, on a 64-bit JVM with compressed references and compact strings.
+     * @return the estimated size in bytes
+     */
+    public long estimateBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 5 * arrayBytes(titles.length, 4) + arrayBytes(slots.length, 4) + watched.size() / 8;
+            for (int row = 0; row < size; row++) {
+                bytes += stringBytes(titles[row]);
+            }
+            return bytes + genres.estimateBytes() + directors.estimateBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap used by the same movies kept the way {@link MovieCollection} keeps them by default: a movie
+     * object per title in a {@code ConcurrentHashMap}, plus the four {@link MovieIndex} entries per movie.
+     * <p>
+     * Every movie is counted with its own title; genre and director strings are counted once per distinct object, since
+     * {@link Movie} shares them through {@link MovieDictionary}.
+     * </p>
+     *
+     * @param movies the movies to estimate
+     * @return the estimated size in bytes
+     */
+    public static long estimateMapBytes(Collection<Movie> movies) {
+        // Map: movie object (40) + node (32) + a table slot at the default load factor (~8)
+        // Index: four concurrent set entries (node 32 + slot ~8 each)
+        long bytes = movies.size() * (40L + 32 + 8 + 4 * 40);
+        Set<String> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Movie movie : movies) {
+            bytes += stringBytes(movie.getTitle());
+            for (String value : new String[] {movie.getGenre(), movie.getDirector()}) {
+                if (value != null && shared.add(value)) {
+                    bytes += stringBytes(value);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Compares the estimated footprint of the store with that of the default map and indexes.
+     * @return one line with both sizes, the bytes per movie and the saving
+     */
+    public String getFootprintReport() {
+        long columnar = estimateBytes();
+        long map = estimateMapBytes(values());
+        int movies = size();
+        return String.format("Footprint of %,d movies: map and indexes %,d KB (%d bytes/movie), columnar %,d KB "
+                        + "(%d bytes/movie), %.1fx smaller",
+                movies, map / 1024, movies == 0 ? 0 : map / movies, columnar / 1024,
+                movies == 0 ? 0 : columnar / movies, columnar == 0 ? 0 : (double) map / columnar);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Writes a movie's values into a row.
+     *
+     * @param row the row to write
+     * @param title the title of the row
+     * @param movie the values to write
+     */
+    private void setRow(int row, String title, Movie movie) {
+        titles[row] = title;
+        years[row] = movie.getRelease_Year();
+        ratings[row] = movie.getRating();
+        genreIds[row] = genres.idOf(movie.getGenre());
+        directorIds[row] = directors.idOf(movie.getDirector());
+        watched.set(row, movie.getWatched_Status());
+    }
+
+    /**
+     * Creates a movie from a row.
+     * @param row the row to read
+     * @return a new movie with the row's values
+     */
+    private Movie view(int row) {
+        return new Movie(titles[row], years[row], genres.valueOf(genreIds[row]), directors.valueOf(directorIds[row]),
+                ratings[row], watched.get(row));
+    }
+
+    /**
+     * Lists every row number.
+     * @return the rows in order, taken under the read lock
+     */
+    private int[] allRows() {
+        lock.readLock().lock();
+        try {
+            int[] rows = new int[size];
+            for (int row = 0; row < size; row++) {
+                rows[row] = row;
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates the movies of several rows under the read lock.
+     * @param rows the rows to read
+     * @return the movies, in the same order
+     */
+    private List<Movie> viewsOf(int[] rows) {
+        lock.readLock().lock();
+        try {
+            List<Movie> result = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                if (row < size) {
+                    result.add(view(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scans an id column for the rows whose id is marked.
+     *
+     * @param column the genre or director id column
+     * @param ids the ids to match, indexed by id (null matches nothing)
+     * @return the matching movies in row order
+     */
+    private List<Movie> rowsWithId(int[] column, boolean[] ids) {
+        List<Movie> result = new ArrayList<>();
+        if (ids == null) {
+            return result;
+        }
+        for (int row = 0; row < size; row++) {
+            if (ids[column[row]]) {
+                result.add(view(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Packs an order value and a row into one long, so rows can be sorted as primitives, ties in row order.
+     *
+     * @param order the value to sort by
+     * @param row the row
+     * @return the sort key
+     */
+    private static long sortKey(int order, int row) {
+        return ((long) order << 32) | row;
+    }
+
+    /**
+     * Maps a rating to an int with the same order, including negative values.
+     * @param rating the rating
+     * @return an int that sorts like the rating
+     */
+    private static int ratingOrder(float rating) {
+        int bits = Float.floatToIntBits(rating);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * Sorts packed keys and lists the titles of their rows in that order, without creating movies.
+     *
+     * @param keys the sort keys from {@link #sortKey(int, int)}
+     * @param count the number of keys in use
+     * @param ascending true for ascending order
+     * @return the titles in order
+     */
+    private String[] sortedTitles(long[] keys, int count, boolean ascending) {
+        Arrays.sort(keys, 0, count);
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = titles[(int) keys[ascending ? i : count - 1 - i]];
+        }
+        return result;
+    }
+
+    /**
+     * Sorts the stored titles in {@link MovieLookup#TITLE_ORDER}; called under the read lock.
+     * @param ascending true for A to Z, false for Z to A
+     * @return the titles in order
+     */
+    private String[] titlesInOrder(boolean ascending) {
+        String[] sorted = Arrays.copyOf(titles, size);
+        Arrays.sort(sorted, ascending ? TITLE_ORDER : TITLE_ORDER.reversed());
+        return sorted;
+    }
+
+    /**
+     * Sorts packed keys and creates the movies of their rows in that order.
+     *
+     * @param keys the sort keys from {@link #sortKey(int, int)}
+     * @param count the number of keys in use
+     * @param ascending true for ascending order
+     * @return the movies in order
+     */
+    private List<Movie> sortedViews(long[] keys, int count, boolean ascending) {
+        Arrays.sort(keys, 0, count);
+        List<Movie> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(view((int) keys[ascending ? i : count - 1 - i]));
+        }
+        return result;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Title index
+    /**
+     * Finds the slot that holds a title's row.
+     * @param title the title
+     * @return the slot, or -1 if the title is not stored
+     */
+    private int findSlot(String title) {
+        int mask = slots.length - 1;
+        for (int slot = home(title, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (titles[slots[slot] - 1].equals(title)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Puts a row into the first free slot from its title's home slot.
+     * @param row the row to index
+     */
+    private void insertSlot(int row) {
+        int mask = slots.length - 1;
+        int slot = home(titles[row], mask);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    /**
+     * Empties a slot and shifts later slots of the same probe run back, so no lookup stops early at the hole.
+     * @param slot the slot to empty
+     */
+    private void deleteSlot(int slot) {
+        int mask = slots.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = home(titles[slots[next] - 1], mask);
+            // The entry may stay unless its home lies cyclically after the hole and at or before its slot
+            boolean reachable = hole <= next ? (home > hole && home <= next) : (home > hole || home <= next);
+            if (!reachable) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    /**
+     * Rebuilds the title index with a new number of slots.
+     * @param slotCount the new number of slots, a power of two
+     */
+    private void rehash(int slotCount) {
+        slots = new int[slotCount];
+        for (int row = 0; row < size; row++) {
+            insertSlot(row);
+        }
+    }
+
+    /**
+     * Doubles the length of every column.
+     */
+    private void growRows() {
+        int rows = titles.length * 2;
+        titles = Arrays.copyOf(titles, rows);
+        years = Arrays.copyOf(years, rows);
+        ratings = Arrays.copyOf(ratings, rows);
+        genreIds = Arrays.copyOf(genreIds, rows);
+        directorIds = Arrays.copyOf(directorIds, rows);
+    }
+
+    /**
+     * Computes the home slot of a title, spreading its hash over the table.
+     *
+     * @param title the title
+     * @param mask the number of slots minus one
+     * @return the first slot to probe
+     */
+    private static int home(String title, int mask) {
+        int h = title.hashCode() * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Estimates the heap size of an array.
+     *
+     * @param length the number of elements
+     * @param elementBytes the size of one element
+     * @return the size in bytes, including the header and alignment
+     */
+    private static long arrayBytes(int length, int elementBytes) {
+        return align(16 + (long) length * elementBytes);
+    }
+
+    /**
+     * Estimates the heap size of a string: the string object and its byte array, one byte per character when every
+     * character is Latin-1 and two otherwise.
+     *
+     * @param value the string
+     * @return the size in bytes
+     */
+    private static long stringBytes(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return 24 + arrayBytes(value.length(), bytesPerChar);
+    }
+
+    /**
+     * Rounds a size up to the 8-byte object alignment.
+     * @param bytes the unaligned size
+     * @return the aligned size
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+//======================================================================================================================
+    /**
+     * A read-only list of movies over titles in a fixed order, creating a movie from the store each time a position is
+     * read.
+     * <p>
+     * It holds one reference per movie instead of a movie object. Reading a position looks its title up under the read
+     * lock, so it shows the movie as it is now; a movie removed since the list was made reads as null.
+     * </p>
+     */
+    private final class TitleView extends AbstractList<Movie> implements RandomAccess {
+        /** The titles, in list order. */
+        private final String[] ordered;
+
+        /**
+         * Creates a view over titles.
+         * @param ordered the titles in list order, not copied
+         */
+        private TitleView(String[] ordered) {
+            this.ordered = ordered;
+        }
+
+        /**
+         * Creates the movie at a position.
+         * @param index the position
+         * @return a new movie with the row's current values, or null if its title was removed since
+         */
+        @Override
+        public Movie get(int index) {
+            return MovieColumnStore.this.get(ordered[index]);
+        }
+
+        /**
+         * Returns the number of titles in the view.
+         * @return the size fixed when the view was made
+         */
+        @Override
+        public int size() {
+            return ordered.length;
+        }
+    }
+
+//======================================================================================================================
+    /**
+     * Maps each distinct string of a column to a small id and back.
+     */
+    private static final class Dictionary {
+        /** The id of each value. */
+        private final Map<String, Integer> ids = new HashMap<>();
+        /** The value of each id. */
+        private final List<String> values = new ArrayList<>();
+
+        /**
+         * Returns the id of a value, adding the value if it is new.
+         * @param value the value, may be null
+         * @return the id
+         */
+        private int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        /**
+         * Returns the value of an id.
+         * @param id the id
+         * @return the value
+         */
+        private String valueOf(int id) {
+            return values.get(id);
+        }
+
+        /**
+         * Marks the ids of every value equal to the given one, ignoring case.
+         * @param value the value to match
+         * @return a flag per id, or null if no value matches
+         */
+        private boolean[] idsIgnoringCase(String value) {
+            boolean[] match = null;
+            for (int id = 0; id < values.size(); id++) {
+                String candidate = values.get(id);
+                if (candidate != null && candidate.equalsIgnoreCase(value)) {
+                    if (match == null) {
+                        match = new boolean[values.size()];
+                    }
+                    match[id] = true;
+                }
+            }
+            return match;
+        }
+
+        /**
+         * Ranks the values in case-insensitive order; values equal ignoring case share a rank.
+         * @return the rank of each id, indexed by id
+         */
+        private int[] ranks() {
+            Comparator<String> order = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+            Integer[] sorted = new Integer[values.size()];
+            for (int id = 0; id < sorted.length; id++) {
+                sorted[id] = id;
+            }
+            Arrays.sort(sorted, (a, b) -> order.compare(values.get(a), values.get(b)));
+            int[] ranks = new int[sorted.length];
+            int rank = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i > 0 && order.compare(values.get(sorted[i - 1]), values.get(sorted[i])) != 0) {
+                    rank++;
+                }
+                ranks[sorted[i]] = rank;
+            }
+            return ranks;
+        }
+
+        /**
+         * Forgets every value.
+         */
+        private void clear() {
+            ids.clear();
+            values.clear();
+        }
+
+        /**
+         * Estimates the heap used by the dictionary: each value, its map entry and boxed id, and its list slot.
+         * @return the size in bytes
+         */
+        private long estimateBytes() {
+            long bytes = 0;
+            for (String value : values) {
+                bytes += (value == null ? 0 : stringBytes(value)) + 32 + 16 + 8 + 4;
+            }
+            return bytes;
+        }
+    }
+}//class
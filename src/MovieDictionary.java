@@ -0,0 +1,121 @@
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The MovieDictionary class hands out one shared {@code String} per distinct genre and director, so the movies of a large
+ * catalog do not each carry their own copies.
+ * <p>
+ * Every row read from the database or an import file creates new strings, although there are only 13 genres and
+ * comparatively few directors. {@link Movie} passes its genre and director through {@link #genre(String)} and
+ * {@link #director(String)}, which return the instance already in use for the same text, so a million movies share a
+ * few thousand strings and equal values are usually the same object. A genre spelled exactly like its {@link Genre}
+ * display name shares the enum's name; any other spelling, such as "war", is kept as entered and shared the same way.
+ * </p>
+ *
+ * <p>
+ * {@link #key(String)} gives the shared lower-case key of a value, so the indexes and statistics that group movies
+ * ignoring case no longer lower-case every value on every change. Entries are never removed: the dictionary holds each
+ * distinct value once for the life of the program, which is small next to the copies it saves. All methods may be
+ * called from any thread.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * String director = MovieDictionary.director(rs.getString("director"));
+ * boolean same = director == MovieDictionary.director("Christopher Nolan"); // true for equal text
+ * </pre>
+ */
+public final class MovieDictionary {
+    /** The shared instance of each genre spelling that is not exactly a display name. */
+    private static final Map<String, String> GENRES = new ConcurrentHashMap<>();
+    /** The shared instance of each director name. */
+    private static final Map<String, String> DIRECTORS = new ConcurrentHashMap<>();
+    /** The shared lower-case key of each shared value. */
+    private static final Map<String, String> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * Not used; the dictionary is shared through its static methods.
+     */
+    private MovieDictionary() {
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the shared instance of a genre.
+     * @param genre the genre as read or entered, may be null
+     * @return the display name of the genre if the text is spelled exactly like it, otherwise the shared instance of
+     * the text; null for null
+     */
+    public static String genre(String genre) {
+        if (genre == null) {
+            return null;
+        }
+        Genre known = Genre.lookup(genre);
+        if (known != null && known.getDisplayName().equals(genre)) {
+            return known.getDisplayName();
+        }
+        return share(GENRES, genre);
+    }
+
+    /**
+     * Finds the enum constant of a genre, ignoring case.
+     * @param genre the genre text
+     * @return the genre, or null if the text is not a valid genre
+     */
+    public static Genre genreOf(String genre) {
+        return Genre.lookup(genre.trim());
+    }
+
+    /**
+     * Returns the shared instance of a director name.
+     * @param director the director as read or entered, may be null
+     * @return the shared instance of the text, or null for null
+     */
+    public static String director(String director) {
+        return director == null ? null : share(DIRECTORS, director);
+    }
+
+    /**
+     * Returns the shared lower-case key of a stored genre or director, for grouping values that differ only in case.
+     * <p>
+     * Keys are kept for good, so this is meant for the values of stored movies; a value that is only looked up, such as
+     * a search term, is lower-cased by the caller instead.
+     * </p>
+     *
+     * @param value the value, may be null
+     * @return the lower-case key, or an empty string for null
+     */
+    public static String key(String value) {
+        if (value == null) {
+            return "";
+        }
+        String key = KEYS.get(value);
+        if (key == null) {
+            // A lower-case key maps to itself, so the key of a key is found with the same lookup
+            key = share(KEYS, value.toLowerCase(Locale.ROOT));
+            KEYS.putIfAbsent(value, key);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the number of distinct genre spellings and director names shared.
+     * @return the number of shared values, not counting the enum's display names
+     */
+    public static int size() {
+        return GENRES.size() + DIRECTORS.size();
+    }
+
+    /**
+     * Returns the instance stored for a value, storing the value itself if it is new.
+     *
+     * @param values the shared instances
+     * @param value the value to share
+     * @return the shared instance
+     */
+    private static String share(Map<String, String> values, String value) {
+        String shared = values.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+}//class
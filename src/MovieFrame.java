@@ -2,11 +2,13 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedReader;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 //C:\Users\carjo\Downloads\\MovieCollectionDatabase.db
 
@@ -71,6 +73,12 @@ public class MovieFrame extends JFrame {
     //Calls back to the MovieCollection class as reference
     /**It is used to manage and perform operations on the collection of movies, including adding, removing, and displaying movies. */
     private MovieCollection movieCollection;
+    /**The column the movie table is sorted by, as a {@link MovieTableModel} column number. */
+    private int tableSortColumn;
+    /**Whether the movie table is sorted ascending. */
+    private boolean tableSortAscending = true;
+    /**Checks what the user types with the same rules as the command line and the importer; only used on the event thread. */
+    private final transient MovieValidator validator = new MovieValidator();
     //----------------------------------------------------------------------------------------------------------------------
 //Constructor
     /**
@@ -201,50 +209,38 @@ public class MovieFrame extends JFrame {
             //Title
             title = JOptionPane.showInputDialog(this, "Enter Movie Title:");
             if (title == null) return;
-            if (title.trim().isEmpty()) {
+            title = title.trim();
+            if (MovieValidator.checkTitle(title) != null) {
 //Calling the theme class for the error method so that the error handling window shows up at red
-                UITheme.applyErrorTheme(this, "Title cannot be empty. Please enter a valid title.","Error");
+                UITheme.applyErrorTheme(this, MovieValidator.checkTitle(title).getMessage(),"Error");
             }
-        } while (title.trim().isEmpty());
+        } while (MovieValidator.checkTitle(title) != null);
 
         //year
         int year;
         while (true) {
-            try {
-                String yearInput = JOptionPane.showInputDialog(this, "Enter Release Year (1900-2025):");
-                if (yearInput == null) return;
-                year = Integer.parseInt(yearInput);
-                if (year < 1900 || year > 2025) {
-//Said error handling will be repeated throughout the class, much similar to the MovieCollection class
-                    UITheme.applyErrorTheme(this, "Invalid Year! Must be between 1900 and 2025.","Error");
-                } else {
-                    break;
-                }
-            } catch (NumberFormatException e) {
-                UITheme.applyErrorTheme(this, "Invalid input! Please enter a valid year.","Error");
+            String yearInput = JOptionPane.showInputDialog(this, "Enter Release Year (1900-2025):");
+            if (yearInput == null) return;
+            ValidationError yearError = validator.parseYear(yearInput.trim());
+            if (yearError == null) {
+                year = validator.getYear();
+                break;
             }
+//Said error handling will be repeated throughout the class, much similar to the MovieCollection class
+            UITheme.applyErrorTheme(this, yearError.getMessage(),"Error");
         }
 
         //Genre
-        String[] validGenres = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance",
-                "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
         String genre;
         boolean validGenre;
         do {
             genre = JOptionPane.showInputDialog(this, "Enter Genre (e.g., Action, Crime, Drama, etc.):");
             if (genre == null) return;
+            genre = genre.trim();
 
-            validGenre = false;
-            for (String valid : validGenres) {
-                if (genre.equalsIgnoreCase(valid)) {
-                    validGenre = true;
-                    break;
-                }
-            }
-
+            validGenre = MovieValidator.checkGenre(genre) == null;
             if (!validGenre) {
-                UITheme.applyErrorTheme(this, "Error: Invalid genre. Please enter a valid genre from the list:" +
-                        "\n Action, Crime, Drama, Fantasy, Horror, Comedy, Romance, Science Fiction, Sports, Thriller, Mystery, War, and Western." ,"Error");
+                UITheme.applyErrorTheme(this, ValidationError.GENRE.getMessage() ,"Error");
             }
         } while (!validGenre);
 
@@ -253,8 +249,10 @@ public class MovieFrame extends JFrame {
         do {
             director = JOptionPane.showInputDialog(this, "Enter Director Name (2-25 characters):");
             if (director == null) return;
-            if (!director.matches("^[a-zA-Z ]+$") || director.length() < 2 || director.length() > 25) {
-                UITheme.applyErrorTheme(this, "Invalid director name! Must contain only letters and be 2-25 characters long.","Error");
+            director = director.trim();
+            ValidationError directorError = MovieValidator.checkDirector(director);
+            if (directorError != null) {
+                UITheme.applyErrorTheme(this, directorError.getMessage(),"Error");
             } else {
                 break;
             }
@@ -263,18 +261,14 @@ public class MovieFrame extends JFrame {
         //Rating
         float rating;
         while (true) {
-            try {
-                String ratingInput = JOptionPane.showInputDialog(this, "Enter Rating (0-100):");
-                if (ratingInput == null) return;
-                rating = Float.parseFloat(ratingInput);
-                if (rating < 0 || rating > 100) {
-                    UITheme.applyErrorTheme(this, "Invalid Rating! Must be between 0 and 100.","Error");
-                } else {
-                    break;
-                }
-            } catch (NumberFormatException e) {
-                UITheme.applyErrorTheme(this, "Invalid input! Please enter a number between 0 and 100.","Error");
+            String ratingInput = JOptionPane.showInputDialog(this, "Enter Rating (0-100):");
+            if (ratingInput == null) return;
+            ValidationError ratingError = validator.parseRating(ratingInput.trim());
+            if (ratingError == null) {
+                rating = validator.getRating();
+                break;
             }
+            UITheme.applyErrorTheme(this, ratingError.getMessage(),"Error");
         }
 
         //Watched Status
@@ -293,21 +287,31 @@ public class MovieFrame extends JFrame {
     /**
      * Adds movies from a file selected by the user.
      * The movie data is read from a text file, and each movie is validated before being added to the collection.
+     * <p>
+     * The file is imported by a {@link MovieImportPipeline} on a {@link SwingWorker}, so the window stays responsive
+     * while the file is parsed on several cores and written in batches on a connection of its own. Records are read
+     * with a {@link MappedCsvReader}, so quoted fields may contain commas. Duplicate titles are found with a
+     * {@link TitleBloomFilter} built from the database when the import starts, so the database is only queried for
+     * titles that are probably stored, rather than once per line; duplicates inside the file are skipped by the
+     * pipeline. The add button is disabled until the import is done, and the summary includes the filter's
+     * false-positive rate and the time it saved. The reason each line was skipped is printed to the console.
+     * </p>
      */
     private void addMoviesFromDB() {
         //  Ask for the database connection first
-        if (!DatabaseHandler.getInstance().connect()) {
+        DatabaseHandler handler = DatabaseHandler.getInstance();
+        if (!handler.connect()) {
             UITheme.applyErrorTheme(this, "Failed to connect to the database. Operation cancelled.", "Connection Error");
             return;  // Stop execution if the connection fails
         }
 
         //  File chooser for selecting the movie text file
-          JFileChooser fileChooser = new JFileChooser();
-      //  int returnValue = fileChooser.showOpenDialog(this);
+        JFileChooser fileChooser = new JFileChooser();
+        int returnValue = fileChooser.showOpenDialog(this);
 
-      /*  if (returnValue != JFileChooser.APPROVE_OPTION) {
+        if (returnValue != JFileChooser.APPROVE_OPTION) {
             return;  // Cancel if no file is selected
-        }*/
+        }
 
         File selectedFile = fileChooser.getSelectedFile();
 
@@ -316,103 +320,54 @@ public class MovieFrame extends JFrame {
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(selectedFile))) {
-            String line;
-            int successCount = 0, failCount = 0;
-            StringBuilder errorMessages = new StringBuilder();
-            String[] validGenres = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance",
-                    "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
-
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-
-                if (parts.length != 6) {
-                    failCount++;
-                    errorMessages.append("Skipping invalid line (incorrect number of fields): ").append(line).append("\n");
-                    continue;
-                }
-
-                // Title
-                String title = parts[0].trim();
-                int year;
-
-                try {
-                    year = Integer.parseInt(parts[1].trim());
-                    if (year < 1900 || year > 2025) throw new NumberFormatException();
-                } catch (NumberFormatException e) {
-                    failCount++;
-                    errorMessages.append("Invalid year for movie: ").append(title).append(" (must be 1900-2025)\n");
-                    continue;
-                }
-
-                // Genre validation
-                String genre = parts[2].trim();
-                boolean validGenre = false;
-                for (String valid : validGenres) {
-                    if (genre.equalsIgnoreCase(valid)) {
-                        validGenre = true;
-                        break;
+        addMovieButton.setEnabled(false);
+        new SwingWorker<String, Void>() {
+            @Override
+            @SuppressWarnings("try")
+            protected String doInBackground() throws IOException, SQLException {
+                TitleBloomFilter storedTitles = TitleBloomFilter.load(handler.getConnection(),
+                        TitleBloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+                ImportSummary summary;
+                try (Connection importConnection = handler.openWriterConnection()) {
+                    MovieImportPipeline pipeline = new MovieImportPipeline(importConnection,
+                            BulkMovieImporter.DEFAULT_BATCH_SIZE);
+                    //  Only ask the database about titles the filter cannot rule out
+                    pipeline.setExistingTitleFilter(title -> storedTitles.exists(title, handler::movieExists));
+                    try {
+                        summary = pipeline.run(selectedFile.getAbsolutePath());
+                    } catch (SQLException e) {
+                        throw new SQLException("Import stopped, last batch rolled back after "
+                                + pipeline.getSummary().getImported() + " movie(s): " + e.getMessage(), e);
                     }
+                    System.out.println(pipeline.getStats());
                 }
+                System.out.println(storedTitles.getReport());
+                movieCollection.refreshChanges(); // Picks the new movies up if they went into the collection's database
+
+                //  The summary of added movies
+                return "Movies successfully added: " + summary.getImported()
+                        + "\nSkipped entries (invalid or duplicate): " + summary.getSkipped()
+                        + "\nFailed entries: " + summary.getFailed()
+                        + "\n\n" + storedTitles.getReport();
+            }
 
-                if (!validGenre) {
-                    failCount++;
-                    errorMessages.append("Invalid genre for movie: ").append(title).append(" (must be one of " + String.join(", ", validGenres) + ")\n");
-                    continue;
-                }
-
-                // Director validation
-                String director = parts[3].trim();
-                if (!director.matches("^[a-zA-Z ]+$") || director.length() < 2 || director.length() > 25) {
-                    failCount++;
-                    errorMessages.append("Invalid director name for movie: ").append(title).append(" (2-25 letters only)\n");
-                    continue;
-                }
-
-                // Rating validation
-                float rating;
+            @Override
+            protected void done() {
+                addMovieButton.setEnabled(true);
                 try {
-                    rating = Float.parseFloat(parts[4].trim());
-                    if (rating < 0 || rating > 100) throw new NumberFormatException();
-                } catch (NumberFormatException e) {
-                    failCount++;
-                    errorMessages.append("Invalid rating for movie: ").append(title).append(" (must be 0-100)\n");
-                    continue;
-                }
-
-                // Watched status validation
-                boolean watched;
-                if (parts[5].trim().equalsIgnoreCase("true") || parts[5].trim().equalsIgnoreCase("false")) {
-                    watched = Boolean.parseBoolean(parts[5].trim());
-                } else {
-                    failCount++;
-                    errorMessages.append("Invalid watched status for movie: ").append(title).append(" (must be 'true' or 'false')\n");
-                    continue;
-                }
-
-                //  Add the movie to the database
-                Movie movie = new Movie(title, year, genre, director, rating, watched);
-
-                //  Use DatabaseHandler for database interaction
-                if (!DatabaseHandler.getInstance().movieExists(title)) {
-                   // DatabaseHandler.getInstance().addMovie(movie);
-                    successCount++;
-                } else {
-                    failCount++;
-                    errorMessages.append("Duplicate movie: ").append(title).append(" (already exists in database)\n");
+                    JOptionPane.showMessageDialog(MovieFrame.this, get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        JOptionPane.showMessageDialog(MovieFrame.this, "Error reading file: " + cause.getMessage());
+                    } else {
+                        UITheme.applyErrorTheme(MovieFrame.this, cause.getMessage(), "Error");
+                    }
                 }
             }
-
-            //  Display the summary of added movies
-            String message = "Movies successfully added: " + successCount + "\nFailed entries: " + failCount;
-            if (failCount > 0) {
-                message += "\n\nErrors:\n" + errorMessages.toString();
-            }
-            JOptionPane.showMessageDialog(this, message);
-
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error reading file: " + e.getMessage());
-        }
+        }.execute();
     }
 //----------------------------------------------------------------------------------------------------------------------
 // Method to Remove Movie
@@ -433,37 +388,121 @@ public class MovieFrame extends JFrame {
     //----------------------------------------------------------------------------------------------------------------------
 //Display Method
     /**
-     * Displays all movies in the collection in a scrollable dialog.
+     * Displays all movies in the collection in a sortable, filterable table.
+     * <p>
+     * The movies are loaded on a background thread with a {@link SwingWorker}, so the window stays responsive while
+     * changes are pulled from the database. The table is backed by a {@link MovieTableModel}, which reads cells from the
+     * movies only for the rows on screen. Clicking a column header sorts by that column (clicking again reverses it),
+     * and the genre and director filters are answered from the collection's indexes.
      * If no movies are found, an error message is shown.
+     * </p>
      */
     private void displayMovies() {
-        movieCollection.refreshMovies();
-
-        if (movieCollection.movies.isEmpty()) {
-            UITheme.applyErrorTheme(this, "No movies in the collection.","Error");
-            return;
-        }
+        MovieTableModel model = new MovieTableModel();
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+
+        JTextField genreField = new JTextField(10);
+        JTextField directorField = new JTextField(12);
+        JButton filterButton = new JButton("Filter");
+        JLabel statusLabel = new JLabel("Loading movies...");
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Genre:"));
+        filterPanel.add(genreField);
+        filterPanel.add(new JLabel("Director:"));
+        filterPanel.add(directorField);
+        filterPanel.add(filterButton);
+        filterPanel.add(statusLabel);
 
-        // Build movie list as a formatted string
-        StringBuilder movieList = new StringBuilder();
-        for (Movie movie : movieCollection.movies.values()) {
-            movieList.append(movie.toString()).append("\n\n");
-        }
+        // Create a JScrollPane to enable scrolling
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(700, 400)); // Adjust size as needed
+
+        JDialog dialog = new JDialog(this, "Movie Collection", Dialog.ModalityType.APPLICATION_MODAL);
+        dialog.setLayout(new BorderLayout());
+        dialog.add(filterPanel, BorderLayout.NORTH);
+        dialog.add(scrollPane, BorderLayout.CENTER);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+
+        tableSortColumn = 0;
+        tableSortAscending = true;
+        Runnable reload = () -> loadMovieTable(dialog, model, statusLabel, filterButton,
+                genreField.getText(), directorField.getText(), true);
+
+        filterButton.addActionListener(e -> reload.run());
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                // Ignore the click while a load runs, so the sort shown always matches the arrow the user last chose
+                if (column < 0 || !filterButton.isEnabled()) return;
+                column = table.convertColumnIndexToModel(column);
+                tableSortAscending = column != tableSortColumn || !tableSortAscending;
+                tableSortColumn = column;
+                loadMovieTable(dialog, model, statusLabel, filterButton,
+                        genreField.getText(), directorField.getText(), false);
+            }
+        });
 
-        // Create a JTextArea with scrollable pane
-        JTextArea textArea = new JTextArea(movieList.toString());
-        textArea.setEditable(false);
-        textArea.setWrapStyleWord(true);
-        textArea.setLineWrap(true);
+        // Only pull rows changed by other connections since the last sync, off the event thread
+        loadMovieTable(dialog, model, statusLabel, filterButton, null, null, true);
+        dialog.setVisible(true);
+    }
 
-        // Create a JScrollPane to enable scrolling
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(500, 400)); // Adjust size as needed
+    /**
+     * Loads the movie table on a background thread and shows the result when it is ready.
+     * <p>
+     * The filter button is disabled while a load is running, so only one load runs at a time. The dialog is modal, so
+     * the collection is not changed from the menu while the worker reads it.
+     * </p>
+     *
+     * @param dialog the dialog showing the table, closed if the collection turns out to be empty
+     * @param model the table model to fill
+     * @param statusLabel the label showing the loading state and the number of movies
+     * @param filterButton the button disabled while loading
+     * @param genre the genre filter (blank for all)
+     * @param director the director filter (blank for all)
+     * @param refresh whether to pull changes from the database first
+     */
+    private void loadMovieTable(JDialog dialog, MovieTableModel model, JLabel statusLabel, JButton filterButton,
+                                String genre, String director, boolean refresh) {
+        if (!filterButton.isEnabled()) return; // A load is already running
+        filterButton.setEnabled(false);
+        statusLabel.setText("Loading movies...");
+        String sortField = MovieTableModel.getSortField(tableSortColumn);
+        boolean ascending = tableSortAscending;
+
+        new SwingWorker<List<Movie>, Void>() {
+            @Override
+            protected List<Movie> doInBackground() {
+                if (refresh) {
+                    movieCollection.refreshChanges();
+                }
+                return movieCollection.findMovies(genre, director, sortField, ascending);
+            }
 
-        // Show the movie collection in a scrollable dialog
-        JOptionPane.showMessageDialog(this, scrollPane, "Movie Collection", JOptionPane.INFORMATION_MESSAGE);
+            @Override
+            protected void done() {
+                filterButton.setEnabled(true);
+                try {
+                    List<Movie> result = get();
+                    if (result.isEmpty() && movieCollection.movies.isEmpty()) {
+                        dialog.dispose();
+                        UITheme.applyErrorTheme(MovieFrame.this, "No movies in the collection.","Error");
+                        return;
+                    }
+                    model.setMovies(result);
+                    statusLabel.setText(result.size() + " movie(s)");
+                } catch (InterruptedException | ExecutionException e) {
+                    statusLabel.setText("Loading failed.");
+                    UITheme.applyErrorTheme(dialog, "Failed to load movies: " + e.getMessage(),"Error");
+                }
+            }
+        }.execute();
     }
-    //----------------------------------------------------------------------------------------------------------------------
+//----------------------------------------------------------------------------------------------------------------------
 // Method to Update Movie
     /**
      * Prompts the user to select a movie field and update its value.
@@ -499,86 +538,13 @@ public class MovieFrame extends JFrame {
                 UITheme.applyErrorTheme(this, "Invalid input! Please enter a valid value.","Error");
                 continue;
             }
-            // Validate new value based on field
-            // (similar validation as for addMovieManually)
-//**********************************************************************************************************************
-            switch (field.toLowerCase().replace(" ", "")) {
-
-                //Title
-                case "title":
-                    if (newValue.length() < 1 || newValue.length() > 45) {
-                        UITheme.applyErrorTheme(this, "Error: Title must be between 1 and 45 characters.","Error");
-                    } else {
-                        validUpdate = true;
-                    }
-                    break;
-
-                //year
-                case "release_year":
-                    try {
-                        int newYear = Integer.parseInt(newValue);
-                        if (newYear < 1900 || newYear > 2025) {
-                            UITheme.applyErrorTheme(this, "Error: Year must be between 1900 and 2025.","Error");
-                        } else {
-                            validUpdate = true;
-                        }
-                    } catch (NumberFormatException e) {
-                        UITheme.applyErrorTheme(this, "Invalid input! Please enter a valid year.","Error");
-                    }
-                    break;
-                //genre
-                case "genre":
-                    String[] validGenres = {"Action", "Crime", "Drama", "Fantasy", "Horror", "Comedy", "Romance",
-                            "Science Fiction", "Sports", "Thriller", "Mystery", "War", "Western"};
-                    boolean isValidGenre = false;
-                    for (String genre : validGenres) {
-                        if (newValue.equalsIgnoreCase(genre)) {
-                            isValidGenre = true;
-                            break;
-                        }
-                    }
-                    if (!isValidGenre) {
-                        UITheme.applyErrorTheme(this, "Error: Invalid genre. Please enter a valid genre from the list:" +
-                                "\n Action, Crime, Drama, Fantasy, Horror, Comedy, Romance, Science Fiction, Sports, Thriller, Mystery, War, and Western." ,"Error");
-                    } else {
-                        validUpdate = true;
-                    }
-                    break;
-
-                //Director
-                case "director":
-                    if (!newValue.matches("^[a-zA-Z ]+$") || newValue.length() < 2 || newValue.length() > 25) {
-                        UITheme.applyErrorTheme(this, "Error: Director name must be 2-25 letters only.","Error");
-                    } else {
-                        validUpdate = true;
-                    }
-                    break;
-
-                //Rating
-                case "rating":
-                    try {
-                        float newRating = Float.parseFloat(newValue);
-                        if (newRating < 0 || newRating > 100) {
-                            UITheme.applyErrorTheme(this, "Error: Rating must be between 0 and 100.","Error");
-                        } else {
-                            validUpdate = true;
-                        }
-                    } catch (NumberFormatException e) {
-                        UITheme.applyErrorTheme(this, "Invalid input! Please enter a number between 0 and 100.","Error");
-                    }
-                    break;
-
-                //Watched status
-                case "watched_status":
-                    if (!newValue.equalsIgnoreCase("true") && !newValue.equalsIgnoreCase("false")) {
-                        UITheme.applyErrorTheme(this, "Error: Watched status must be 'true' or 'false'.","Error");
-                    } else {
-                        validUpdate = true;
-                    }
-                    break;
-//**********************************************************************************************************************
-                default:
-                    UITheme.applyErrorTheme(this, "Error: Invalid field.","Error");
+            // Validate new value based on field, with the same rules as addMovieManually
+            newValue = newValue.trim();
+            ValidationError error = validator.validateField(field.replace(" ", ""), newValue);
+            if (error != null) {
+                UITheme.applyErrorTheme(this, "Error: " + error.getMessage(),"Error");
+            } else {
+                validUpdate = true;
             }
         }
         // Keep looping until a valid value is entered
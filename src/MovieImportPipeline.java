@@ -0,0 +1,828 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The MovieImportPipeline class imports a movie CSV file in three stages that run at the same time.
+ * <p>
+ * A single-threaded import spends most of its time splitting and validating lines while the database waits, and then
+ * waits on the database while no lines are parsed. The pipeline separates the work:
+ * <ol>
+ *     <li>The <b>reader</b> thread cuts the file into numbered chunks of records.</li>
+ *     <li>Several <b>parse workers</b> validate the chunks in parallel with
+ *     {@link MovieCollection#parseMovieRecord(MappedCsvReader)}.</li>
+ *     <li>The <b>writer</b>, the thread that calls {@link #run(String)}, puts the parsed chunks back into file order,
+ *     skips duplicate titles and writes the movies in batches with a {@link BulkMovieImporter}.</li>
+ * </ol>
+ * Because the writer restores file order, the result is the same as a sequential import: the first copy of a duplicate
+ * title wins, and batches are committed in file order.
+ * </p>
+ *
+ * <p>
+ * By default the file is memory-mapped and each chunk is a {@link MappedCsvReader} over a slice of the mapping, so the
+ * reader only looks for line breaks and no bytes are copied or decoded until a worker has validated a record. Quoted
+ * fields may contain commas. {@link #setMemoryMapped(boolean) setMemoryMapped(false)} reads the file line by line with
+ * {@link MovieCollection#parseMovieLine(String)} instead.
+ * </p>
+ *
+ * <p>
+ * The stages are connected by bounded queues, and the number of chunks between reader and writer is capped. When the
+ * writer falls behind, the queues fill and the reader and workers wait instead of loading the whole file into memory
+ * (backpressure). {@link #getStats()} can be called at any time, also from another thread, to see each stage's
+ * throughput, its busy and waiting time, and the depth of each queue.
+ * </p>
+ *
+ * <p>
+ * With {@link #setUpsert(boolean) upserts}, titles that are already stored are updated instead of skipped, and rows
+ * that are stored unchanged are not written again, so running the same import twice is cheap and leaves the table as
+ * it was. With {@link #setCheckpointing(boolean) checkpointing}, the file offset after each batch is committed together
+ * with the batch in an {@link ImportCheckpoint}, and an import of an unchanged file that stopped early continues after
+ * its last committed batch. A title that appears twice in the file, once on each side of the checkpoint, is then
+ * upserted by its second copy instead of skipped, because the resumed run has not seen the first.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieImportPipeline pipeline = new MovieImportPipeline(conn, 5000, 4, 1000, 8);
+ * ImportSummary summary = pipeline.run("C:\\movies.txt");
+ * System.out.println(pipeline.getStats());
+ * </pre>
+ */
+public class MovieImportPipeline {
+    /** The default number of lines per chunk handed to a parse worker. */
+    public static final int DEFAULT_CHUNK_LINES = 1000;
+    /** The default capacity, in chunks, of each queue between stages. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    /** The connection the writer imports into. */
+    private final Connection conn;
+    /** The number of rows per committed batch. */
+    private final int batchSize;
+    /** The number of parse workers. */
+    private final int workers;
+    /** The number of lines per chunk. */
+    private final int chunkLines;
+    /** Chunks read but not yet parsed. */
+    private final BlockingQueue<RawChunk> rawQueue;
+    /** Chunks parsed but not yet written. */
+    private final BlockingQueue<ParsedChunk> parsedQueue;
+    /** One permit per chunk allowed between reader and writer, which also bounds the writer's reorder buffer. */
+    private final Semaphore inFlight;
+
+    /** Called with each committed batch, for example to add the movies to memory. */
+    private Consumer<List<Movie>> commitListener;
+    /** Tells whether a title is already stored, so it is skipped as a duplicate. */
+    private Predicate<String> existingTitle = title -> false;
+    /** Whether the file is memory-mapped rather than read line by line. */
+    private boolean memoryMapped = true;
+    /** Whether stored titles are updated rather than rejected by the database. */
+    private boolean upsert;
+    /** Whether progress is recorded so a stopped import can resume. */
+    private boolean checkpointing;
+    /** The checkpoint of the current run, or null. */
+    private volatile ImportCheckpoint checkpoint;
+
+    /** The counts of the last run, also when it stopped early. */
+    private volatile ImportSummary summary;
+    /** When the current run started, from {@link System#nanoTime()}. */
+    private volatile long startNanos;
+    /** When the current run ended, or 0 while it is running. */
+    private volatile long endNanos;
+    /** The number of lines read. */
+    private final AtomicLong linesRead = new AtomicLong();
+    /** The number of chunks read. */
+    private final AtomicLong chunksRead = new AtomicLong();
+    /** The time the reader spent waiting for room in the pipeline. */
+    private final AtomicLong readerBlockedNanos = new AtomicLong();
+    /** The number of lines parsed. */
+    private final AtomicLong linesParsed = new AtomicLong();
+    /** The number of lines rejected by validation. */
+    private final AtomicLong invalidLines = new AtomicLong();
+    /** The time all workers together spent parsing. */
+    private final AtomicLong parseBusyNanos = new AtomicLong();
+    /** The number of movies handed to the importer. */
+    private final AtomicLong rowsQueued = new AtomicLong();
+    /** The number of duplicate titles skipped. */
+    private final AtomicLong duplicates = new AtomicLong();
+    /** The time the writer spent writing rows and committing batches. */
+    private final AtomicLong writeBusyNanos = new AtomicLong();
+    /** The time the writer spent waiting for parsed chunks. */
+    private final AtomicLong writerIdleNanos = new AtomicLong();
+    /** The largest number of chunks seen in the raw queue. */
+    private final AtomicInteger rawQueueMax = new AtomicInteger();
+    /** The largest number of chunks seen in the parsed queue. */
+    private final AtomicInteger parsedQueueMax = new AtomicInteger();
+    /** The largest number of chunks held back by the writer until an earlier chunk arrived. */
+    private final AtomicInteger reorderMax = new AtomicInteger();
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a pipeline that imports into the given connection.
+     *
+     * @param conn the connection to write to; its auto-commit setting is restored after the import
+     * @param batchSize the number of rows per committed batch
+     * @param workers the number of parse workers
+     * @param chunkLines the number of lines handed to a worker at a time
+     * @param queueCapacity the capacity of each queue, in chunks
+     */
+    public MovieImportPipeline(Connection conn, int batchSize, int workers, int chunkLines, int queueCapacity) {
+        this.conn = conn;
+        this.batchSize = Math.max(1, batchSize);
+        this.workers = Math.max(1, workers);
+        this.chunkLines = Math.max(1, chunkLines);
+        int capacity = Math.max(1, queueCapacity);
+        this.rawQueue = new ArrayBlockingQueue<>(capacity + this.workers);
+        this.parsedQueue = new ArrayBlockingQueue<>(capacity + this.workers);
+        this.inFlight = new Semaphore(2 * capacity + this.workers);
+    }
+
+    /**
+     * Creates a pipeline with one parse worker per core but one, left for the writer, and default chunk and queue sizes.
+     *
+     * @param conn the connection to write to
+     * @param batchSize the number of rows per committed batch
+     */
+    public MovieImportPipeline(Connection conn, int batchSize) {
+        this(conn, batchSize, defaultWorkers(), DEFAULT_CHUNK_LINES, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Returns the default number of parse workers: the number of cores minus one for the writer, at least one.
+     * @return the default worker count
+     */
+    public static int defaultWorkers() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * Sets the callback that receives each batch after it is committed.
+     * @param listener the callback, or null for none
+     */
+    public void setCommitListener(Consumer<List<Movie>> listener) {
+        this.commitListener = listener;
+    }
+
+    /**
+     * Sets the check for titles that are already stored and must be skipped as duplicates.
+     * <p>
+     * It is only called from the writer thread.
+     * </p>
+     *
+     * @param existingTitle returns true for a title that already exists
+     */
+    public void setExistingTitleFilter(Predicate<String> existingTitle) {
+        this.existingTitle = existingTitle;
+    }
+
+    /**
+     * Chooses how the file is read.
+     * <p>
+     * Memory mapping is the default. Reading line by line splits on every comma, including commas inside quotes, as the
+     * importer did before.
+     * </p>
+     *
+     * @param memoryMapped true to map the file and parse records on its bytes, false to read it line by line
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Chooses whether rows whose title is already stored update the stored movie.
+     * <p>
+     * Needs a unique index on Title (see {@link DatabaseHandler#hasUniqueTitles()}). Titles rejected by the
+     * {@link #setExistingTitleFilter(Predicate) existing-title filter} are still skipped, so upserting callers normally
+     * leave it unset.
+     * </p>
+     *
+     * @param upsert true to upsert, false to insert
+     */
+    public void setUpsert(boolean upsert) {
+        this.upsert = upsert;
+    }
+
+    /**
+     * Chooses whether progress is recorded in an {@link ImportCheckpoint}, so a stopped import can resume.
+     * <p>
+     * Only memory-mapped imports can resume, because they know the file offset of every record. Resuming skips the rows
+     * before the checkpoint, so it should be combined with {@link #setUpsert(boolean) upserts} to keep reruns
+     * idempotent.
+     * </p>
+     *
+     * @param checkpointing true to record and resume from checkpoints
+     */
+    public void setCheckpointing(boolean checkpointing) {
+        this.checkpointing = checkpointing;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Imports a file, returning when every valid movie is committed or the import failed.
+     * <p>
+     * If a batch cannot be written, the import stops, the batch is rolled back and the exception is thrown; batches
+     * committed before it are kept. If the file cannot be read to the end, the movies read so far are committed and the
+     * exception is thrown afterwards.
+     * </p>
+     *
+     * @param filePath the path of the CSV file (Title,Year,Genre,Director,Rating,Watched per line)
+     * @return the counts of the import
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if a batch cannot be written
+     */
+    public ImportSummary run(String filePath) throws IOException, SQLException {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+        ExecutorService threads = Executors.newFixedThreadPool(workers + 1, runnable -> {
+            Thread thread = new Thread(runnable, "movie-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Opened before the importer turns off auto-commit, so a reset checkpoint is stored at once
+        checkpoint = checkpointing && memoryMapped ? ImportCheckpoint.open(conn, filePath) : null;
+        BulkMovieImporter importer = new BulkMovieImporter(conn, batchSize, upsert);
+        importer.setCommitListener(commitListener);
+        importer.setCheckpoint(checkpoint);
+        boolean completed = false;
+
+        try {
+            Future<Void> reader = threads.submit(() -> {
+                readChunks(filePath);
+                return null;
+            });
+            for (int i = 0; i < workers; i++) {
+                threads.submit(this::parseChunks);
+            }
+
+            writeChunks(importer);
+            importer.close();
+            completed = true;
+            waitForReader(reader);
+            if (checkpoint != null) {
+                checkpoint.complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Import interrupted", e);
+        } finally {
+            threads.shutdownNow();
+            if (!completed) {
+                closeQuietly(importer);
+            }
+            endNanos = System.nanoTime();
+            summary = new ImportSummary((int) linesRead.get(), importer.getRowsWritten(),
+                    (int) (invalidLines.get() + duplicates.get()) + importer.getRowsUnchanged(), importer.getRowsFailed(),
+                    importer.getBatchesCommitted(),
+                    endNanos - startNanos);
+        }
+        return summary;
+    }
+
+    /**
+     * Returns the counts of the last run, including one that stopped with an exception.
+     * @return the summary, or null if the pipeline has not run
+     */
+    public ImportSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Returns the checkpoint of the last run, for example to tell whether it resumed.
+     * @return the checkpoint, or null if checkpointing was off or the file was read line by line
+     */
+    public ImportCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * The reader stage: cuts the file into numbered chunks and queues them, waiting while the pipeline is full.
+     * Always queues one end marker per worker, also when reading fails.
+     *
+     * @param filePath the file to read
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if the import was stopped
+     */
+    private void readChunks(String filePath) throws IOException, InterruptedException {
+        if (memoryMapped) {
+            readMappedChunks(filePath);
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            long sequence = 0;
+            List<String> lines = new ArrayList<>(chunkLines);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                linesRead.incrementAndGet();
+                if (lines.size() == chunkLines) {
+                    queueRaw(new RawChunk(sequence++, lines));
+                    lines = new ArrayList<>(chunkLines);
+                }
+            }
+            if (!lines.isEmpty()) {
+                queueRaw(new RawChunk(sequence, lines));
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                rawQueue.put(RawChunk.END);
+            }
+        }
+    }
+
+    /**
+     * The reader stage for memory-mapped files: cuts the mapping into slices of whole records without copying them.
+     * Always queues one end marker per worker, also when reading fails.
+     *
+     * @param filePath the file to read
+     * @throws IOException if the file cannot be mapped
+     * @throws InterruptedException if the import was stopped
+     */
+    private void readMappedChunks(String filePath) throws IOException, InterruptedException {
+        try (MappedCsvReader.Chunker chunker = new MappedCsvReader.Chunker(filePath, chunkLines)) {
+            ImportCheckpoint resumeFrom = checkpoint;
+            if (resumeFrom != null && resumeFrom.isResuming()) {
+                chunker.seek(resumeFrom.getOffset());
+            }
+            long sequence = 0;
+            MappedCsvReader records;
+            while ((records = chunker.next()) != null) {
+                linesRead.addAndGet(records.getRecordCount());
+                queueRaw(new RawChunk(sequence++, records));
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                rawQueue.put(RawChunk.END);
+            }
+        }
+    }
+
+    /**
+     * Queues a chunk for the workers once a place in the pipeline is free, recording the wait as backpressure.
+     * @param chunk the chunk to queue
+     * @throws InterruptedException if the import was stopped
+     */
+    private void queueRaw(RawChunk chunk) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        inFlight.acquire();
+        rawQueue.put(chunk);
+        readerBlockedNanos.addAndGet(System.nanoTime() - waitStart);
+        chunksRead.incrementAndGet();
+        rawQueueMax.accumulateAndGet(rawQueue.size(), Math::max);
+    }
+
+    /**
+     * The parse stage, run by each worker: validates the lines of each chunk until the end marker arrives.
+     * A failure is passed on to the writer, which stops the import.
+     */
+    private void parseChunks() {
+        try {
+            RawChunk chunk;
+            while ((chunk = rawQueue.take()) != RawChunk.END) {
+                long parseStart = System.nanoTime();
+                List<Movie> parsed = new ArrayList<>(chunkLines);
+                int lineCount = 0;
+                long[] endOffsets = null;
+                int[] lineNumbers = null;
+                if (chunk.records != null) {
+                    endOffsets = new long[chunk.records.getRecordCount()];
+                    lineNumbers = new int[endOffsets.length];
+                    while (chunk.records.nextRecord()) {
+                        lineCount++;
+                        if (addParsed(parsed, MovieCollection.parseMovieRecord(chunk.records))) {
+                            endOffsets[parsed.size() - 1] = chunk.records.getNextRecordOffset();
+                            lineNumbers[parsed.size() - 1] = lineCount;
+                        }
+                    }
+                } else {
+                    for (String line : chunk.lines) {
+                        addParsed(parsed, MovieCollection.parseMovieLine(line));
+                        lineCount++;
+                    }
+                }
+                linesParsed.addAndGet(lineCount);
+                parseBusyNanos.addAndGet(System.nanoTime() - parseStart);
+                parsedQueue.put(new ParsedChunk(chunk.sequence, parsed, lineCount, endOffsets, lineNumbers));
+                parsedQueueMax.accumulateAndGet(parsedQueue.size(), Math::max);
+            }
+            parsedQueue.put(ParsedChunk.END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            try {
+                // The writer keeps taking chunks, so there is always room for the failure eventually
+                parsedQueue.put(new ParsedChunk(e));
+            } catch (InterruptedException stopped) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Keeps a parsed movie, or counts the line as invalid if it did not pass validation.
+     * @param parsed the valid movies of the chunk
+     * @param movie the parsed movie, or null
+     * @return true if the movie was kept
+     */
+    private boolean addParsed(List<Movie> parsed, Movie movie) {
+        if (movie == null) {
+            invalidLines.incrementAndGet();
+            return false;
+        }
+        parsed.add(movie);
+        return true;
+    }
+
+    /**
+     * The writer stage: takes parsed chunks, restores file order and writes the movies until every worker is done.
+     *
+     * @param importer the importer to write with
+     * @throws SQLException if a batch cannot be written
+     * @throws InterruptedException if the import was stopped
+     */
+    private void writeChunks(BulkMovieImporter importer) throws SQLException, InterruptedException {
+        Map<Long, ParsedChunk> pending = new HashMap<>();
+        // Titles seen earlier in this file, so duplicates inside one file are skipped as well
+        Set<String> seenTitles = new HashSet<>();
+        // The number of lines before the next chunk, counted from the start of the file
+        long linesBefore = checkpoint != null ? checkpoint.getLine() : 0;
+        long nextSequence = 0;
+        int finishedWorkers = 0;
+
+        while (finishedWorkers < workers) {
+            long waitStart = System.nanoTime();
+            ParsedChunk chunk = parsedQueue.take();
+            writerIdleNanos.addAndGet(System.nanoTime() - waitStart);
+
+            if (chunk == ParsedChunk.END) {
+                finishedWorkers++;
+                continue;
+            }
+            if (chunk.failure != null) {
+                throw new IllegalStateException("A parse worker failed", chunk.failure);
+            }
+            pending.put(chunk.sequence, chunk);
+            reorderMax.accumulateAndGet(pending.size(), Math::max);
+
+            // Write every chunk that is next in file order
+            while ((chunk = pending.remove(nextSequence)) != null) {
+                long writeStart = System.nanoTime();
+                for (int i = 0; i < chunk.movies.size(); i++) {
+                    Movie movie = chunk.movies.get(i);
+                    if (existingTitle.test(movie.getTitle()) || !seenTitles.add(movie.getTitle())) {
+                        System.out.println("Skipping duplicate movie: " + movie.getTitle());
+                        duplicates.incrementAndGet();
+                        continue;
+                    }
+                    if (chunk.endOffsets != null) {
+                        importer.add(movie, chunk.endOffsets[i], linesBefore + chunk.lineNumbers[i]);
+                    } else {
+                        importer.add(movie);
+                    }
+                    rowsQueued.incrementAndGet();
+                }
+                linesBefore += chunk.lineCount;
+                writeBusyNanos.addAndGet(System.nanoTime() - writeStart);
+                inFlight.release();
+                nextSequence++;
+            }
+        }
+    }
+
+    /**
+     * Waits for the reader to finish and rethrows its failure, if any.
+     *
+     * @param reader the reader's result
+     * @throws IOException if the file could not be read
+     * @throws InterruptedException if the import was stopped
+     */
+    private static void waitForReader(Future<Void> reader) throws IOException, InterruptedException {
+        try {
+            reader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("The reader failed", e.getCause());
+        }
+    }
+
+    /**
+     * Releases the importer after a failed import without reporting a second error.
+     * @param importer the importer to close
+     */
+    private static void closeQuietly(BulkMovieImporter importer) {
+        try {
+            importer.close();
+        } catch (SQLException e) {
+            System.out.println("Failed to close bulk importer: " + e.getMessage());
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Takes a snapshot of the pipeline counters. Safe to call from any thread, also while the import runs.
+     * @return the current statistics
+     */
+    public Stats getStats() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return new Stats(startNanos == 0 ? 0 : end - startNanos, workers,
+                linesRead.get(), chunksRead.get(), readerBlockedNanos.get(),
+                linesParsed.get(), invalidLines.get(), parseBusyNanos.get(),
+                rowsQueued.get(), duplicates.get(), writeBusyNanos.get(), writerIdleNanos.get(),
+                rawQueue.size(), rawQueueMax.get(), parsedQueue.size(), parsedQueueMax.get(), reorderMax.get());
+    }
+
+//======================================================================================================================
+    /**
+     * A numbered chunk of raw lines or records on its way to a parse worker.
+     */
+    private static final class RawChunk {
+        /** The marker telling a worker that the file has ended. */
+        private static final RawChunk END = new RawChunk(-1, (List<String>) null);
+        /** The position of the chunk in the file. */
+        private final long sequence;
+        /** The lines of the chunk, or null for a memory-mapped chunk. */
+        private final List<String> lines;
+        /** The records of a memory-mapped chunk, or null. */
+        private final MappedCsvReader records;
+
+        /**
+         * Creates a chunk of lines.
+         * @param sequence the position of the chunk in the file
+         * @param lines the lines of the chunk
+         */
+        private RawChunk(long sequence, List<String> lines) {
+            this.sequence = sequence;
+            this.lines = lines;
+            this.records = null;
+        }
+
+        /**
+         * Creates a chunk of memory-mapped records.
+         * @param sequence the position of the chunk in the file
+         * @param records the reader over the chunk's records
+         */
+        private RawChunk(long sequence, MappedCsvReader records) {
+            this.sequence = sequence;
+            this.lines = null;
+            this.records = records;
+        }
+    }
+
+    /**
+     * A numbered chunk of validated movies on its way to the writer, or a worker's failure.
+     */
+    private static final class ParsedChunk {
+        /** The marker telling the writer that a worker has finished. */
+        private static final ParsedChunk END = new ParsedChunk(-1, null, 0, null, null);
+        /** The position of the chunk in the file. */
+        private final long sequence;
+        /** The valid movies of the chunk, in file order. */
+        private final List<Movie> movies;
+        /** The number of lines in the chunk, valid or not. */
+        private final int lineCount;
+        /** The file offset after each movie's line, or null if the file was read line by line. */
+        private final long[] endOffsets;
+        /** The line of each movie, counted from 1 at the start of the chunk, or null. */
+        private final int[] lineNumbers;
+        /** The error that stopped a worker, or null. */
+        private final RuntimeException failure;
+
+        /**
+         * Creates a parsed chunk.
+         *
+         * @param sequence the position of the chunk in the file
+         * @param movies the valid movies of the chunk
+         * @param lineCount the number of lines in the chunk
+         * @param endOffsets the file offset after each movie, or null
+         * @param lineNumbers the line of each movie within the chunk, or null
+         */
+        private ParsedChunk(long sequence, List<Movie> movies, int lineCount, long[] endOffsets, int[] lineNumbers) {
+            this.sequence = sequence;
+            this.movies = movies;
+            this.lineCount = lineCount;
+            this.endOffsets = endOffsets;
+            this.lineNumbers = lineNumbers;
+            this.failure = null;
+        }
+
+        /**
+         * Creates the chunk that reports a worker's failure.
+         * @param failure the error that stopped the worker
+         */
+        private ParsedChunk(RuntimeException failure) {
+            this.sequence = -1;
+            this.movies = null;
+            this.lineCount = 0;
+            this.endOffsets = null;
+            this.lineNumbers = null;
+            this.failure = failure;
+        }
+    }
+
+//======================================================================================================================
+    /**
+     * A snapshot of the per-stage counters of a pipeline.
+     * <p>
+     * Throughput is items per second of wall-clock time. A writer that is rarely idle is saturated, which is the goal;
+     * a reader that is often blocked shows that backpressure is holding it back.
+     * </p>
+     */
+    public static class Stats {
+        /** The time since the import started, or its total duration once it ended. */
+        private final long elapsedNanos;
+        /** The number of parse workers. */
+        private final int workers;
+        /** The number of lines read. */
+        private final long linesRead;
+        /** The number of chunks read. */
+        private final long chunksRead;
+        /** The time the reader waited for room in the pipeline. */
+        private final long readerBlockedNanos;
+        /** The number of lines parsed. */
+        private final long linesParsed;
+        /** The number of invalid lines. */
+        private final long invalidLines;
+        /** The time all workers together spent parsing. */
+        private final long parseBusyNanos;
+        /** The number of movies handed to the importer. */
+        private final long rowsWritten;
+        /** The number of duplicate titles skipped. */
+        private final long duplicates;
+        /** The time the writer spent writing. */
+        private final long writeBusyNanos;
+        /** The time the writer waited for parsed chunks. */
+        private final long writerIdleNanos;
+        /** The current depth of the raw queue. */
+        private final int rawQueueDepth;
+        /** The largest depth seen in the raw queue. */
+        private final int rawQueueMax;
+        /** The current depth of the parsed queue. */
+        private final int parsedQueueDepth;
+        /** The largest depth seen in the parsed queue. */
+        private final int parsedQueueMax;
+        /** The largest number of chunks the writer held back to restore file order. */
+        private final int reorderMax;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param elapsedNanos the time since the import started
+         * @param workers the number of parse workers
+         * @param linesRead the number of lines read
+         * @param chunksRead the number of chunks read
+         * @param readerBlockedNanos the time the reader waited for room
+         * @param linesParsed the number of lines parsed
+         * @param invalidLines the number of invalid lines
+         * @param parseBusyNanos the time all workers spent parsing
+         * @param rowsWritten the number of movies handed to the importer
+         * @param duplicates the number of duplicate titles skipped
+         * @param writeBusyNanos the time the writer spent writing
+         * @param writerIdleNanos the time the writer waited for chunks
+         * @param rawQueueDepth the current depth of the raw queue
+         * @param rawQueueMax the largest depth of the raw queue
+         * @param parsedQueueDepth the current depth of the parsed queue
+         * @param parsedQueueMax the largest depth of the parsed queue
+         * @param reorderMax the largest reorder buffer
+         */
+        public Stats(long elapsedNanos, int workers, long linesRead, long chunksRead, long readerBlockedNanos,
+                     long linesParsed, long invalidLines, long parseBusyNanos, long rowsWritten, long duplicates,
+                     long writeBusyNanos, long writerIdleNanos, int rawQueueDepth, int rawQueueMax,
+                     int parsedQueueDepth, int parsedQueueMax, int reorderMax) {
+            this.elapsedNanos = elapsedNanos;
+            this.workers = workers;
+            this.linesRead = linesRead;
+            this.chunksRead = chunksRead;
+            this.readerBlockedNanos = readerBlockedNanos;
+            this.linesParsed = linesParsed;
+            this.invalidLines = invalidLines;
+            this.parseBusyNanos = parseBusyNanos;
+            this.rowsWritten = rowsWritten;
+            this.duplicates = duplicates;
+            this.writeBusyNanos = writeBusyNanos;
+            this.writerIdleNanos = writerIdleNanos;
+            this.rawQueueDepth = rawQueueDepth;
+            this.rawQueueMax = rawQueueMax;
+            this.parsedQueueDepth = parsedQueueDepth;
+            this.parsedQueueMax = parsedQueueMax;
+            this.reorderMax = reorderMax;
+        }
+
+        /**
+         * Gets the number of lines read.
+         * @return the line count
+         */
+        public long getLinesRead() {
+            return linesRead;
+        }
+
+        /**
+         * Gets the number of lines parsed.
+         * @return the parsed line count
+         */
+        public long getLinesParsed() {
+            return linesParsed;
+        }
+
+        /**
+         * Gets the number of movies handed to the importer.
+         * @return the written row count
+         */
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        /**
+         * Gets the reader's throughput.
+         * @return lines read per second
+         */
+        public double getReadLinesPerSecond() {
+            return perSecond(linesRead);
+        }
+
+        /**
+         * Gets the parse workers' combined throughput.
+         * @return lines parsed per second
+         */
+        public double getParseLinesPerSecond() {
+            return perSecond(linesParsed);
+        }
+
+        /**
+         * Gets the writer's throughput.
+         * @return rows written per second
+         */
+        public double getWriteRowsPerSecond() {
+            return perSecond(rowsWritten);
+        }
+
+        /**
+         * Gets the share of the elapsed time the writer spent writing rather than waiting for chunks.
+         * @return a value between 0 and 1
+         */
+        public double getWriterUtilization() {
+            return elapsedNanos == 0 ? 0 : Math.min(1, (double) writeBusyNanos / elapsedNanos);
+        }
+
+        /**
+         * Gets the current number of chunks waiting for a parse worker.
+         * @return the raw queue depth
+         */
+        public int getRawQueueDepth() {
+            return rawQueueDepth;
+        }
+
+        /**
+         * Gets the current number of parsed chunks waiting for the writer.
+         * @return the parsed queue depth
+         */
+        public int getParsedQueueDepth() {
+            return parsedQueueDepth;
+        }
+
+        /**
+         * Converts a count into a rate over the elapsed time.
+         * @param count the number of items
+         * @return items per second
+         */
+        private double perSecond(long count) {
+            return elapsedNanos == 0 ? 0 : count * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+         * Formats the statistics as one line per stage.
+         * @return the statistics as text
+         */
+        @Override
+        public String toString() {
+            return String.format("read:  %,d lines in %,d chunks, %,.0f lines/sec, blocked %,d ms%n"
+                            + "parse: %,d lines (%,d invalid) on %d workers, %,.0f lines/sec, busy %,d ms%n"
+                            + "write: %,d rows (%,d duplicates), %,.0f rows/sec, busy %,d ms, idle %,d ms, utilization %.0f%%%n"
+                            + "queues: raw %d (max %d), parsed %d (max %d), reorder max %d",
+                    linesRead, chunksRead, getReadLinesPerSecond(), readerBlockedNanos / 1_000_000,
+                    linesParsed, invalidLines, workers, getParseLinesPerSecond(), parseBusyNanos / 1_000_000,
+                    rowsWritten, duplicates, getWriteRowsPerSecond(), writeBusyNanos / 1_000_000, writerIdleNanos / 1_000_000,
+                    getWriterUtilization() * 100,
+                    rawQueueDepth, rawQueueMax, parsedQueueDepth, parsedQueueMax, reorderMax);
+        }
+    }
+}//class
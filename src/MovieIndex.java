@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * The MovieIndex class keeps secondary indexes over the movies of a {@link MovieCollection}.
+ * <p>
+ * The collection itself is keyed by title, so any other question would otherwise scan every movie. This class keeps:
+ * <p>
+ * - A hash index on genre and on director (case-insensitive).
+ * <p>
+ * - A sorted index on release year and on rating, so ranges can be answered with a sub-map.
+ * <p>
+ * - A sorted index on title (case-insensitive), so the whole collection can be listed in title order without sorting.
+ * </p>
+ * Lookups cost time proportional to the number of matching movies. The indexes must be told about every change:
+ * {@link #add(Movie)} after a movie is stored and {@link #remove(Movie)} before it is changed or removed.
+ * <p>
+ * Lookups take no lock and may run on any thread while a change is made: the indexes are concurrent maps of concurrent
+ * sets, so a lookup sees each bucket either before or after a change and never fails part way. Changes must come from
+ * one thread at a time, which {@link MovieCollection} ensures.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieIndex index = new MovieIndex();
+ * index.add(movie);
+ * List&lt;Movie&gt; nineties = index.findByYearRange(1990, 1999);
+ * </pre>
+ */
+public class MovieIndex implements MovieLookup {
+    /** Movies grouped by lower-case genre. */
+    private final Map<String, Set<Movie>> byGenre = new ConcurrentHashMap<>();
+    /** Movies grouped by lower-case director name. */
+    private final Map<String, Set<Movie>> byDirector = new ConcurrentHashMap<>();
+    /** Movies grouped by release year, in year order. */
+    private final NavigableMap<Integer, Set<Movie>> byYear = new ConcurrentSkipListMap<>();
+    /** Movies grouped by rating, in rating order. */
+    private final NavigableMap<Float, Set<Movie>> byRating = new ConcurrentSkipListMap<>();
+    /** Movies by title, in {@link MovieLookup#TITLE_ORDER}. */
+    private final NavigableMap<String, Movie> byTitle = new ConcurrentSkipListMap<>(TITLE_ORDER);
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Adds a movie to every index using its current field values.
+     *
+     * @param movie the movie to index
+     */
+    public void add(Movie movie) {
+        byGenre.computeIfAbsent(MovieDictionary.key(movie.getGenre()), k -> ConcurrentHashMap.newKeySet()).add(movie);
+        byDirector.computeIfAbsent(MovieDictionary.key(movie.getDirector()), k -> ConcurrentHashMap.newKeySet()).add(movie);
+        byYear.computeIfAbsent(movie.getRelease_Year(), k -> ConcurrentHashMap.newKeySet()).add(movie);
+        byRating.computeIfAbsent(movie.getRating(), k -> ConcurrentHashMap.newKeySet()).add(movie);
+        byTitle.put(movie.getTitle(), movie);
+    }
+
+    /**
+     * Removes a movie from every index. This must be called before the movie's fields are changed, since its current
+     * values are used to find its entries.
+     *
+     * @param movie the movie to remove
+     */
+    public void remove(Movie movie) {
+        removeFrom(byGenre, MovieDictionary.key(movie.getGenre()), movie);
+        removeFrom(byDirector, MovieDictionary.key(movie.getDirector()), movie);
+        removeFrom(byYear, movie.getRelease_Year(), movie);
+        removeFrom(byRating, movie.getRating(), movie);
+        byTitle.remove(movie.getTitle(), movie);
+    }
+
+    /**
+     * Removes every movie from the indexes.
+     */
+    public void clear() {
+        byGenre.clear();
+        byDirector.clear();
+        byYear.clear();
+        byRating.clear();
+        byTitle.clear();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Finds all movies of a genre, ignoring case.
+     *
+     * @param genre the genre to look for
+     * @return the matching movies (empty if none)
+     */
+    public List<Movie> findByGenre(String genre) {
+        return copyOf(byGenre.get(key(genre)));
+    }
+
+    /**
+     * Finds all movies by a director, ignoring case.
+     *
+     * @param director the director to look for
+     * @return the matching movies (empty if none)
+     */
+    public List<Movie> findByDirector(String director) {
+        return copyOf(byDirector.get(key(director)));
+    }
+
+    /**
+     * Finds all movies released within a range of years, ordered by year.
+     *
+     * @param fromYear the first year to include
+     * @param toYear the last year to include
+     * @return the matching movies (empty if none or if the range is empty)
+     */
+    public List<Movie> findByYearRange(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            return new ArrayList<>();
+        }
+        return flatten(byYear.subMap(fromYear, true, toYear, true).values());
+    }
+
+    /**
+     * Finds all movies rated within a range, ordered by rating.
+     *
+     * @param minRating the lowest rating to include
+     * @param maxRating the highest rating to include
+     * @return the matching movies (empty if none or if the range is empty)
+     */
+    public List<Movie> findByRatingRange(float minRating, float maxRating) {
+        if (minRating > maxRating) {
+            return new ArrayList<>();
+        }
+        return flatten(byRating.subMap(minRating, true, maxRating, true).values());
+    }
+
+    /**
+     * Lists every movie in release year order by walking the year index, without sorting.
+     *
+     * @param ascending true for oldest first, false for newest first
+     * @return all indexed movies ordered by year
+     */
+    public List<Movie> orderedByYear(boolean ascending) {
+        return flatten(ascending ? byYear.values() : byYear.descendingMap().values());
+    }
+
+    /**
+     * Lists every movie in rating order by walking the rating index, without sorting.
+     *
+     * @param ascending true for lowest first, false for highest first
+     * @return all indexed movies ordered by rating
+     */
+    public List<Movie> orderedByRating(boolean ascending) {
+        return flatten(ascending ? byRating.values() : byRating.descendingMap().values());
+    }
+
+    /**
+     * Lists every movie in title order by walking the title index, without sorting.
+     *
+     * @param ascending true for A to Z, false for Z to A
+     * @return all indexed movies ordered by title
+     */
+    public List<Movie> orderedByTitle(boolean ascending) {
+        return new ArrayList<>(ascending ? byTitle.values() : byTitle.descendingMap().values());
+    }
+
+    /**
+     * Lists every movie grouped by a column by walking the title index and grouping it, so ties stay in title order
+     * without a sort.
+     *
+     * @param column {@link MovieColumn#GENRE}, {@link MovieColumn#DIRECTOR} or {@link MovieColumn#WATCHED_STATUS}
+     * @param ascending true for the groups and the titles in each group ascending, false for both descending
+     * @return all indexed movies ordered by the column, then by title
+     * @throws IllegalArgumentException if the column is not one of the three
+     */
+    public List<Movie> orderedByGroup(MovieColumn column, boolean ascending) {
+        switch (column) {
+            case GENRE:
+                return groupInOrder(orderedByTitle(ascending), Movie::getGenre, String.CASE_INSENSITIVE_ORDER, ascending);
+            case DIRECTOR:
+                return groupInOrder(orderedByTitle(ascending), Movie::getDirector, String.CASE_INSENSITIVE_ORDER, ascending);
+            case WATCHED_STATUS:
+                return groupInOrder(orderedByTitle(ascending), Movie::getWatched_Status, Comparator.naturalOrder(), ascending);
+            default:
+                throw new IllegalArgumentException("Movies cannot be grouped by " + column.getColumnName());
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Normalizes a searched genre or director name to its index key; stored values use {@link MovieDictionary#key(String)},
+     * which gives the same key without lower-casing again.
+     * @param value the value to normalize
+     * @return the lower-case key, or an empty string for null
+     */
+    private static String key(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Removes a movie from one bucket of an index, dropping the bucket when it becomes empty.
+     *
+     * @param index the index to remove from
+     * @param key the bucket key
+     * @param movie the movie to remove
+     * @param <K> the key type of the index
+     */
+    private static <K> void removeFrom(Map<K, Set<Movie>> index, K key, Movie movie) {
+        Set<Movie> bucket = index.get(key);
+        if (bucket != null && bucket.remove(movie) && bucket.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Copies one bucket into a new list.
+     * @param bucket the bucket, may be null
+     * @return the movies of the bucket
+     */
+    private static List<Movie> copyOf(Set<Movie> bucket) {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    /**
+     * Copies several buckets into one list, keeping their order.
+     * @param buckets the buckets to copy
+     * @return the movies of all buckets
+     */
+    private static List<Movie> flatten(Collection<Set<Movie>> buckets) {
+        List<Movie> result = new ArrayList<>();
+        for (Set<Movie> bucket : buckets) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    /**
+     * Groups movies by a field, keeping their order within each group; the groups are few, so this costs less than a sort.
+     *
+     * @param ordered the movies in the order ties should keep
+     * @param key reads the field to group by
+     * @param keyOrder the order of the field values
+     * @param ascending true to list the groups in key order, false in reverse
+     * @param <K> the field type
+     * @return the movies ordered by the field, then by their order in {@code ordered}
+     */
+    private static <K> List<Movie> groupInOrder(List<Movie> ordered, Function<Movie, K> key, Comparator<K> keyOrder,
+                                                boolean ascending) {
+        Map<K, List<Movie>> groups = new TreeMap<>(ascending ? keyOrder : keyOrder.reversed());
+        for (Movie movie : ordered) {
+            groups.computeIfAbsent(key.apply(movie), k -> new ArrayList<>()).add(movie);
+        }
+        List<Movie> result = new ArrayList<>(ordered.size());
+        for (List<Movie> group : groups.values()) {
+            result.addAll(group);
+        }
+        return result;
+    }
+}//class
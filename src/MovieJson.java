@@ -0,0 +1,313 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MovieJson class writes movies as JSON and reads the flat JSON objects {@link MovieServer} accepts.
+ * <p>
+ * The project has no JSON library, and the server only ever exchanges movies, lists of movies and a few statistics, so
+ * this is the small subset it needs. Output is written straight into a {@link StringBuilder}. Input must be one object
+ * whose values are strings, numbers, booleans or null; nested objects and arrays are rejected. Values are returned as
+ * their text, so they can be checked by {@link MovieValidator} the same way as a typed or imported field.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * String body = MovieJson.toJson(movie);  // {"title":"Heat","releaseYear":1995,...}
+ * Map&lt;String, String&gt; fields = MovieJson.parseObject("{\"rating\": 91.5}");  // {rating=91.5}
+ * </pre>
+ */
+public final class MovieJson {
+
+    /**
+     * No instances; every method is static.
+     */
+    private MovieJson() {
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Writes a movie as a JSON object.
+     * @param movie the movie
+     * @return the JSON text
+     */
+    public static String toJson(Movie movie) {
+        StringBuilder json = new StringBuilder(160);
+        appendMovie(json, movie);
+        return json.toString();
+    }
+
+    /**
+     * Writes movies as a JSON array of objects.
+     * @param movies the movies
+     * @return the JSON text
+     */
+    public static String toJson(List<Movie> movies) {
+        StringBuilder json = new StringBuilder(16 + movies.size() * 160);
+        appendMovies(json, movies);
+        return json.toString();
+    }
+
+    /**
+     * Appends a movie as a JSON object.
+     *
+     * @param json the text to append to
+     * @param movie the movie
+     */
+    public static void appendMovie(StringBuilder json, Movie movie) {
+        json.append("{\"title\":");
+        appendString(json, movie.getTitle());
+        json.append(",\"releaseYear\":").append(movie.getRelease_Year());
+        json.append(",\"genre\":");
+        appendString(json, movie.getGenre());
+        json.append(",\"director\":");
+        appendString(json, movie.getDirector());
+        json.append(",\"rating\":").append(movie.getRating());
+        json.append(",\"watched\":").append(movie.getWatched_Status());
+        json.append('}');
+    }
+
+    /**
+     * Appends movies as a JSON array of objects.
+     *
+     * @param json the text to append to
+     * @param movies the movies
+     */
+    public static void appendMovies(StringBuilder json, List<Movie> movies) {
+        json.append('[');
+        for (int i = 0; i < movies.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendMovie(json, movies.get(i));
+        }
+        json.append(']');
+    }
+
+    /**
+     * Appends a string as a quoted JSON string, escaping quotes, backslashes and control characters.
+     *
+     * @param json the text to append to
+     * @param text the string, written as null if it is null
+     */
+    public static void appendString(StringBuilder json, String text) {
+        if (text == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Reads a flat JSON object.
+     * <p>
+     * String values are unescaped; numbers and booleans are returned as written; a null value is returned as null.
+     * </p>
+     *
+     * @param text the JSON text
+     * @return the members in the order they were written
+     * @throws IllegalArgumentException if the text is not one flat JSON object
+     */
+    public static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> members = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.readString();
+                parser.expect(':');
+                members.put(name, parser.readValue());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.skipSpace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return members;
+    }
+
+    /**
+     * Reads JSON text one token at a time.
+     */
+    private static final class Parser {
+        /** The text being read. */
+        private final String text;
+        /** The position of the next character. */
+        private int position;
+
+        /**
+         * Creates a parser at the start of a text.
+         * @param text the JSON text
+         */
+        private Parser(String text) {
+            this.text = text == null ? "" : text;
+        }
+
+        /**
+         * Skips white space.
+         */
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * Checks whether every character has been read.
+         * @return true at the end of the text
+         */
+        private boolean atEnd() {
+            return position >= text.length();
+        }
+
+        /**
+         * Reads a character if it is next, after any white space.
+         * @param c the character
+         * @return true if it was read
+         */
+        private boolean consume(char c) {
+            skipSpace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads a character that must be next, after any white space.
+         * @param c the character
+         * @throws IllegalArgumentException if another character is next
+         */
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        /**
+         * Reads a string, number, boolean or null value.
+         * @return the value as text, or null for a JSON null
+         * @throws IllegalArgumentException if the value is missing, or is an object or array
+         */
+        private String readValue() {
+            skipSpace();
+            if (atEnd()) {
+                throw error("Expected a value");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw error("Nested objects and arrays are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+                    && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (!literal.equals("true") && !literal.equals("false") && !literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                throw error("Not a JSON value: " + literal);
+            }
+            return literal;
+        }
+
+        /**
+         * Reads a quoted string, after any white space.
+         * @return the unescaped string
+         * @throws IllegalArgumentException if there is no complete string
+         */
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (atEnd()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Incomplete unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        /**
+         * Creates the error for malformed text at the current position.
+         * @param message what is wrong
+         * @return the exception to throw
+         */
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position);
+        }
+    }
+}//class
@@ -0,0 +1,85 @@
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The MovieLookup interface answers the questions a {@link MovieCollection} asks of its movies besides lookup by title.
+ * <p>
+ * {@link MovieIndex} answers them from secondary indexes over movie objects; {@link MovieColumnStore} answers them by
+ * scanning its columns, which needs no extra memory per movie. The find methods return a new list the caller may
+ * change. The ordered methods list every movie, so the caller must not change their list: {@link MovieColumnStore}
+ * returns a view that only creates a movie when its position is read.
+ * </p>
+ */
+public interface MovieLookup {
+    /** The order of {@link #orderedByTitle(boolean)}: ignoring case, then by the exact title, so no two titles tie. */
+    Comparator<String> TITLE_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /**
+     * Finds all movies of a genre, ignoring case.
+     *
+     * @param genre the genre to look for
+     * @return the matching movies (empty if none)
+     */
+    List<Movie> findByGenre(String genre);
+
+    /**
+     * Finds all movies by a director, ignoring case.
+     *
+     * @param director the director to look for
+     * @return the matching movies (empty if none)
+     */
+    List<Movie> findByDirector(String director);
+
+    /**
+     * Finds all movies released within a range of years, ordered by year.
+     *
+     * @param fromYear the first year to include
+     * @param toYear the last year to include
+     * @return the matching movies (empty if none or if the range is empty)
+     */
+    List<Movie> findByYearRange(int fromYear, int toYear);
+
+    /**
+     * Finds all movies rated within a range, ordered by rating.
+     *
+     * @param minRating the lowest rating to include
+     * @param maxRating the highest rating to include
+     * @return the matching movies (empty if none or if the range is empty)
+     */
+    List<Movie> findByRatingRange(float minRating, float maxRating);
+
+    /**
+     * Lists every movie in release year order.
+     *
+     * @param ascending true for oldest first, false for newest first
+     * @return all movies ordered by year
+     */
+    List<Movie> orderedByYear(boolean ascending);
+
+    /**
+     * Lists every movie in rating order.
+     *
+     * @param ascending true for lowest first, false for highest first
+     * @return all movies ordered by rating
+     */
+    List<Movie> orderedByRating(boolean ascending);
+
+    /**
+     * Lists every movie in title order, as given by {@link #TITLE_ORDER}.
+     *
+     * @param ascending true for A to Z, false for Z to A
+     * @return all movies ordered by title
+     */
+    List<Movie> orderedByTitle(boolean ascending);
+
+    /**
+     * Lists every movie grouped by genre, director or watched status, in title order within each group. Genres and
+     * directors are compared ignoring case.
+     *
+     * @param column {@link MovieColumn#GENRE}, {@link MovieColumn#DIRECTOR} or {@link MovieColumn#WATCHED_STATUS}
+     * @param ascending true for the groups and the titles in each group ascending, false for both descending
+     * @return all movies ordered by the column, then by title
+     * @throws IllegalArgumentException if the column is not one of the three
+     */
+    List<Movie> orderedByGroup(MovieColumn column, boolean ascending);
+}//class
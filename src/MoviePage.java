@@ -0,0 +1,151 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The MoviePage class holds one page of a {@link MovieQuery} and the cursor that continues after it.
+ * <p>
+ * The cursor records the sort value and ID of the last movie on the page, so the next page starts right after that row
+ * by seeking in the index, instead of skipping all earlier rows the way {@code OFFSET} would. Every page therefore costs
+ * the same however deep into the catalog it is, and a movie added or removed on an earlier page does not shift later
+ * pages. The cursor is an opaque URL-safe string, so it can be handed to a client and sent back unchanged.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MoviePage page = handler.queryMovies(query, cursor);
+ * for (Movie movie : page.getMovies()) {
+ *     System.out.println(movie.getTitle());
+ * }
+ * String next = page.getNextCursor(); // null on the last page
+ * </pre>
+ */
+public class MoviePage {
+    /** The movies of the page, in query order. */
+    private final List<Movie> movies;
+    /** The cursor of the next page, or null if this is the last page. */
+    private final String nextCursor;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Constructs a page.
+     *
+     * @param movies the movies of the page, in query order
+     * @param nextCursor the cursor of the next page, or null if this is the last page
+     */
+    public MoviePage(List<Movie> movies, String nextCursor) {
+        this.movies = Collections.unmodifiableList(movies);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the movies of the page.
+     * @return the movies in query order, unmodifiable
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Gets the cursor that continues after this page.
+     * @return the cursor to pass to {@link DatabaseHandler#queryMovies(MovieQuery, String)}, or null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether another page follows.
+     * @return true if {@link #getNextCursor()} is not null
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+//======================================================================================================================
+    /**
+     * The position after the last row of a page: its sort value and ID, for one sort field and direction.
+     */
+    static final class Cursor {
+        /** Separates the parts of an encoded cursor; cannot appear in a movie field. */
+        private static final char SEPARATOR = '\u0001';
+
+        /** The sort field the cursor belongs to. */
+        final String sortField;
+        /** The sort direction the cursor belongs to. */
+        final boolean ascending;
+        /** The sort value of the last row, or null if the last row had none. */
+        final String value;
+        /** The ID of the last row. */
+        final long id;
+
+        /**
+         * Creates a cursor.
+         *
+         * @param query the query the cursor continues
+         * @param value the sort value of the last row as text, or null
+         * @param id the ID of the last row
+         */
+        Cursor(MovieQuery query, String value, long id) {
+            this(query.getSortField(), query.isAscending(), value, id);
+        }
+
+        /**
+         * Creates a cursor from its parts.
+         *
+         * @param sortField the sort field
+         * @param ascending the sort direction
+         * @param value the sort value of the last row, or null
+         * @param id the ID of the last row
+         */
+        private Cursor(String sortField, boolean ascending, String value, long id) {
+            this.sortField = sortField;
+            this.ascending = ascending;
+            this.value = value;
+            this.id = id;
+        }
+
+        /**
+         * Encodes the cursor as an opaque URL-safe string.
+         * @return the encoded cursor
+         */
+        String encode() {
+            String text = sortField + SEPARATOR + (ascending ? 'A' : 'D') + SEPARATOR + id + SEPARATOR
+                    + (value == null ? "N" : "V" + value);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Decodes a cursor and checks that it belongs to a query.
+         *
+         * @param encoded the encoded cursor
+         * @param query the query it must continue
+         * @return the cursor
+         * @throws IllegalArgumentException if the cursor is malformed or was made for another sort order
+         */
+        static Cursor decode(String encoded, MovieQuery query) {
+            String[] parts;
+            try {
+                parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8)
+                        .split(String.valueOf(SEPARATOR), 4);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed page cursor", e);
+            }
+            if (parts.length != 4 || parts[3].isEmpty()) {
+                throw new IllegalArgumentException("Malformed page cursor");
+            }
+            Cursor cursor;
+            try {
+                cursor = new Cursor(parts[0], parts[1].equals("A"), parts[3].charAt(0) == 'N' ? null
+                        : parts[3].substring(1), Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed page cursor", e);
+            }
+            if (!cursor.sortField.equals(query.getSortField()) || cursor.ascending != query.isAscending()) {
+                throw new IllegalArgumentException("The page cursor belongs to a different sort order");
+            }
+            return cursor;
+        }
+    }
+}//class
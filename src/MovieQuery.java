@@ -0,0 +1,111 @@
+import java.util.Locale;
+
+/**
+ * The MovieQuery class describes one paged query over the `Movies` table: optional filters, a sort column and a page size.
+ * <p>
+ * It is passed to {@link DatabaseHandler#queryMovies(MovieQuery, String)} together with the cursor of the previous
+ * page. The arguments mirror {@link MovieCollection#findMovies(String, String, String, boolean)}, so a table can switch
+ * between the in-memory collection and the database without translating its filter and sort settings.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieQuery query = new MovieQuery("Drama", null, "release_year", false, 50);
+ * MoviePage page = handler.queryMovies(query, null);
+ * while (page.hasMore()) {
+ *     page = handler.queryMovies(query, page.getNextCursor());
+ * }
+ * </pre>
+ */
+public class MovieQuery {
+    /** The largest page a query may ask for. */
+    public static final int MAX_PAGE_SIZE = 1_000;
+
+    /** The genre to keep, ignoring case, or null for all. */
+    private final String genre;
+    /** The director to keep, ignoring case, or null for all. */
+    private final String director;
+    /** The lower-case sort field. */
+    private final String sortField;
+    /** Whether the sort column is in ascending order. */
+    private final boolean ascending;
+    /** The number of movies per page. */
+    private final int pageSize;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Constructs a query.
+     *
+     * @param genre the genre to keep, ignoring case (null or blank for all)
+     * @param director the director to keep, ignoring case (null or blank for all)
+     * @param sortField "title", "release_year", "genre", "director", "rating" or "watched_status", in any spelling
+     * {@link MovieColumn#lookup(String)} accepts (null for title)
+     * @param ascending true to sort ascending, false for descending
+     * @param pageSize the number of movies per page, from 1 to {@link #MAX_PAGE_SIZE}
+     * @throws IllegalArgumentException if the sort field is unknown or the page size is out of range
+     */
+    public MovieQuery(String genre, String director, String sortField, boolean ascending, int pageSize) {
+        this.genre = genre == null || genre.trim().isEmpty() ? null : genre.trim();
+        this.director = director == null || director.trim().isEmpty() ? null : director.trim();
+        MovieColumn column = MovieColumn.lookup(sortField == null ? "title" : sortField.trim());
+        this.sortField = column == null ? String.valueOf(sortField).trim().toLowerCase(Locale.ROOT) : column.getFieldName();
+        this.ascending = ascending;
+        this.pageSize = pageSize;
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown sort field: " + sortField);
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ": " + pageSize);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the genre filter.
+     * @return the genre to keep, or null for all
+     */
+    public String getGenre() {
+        return genre;
+    }
+
+    /**
+     * Gets the director filter.
+     * @return the director to keep, or null for all
+     */
+    public String getDirector() {
+        return director;
+    }
+
+    /**
+     * Gets the sort field.
+     * @return the lower-case sort field, for example "release_year"
+     */
+    public String getSortField() {
+        return sortField;
+    }
+
+    /**
+     * Gets the column of the `Movies` table the query sorts by.
+     * @return the column name, or null if the sort field is unknown
+     */
+    public String getSortColumn() {
+        MovieColumn column = MovieColumn.lookup(sortField);
+        return column == null ? null : column.getColumnName();
+    }
+
+    /**
+     * Checks the sort direction.
+     * @return true for ascending, false for descending
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Gets the page size.
+     * @return the number of movies per page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+}//class
@@ -0,0 +1,375 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The MovieSearchIndex class answers free-text searches over movie titles and directors with an SQLite FTS5 index.
+ * <p>
+ * The index is an external-content FTS5 table, `Movies_Search`, over the Title and Director columns of `Movies`: it
+ * stores only the inverted index and reads the text from `Movies` itself. Triggers on `Movies` keep it in step with every
+ * insert, update and delete, whichever connection or program makes them, so the write paths need no changes. The index
+ * is created and filled the first time a database is opened, which takes a few seconds for a million movies.
+ * </p>
+ *
+ * <p>
+ * {@link #search(String, int)} splits the text into words and matches the last one as a prefix, so "dark kni" finds
+ * "The Dark Knight" while the user is still typing. Movies whose title holds every word come first, then movies matched
+ * through the director. When that finds fewer results than asked for, each word of three or more letters is widened
+ * with every spelling one edit away from it (a letter dropped, added, changed or two letters swapped), so "nolna" and
+ * "incpetion" still find "Nolan" and "Inception"; these fuzzy results follow the others.
+ * </p>
+ *
+ * <p>
+ * Each step lets SQLite rank its matches with BM25, a title word weighing five times as much as a director word, and
+ * reads only the best {@value #CANDIDATES}. Reading the first matches in index order instead would be faster for a
+ * common word, but could leave out the exact title searched for when it was added late. The candidates are then
+ * ordered here, an exact word counting twice as much as a prefix or fuzzy one, which BM25 does not tell apart. The
+ * spelling variants are looked up as one OR query instead of scanning the index vocabulary, whose word counts cost a
+ * full pass over each word's matches.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieSearchIndex search = MovieSearchIndex.open(conn);
+ * for (Movie movie : search.search("kubrik odyssey", 10)) {
+ *     System.out.println(movie.getTitle());
+ * }
+ * </pre>
+ */
+public class MovieSearchIndex {
+    /** The FTS5 table. */
+    public static final String TABLE = "Movies_Search";
+    /** The most matching rows each search step reads, best first by BM25. */
+    static final int CANDIDATES = 200;
+    /** The weight of a query word found in the title. */
+    private static final int TITLE_WEIGHT = 10;
+    /** The weight of a query word found in the director's name. */
+    private static final int DIRECTOR_WEIGHT = 2;
+    /** The letters spelling variants are made from; other characters are only matched exactly. */
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz0123456789";
+    /** The combining marks a decomposed word's accents are made of. */
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}");
+
+    /** The connection the index is read through. */
+    private final Connection conn;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates the search index and its triggers if they do not exist yet, filling a new index from `Movies`.
+     *
+     * @param conn the connection to the movie database
+     * @return the search index
+     * @throws SQLException if the index cannot be created, for example when SQLite was built without FTS5
+     */
+    public static MovieSearchIndex open(Connection conn) throws SQLException {
+        boolean exists;
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE name = ?;")) {
+            pstmt.setString(1, TABLE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                exists = rs.next();
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE + " USING fts5(Title, Director, "
+                    + "content='Movies', tokenize='unicode61 remove_diacritics 2', prefix='2 3');");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Movies_Search_Insert AFTER INSERT ON Movies BEGIN "
+                    + "INSERT INTO " + TABLE + " (rowid, Title, Director) VALUES (NEW.rowid, NEW.Title, NEW.Director); END;");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Movies_Search_Delete AFTER DELETE ON Movies BEGIN "
+                    + "INSERT INTO " + TABLE + " (" + TABLE + ", rowid, Title, Director) "
+                    + "VALUES ('delete', OLD.rowid, OLD.Title, OLD.Director); END;");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Movies_Search_Update AFTER UPDATE OF Title, Director ON Movies BEGIN "
+                    + "INSERT INTO " + TABLE + " (" + TABLE + ", rowid, Title, Director) "
+                    + "VALUES ('delete', OLD.rowid, OLD.Title, OLD.Director); "
+                    + "INSERT INTO " + TABLE + " (rowid, Title, Director) VALUES (NEW.rowid, NEW.Title, NEW.Director); END;");
+        }
+        MovieSearchIndex index = new MovieSearchIndex(conn);
+        if (!exists) {
+            index.rebuild();
+        }
+        return index;
+    }
+
+    /**
+     * Creates a search index reader.
+     * @param conn the connection to read through
+     */
+    private MovieSearchIndex(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Rebuilds the whole index from `Movies`, for example after the table was changed by a program without FTS5.
+     * @throws SQLException if the index cannot be rebuilt
+     */
+    public void rebuild() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO " + TABLE + " (" + TABLE + ") VALUES ('rebuild');");
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Finds the movies whose title or director best match a text.
+     *
+     * @param text the words to search for, in any case; other characters separate words
+     * @param limit the most movies to return
+     * @return the matching movies, best first: title matches, then director matches, then fuzzy matches (empty if none)
+     * @throws SQLException if the index cannot be read
+     */
+    public List<Movie> search(String text, int limit) throws SQLException {
+        List<String> words = words(text);
+        List<Movie> results = new ArrayList<>();
+        if (words.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        Set<String> found = new HashSet<>();
+        collect(match(words, "Title : ", false), words, limit, results, found);
+        if (results.size() < limit) {
+            collect(match(words, "", false), words, limit, results, found);
+        }
+        if (results.size() < limit && words.stream().anyMatch(word -> word.length() >= 3)) {
+            collect(match(words, "", true), words, limit, results, found);
+        }
+        return results;
+    }
+
+    /**
+     * Builds the FTS5 query that requires every word, the last one as a prefix.
+     *
+     * @param words the lower-case query words
+     * @param column the column filter put before each word, such as "Title : ", or empty for all columns
+     * @param fuzzy true to accept every spelling variant of words of three or more letters
+     * @return the FTS5 query
+     */
+    private static String match(List<String> words, String column, boolean fuzzy) {
+        StringBuilder match = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            String term = quote(word) + (i == words.size() - 1 ? "*" : "");
+            match.append(i == 0 ? "" : " AND ").append(column);
+            if (fuzzy && word.length() >= 3) {
+                match.append('(').append(term);
+                for (String variant : variants(word)) {
+                    match.append(" OR ").append(quote(variant));
+                }
+                match.append(')');
+            } else {
+                match.append(term);
+            }
+        }
+        return match.toString();
+    }
+
+    /**
+     * Runs one FTS5 query, reads its {@value #CANDIDATES} best matches by BM25, ranks them and appends those not already
+     * found.
+     *
+     * @param match the FTS5 query
+     * @param words the lower-case query words the matches are ranked by
+     * @param limit the size the results may grow to
+     * @param results receives the movies
+     * @param found the titles already in the results
+     * @throws SQLException if the index cannot be read
+     */
+    private void collect(String match, List<String> words, int limit, List<Movie> results, Set<String> found)
+            throws SQLException {
+        String sql = "SELECT m.Title, m.Release_Year, m.Genre, m.Director, m.Rating, m.Watched_Status FROM Movies m "
+                + "JOIN (SELECT rowid AS id FROM " + TABLE + " WHERE " + TABLE + " MATCH ? "
+                + "ORDER BY bm25(" + TABLE + ", " + TITLE_WEIGHT + ".0, " + DIRECTOR_WEIGHT + ".0) LIMIT ?) s "
+                + "ON m.rowid = s.id;";
+        List<Movie> candidates = new ArrayList<>();
+        Map<Movie, Integer> scores = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, match);
+            pstmt.setInt(2, CANDIDATES);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String title = rs.getString(1);
+                    if (!found.contains(title)) {
+                        Movie movie = new Movie(title, rs.getInt(2), rs.getString(3), rs.getString(4), rs.getFloat(5),
+                                rs.getBoolean(6));
+                        candidates.add(movie);
+                        scores.put(movie, score(movie, words));
+                    }
+                }
+            }
+        }
+        candidates.sort(Comparator.<Movie>comparingInt(movie -> -scores.get(movie))
+                .thenComparingInt(movie -> movie.getTitle().length())
+                .thenComparing(Movie::getTitle));
+        for (Movie movie : candidates) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (found.add(movie.getTitle())) {
+                results.add(movie);
+            }
+        }
+    }
+
+    /**
+     * Scores how well a movie matches the query words: for each word, the best of its title and director matches.
+     *
+     * @param movie the movie
+     * @param words the lower-case query words
+     * @return the score, higher is better
+     */
+    private static int score(Movie movie, List<String> words) {
+        List<String> title = words(movie.getTitle());
+        List<String> director = words(movie.getDirector());
+        int score = 0;
+        for (int i = 0; i < words.size(); i++) {
+            boolean last = i == words.size() - 1;
+            score += Math.max(TITLE_WEIGHT * score(words.get(i), last, title),
+                    DIRECTOR_WEIGHT * score(words.get(i), last, director));
+        }
+        return score;
+    }
+
+    /**
+     * Scores one query word against the words of a field.
+     *
+     * @param word the lower-case query word
+     * @param prefix true if the word may match as a prefix
+     * @param field the lower-case words of the field
+     * @return 2 for an exact match, 1 for a prefix or fuzzy match, 0 for none
+     */
+    private static int score(String word, boolean prefix, List<String> field) {
+        int best = 0;
+        for (String candidate : field) {
+            if (candidate.equals(word)) {
+                return 2;
+            }
+            if ((prefix && candidate.startsWith(word)) || (word.length() >= 3 && editDistance(word, candidate, 1) <= 1)) {
+                best = 1;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lists the spellings one edit away from a word: a character dropped, two neighbours swapped, or a letter or digit
+     * added or changed.
+     *
+     * @param word the lower-case word
+     * @return the variants, without the word itself
+     */
+    static Set<String> variants(String word) {
+        Set<String> variants = new LinkedHashSet<>();
+        for (int i = 0; i <= word.length(); i++) {
+            String before = word.substring(0, i);
+            if (i < word.length()) {
+                variants.add(before + word.substring(i + 1));
+            }
+            if (i + 1 < word.length()) {
+                variants.add(before + word.charAt(i + 1) + word.charAt(i) + word.substring(i + 2));
+            }
+            for (int c = 0; c < LETTERS.length(); c++) {
+                variants.add(before + LETTERS.charAt(c) + word.substring(i));
+                if (i < word.length()) {
+                    variants.add(before + LETTERS.charAt(c) + word.substring(i + 1));
+                }
+            }
+        }
+        variants.remove(word);
+        return variants;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Splits a text into lower-case words the way the index tokenizer does: letters and digits form words, accents are
+     * dropped, everything else separates them.
+     *
+     * @param text the search text, may be null
+     * @return the words (empty if there are none)
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(plain(word.toString()).toLowerCase(Locale.ROOT));
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Drops the accents of a word, as the index tokenizer does.
+     * @param word the word
+     * @return the word without accents, the same instance if it has none
+     */
+    private static String plain(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) >= 0x80) {
+                return ACCENTS.matcher(Normalizer.normalize(word, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Quotes a word as an FTS5 string, so it is never read as query syntax.
+     * @param word the word
+     * @return the quoted word
+     */
+    private static String quote(String word) {
+        return '"' + word.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Computes the Levenshtein distance between two words, giving up once it exceeds a limit.
+     *
+     * @param a the first word
+     * @param b the second word
+     * @param limit the largest distance of interest
+     * @return the distance, or {@code limit + 1} if it is larger than the limit
+     */
+    static int editDistance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1; // Every later row is at least as large
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+}//class
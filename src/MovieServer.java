@@ -0,0 +1,655 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The MovieServer class serves a {@link MovieCollection} over HTTP as JSON, so other programs can read and change the
+ * catalog while the console menu and the GUI remain single-user front ends.
+ * <p>
+ * It is built on the JDK's {@link HttpServer} and runs every request on its own virtual thread, so a thousand clients
+ * waiting on the database do not need a thousand platform threads. Requests go through the same collection methods as
+ * the menu: reads are answered from memory where the collection can, writes take the collection's title locks and are
+ * written through (or queued, with {@code dms.writeBehind}), and every value is checked by {@link MovieValidator}.
+ * </p>
+ *
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code GET /movies?genre=&director=&sort=&order=desc&limit=&cursor=} - one page of movies, see
+ *     {@link MovieQuery}; the response holds {@code movies} and the {@code next} cursor, null on the last page</li>
+ *     <li>{@code GET /movies/{title}} - one movie, or 404</li>
+ *     <li>{@code POST /movies} - adds the movie in the body; 201, 400 if a field is invalid, 409 if the title exists</li>
+ *     <li>{@code PATCH /movies/{title}} - changes the fields in the body; 200, 400, 404, or 409 if a new title exists</li>
+ *     <li>{@code DELETE /movies/{title}} - removes a movie; 204 or 404</li>
+ *     <li>{@code GET /search?q=&limit=} - full-text search of titles and directors, best first</li>
+ *     <li>{@code GET /stats} - count, average, minimum and maximum rating, per genre and per year</li>
+ * </ul>
+ * Movies are written as {@code {"title":..,"releaseYear":..,"genre":..,"director":..,"rating":..,"watched":..}};
+ * request bodies use the same names. Errors are answered as {@code {"error":"message"}}.
+ * </p>
+ *
+ * <p>
+ * Successful GETs are served through a {@link ResponseCache}: the serialized body is kept per path and query for as long
+ * as the {@link MovieCollection#getVersion() collection version} does not change, and is sent with an {@code ETag}. A
+ * request whose {@code If-None-Match} names that ETag is answered with 304 and no body. The {@code X-Cache} header says
+ * whether the body came from the cache ({@code HIT}) or was built ({@code MISS}). Changes made to the database by other
+ * programs are only seen once the collection has loaded them, for example with {@link MovieCollection#refreshChanges()}.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * java -Ddms.db.path=movies.db -Ddms.http.port=8080 -cp out MovieServer
+ * curl localhost:8080/movies/Heat
+ * </pre>
+ */
+public class MovieServer {
+    /** The port used when {@code dms.http.port} is not set. */
+    public static final int DEFAULT_PORT = 8080;
+    /** The most connections waiting to be accepted; sized for a thousand clients connecting at once. */
+    public static final int BACKLOG = 1_024;
+    /** The page size used when a request does not give one. */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    /** The number of search results returned when a request does not give a limit. */
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    /** The largest request body read. */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    /** The collection served. */
+    private final MovieCollection collection;
+    /** The serialized bodies of recent GET responses. */
+    private final ResponseCache cache;
+    /** The HTTP server. */
+    private final HttpServer server;
+    /** Runs each request on a new virtual thread. */
+    private final ExecutorService executor;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a server for a collection with a response cache of the default size, bound to a port but not yet started.
+     *
+     * @param collection the collection to serve
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MovieServer(MovieCollection collection, int port) throws IOException {
+        this(collection, port, ResponseCache.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a server for a collection, bound to a port but not yet started.
+     *
+     * @param collection the collection to serve
+     * @param port the port to listen on, or 0 for any free port
+     * @param cacheBytes the most bytes of responses to cache; 0 caches nothing
+     * @throws IOException if the port cannot be bound
+     */
+    public MovieServer(MovieCollection collection, int port, long cacheBytes) throws IOException {
+        this.collection = collection;
+        this.cache = new ResponseCache(cacheBytes);
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/movies", this::handleMovies);
+        server.createContext("/search", this::handleSearch);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, giving requests in progress up to a second to finish. The collection is left open.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.close();
+    }
+
+    /**
+     * Gets the port the server listens on, which is the chosen one when it was created with port 0.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the response cache, whose counters show how many reads it answered.
+     * @return the cache
+     */
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Opens the collection named by the configuration and serves it until the program is stopped.
+     * <p>
+     * The server runs headless: it never asks for a database path, and once the collection is loaded the database
+     * handler's messages are dropped, since requests are answered with status codes and no dialog may block a request
+     * thread.
+     * </p>
+     *
+     * @param args optional {@code --port=N}, which overrides {@code dms.http.port}
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        DatabaseConfig config = DatabaseConfig.load();
+        int port = config.getInt(DatabaseConfig.HTTP_PORT, DEFAULT_PORT);
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring(7));
+            }
+        }
+
+        System.setProperty(DatabaseConfig.HEADLESS, "true");
+        MovieCollection collection = new MovieCollection();
+        collection.db_Handler.setNotificationSink(NotificationSink.NONE);
+        MovieServer movieServer = new MovieServer(collection, port,
+                config.getLong(DatabaseConfig.HTTP_CACHE_BYTES, ResponseCache.DEFAULT_MAX_BYTES));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            movieServer.stop();
+            collection.close();
+        }));
+        movieServer.start();
+        System.out.println("Serving " + collection.movies.size() + " movies on port " + movieServer.getPort());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Handlers
+    /**
+     * Answers {@code /movies} and {@code /movies/{title}}.
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleMovies(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/movies") || path.equals("/movies/")) {
+                if (method.equals("GET")) {
+                    listMovies(exchange);
+                } else if (method.equals("POST")) {
+                    addMovie(exchange);
+                } else {
+                    notAllowed(exchange, "GET, POST");
+                }
+                return;
+            }
+            if (!path.startsWith("/movies/")) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            String title = path.substring("/movies/".length());
+            switch (method) {
+                case "GET":
+                    getMovie(exchange, title);
+                    break;
+                case "PATCH":
+                    updateMovie(exchange, title);
+                    break;
+                case "DELETE":
+                    removeMovie(exchange, title);
+                    break;
+                default:
+                    notAllowed(exchange, "GET, PATCH, DELETE");
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (SQLException e) {
+            sendError(exchange, 500, "Database error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers {@code GET /search}.
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                notAllowed(exchange, "GET");
+                return;
+            }
+            long version = collection.getVersion();
+            if (sendCached(exchange, version)) {
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String text = query.get("q");
+            if (text == null || text.isBlank()) {
+                sendError(exchange, 400, "The q parameter is required");
+                return;
+            }
+            int limit = intParameter(query, "limit", DEFAULT_SEARCH_LIMIT);
+            List<Movie> movies = collection.searchMovies(text, Math.min(Math.max(limit, 1), MovieQuery.MAX_PAGE_SIZE));
+            sendAndCache(exchange, version, MovieJson.toJson(movies));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers {@code GET /stats} from the collection's running statistics.
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                notAllowed(exchange, "GET");
+                return;
+            }
+            long version = collection.getVersion();
+            if (sendCached(exchange, version)) {
+                return;
+            }
+            MovieStats stats = collection.getStats();
+            StringBuilder json = new StringBuilder(256);
+            // Read every figure under the statistics' lock, so they all describe the same set of movies
+            synchronized (stats) {
+                json.append("{\"count\":").append(stats.getCount());
+                json.append(",\"average\":").append(stats.getAverage());
+                json.append(",\"min\":").append(stats.getMin());
+                json.append(",\"max\":").append(stats.getMax());
+                json.append(",\"genres\":");
+                appendGroups(json, stats.getGenreBreakdown());
+                json.append(",\"years\":");
+                appendGroups(json, stats.getYearBreakdown());
+                json.append('}');
+            }
+            sendAndCache(exchange, version, json.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Movie requests
+    /**
+     * Sends one page of movies, read from the database with a keyset cursor.
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     * @throws SQLException if the page cannot be read
+     */
+    private void listMovies(HttpExchange exchange) throws IOException, SQLException {
+        long version = collection.getVersion();
+        if (sendCached(exchange, version)) {
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        MovieQuery movieQuery = new MovieQuery(query.get("genre"), query.get("director"), query.get("sort"),
+                !"desc".equalsIgnoreCase(query.get("order")), intParameter(query, "limit", DEFAULT_PAGE_SIZE));
+        MoviePage page = collection.queryMovies(movieQuery, query.get("cursor"));
+
+        StringBuilder json = new StringBuilder(64 + page.getMovies().size() * 160);
+        json.append("{\"movies\":");
+        MovieJson.appendMovies(json, page.getMovies());
+        json.append(",\"next\":");
+        MovieJson.appendString(json, page.getNextCursor());
+        json.append('}');
+        sendAndCache(exchange, version, json.toString());
+    }
+
+    /**
+     * Sends one movie.
+     *
+     * @param exchange the request
+     * @param title the title from the path
+     * @throws IOException if the response cannot be sent
+     */
+    private void getMovie(HttpExchange exchange, String title) throws IOException {
+        long version = collection.getVersion();
+        if (sendCached(exchange, version)) {
+            return;
+        }
+        Movie movie = collection.getMovie(title);
+        if (movie == null) {
+            sendError(exchange, 404, "Movie not found: " + title);
+        } else {
+            sendAndCache(exchange, version, MovieJson.toJson(movie));
+        }
+    }
+
+    /**
+     * Adds the movie in the request body.
+     * @param exchange the request
+     * @throws IOException if the request cannot be read or the response cannot be sent
+     */
+    private void addMovie(HttpExchange exchange) throws IOException {
+        Map<MovieColumn, String> fields = readFields(exchange);
+        for (MovieColumn column : MovieColumn.values()) {
+            if (column != MovieColumn.WATCHED_STATUS && fields.get(column) == null) {
+                sendError(exchange, 400, "Missing field: " + column.getFieldName());
+                return;
+            }
+        }
+        String title = fields.get(MovieColumn.TITLE).trim();
+        String genre = fields.get(MovieColumn.GENRE).trim();
+        String director = fields.get(MovieColumn.DIRECTOR).trim();
+        MovieValidator validator = new MovieValidator();
+        ValidationError error = validator.validate(title, fields.get(MovieColumn.RELEASE_YEAR).trim(), genre, director,
+                fields.get(MovieColumn.RATING).trim(), fields.getOrDefault(MovieColumn.WATCHED_STATUS, "false").trim());
+        if (error != null) {
+            sendError(exchange, 400, error.getMessage());
+            return;
+        }
+
+        Movie movie = new Movie(title, validator.getYear(), genre, director, validator.getRating(), validator.isWatched());
+        if (collection.addMovie(movie)) {
+            exchange.getResponseHeaders().set("Location", "/movies/" + encodePath(title));
+            sendJson(exchange, 201, MovieJson.toJson(movie));
+        } else if (collection.getMovie(title) != null) {
+            sendError(exchange, 409, "A movie with this title already exists: " + title);
+        } else {
+            sendError(exchange, 500, "The movie could not be saved");
+        }
+    }
+
+    /**
+     * Changes the fields in the request body of one movie.
+     * <p>
+     * Every field is validated before any is changed. The fields are then changed together with
+     * {@link MovieCollection#updateMovie(String, Map)}, in one statement under the title lock, so no reader sees some of
+     * the new values without the others.
+     * </p>
+     *
+     * @param exchange the request
+     * @param title the title from the path
+     * @throws IOException if the request cannot be read or the response cannot be sent
+     */
+    private void updateMovie(HttpExchange exchange, String title) throws IOException {
+        Map<MovieColumn, String> fields = readFields(exchange);
+        MovieValidator validator = new MovieValidator();
+        for (Map.Entry<MovieColumn, String> field : fields.entrySet()) {
+            if (field.getValue() == null) {
+                sendError(exchange, 400, field.getKey().getFieldName() + " cannot be null");
+                return;
+            }
+            ValidationError error = validator.validateField(field.getKey().getFieldName(), field.getValue().trim());
+            if (error != null) {
+                sendError(exchange, 400, error.getMessage());
+                return;
+            }
+        }
+        if (collection.getMovie(title) == null) {
+            sendError(exchange, 404, "Movie not found: " + title);
+            return;
+        }
+        String newTitle = fields.containsKey(MovieColumn.TITLE) ? fields.get(MovieColumn.TITLE).trim() : title;
+        if (!newTitle.equals(title) && collection.getMovie(newTitle) != null) {
+            sendError(exchange, 409, "A movie with this title already exists: " + newTitle);
+            return;
+        }
+
+        Map<MovieColumn, String> values = new EnumMap<>(MovieColumn.class);
+        for (Map.Entry<MovieColumn, String> field : fields.entrySet()) {
+            values.put(field.getKey(), field.getValue().trim());
+        }
+        if (!values.isEmpty() && !collection.updateMovie(title, values)) {
+            sendError(exchange, 409, "The movie changed while it was being updated: " + title);
+            return;
+        }
+        Movie movie = collection.getMovie(newTitle);
+        if (movie == null) {
+            sendError(exchange, 409, "The movie changed while it was being updated: " + newTitle);
+        } else {
+            sendJson(exchange, 200, MovieJson.toJson(movie));
+        }
+    }
+
+    /**
+     * Removes one movie.
+     *
+     * @param exchange the request
+     * @param title the title from the path
+     * @throws IOException if the response cannot be sent
+     */
+    private void removeMovie(HttpExchange exchange, String title) throws IOException {
+        if (collection.getMovie(title) != null && collection.removeMovie(title)) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            sendError(exchange, 404, "Movie not found: " + title);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+//Request and response helpers
+    /**
+     * Reads the request body as a JSON object of movie fields.
+     * <p>
+     * Fields may be named as they are written ("releaseYear", "watched") or in any spelling
+     * {@link MovieColumn#lookup(String)} accepts ("release_year").
+     * </p>
+     *
+     * @param exchange the request
+     * @return the fields by column, with their values as text (null for a JSON null)
+     * @throws IOException if the body cannot be read
+     * @throws IllegalArgumentException if the body is too large, is not a flat JSON object or names an unknown field
+     */
+    private static Map<MovieColumn, String> readFields(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("The request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        Map<MovieColumn, String> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, String> member : MovieJson.parseObject(new String(body, StandardCharsets.UTF_8)).entrySet()) {
+            MovieColumn column = "watched".equalsIgnoreCase(member.getKey()) ? MovieColumn.WATCHED_STATUS
+                    : MovieColumn.lookup(member.getKey());
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown field: " + member.getKey());
+            }
+            fields.put(column, member.getValue());
+        }
+        return fields;
+    }
+
+    /**
+     * Splits a raw query string into decoded parameters; a repeated parameter keeps its last value.
+     * @param rawQuery the query string as sent, may be null
+     * @return the parameters
+     */
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Reads a whole number parameter.
+     *
+     * @param query the parameters
+     * @param name the parameter name
+     * @param defaultValue the value used when the parameter is missing
+     * @return the value
+     * @throws IllegalArgumentException if the parameter is not a whole number
+     */
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + name + " parameter must be a whole number");
+        }
+    }
+
+    /**
+     * Encodes a title for use as a path segment.
+     * @param title the title
+     * @return the encoded segment, with spaces as %20
+     */
+    static String encodePath(String title) {
+        return URLEncoder.encode(title, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Appends statistic groups as a JSON object of {@code {"count":..,"average":..}} objects.
+     *
+     * @param json the text to append to
+     * @param groups the groups by genre or year
+     */
+    private static void appendGroups(StringBuilder json, Map<?, MovieStats.Group> groups) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<?, MovieStats.Group> group : groups.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            MovieJson.appendString(json, String.valueOf(group.getKey()));
+            json.append(":{\"count\":").append(group.getValue().getCount());
+            json.append(",\"average\":").append(group.getValue().getAverage()).append('}');
+        }
+        json.append('}');
+    }
+
+    /**
+     * Answers a GET from the response cache if it holds the body for the current collection version.
+     *
+     * @param exchange the request
+     * @param version the collection version, read before anything else of the request
+     * @return true if the request was answered, false if the body must be built
+     * @throws IOException if the response cannot be sent
+     */
+    private boolean sendCached(HttpExchange exchange, long version) throws IOException {
+        ResponseCache.Entry entry = cache.get(cacheKey(exchange), version);
+        if (entry == null) {
+            return false;
+        }
+        sendEntry(exchange, entry, "HIT");
+        return true;
+    }
+
+    /**
+     * Caches a GET response built at a collection version and sends it.
+     *
+     * @param exchange the request
+     * @param version the collection version read before the body was built
+     * @param json the response body
+     * @throws IOException if the response cannot be sent
+     */
+    private void sendAndCache(HttpExchange exchange, long version, String json) throws IOException {
+        sendEntry(exchange, cache.put(cacheKey(exchange), version, json.getBytes(StandardCharsets.UTF_8)), "MISS");
+    }
+
+    /**
+     * Sends a cached body with its ETag, or 304 with no body if the client's {@code If-None-Match} names it.
+     * <p>
+     * {@code Cache-Control: no-cache} lets clients keep the body but makes them check it with the ETag before reuse,
+     * because any write can change it.
+     * </p>
+     *
+     * @param exchange the request
+     * @param entry the cached body
+     * @param cacheStatus {@code HIT} or {@code MISS}, sent as {@code X-Cache}
+     * @throws IOException if the response cannot be sent
+     */
+    private static void sendEntry(HttpExchange exchange, ResponseCache.Entry entry, String cacheStatus) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", entry.getETag());
+        headers.set("Cache-Control", "no-cache");
+        headers.set("X-Cache", cacheStatus);
+        if (entry.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, entry.getBody().length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(entry.getBody());
+        }
+    }
+
+    /**
+     * Creates the response cache key of a request from its path and query, as sent.
+     * @param exchange the request
+     * @return the key
+     */
+    private static String cacheKey(HttpExchange exchange) {
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        String rawPath = exchange.getRequestURI().getRawPath();
+        return rawQuery == null ? rawPath : rawPath + '?' + rawQuery;
+    }
+
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange the request
+     * @param status the HTTP status code
+     * @param json the response body
+     * @throws IOException if the response cannot be sent
+     */
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Sends an error as {@code {"error":"message"}}.
+     *
+     * @param exchange the request
+     * @param status the HTTP status code
+     * @param message the error message
+     * @throws IOException if the response cannot be sent
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        MovieJson.appendString(json, message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    /**
+     * Answers a request whose method the path does not support.
+     *
+     * @param exchange the request
+     * @param allowed the methods the path supports
+     * @throws IOException if the response cannot be sent
+     */
+    private static void notAllowed(HttpExchange exchange, String allowed) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Allow", allowed);
+        sendError(exchange, 405, "Method not allowed");
+    }
+}//class
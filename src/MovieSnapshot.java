@@ -0,0 +1,236 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The MovieSnapshot class saves the in-memory collection to a compact binary file and loads it back without the database.
+ * <p>
+ * When {@link DatabaseConfig#isSnapshotEnabled() dms.snapshot} is set, {@link MovieCollection#close()} writes a
+ * snapshot next to the database, and the next collection opened on that
+ * database reads it instead of selecting and converting every row. The snapshot records the change log sequence number
+ * and row count of the database it was taken from: if the database has moved on since, only the changes logged after
+ * that number are loaded, and if it has gone back or the row counts disagree, the snapshot is dropped and the collection
+ * is loaded from the database as before.
+ * </p>
+ *
+ * <p>
+ * The file is read through a memory-mapped buffer and laid out for it: a header with a magic number, the format version,
+ * the change log position and the row count; a table of the distinct genres and directors, which rows refer to by
+ * number; then one record per movie holding its title and fixed-size fields. A CRC-32 of everything before it ends the
+ * file, so a snapshot cut short or damaged on disk is rejected as a whole. It is written to a temporary file and moved
+ * into place, so a reader never sees half a snapshot.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieSnapshot.write(path, movies.values(), handler.getLatestChangeSeq());
+ * MovieSnapshot snapshot = MovieSnapshot.read(path); // null if there is none
+ * </pre>
+ */
+public class MovieSnapshot {
+    /** The suffix added to the database path to name its snapshot. */
+    public static final String FILE_SUFFIX = "-snapshot";
+    /** The first bytes of every snapshot, "DMSS". */
+    static final int MAGIC = 0x444D5353;
+    /** The format version written; a snapshot of another version is ignored. */
+    static final int VERSION = 1;
+    /** The size of the header: magic, version, change sequence number, row count and string count. */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+    /** The change log sequence number of the database when the snapshot was taken. */
+    private final long changeSeq;
+    /** The movies of the snapshot. */
+    private final List<Movie> movies;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates a loaded snapshot.
+     *
+     * @param changeSeq the change log sequence number it was taken at
+     * @param movies the movies
+     */
+    private MovieSnapshot(long changeSeq, List<Movie> movies) {
+        this.changeSeq = changeSeq;
+        this.movies = movies;
+    }
+
+    /**
+     * Gets the change log sequence number of the database when the snapshot was taken.
+     * @return the sequence number
+     */
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    /**
+     * Gets the movies of the snapshot.
+     * @return the movies, in the order they were written
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Writes a snapshot, replacing any earlier one at the same path only once the new one is complete.
+     *
+     * @param path the snapshot file
+     * @param movies the movies to save
+     * @param changeSeq the change log sequence number the movies are current at
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, Collection<Movie> movies, long changeSeq) throws IOException {
+        List<Movie> rows = new ArrayList<>(movies);
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> numbers = new HashMap<>();
+        for (Movie movie : rows) {
+            number(movie.getGenre(), strings, numbers);
+            number(movie.getDirector(), strings, numbers);
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(changeSeq);
+            out.writeInt(rows.size());
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                writeText(out, string);
+            }
+            for (Movie movie : rows) {
+                writeText(out, movie.getTitle());
+                out.writeInt(numbers.get(movie.getGenre()));
+                out.writeInt(numbers.get(movie.getDirector()));
+                out.writeInt(movie.getRelease_Year());
+                out.writeFloat(movie.getRating());
+                out.writeBoolean(movie.getWatched_Status());
+            }
+            out.flush();
+            long crc = checked.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot through a memory-mapped buffer.
+     *
+     * @param path the snapshot file
+     * @return the snapshot, or null if there is no file
+     * @throws IOException if the file cannot be read, or is not a complete snapshot of this version
+     */
+    public static MovieSnapshot read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has an invalid size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - 8;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(bodyLength));
+            if (crc.getValue() != buffer.getLong(bodyLength)) {
+                throw new IOException("Snapshot checksum does not match");
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a movie snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Snapshot version " + version + " is not supported");
+            }
+            long changeSeq = buffer.getLong();
+            int rowCount = buffer.getInt();
+            int stringCount = buffer.getInt();
+            try {
+                String[] strings = new String[stringCount];
+                for (int i = 0; i < stringCount; i++) {
+                    strings[i] = readText(buffer);
+                }
+                List<Movie> movies = new ArrayList<>(rowCount);
+                for (int i = 0; i < rowCount; i++) {
+                    String title = readText(buffer);
+                    String genre = strings[buffer.getInt()];
+                    String director = strings[buffer.getInt()];
+                    movies.add(new Movie(title, buffer.getInt(), genre, director, buffer.getFloat(), buffer.get() != 0));
+                }
+                if (buffer.position() != bodyLength) {
+                    throw new IOException("Snapshot has " + (bodyLength - buffer.position()) + " unexpected bytes");
+                }
+                return new MovieSnapshot(changeSeq, movies);
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot is malformed: " + e, e);
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Numbers a string for the string table, adding it if it is new.
+     *
+     * @param string the string, may be null
+     * @param strings the table, in number order
+     * @param numbers the number of each string in the table
+     */
+    private static void number(String string, List<String> strings, Map<String, Integer> numbers) {
+        if (!numbers.containsKey(string)) {
+            numbers.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes; null is written as length -1.
+     *
+     * @param out the stream
+     * @param text the string, may be null
+     * @throws IOException if the stream fails
+     */
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeText(DataOutputStream, String)}.
+     * @param buffer the buffer, positioned on the string
+     * @return the string, or null
+     */
+    private static String readText(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}//class
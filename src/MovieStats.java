@@ -0,0 +1,277 @@
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The MovieStats class keeps running rating statistics for the movies of a {@link MovieCollection}.
+ * <p>
+ * Instead of looping over every movie whenever a statistic is asked for, the sum, count, minimum and maximum rating are
+ * updated as movies are added and removed, together with a count and sum per genre and per release year. Reading the
+ * average, count, minimum or maximum is O(1); adding or removing a movie is O(log n) because of the minimum and maximum.
+ * </p>
+ * Like {@link MovieIndex}, it must be told about every change: {@link #add(Movie)} after a movie is stored and
+ * {@link #remove(Movie)} before it is changed or removed.
+ * <p>
+ * Every method is synchronized, so a reader on another thread always sees the count, sum, minimum and maximum of the same
+ * set of movies, never a sum that already includes a movie the count does not.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieStats stats = new MovieStats();
+ * stats.add(movie);
+ * double average = stats.getAverage();
+ * </pre>
+ */
+public class MovieStats {
+    /** The number of movies counted. */
+    private long count;
+    /** The sum of all ratings. */
+    private double sum;
+    /** How many movies have each rating, used to keep the minimum and maximum correct when movies are removed. */
+    private final NavigableMap<Float, Integer> ratingCounts = new TreeMap<>();
+    /** The lowest rating, cached so it can be read in O(1). */
+    private float min;
+    /** The highest rating, cached so it can be read in O(1). */
+    private float max;
+    /** Count and sum per lower-case genre. */
+    private final Map<String, Group> byGenre = new HashMap<>();
+    /** Count and sum per release year, in year order. */
+    private final NavigableMap<Integer, Group> byYear = new TreeMap<>();
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Adds a movie's rating to the statistics.
+     *
+     * @param movie the movie to count
+     */
+    public synchronized void add(Movie movie) {
+        float rating = movie.getRating();
+        count++;
+        sum += rating;
+        ratingCounts.merge(rating, 1, Integer::sum);
+        byGenre.computeIfAbsent(MovieDictionary.key(movie.getGenre()), k -> new Group()).add(rating);
+        byYear.computeIfAbsent(movie.getRelease_Year(), k -> new Group()).add(rating);
+        updateMinMax();
+    }
+
+    /**
+     * Removes a movie's rating from the statistics. This must be called before the movie's fields are changed.
+     *
+     * @param movie the movie to stop counting
+     */
+    public synchronized void remove(Movie movie) {
+        float rating = movie.getRating();
+        Integer ratingCount = ratingCounts.get(rating);
+        if (ratingCount == null) {
+            return;   // Not counted, nothing to remove
+        }
+        if (ratingCount == 1) {
+            ratingCounts.remove(rating);
+        } else {
+            ratingCounts.put(rating, ratingCount - 1);
+        }
+        count--;
+        sum = count == 0 ? 0 : sum - rating;
+        removeFrom(byGenre, MovieDictionary.key(movie.getGenre()), rating);
+        removeFrom(byYear, movie.getRelease_Year(), rating);
+        updateMinMax();
+    }
+
+    /**
+     * Resets every statistic to empty.
+     */
+    public synchronized void clear() {
+        count = 0;
+        sum = 0;
+        ratingCounts.clear();
+        byGenre.clear();
+        byYear.clear();
+        updateMinMax();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the number of movies counted.
+     * @return the movie count
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the sum of all ratings.
+     * @return the rating sum
+     */
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets the average rating.
+     * @return the average rating, or 0 if there are no movies
+     */
+    public synchronized double getAverage() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Gets the lowest rating.
+     * @return the lowest rating, or 0 if there are no movies
+     */
+    public synchronized float getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the highest rating.
+     * @return the highest rating, or 0 if there are no movies
+     */
+    public synchronized float getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the count and average rating of one genre, ignoring case.
+     *
+     * @param genre the genre to look up
+     * @return the genre's statistics (empty if there are no movies of that genre)
+     */
+    public synchronized Group getGenre(String genre) {
+        Group group = byGenre.get(key(genre));
+        return group == null ? new Group() : group.copy();
+    }
+
+    /**
+     * Gets the count and average rating of one release year.
+     *
+     * @param year the year to look up
+     * @return the year's statistics (empty if there are no movies from that year)
+     */
+    public synchronized Group getYear(int year) {
+        Group group = byYear.get(year);
+        return group == null ? new Group() : group.copy();
+    }
+
+    /**
+     * Gets the statistics of every genre.
+     * @return a copy of the per-genre statistics, keyed by lower-case genre
+     */
+    public synchronized Map<String, Group> getGenreBreakdown() {
+        Map<String, Group> copy = new HashMap<>();
+        byGenre.forEach((genre, group) -> copy.put(genre, group.copy()));
+        return copy;
+    }
+
+    /**
+     * Gets the statistics of every release year.
+     * @return a copy of the per-year statistics, in year order
+     */
+    public synchronized NavigableMap<Integer, Group> getYearBreakdown() {
+        NavigableMap<Integer, Group> copy = new TreeMap<>();
+        byYear.forEach((year, group) -> copy.put(year, group.copy()));
+        return copy;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Refreshes the cached minimum and maximum from the rating counts.
+     */
+    private void updateMinMax() {
+        min = ratingCounts.isEmpty() ? 0 : ratingCounts.firstKey();
+        max = ratingCounts.isEmpty() ? 0 : ratingCounts.lastKey();
+    }
+
+    /**
+     * Normalizes a searched genre to its breakdown key; stored genres use {@link MovieDictionary#key(String)}.
+     * @param genre the genre to normalize
+     * @return the lower-case key, or an empty string for null
+     */
+    private static String key(String genre) {
+        return genre == null ? "" : genre.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Removes one rating from a breakdown group, dropping the group when it becomes empty.
+     *
+     * @param groups the breakdown to remove from
+     * @param key the group key
+     * @param rating the rating to remove
+     * @param <K> the key type of the breakdown
+     */
+    private static <K> void removeFrom(Map<K, Group> groups, K key, float rating) {
+        Group group = groups.get(key);
+        if (group != null) {
+            group.remove(rating);
+            if (group.count == 0) {
+                groups.remove(key);
+            }
+        }
+    }
+
+//======================================================================================================================
+    /**
+     * The count and rating sum of one genre or one release year.
+     */
+    public static class Group {
+        /** The number of movies in the group. */
+        private long count;
+        /** The sum of the group's ratings. */
+        private double sum;
+
+        /**
+         * Adds a rating to the group.
+         * @param rating the rating to add
+         */
+        private void add(float rating) {
+            count++;
+            sum += rating;
+        }
+
+        /**
+         * Removes a rating from the group.
+         * @param rating the rating to remove
+         */
+        private void remove(float rating) {
+            count--;
+            sum = count == 0 ? 0 : sum - rating;
+        }
+
+        /**
+         * Copies the group so callers cannot change the running totals.
+         * @return a copy of the group
+         */
+        private Group copy() {
+            Group copy = new Group();
+            copy.count = count;
+            copy.sum = sum;
+            return copy;
+        }
+
+        /**
+         * Gets the number of movies in the group.
+         * @return the movie count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the average rating of the group.
+         * @return the average rating, or 0 if the group is empty
+         */
+        public double getAverage() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * Returns the group as text.
+         * @return the count and average of the group
+         */
+        public String toString() {
+            return String.format("%d movies, average %.2f", count, getAverage());
+        }
+    }
+}//class
@@ -0,0 +1,151 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * The MovieTableModel class shows movies in a {@link javax.swing.JTable} without copying their data.
+ * <p>
+ * The model keeps the list it is given and maps each row number to an index into it; nothing is copied. A row's movie
+ * is only taken from the list when the table paints that row, and a JTable only paints the rows visible in its
+ * viewport, so the cost of showing the table does not grow with the number of movies. A list that creates its movies on
+ * demand, such as the ordered views of a {@link MovieColumnStore}, therefore only creates the visible ones. The last
+ * movie taken is kept, so painting the cells of one row takes it once. This replaces building one large string of
+ * every movie for a text area.
+ * </p>
+ *
+ * <p>
+ * Rows are replaced as a whole with {@link #setMovies(List)}, which must be called on the event dispatch thread. Sorting
+ * and filtering are done by {@link MovieCollection#findMovies(String, String, String, boolean)} before the rows are set.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieTableModel model = new MovieTableModel();
+ * JTable table = new JTable(model);
+ * model.setMovies(movieCollection.findMovies(null, null, "title", true));
+ * </pre>
+ */
+public class MovieTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    /** The column headers, in display order. */
+    private static final String[] COLUMN_NAMES = {"Title", "Year", "Genre", "Director", "Rating", "Watched"};
+    /** The fields each column sorts by, as accepted by {@link MovieCollection#findMovies(String, String, String, boolean)}. */
+    private static final String[] SORT_FIELDS = {"title", "release_year", "genre", "director", "rating", "watched_status"};
+    /** The value types of the columns, so numbers and check boxes render correctly. */
+    private static final Class<?>[] COLUMN_TYPES = {String.class, Integer.class, String.class, String.class, Float.class, Boolean.class};
+
+    /** The movies shown, row n at index n; not serialized, since movies are not serializable. */
+    private transient List<Movie> rows = List.of();
+    /** The row of {@link #cachedMovie}, or -1 if none is cached. */
+    private transient int cachedRow = -1;
+    /** The movie last taken from {@link #rows}. */
+    private transient Movie cachedMovie;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Replaces the rows shown by the table.
+     *
+     * @param movies the movies to show, in display order; kept, not copied, so it must not change while shown and
+     * should be a random access list
+     */
+    public void setMovies(List<Movie> movies) {
+        rows = movies;
+        cachedRow = -1;
+        cachedMovie = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Gets the movie shown in a row.
+     *
+     * @param row the row number, starting at 0
+     * @return the movie in that row
+     */
+    public Movie getMovieAt(int row) {
+        if (row != cachedRow) {
+            cachedMovie = rows.get(row);
+            cachedRow = row;
+        }
+        return cachedMovie;
+    }
+
+    /**
+     * Gets the field a column sorts by.
+     *
+     * @param column the column number, starting at 0
+     * @return the sort field name for {@link MovieCollection#findMovies(String, String, String, boolean)}
+     */
+    public static String getSortField(int column) {
+        return SORT_FIELDS[column];
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the number of movies shown.
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Returns the number of columns.
+     * @return the column count
+     */
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    /**
+     * Returns a column header.
+     * @param column the column number, starting at 0
+     * @return the header text
+     */
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    /**
+     * Returns the value type of a column.
+     * @param column the column number, starting at 0
+     * @return the class of the column's values
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_TYPES[column];
+    }
+
+    /**
+     * Reads one cell from its movie. Called by the table only for cells it paints.
+     * <p>
+     * A row whose movie was removed from a columnar store after the list was made shows empty cells.
+     * </p>
+     *
+     * @param row the row number, starting at 0
+     * @param column the column number, starting at 0
+     * @return the cell value
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        Movie movie = getMovieAt(row);
+        if (movie == null) {
+            return null;
+        }
+        switch (column) {
+            case 0:
+                return movie.getTitle();
+            case 1:
+                return movie.getRelease_Year();
+            case 2:
+                return movie.getGenre();
+            case 3:
+                return movie.getDirector();
+            case 4:
+                return movie.getRating();
+            default:
+                return movie.getWatched_Status();
+        }
+    }
+}//class
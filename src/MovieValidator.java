@@ -0,0 +1,414 @@
+/**
+ * The MovieValidator class holds the one set of rules every movie field is checked against.
+ * <p>
+ * The command line menu, the GUI, the file import and {@link MovieCollection#updateMovie(String, String, String)} all
+ * validate through this class, so a rule is changed in one place. The checks are written to be cheap enough to run on
+ * every line of a large import:
+ * <ul>
+ *     <li>Genres are found with the perfect hash in {@link Genre#lookup(CharSequence)} instead of scanning a list.</li>
+ *     <li>Names are checked with a character class test instead of a regular expression.</li>
+ *     <li>Years and ratings are parsed by hand, so invalid numbers do not throw and catch an exception.</li>
+ *     <li>Failures are returned as shared {@link ValidationError} constants, and the parsed values are kept in the
+ *     validator, so a valid row allocates nothing.</li>
+ * </ul>
+ * Inputs are {@link CharSequence}s, so the importer can validate fields straight from a {@link MappedCsvReader} without
+ * creating {@code String}s. Values are expected to be trimmed already.
+ * </p>
+ *
+ * <p>
+ * The static checks can be used from anywhere. An instance keeps the values parsed by its last call, so it must not be
+ * shared between threads; each import worker uses its own.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * MovieValidator validator = new MovieValidator();
+ * ValidationError error = validator.validate("Heat", "1995", "Crime", "Michael Mann", "88.5", "true");
+ * if (error == null) {
+ *     Movie movie = new Movie("Heat", validator.getYear(), "Crime", "Michael Mann", validator.getRating(), validator.isWatched());
+ * } else {
+ *     System.out.println(error.getMessage());
+ * }
+ * </pre>
+ */
+public final class MovieValidator {
+    /** The shortest title allowed. */
+    public static final int MIN_TITLE_LENGTH = 1;
+    /** The longest title allowed. */
+    public static final int MAX_TITLE_LENGTH = 45;
+    /** The earliest release year allowed. */
+    public static final int MIN_YEAR = 1900;
+    /** The latest release year allowed. */
+    public static final int MAX_YEAR = 2025;
+    /** The shortest director name allowed. */
+    public static final int MIN_DIRECTOR_LENGTH = 2;
+    /** The longest director name allowed. */
+    public static final int MAX_DIRECTOR_LENGTH = 25;
+    /** The lowest rating allowed. */
+    public static final float MIN_RATING = 0;
+    /** The highest rating allowed. */
+    public static final float MAX_RATING = 100;
+
+    /** The powers of ten used to place the decimal point of a rating. */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15};
+
+    /** The release year parsed by the last successful check. */
+    private int year;
+    /** The rating parsed by the last successful check. */
+    private float rating;
+    /** The watched status parsed by the last successful check. */
+    private boolean watched;
+    /** The genre found by the last successful check. */
+    private Genre genre;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Validates all fields of a movie, stopping at the first invalid one.
+     * <p>
+     * On success the parsed values are available from {@link #getYear()}, {@link #getRating()}, {@link #isWatched()}
+     * and {@link #getGenre()}.
+     * </p>
+     *
+     * @param title the title
+     * @param year the release year as text
+     * @param genre the genre as text
+     * @param director the director's name
+     * @param rating the rating as text
+     * @param watched the watched status as text
+     * @return the first error found, or null if every field is valid
+     */
+    public ValidationError validate(CharSequence title, CharSequence year, CharSequence genre, CharSequence director,
+                                    CharSequence rating, CharSequence watched) {
+        return validate(title.length(), year, genre, director, rating, watched);
+    }
+
+    /**
+     * Validates all fields of a movie whose title length is already known, for callers that do not hold the title as
+     * characters, such as {@link MappedCsvReader}.
+     *
+     * @param titleLength the title's length in characters
+     * @param year the release year as text
+     * @param genre the genre as text
+     * @param director the director's name
+     * @param rating the rating as text
+     * @param watched the watched status as text
+     * @return the first error found, or null if every field is valid
+     */
+    public ValidationError validate(int titleLength, CharSequence year, CharSequence genre, CharSequence director,
+                                    CharSequence rating, CharSequence watched) {
+        ValidationError error = checkTitleLength(titleLength);
+        if (error == null) {
+            error = parseYear(year);
+        }
+        if (error == null) {
+            error = parseGenre(genre);
+        }
+        if (error == null) {
+            error = checkDirector(director);
+        }
+        if (error == null) {
+            error = parseRating(rating);
+        }
+        if (error == null) {
+            error = parseWatched(watched);
+        }
+        return error;
+    }
+
+    /**
+     * Validates one field by name, as used when a single field of a movie is updated.
+     * <p>
+     * Title uniqueness is not checked here, because it depends on the collection.
+     * </p>
+     *
+     * @param field the field name: title, release_year, genre, director, rating or watched_status, in any spelling
+     * {@link MovieColumn#lookup(String)} accepts, such as "releaseYear"
+     * @param value the new value
+     * @return the error, or null if the value is valid for the field
+     */
+    public ValidationError validateField(String field, CharSequence value) {
+        MovieColumn column = MovieColumn.lookup(field);
+        if (column == null) {
+            return ValidationError.UNKNOWN_FIELD;
+        }
+        switch (column) {
+            case TITLE:
+                return checkTitleLength(value.length());
+            case RELEASE_YEAR:
+                return parseYear(value);
+            case GENRE:
+                return parseGenre(value);
+            case DIRECTOR:
+                return checkDirector(value);
+            case RATING:
+                return parseRating(value);
+            default:
+                return parseWatched(value);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Checks a title's length.
+     * @param length the title's length in characters
+     * @return {@link ValidationError#TITLE_LENGTH}, or null if the length is allowed
+     */
+    public static ValidationError checkTitleLength(int length) {
+        return length < MIN_TITLE_LENGTH || length > MAX_TITLE_LENGTH ? ValidationError.TITLE_LENGTH : null;
+    }
+
+    /**
+     * Checks a title.
+     * @param title the title
+     * @return {@link ValidationError#TITLE_LENGTH}, or null if the title is valid
+     */
+    public static ValidationError checkTitle(CharSequence title) {
+        return checkTitleLength(title.length());
+    }
+
+    /**
+     * Checks a director's name: only letters and spaces, and within the length limits.
+     * @param director the name
+     * @return the error, or null if the name is valid
+     */
+    public static ValidationError checkDirector(CharSequence director) {
+        int length = director.length();
+        if (length == 0) {
+            return ValidationError.DIRECTOR_CHARACTERS;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!isNameChar(director.charAt(i))) {
+                return ValidationError.DIRECTOR_CHARACTERS;
+            }
+        }
+        return length < MIN_DIRECTOR_LENGTH || length > MAX_DIRECTOR_LENGTH ? ValidationError.DIRECTOR_LENGTH : null;
+    }
+
+    /**
+     * Checks whether a character may appear in a name: an ASCII letter or a space, like {@code [a-zA-Z ]}.
+     * @param c the character
+     * @return true if the character is allowed
+     */
+    public static boolean isNameChar(int c) {
+        int lower = c | 0x20;
+        return c == ' ' || (c < 0x80 && lower >= 'a' && lower <= 'z');
+    }
+
+    /**
+     * Checks a genre.
+     * @param genre the genre as text
+     * @return {@link ValidationError#GENRE}, or null if it names a valid genre
+     */
+    public static ValidationError checkGenre(CharSequence genre) {
+        return Genre.lookup(genre) == null ? ValidationError.GENRE : null;
+    }
+
+    /**
+     * Checks a release year that is already a number.
+     * @param year the year
+     * @return {@link ValidationError#YEAR_RANGE}, or null if the year is allowed
+     */
+    public static ValidationError checkYear(int year) {
+        return year < MIN_YEAR || year > MAX_YEAR ? ValidationError.YEAR_RANGE : null;
+    }
+
+    /**
+     * Checks a rating that is already a number.
+     * @param rating the rating
+     * @return {@link ValidationError#RATING_RANGE}, or null if the rating is allowed
+     */
+    public static ValidationError checkRating(float rating) {
+        // Written so that NaN is out of range as well
+        return rating >= MIN_RATING && rating <= MAX_RATING ? null : ValidationError.RATING_RANGE;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Parses and checks a release year, keeping it for {@link #getYear()}.
+     * @param text the year as text, optionally signed
+     * @return the error, or null if the year is valid
+     */
+    public ValidationError parseYear(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        if (i == length || length - i > 9) {
+            // Empty, or too long to be a valid year (and to fit without overflow checks)
+            return i < length && allDigits(text, i) ? ValidationError.YEAR_RANGE : ValidationError.YEAR_FORMAT;
+        }
+        int value = 0;
+        for (; i < length; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return ValidationError.YEAR_FORMAT;
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        ValidationError error = checkYear(value);
+        if (error == null) {
+            year = value;
+        }
+        return error;
+    }
+
+    /**
+     * Parses and checks a rating, keeping it for {@link #getRating()}.
+     * <p>
+     * Plain decimals such as {@code 87.5} are parsed by hand. Other forms that {@link Float#parseFloat(String)} accepts,
+     * such as {@code 1e1}, are passed to it, so the same inputs are accepted as before.
+     * </p>
+     *
+     * @param text the rating as text
+     * @return the error, or null if the rating is valid
+     */
+    public ValidationError parseRating(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0, decimals = 0;
+        boolean point = false, plain = true;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && !point) {
+                point = true;
+            } else if (c >= '0' && c <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) {
+                    decimals++;
+                }
+            } else {
+                plain = false;
+                break;
+            }
+        }
+
+        float value;
+        if (plain && digits > 0) {
+            // Up to 15 digits are exact in a double, so the division rounds correctly
+            double parsed = mantissa / POWERS_OF_TEN[decimals];
+            value = (float) (negative ? -parsed : parsed);
+        } else {
+            try {
+                value = Float.parseFloat(text.toString());
+            } catch (NumberFormatException e) {
+                return ValidationError.RATING_FORMAT;
+            }
+        }
+        ValidationError error = checkRating(value);
+        if (error == null) {
+            rating = value;
+        }
+        return error;
+    }
+
+    /**
+     * Parses and checks a genre, keeping it for {@link #getGenre()}.
+     * @param text the genre as text
+     * @return the error, or null if the genre is valid
+     */
+    public ValidationError parseGenre(CharSequence text) {
+        Genre found = Genre.lookup(text);
+        if (found == null) {
+            return ValidationError.GENRE;
+        }
+        genre = found;
+        return null;
+    }
+
+    /**
+     * Parses and checks a watched status, keeping it for {@link #isWatched()}.
+     * @param text "true" or "false" in any case
+     * @return the error, or null if the status is valid
+     */
+    public ValidationError parseWatched(CharSequence text) {
+        if (equalsIgnoreCase(text, "true")) {
+            watched = true;
+            return null;
+        }
+        if (equalsIgnoreCase(text, "false")) {
+            watched = false;
+            return null;
+        }
+        return ValidationError.WATCHED_STATUS;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the release year parsed by the last successful check.
+     * @return the year
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Returns the rating parsed by the last successful check.
+     * @return the rating
+     */
+    public float getRating() {
+        return rating;
+    }
+
+    /**
+     * Returns the watched status parsed by the last successful check.
+     * @return the watched status
+     */
+    public boolean isWatched() {
+        return watched;
+    }
+
+    /**
+     * Returns the genre found by the last successful check.
+     * @return the genre
+     */
+    public Genre getGenre() {
+        return genre;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Checks whether a text consists only of ASCII digits from an index on.
+     * @param text the text
+     * @param from the first index to check
+     * @return true if every character from the index is a digit
+     */
+    private static boolean allDigits(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a text with a lower case ASCII word, ignoring case.
+     * @param text the text
+     * @param lowerCase the word in lower case
+     * @return true if they are equal ignoring case
+     */
+    private static boolean equalsIgnoreCase(CharSequence text, String lowerCase) {
+        if (text.length() != lowerCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            char c = text.charAt(i);
+            if (c != lowerCase.charAt(i) && (c | 0x20) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}//class
@@ -0,0 +1,58 @@
+/**
+ * The NotificationSink interface receives the messages the data layer reports to the user.
+ * <p>
+ * {@link DatabaseHandler} used to show every result in a modal JOptionPane dialog, which blocks batch jobs and cannot work
+ * without a display. It now reports through a sink instead, so the same code can show dialogs in the GUI, print to the
+ * console in headless runs, or stay silent in jobs that only use the returned values.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * DatabaseHandler handler = new DatabaseHandler();
+ * handler.setNotificationSink(new ConsoleNotificationSink());
+ * </pre>
+ */
+public interface NotificationSink {
+    /**
+     * Reports an informational message, such as a successful operation.
+     *
+     * @param message the message text
+     */
+    void info(String message);
+
+    /**
+     * Reports an error message, such as a failed database operation.
+     *
+     * @param message the message text
+     */
+    void error(String message);
+
+//----------------------------------------------------------------------------------------------------------------------
+    /** A sink that discards every message, for jobs that only use returned values. */
+    NotificationSink NONE = new NotificationSink() {
+        @Override
+        public void info(String message) {
+        }
+
+        @Override
+        public void error(String message) {
+        }
+    };
+
+    /**
+     * Creates the sink for a notification mode.
+     *
+     * @param mode "dialog", "console" or "none" (case-insensitive)
+     * @return the matching sink; unknown modes use the console
+     */
+    static NotificationSink forMode(String mode) {
+        switch (mode.trim().toLowerCase()) {
+            case "dialog":
+                return new DialogNotificationSink();
+            case "none":
+                return NONE;
+            default:
+                return new ConsoleNotificationSink();
+        }
+    }
+}//interface
@@ -0,0 +1,273 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The ResponseCache class keeps the serialized bodies of recent read responses, so a repeated request for an unchanged
+ * catalog is answered without reading the collection or writing JSON again.
+ * <p>
+ * Each entry is stamped with the {@link MovieCollection#getVersion() collection version} it was built at, and is only
+ * returned for that same version: any add, update or remove bumps the version, which makes every older entry stale at
+ * once without the writers having to know what is cached. Stale entries are dropped when they are next asked for, or
+ * pushed out by newer ones. Entries are kept in least-recently-used order and evicted once their bodies and keys add up
+ * to more than the byte cap; a body larger than the whole cap is never cached.
+ * </p>
+ *
+ * <p>
+ * Every entry also carries an ETag computed from its bytes, so a client that sends it back in {@code If-None-Match} can be
+ * answered with 304 Not Modified. The ETag depends on the content only, not on the version, so a movie that was not
+ * changed keeps its ETag while other movies are written, and the client still gets a 304 after the entry is rebuilt.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * ResponseCache cache = new ResponseCache(ResponseCache.DEFAULT_MAX_BYTES);
+ * long version = collection.getVersion();
+ * ResponseCache.Entry entry = cache.get(key, version);
+ * if (entry == null) {
+ *     entry = cache.put(key, version, json.getBytes(StandardCharsets.UTF_8));
+ * }
+ * </pre>
+ */
+public class ResponseCache {
+    /** The byte cap used when {@code dms.http.cacheBytes} is not set: 32 MB. */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    /** The estimated bytes of an entry besides its body and key: the map node, the entry and the ETag. */
+    static final int ENTRY_OVERHEAD = 160;
+
+    /** The most bytes the entries may hold. */
+    private final long maxBytes;
+    /** The entries by request key, least recently used first. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    /** The bytes the entries hold. */
+    private long bytes;
+    /** The number of requests answered from the cache. */
+    private long hits;
+    /** The number of requests that found no current entry. */
+    private long misses;
+    /** The number of entries evicted to stay within the byte cap. */
+    private long evictions;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates an empty cache.
+     * @param maxBytes the most bytes the entries may hold; 0 caches nothing, but ETags are still computed
+     */
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Gets the entry of a request if it was built at the given version.
+     *
+     * @param key the request, for example its path and query
+     * @param version the current collection version
+     * @return the entry, or null if there is none for this version; an entry of another version is dropped
+     */
+    public synchronized Entry get(String key, long version) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits++;
+            return entry;
+        }
+        if (entry != null) {
+            entries.remove(key);
+            bytes -= entry.size;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Creates the entry of a response and caches it, evicting the least recently used entries to stay within the cap.
+     * <p>
+     * The ETag is computed before the cache is locked, so requests for other keys are not held up by it.
+     * </p>
+     *
+     * @param key the request
+     * @param version the collection version the body was built at, read before it was built
+     * @param body the serialized response body
+     * @return the entry, which is returned even when it is too large to be cached
+     */
+    public Entry put(String key, long version, byte[] body) {
+        Entry entry = new Entry(version, body, eTag(body), ENTRY_OVERHEAD + body.length + 2L * key.length());
+        if (entry.size > maxBytes) {
+            return entry;
+        }
+        synchronized (this) {
+            Entry replaced = entries.put(key, entry);
+            if (replaced != null && replaced.version > version) {
+                entries.put(key, replaced);   // A request that started later already cached a newer body
+                return entry;
+            }
+            if (replaced != null) {
+                bytes -= replaced.size;
+            }
+            bytes += entry.size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                bytes -= evicted.size;
+                evictions++;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the number of requests answered from the cache.
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of requests that found no current entry.
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within the byte cap.
+     * @return the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the estimated bytes the entries hold.
+     * @return the bytes, at most the cap
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of entries, current or stale.
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the cache counters as text.
+     * @return the entries, bytes, hits, misses and evictions
+     */
+    public synchronized String toString() {
+        return String.format("%d entries, %d of %d bytes, %d hits, %d misses, %d evictions",
+                entries.size(), bytes, maxBytes, hits, misses, evictions);
+    }
+
+    /**
+     * Computes the strong ETag of a body: the first 64 bits of its SHA-256 digest, quoted.
+     * @param body the body
+     * @return the ETag, for example {@code "1f0e3dad99908345"}
+     */
+    static String eTag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder tag = new StringBuilder(18).append('"');
+            for (int i = 0; i < 8; i++) {
+                tag.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return tag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+//======================================================================================================================
+    /**
+     * One cached response body.
+     */
+    public static final class Entry {
+        /** The collection version the body was built at. */
+        private final long version;
+        /** The serialized body. */
+        private final byte[] body;
+        /** The quoted ETag of the body. */
+        private final String eTag;
+        /** The estimated bytes the entry holds in the cache. */
+        private final long size;
+
+        /**
+         * Creates an entry.
+         *
+         * @param version the collection version the body was built at
+         * @param body the serialized body
+         * @param eTag the quoted ETag of the body
+         * @param size the estimated bytes the entry holds
+         */
+        private Entry(long version, byte[] body, String eTag, long size) {
+            this.version = version;
+            this.body = body;
+            this.eTag = eTag;
+            this.size = size;
+        }
+
+        /**
+         * Gets the collection version the body was built at.
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets the serialized body. It is shared by every request for the entry and must not be changed.
+         * @return the body
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Gets the ETag of the body.
+         * @return the quoted ETag
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Checks whether an {@code If-None-Match} header names this entry, so the client's copy is current.
+         * <p>
+         * The header may list several ETags separated by commas, mark them weak with {@code W/}, or be {@code *}.
+         * </p>
+         *
+         * @param ifNoneMatch the header value, may be null
+         * @return true if the client already has this body
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}//class
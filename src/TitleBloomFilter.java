@@ -0,0 +1,264 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Predicate;
+
+/**
+ * The TitleBloomFilter class answers "is this title possibly stored?" from memory, so an import only queries the
+ * database for titles that probably exist.
+ * <p>
+ * A Bloom filter is a bit array in which every stored title sets a few bits chosen by hashing it. A title whose bits are
+ * not all set is certainly not stored; a title whose bits are all set probably is, and only then is the database asked.
+ * There are no false negatives, and the share of false positives is chosen when the filter is sized, 1% by default,
+ * at about 10 bits per title. The filter is built once from the `Movies` table when an import starts.
+ * </p>
+ *
+ * <p>
+ * {@link #exists(String, Predicate)} counts how often the database was consulted and how often the filter was wrong,
+ * and times the lookups it did make, so {@link #getReport()} can tell the measured false-positive rate and estimate
+ * the time saved by the lookups that were skipped.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * TitleBloomFilter titles = TitleBloomFilter.load(conn, TitleBloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+ * if (!titles.exists(title, handler::movieExists)) {
+ *     // insert the movie
+ * }
+ * System.out.println(titles.getReport());
+ * </pre>
+ */
+public class TitleBloomFilter {
+    /** The default share of absent titles the filter reports as probably stored. */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /** The bits, 64 to a word. */
+    private final long[] bits;
+    /** The number of bits. */
+    private final long bitCount;
+    /** The number of bits set per title. */
+    private final int hashCount;
+    /** The number of titles added. */
+    private int size;
+
+    /** The number of titles checked with {@link #exists(String, Predicate)}. */
+    private long checks;
+    /** The number of checks that had to ask the database. */
+    private long lookups;
+    /** The number of lookups that found the title stored. */
+    private long hits;
+    /** The total time of the timed database lookups. */
+    private long lookupNanos;
+    /** The number of timed database lookups, including the sample taken when no lookup was needed. */
+    private long timedLookups;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates an empty filter sized for the given number of titles.
+     *
+     * @param expectedTitles the number of titles the filter will hold
+     * @param falsePositiveRate the share of absent titles allowed to pass, between 0 and 1
+     */
+    public TitleBloomFilter(int expectedTitles, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        int n = Math.max(1, expectedTitles);
+        // Optimal size m = -n ln p / (ln 2)^2 and hash count k = m / n ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max(1, (m + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Builds a filter holding every title in the `Movies` table.
+     *
+     * @param conn the connection to read the titles through
+     * @param falsePositiveRate the share of absent titles allowed to pass
+     * @return the filled filter
+     * @throws SQLException if the titles cannot be read
+     */
+    public static TitleBloomFilter load(Connection conn, double falsePositiveRate) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            int count;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Movies;")) {
+                count = rs.next() ? rs.getInt(1) : 0;
+            }
+            TitleBloomFilter filter = new TitleBloomFilter(count, falsePositiveRate);
+            try (ResultSet rs = stmt.executeQuery("SELECT Title FROM Movies;")) {
+                while (rs.next()) {
+                    filter.add(rs.getString(1));
+                }
+            }
+            return filter;
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Adds a title to the filter.
+     * @param title the title, compared exactly as the database compares it
+     */
+    public void add(String title) {
+        long hash = hash(title);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1; // Odd, so the probes cover every bit
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /**
+     * Checks whether a title may have been added.
+     * @param title the title to check
+     * @return false if the title was certainly not added, true if it probably was
+     */
+    public boolean mightContain(String title) {
+        long hash = hash(title);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a title is stored, asking the database only if the filter cannot rule it out.
+     * <p>
+     * The first time a lookup is skipped before any was made, one lookup is still made and timed, so the time saved
+     * can be estimated even when every title is new.
+     * </p>
+     *
+     * @param title the title to check
+     * @param database the exact check against the database, for example {@link DatabaseHandler#movieExists(String)}
+     * @return true if the title is stored
+     */
+    public boolean exists(String title, Predicate<String> database) {
+        checks++;
+        if (!mightContain(title)) {
+            if (timedLookups == 0) {
+                timeLookup(title, database); // Sample only; the filter's answer stands
+            }
+            return false;
+        }
+        lookups++;
+        boolean found = timeLookup(title, database);
+        if (found) {
+            hits++;
+        }
+        return found;
+    }
+
+    /**
+     * Runs and times one database lookup.
+     *
+     * @param title the title to look up
+     * @param database the database check
+     * @return the database's answer
+     */
+    private boolean timeLookup(String title, Predicate<String> database) {
+        long start = System.nanoTime();
+        boolean found = database.test(title);
+        lookupNanos += System.nanoTime() - start;
+        timedLookups++;
+        return found;
+    }
+
+    /**
+     * Hashes a title to 64 bits with FNV-1a over its characters, followed by a final mix so that titles differing only
+     * in their last characters still spread over the whole range.
+     *
+     * @param title the title to hash
+     * @return the hash
+     */
+    private static long hash(String title) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < title.length(); i++) {
+            h ^= title.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the number of titles added.
+     * @return the title count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the false-positive rate expected from the filter's size and the number of titles added.
+     * @return the expected rate, between 0 and 1
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * size / bitCount), hashCount);
+    }
+
+    /**
+     * Returns the share of checked titles that were not stored but still had to be looked up.
+     * @return the measured rate, or 0 if no absent title was checked
+     */
+    public double getFalsePositiveRate() {
+        long absent = checks - hits;
+        return absent == 0 ? 0 : (double) (lookups - hits) / absent;
+    }
+
+    /**
+     * Returns the number of titles checked.
+     * @return the check count
+     */
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Returns the number of checks that had to ask the database.
+     * @return the lookup count
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Estimates the time saved by skipped lookups, from the average time of the lookups that were made.
+     * @return the estimated time saved, in nanoseconds
+     */
+    public long getEstimatedNanosSaved() {
+        return timedLookups == 0 ? 0 : (checks - lookups) * (lookupNanos / timedLookups);
+    }
+
+    /**
+     * Returns the memory used by the bits.
+     * @return the size in bytes
+     */
+    public long getSizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    /**
+     * Describes how well the filter worked.
+     * @return the checks, lookups, false-positive rate and estimated time saved, as one line of text
+     */
+    public String getReport() {
+        return String.format("Title filter: %,d titles in %,d KB, %,d checks, %,d database lookups (%,d found), "
+                        + "false positives %.2f%% (expected %.2f%%), about %,d ms saved",
+                size, (getSizeInBytes() + 1023) / 1024, checks, lookups, hits,
+                getFalsePositiveRate() * 100, getExpectedFalsePositiveRate() * 100,
+                getEstimatedNanosSaved() / 1_000_000);
+    }
+}//class
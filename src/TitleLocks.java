@@ -0,0 +1,138 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The TitleLocks class hands out locks by movie title, so writers to different titles rarely wait for each other.
+ * <p>
+ * One lock per title would have to be created and cleaned up as titles come and go, and one lock for the whole collection
+ * would make every writer wait for every other. Instead a fixed number of stripes is kept and each title hashes to one of
+ * them: two writers to the same title always share a stripe, and writers to different titles only meet when their titles
+ * happen to share one. Locks held together are always taken in stripe order, so a rename that locks its old and its new
+ * title cannot deadlock with another rename going the other way.
+ * </p>
+ *
+ * <p>
+ * The held stripes are only closed, never read, inside the try block, so callers name the resource {@code ignored} and
+ * add {@code @SuppressWarnings("try")} to the method to silence javac's unreferenced-resource lint.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * TitleLocks locks = new TitleLocks(TitleLocks.DEFAULT_STRIPES);
+ * try (TitleLocks.Held ignored = locks.lock("Heat", "Heat 2")) {
+ *     // rename Heat to Heat 2
+ * }
+ * </pre>
+ */
+public class TitleLocks {
+    /** The default number of stripes. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /** The locks; a title uses the one its hash selects. */
+    private final ReentrantLock[] stripes;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Creates the stripes.
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     */
+    public TitleLocks(int stripeCount) {
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(Math.min(stripeCount, 1 << 16) - 1) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripe of one title.
+     *
+     * @param title the title to lock
+     * @return the held lock, to be closed when the change is done
+     */
+    public Held lock(String title) {
+        int stripe = stripeOf(title);
+        stripes[stripe].lock();
+        return new Held(stripe, stripe);
+    }
+
+    /**
+     * Locks the stripes of two titles, in stripe order.
+     *
+     * @param first one title to lock
+     * @param second the other title to lock
+     * @return the held locks, to be closed when the change is done
+     */
+    public Held lock(String first, String second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        stripes[low].lock();
+        if (high != low) {
+            stripes[high].lock();
+        }
+        return new Held(low, high);
+    }
+
+    /**
+     * Locks every stripe, in order, for a change to the whole collection such as a reload.
+     * @return the held locks, to be closed when the change is done
+     */
+    public Held lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        return new Held(0, -1);
+    }
+
+    /**
+     * Selects the stripe of a title, spreading the hash so that similar titles land on different stripes.
+     * @param title the title
+     * @return the stripe index
+     */
+    private int stripeOf(String title) {
+        int h = title.hashCode();
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        return h & (stripes.length - 1);
+    }
+
+//======================================================================================================================
+    /**
+     * The stripes held by one caller, released by {@link #close()}.
+     */
+    public final class Held implements AutoCloseable {
+        /** The lower stripe held. */
+        private final int low;
+        /** The higher stripe held, equal to {@link #low} for one stripe, or -1 when every stripe is held. */
+        private final int high;
+
+        /**
+         * Records the held stripes.
+         * @param low the lower stripe
+         * @param high the higher stripe, or -1 for all stripes
+         */
+        private Held(int low, int high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        /**
+         * Releases the stripes in the reverse order they were taken.
+         */
+        @Override
+        public void close() {
+            if (high < 0) {
+                for (int i = stripes.length - 1; i >= 0; i--) {
+                    stripes[i].unlock();
+                }
+                return;
+            }
+            if (high != low) {
+                stripes[high].unlock();
+            }
+            stripes[low].unlock();
+        }
+    }
+}//class
@@ -0,0 +1,74 @@
+/**
+ * The ValidationError enum names each way a movie field can fail validation.
+ * <p>
+ * {@link MovieValidator} returns one of these instead of printing or throwing, so every caller decides how to report
+ * it: the importer prints the {@link #getReason() reason} next to the skipped line, the command line menu prints the
+ * {@link #getMessage() message}, and the GUI shows the message in a dialog. Because the constants are shared, checking
+ * a value and reporting why it failed never allocates.
+ * </p>
+ */
+public enum ValidationError {
+    WRONG_FIELD_COUNT("title", "wrong number of fields",
+            "Each line must contain Title, Year, Genre, Director, Rating and Watched status."),
+    UNTERMINATED_QUOTE("title", "unterminated quote", "A quoted field is missing its closing quote."),
+    UNKNOWN_FIELD("field", "unknown field",
+            "Invalid field. Choose title, release_year, genre, director, rating or watched_status."),
+    TITLE_LENGTH("title", "title length out of bounds", "Title must be between " + MovieValidator.MIN_TITLE_LENGTH
+            + " and " + MovieValidator.MAX_TITLE_LENGTH + " characters."),
+    YEAR_FORMAT("release_year", "invalid year format", "Invalid year format."),
+    YEAR_RANGE("release_year", "year out of range", "Release year must be between " + MovieValidator.MIN_YEAR
+            + " and " + MovieValidator.MAX_YEAR + "."),
+    GENRE("genre", "invalid genre", "Invalid genre. Please choose from: " + Genre.names() + "."),
+    DIRECTOR_CHARACTERS("director", "invalid director name", "Director name must contain only letters and spaces."),
+    DIRECTOR_LENGTH("director", "invalid director name", "Director name must be between "
+            + MovieValidator.MIN_DIRECTOR_LENGTH + " and " + MovieValidator.MAX_DIRECTOR_LENGTH + " characters."),
+    RATING_FORMAT("rating", "invalid rating format", "Invalid rating format."),
+    RATING_RANGE("rating", "rating out of range", "Rating must be between " + (int) MovieValidator.MIN_RATING
+            + " and " + (int) MovieValidator.MAX_RATING + "."),
+    WATCHED_STATUS("watched_status", "invalid watched status", "Watched status must be 'true' or 'false'.");
+
+    /** The field that failed, as named in the database. */
+    private final String field;
+    /** The short reason printed next to a skipped import line. */
+    private final String reason;
+    /** The sentence shown to a user who entered the value. */
+    private final String message;
+
+    /**
+     * Creates an error.
+     *
+     * @param field the field that failed
+     * @param reason the short reason for import logs
+     * @param message the sentence shown to users
+     */
+    ValidationError(String field, String reason, String message) {
+        this.field = field;
+        this.reason = reason;
+        this.message = message;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Returns the field that failed.
+     * @return the field name, for example "release_year"
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Returns the short reason printed when an import line is skipped.
+     * @return the reason, for example "year out of range"
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the sentence shown to a user who entered the value.
+     * @return the message, for example "Release year must be between 1900 and 2025."
+     */
+    public String getMessage() {
+        return message;
+    }
+}//class
@@ -0,0 +1,663 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The WriteBehindQueue class writes movie changes to the database in the background, so a change returns as soon as it
+ * is in memory and in a local journal.
+ * <p>
+ * Each change is queued as the new state of one title: the movie to store under it, or nothing if the title was removed.
+ * A newer state of a title replaces the queued one, so a movie added and then rated twice is written once, and a movie
+ * added and removed again before a flush is only deleted. A rename is one change that queues the removal of the old
+ * title and the movie under the new one together, so neither is queued or journaled without the other; the stored row
+ * then gets a new ID. A background thread commits the queued states in one
+ * transaction every {@code flushMillis}, or sooner once {@code batchSize} titles are waiting, through its own connection,
+ * so its transactions never mix with imports on the session connection.
+ * </p>
+ *
+ * <p>
+ * Every change is also appended to the journal file before it is queued, one checksummed line per change. The journal
+ * is synced to disk with every batch, and at once by {@link #awaitDurable()}; it is emptied whenever everything in it
+ * has been committed. When the queue is created, a journal left behind by a program that stopped before flushing is
+ * replayed into the database first. Replaying only stores the last state of each title, so a journal can be replayed
+ * any number of times; a line cut short by a crash fails its checksum and ends the replay.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * WriteBehindQueue queue = new WriteBehindQueue(handler.openWriterConnection(), journal, 200, 1000);
+ * queue.put(new Movie("Inception", 2010, "Science Fiction", "Christopher Nolan", 95.0f, true));
+ * queue.awaitDurable(); // survives a crash from here on
+ * queue.flush();        // in the database from here on
+ * queue.close();
+ * </pre>
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    /** The suffix added to the database path to name its journal. */
+    public static final String JOURNAL_SUFFIX = "-writes";
+    /** The longest time, in milliseconds, a change waits before it is written when the caller does not choose one. */
+    public static final long DEFAULT_FLUSH_MILLIS = 200;
+    /** The number of waiting titles that starts a batch early when the caller does not choose one. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** Updates the stored row of a title. */
+    private static final String UPDATE_SQL = "UPDATE Movies SET Release_Year = ?, Genre = ?, Director = ?, Rating = ?, "
+            + "Watched_Status = ? WHERE Title = ?;";
+    /** Inserts a title that has no row yet. */
+    private static final String INSERT_SQL = "INSERT INTO Movies (Title, Release_Year, Genre, Director, Rating, "
+            + "Watched_Status) VALUES (?, ?, ?, ?, ?, ?);";
+    /** Deletes a removed title. */
+    private static final String DELETE_SQL = "DELETE FROM Movies WHERE Title = ?;";
+
+    /** The connection the batches are committed through, used only by the writer thread. */
+    private final Connection conn;
+    /** The journal file. */
+    private final Path journalPath;
+    /** The open journal, appended to under {@link #lock}. */
+    private final FileChannel journal;
+    /** The longest time a change waits before it is written. */
+    private final long flushMillis;
+    /** The number of waiting titles that starts a batch early. */
+    private final int batchSize;
+    /** The background thread that commits the batches. */
+    private final Thread writer;
+    /** The number of titles the journal held when the queue was created and that were replayed. */
+    private final int replayed;
+
+    /** Guards every field below. */
+    private final Object lock = new Object();
+    /** The latest queued state of each title, null for a removed title, in the order the titles were first queued. */
+    private Map<String, Movie> pending = new LinkedHashMap<>();
+    /** The sequence number of the last change queued. */
+    private long submitted;
+    /** The sequence number of the last change synced to the journal. */
+    private long durable;
+    /** The sequence number of the last change committed to the database. */
+    private long applied;
+    /** The number of batches that failed and were queued again. */
+    private long failures;
+    /** Set by {@link #flush()} to write without waiting for the interval. */
+    private boolean flushRequested;
+    /** Set once the queue takes no more changes; the writer then writes what is left and stops. */
+    private boolean closed;
+    /** Set by {@link #halt()} to stop the writer without writing. */
+    private boolean halted;
+    /** The number of changes that replaced a queued state of the same title. */
+    private long coalesced;
+    /** The number of rows written by committed batches. */
+    private long rowsWritten;
+    /** The number of committed batches. */
+    private long batchesCommitted;
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Opens the journal, replays whatever a previous run left in it and starts the writer thread.
+     * <p>
+     * The connection is switched to manual commits and belongs to the queue from now on; {@link #close()} closes it. If
+     * the constructor throws, the connection is not closed and still belongs to the caller.
+     * </p>
+     *
+     * @param conn a connection to the movie database that nothing else uses
+     * @param journalPath the journal file, created if missing
+     * @param flushMillis the longest time, in milliseconds, a change waits before it is written (at least 1)
+     * @param batchSize the number of waiting titles that starts a batch early (at least 1)
+     * @throws IOException if the journal cannot be opened or read
+     * @throws SQLException if the replayed changes cannot be written
+     */
+    public WriteBehindQueue(Connection conn, Path journalPath, long flushMillis, int batchSize)
+            throws IOException, SQLException {
+        this.conn = conn;
+        this.journalPath = journalPath;
+        this.flushMillis = Math.max(1, flushMillis);
+        this.batchSize = Math.max(1, batchSize);
+        conn.setAutoCommit(false);
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Map<String, Movie> recovered = readJournal(journalPath);
+            if (!recovered.isEmpty()) {
+                apply(recovered);
+            }
+            replayed = recovered.size();
+            journal.truncate(0);
+            journal.force(true);
+        } catch (IOException | SQLException e) {
+            journal.close();
+            throw e;
+        }
+        writer = new Thread(this::run, "movie-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Queues a movie to be stored under its title, replacing any queued state of that title.
+     * @param movie the movie as it should be stored
+     * @return true if the change was journaled and queued, false if the journal could not be written
+     */
+    public boolean put(Movie movie) {
+        return submit(movie.getTitle(), movie);
+    }
+
+    /**
+     * Queues the removal of a title, replacing any queued state of that title.
+     * @param title the title to remove
+     * @return true if the change was journaled and queued, false if the journal could not be written
+     */
+    public boolean remove(String title) {
+        return submit(title, null);
+    }
+
+    /**
+     * Queues a rename as one change: the removal of the old title and the movie under its new title, replacing any
+     * queued state of either title.
+     *
+     * @param oldTitle the title the movie is stored under now
+     * @param movie the movie as it should be stored, under its new title
+     * @return true if the rename was journaled and queued, false if the journal could not be written and nothing was
+     * queued
+     */
+    public boolean rename(String oldTitle, Movie movie) {
+        Map<String, Movie> states = new LinkedHashMap<>();
+        states.put(oldTitle, null);
+        states.put(movie.getTitle(), movie);
+        return submitAll(encodeRename(oldTitle, movie), states);
+    }
+
+    /**
+     * Appends a change of one title to the journal and queues it.
+     *
+     * @param title the title changed
+     * @param movie the new state of the title, or null if it was removed
+     * @return true if the change was journaled and queued
+     * @throws IllegalStateException if the queue is closed
+     */
+    private boolean submit(String title, Movie movie) {
+        return submitAll(encode(title, movie), Collections.singletonMap(title, movie));
+    }
+
+    /**
+     * Appends one journal line and queues the title states it records, all or nothing.
+     *
+     * @param line the journal line
+     * @param states the new state of each title changed, null for a removed title
+     * @return true if the line was journaled and the states queued
+     * @throws IllegalStateException if the queue is closed
+     */
+    private boolean submitAll(String line, Map<String, Movie> states) {
+        ByteBuffer record = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("The write-behind queue is closed");
+            }
+            try {
+                while (record.hasRemaining()) {
+                    journal.write(record);
+                }
+            } catch (IOException e) {
+                System.out.println("Failed to write the write-behind journal: " + e.getMessage());
+                return false;
+            }
+            for (Map.Entry<String, Movie> state : states.entrySet()) {
+                if (pending.containsKey(state.getKey())) {
+                    coalesced++;
+                }
+                pending.put(state.getKey(), state.getValue());
+            }
+            submitted++;
+            if (pending.size() >= batchSize) {
+                lock.notifyAll();
+            }
+            return true;
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Syncs the journal to disk, so every change queued so far survives a crash.
+     * @return true if the journal was synced, false if it could not be
+     */
+    public boolean awaitDurable() {
+        long target;
+        synchronized (lock) {
+            target = submitted;
+            if (durable >= target) {
+                return true;
+            }
+        }
+        try {
+            journal.force(false);
+        } catch (IOException e) {
+            System.out.println("Failed to sync the write-behind journal: " + e.getMessage());
+            return false;
+        }
+        synchronized (lock) {
+            durable = Math.max(durable, target);
+        }
+        return true;
+    }
+
+    /**
+     * Writes every change queued so far to the database now and waits until it is committed.
+     * @return true if everything queued before the call is committed, false if a batch failed or the writer stopped
+     */
+    public boolean flush() {
+        synchronized (lock) {
+            long target = submitted;
+            long failuresBefore = failures;
+            flushRequested = true;
+            lock.notifyAll();
+            while (applied < target) {
+                if (failures != failuresBefore || !writer.isAlive()) {
+                    return false;
+                }
+                try {
+                    lock.wait(flushMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes everything still queued, stops the writer and closes the connection.
+     * <p>
+     * The journal is deleted if everything was committed; otherwise it is kept and replayed by the next queue.
+     * </p>
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        stop();
+        boolean clean;
+        synchronized (lock) {
+            clean = pending.isEmpty() && applied == submitted;
+        }
+        try {
+            journal.close();
+            if (clean) {
+                Files.deleteIfExists(journalPath);
+            } else {
+                System.out.println("Unwritten changes are kept in " + journalPath + " and replayed on the next start.");
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to close the write-behind journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the writer at once without writing what is queued, as a crash would, leaving the journal in place.
+     * <p>
+     * Used by tests to check recovery.
+     * </p>
+     */
+    void halt() {
+        synchronized (lock) {
+            closed = true;
+            halted = true;
+            lock.notifyAll();
+        }
+        stop();
+        try {
+            journal.force(false);
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Failed to close the write-behind journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the writer thread to end, then closes the connection.
+     */
+    private void stop() {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.out.println("Failed to close the write-behind connection: " + e.getMessage());
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Gets the number of titles replayed from the journal when the queue was created.
+     * @return the number of recovered titles, 0 after a clean shutdown
+     */
+    public int getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Gets the number of titles waiting to be written.
+     * @return the number of queued titles
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Gets the number of changes that replaced a queued change of the same title instead of being written themselves.
+     * @return the number of coalesced changes
+     */
+    public long getCoalescedCount() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Gets the number of rows written by committed batches.
+     * @return the rows inserted, updated or deleted
+     */
+    public long getRowsWritten() {
+        synchronized (lock) {
+            return rowsWritten;
+        }
+    }
+
+    /**
+     * Gets the number of committed batches.
+     * @return the number of transactions committed by the writer
+     */
+    public long getBatchesCommitted() {
+        synchronized (lock) {
+            return batchesCommitted;
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * The writer thread: waits for the interval, a full batch, a flush or the close, then syncs the journal and commits
+     * the queued states.
+     */
+    private void run() {
+        while (true) {
+            Map<String, Movie> batch;
+            long target;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + flushMillis;
+                long wait;
+                while (!closed && !flushRequested && pending.size() < batchSize
+                        && (wait = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        lock.wait(wait);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (halted || (closed && applied == submitted)) {
+                    lock.notifyAll();
+                    return;
+                }
+                flushRequested = false;
+                target = submitted;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+
+            try {
+                journal.force(false);
+                synchronized (lock) {
+                    durable = Math.max(durable, target);
+                }
+                int rows = batch.isEmpty() ? 0 : apply(batch);
+                synchronized (lock) {
+                    applied = target;
+                    rowsWritten += rows;
+                    batchesCommitted += batch.isEmpty() ? 0 : 1;
+                    if (pending.isEmpty() && applied == submitted) {
+                        // Everything in the journal is committed, so start it over
+                        journal.truncate(0);
+                    }
+                    lock.notifyAll();
+                }
+            } catch (IOException | SQLException e) {
+                System.out.println("Write-behind batch failed, retrying: " + e.getMessage());
+                synchronized (lock) {
+                    // Queue the batch again, keeping any newer state queued since it was taken
+                    for (Map.Entry<String, Movie> entry : batch.entrySet()) {
+                        if (!pending.containsKey(entry.getKey())) {
+                            pending.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    failures++;
+                    lock.notifyAll();
+                    if (closed) {
+                        return; // The journal keeps the changes for the next start
+                    }
+                    try {
+                        lock.wait(flushMillis);
+                    } catch (InterruptedException interrupted) {
+                        closed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the states of titles in one transaction: updates the stored row, inserts a missing one or deletes it.
+     *
+     * @param states the state of each title, null for a removed title
+     * @return the number of rows written
+     * @throws SQLException if the batch fails; it is rolled back
+     */
+    private int apply(Map<String, Movie> states) throws SQLException {
+        int rows = 0;
+        try (PreparedStatement update = conn.prepareStatement(UPDATE_SQL);
+             PreparedStatement insert = conn.prepareStatement(INSERT_SQL);
+             PreparedStatement delete = conn.prepareStatement(DELETE_SQL)) {
+            for (Map.Entry<String, Movie> state : states.entrySet()) {
+                Movie movie = state.getValue();
+                if (movie == null) {
+                    delete.setString(1, state.getKey());
+                    rows += delete.executeUpdate();
+                    continue;
+                }
+                update.setInt(1, movie.getRelease_Year());
+                update.setString(2, movie.getGenre());
+                update.setString(3, movie.getDirector());
+                update.setFloat(4, movie.getRating());
+                update.setBoolean(5, movie.getWatched_Status());
+                update.setString(6, movie.getTitle());
+                int updated = update.executeUpdate();
+                if (updated == 0) {
+                    insert.setString(1, movie.getTitle());
+                    insert.setInt(2, movie.getRelease_Year());
+                    insert.setString(3, movie.getGenre());
+                    insert.setString(4, movie.getDirector());
+                    insert.setFloat(5, movie.getRating());
+                    insert.setBoolean(6, movie.getWatched_Status());
+                    updated = insert.executeUpdate();
+                }
+                rows += updated;
+            }
+            conn.commit();
+            return rows;
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+    /**
+     * Encodes a change as one journal line: its CRC-32, then "P" and the movie's fields or "D" and the title, separated by
+     * tabs, with backslashes, tabs and line breaks escaped.
+     *
+     * @param title the title changed
+     * @param movie the new state of the title, or null if it was removed
+     * @return the journal line, ending in a line break
+     */
+    static String encode(String title, Movie movie) {
+        return line(movie == null ? "D\t" + escape(title) : "P\t" + fields(movie));
+    }
+
+    /**
+     * Encodes a rename as one journal line: its CRC-32, then "R", the old title and the movie's fields, so a crash keeps
+     * either the whole rename or none of it.
+     *
+     * @param oldTitle the title the movie was stored under
+     * @param movie the movie under its new title
+     * @return the journal line, ending in a line break
+     */
+    static String encodeRename(String oldTitle, Movie movie) {
+        return line("R\t" + escape(oldTitle) + '\t' + fields(movie));
+    }
+
+    /**
+     * Joins a movie's fields with tabs, escaping the text fields.
+     * @param movie the movie
+     * @return the title, year, genre, director, rating and watched status
+     */
+    private static String fields(Movie movie) {
+        return escape(movie.getTitle()) + '\t' + movie.getRelease_Year() + '\t' + escape(movie.getGenre())
+                + '\t' + escape(movie.getDirector()) + '\t' + movie.getRating() + '\t' + movie.getWatched_Status();
+    }
+
+    /**
+     * Prefixes a payload with its checksum and ends it with a line break.
+     * @param payload the payload
+     * @return the journal line
+     */
+    private static String line(String payload) {
+        return Long.toHexString(checksum(payload)) + '\t' + payload + '\n';
+    }
+
+    /**
+     * Reads a journal and keeps the last state of each title, stopping at the first line that is incomplete or fails
+     * its checksum.
+     *
+     * @param journalPath the journal file
+     * @return the last state of each title, null for a removed title (empty if there is no journal)
+     * @throws IOException if the journal cannot be read
+     */
+    static Map<String, Movie> readJournal(Path journalPath) throws IOException {
+        Map<String, Movie> states = new LinkedHashMap<>();
+        if (!Files.exists(journalPath)) {
+            return states;
+        }
+        String text = new String(Files.readAllBytes(journalPath), StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) >= 0) {
+            String line = text.substring(start, end);
+            start = end + 1;
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                break;
+            }
+            String payload = line.substring(tab + 1);
+            List<String> fields = split(payload);
+            try {
+                if (Long.parseLong(line.substring(0, tab), 16) != checksum(payload)) {
+                    break;
+                }
+                if (fields.size() == 2 && fields.get(0).equals("D")) {
+                    states.put(fields.get(1), null);
+                } else if (fields.size() == 7 && fields.get(0).equals("P")) {
+                    states.put(fields.get(1), movieOf(fields, 1));
+                } else if (fields.size() == 8 && fields.get(0).equals("R")) {
+                    Movie renamed = movieOf(fields, 2);
+                    states.put(fields.get(1), null);
+                    states.put(renamed.getTitle(), renamed);
+                } else {
+                    break;
+                }
+            } catch (NumberFormatException e) {
+                break;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Creates a movie from the six fields of a journal line.
+     *
+     * @param fields the split payload
+     * @param first the index of the title field
+     * @return the movie
+     * @throws NumberFormatException if the year or rating is not a number
+     */
+    private static Movie movieOf(List<String> fields, int first) {
+        return new Movie(fields.get(first), Integer.parseInt(fields.get(first + 1)), fields.get(first + 2),
+                fields.get(first + 3), Float.parseFloat(fields.get(first + 4)), Boolean.parseBoolean(fields.get(first + 5)));
+    }
+
+    /**
+     * Computes the CRC-32 of a journal payload.
+     * @param payload the payload
+     * @return the checksum
+     */
+    private static long checksum(String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Escapes a field so it contains no tab or line break.
+     * @param value the field, may be null
+     * @return the escaped field; null is written as an empty field
+     */
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    /**
+     * Splits a payload at its tabs and unescapes the fields.
+     * @param payload the payload
+     * @return the fields
+     */
+    private static List<String> split(String payload) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < payload.length()) {
+                char next = payload.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}//class